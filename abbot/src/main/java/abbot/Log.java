@@ -5,11 +5,21 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.lang.StackWalker.StackFrame;
 import java.lang.reflect.InvocationTargetException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.Date;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import javax.swing.SwingUtilities;
 
 /**
@@ -46,6 +56,11 @@ import javax.swing.SwingUtilities;
  * </ul>
  * Per-class stack trace depth can be specified when adding a class, e.g.
  * classname[:stack-depth].
+ * <p>
+ * Debug messages which are expensive to build should be passed as a {@link Supplier}, e.g.
+ * <code>Log.debug(() -&gt; "Found " + component)</code>, so that they are only built if debug
+ * output is enabled for the calling class.  Log output is written asynchronously by a background
+ * thread; call {@link #flush()} to wait for pending messages.
  *
  * @author twall
  * @version $Revision: 1.1 $
@@ -74,24 +89,10 @@ public final class Log {
    */
   private static final int CLASS_STACK_DEPTH = -1;
 
-  /**
-   * Basic warning categories.  FIXME use these. public static final int ERROR   = 0x0001; public
-   * static final int WARNING = 0x0002; public static final int DEBUG   = 0x0004; public static
-   * final int INFO    = 0x0008;
-   */
-  private static class LogSynchronizer extends Object {
-
-  }
-
-  /**
-   * Synchronize message output.
-   */
-  private static final LogSynchronizer synchronizer = new LogSynchronizer();
-
   /**
    * Whether any debugging output is enabled.
    */
-  public static boolean expectDebugOutput;
+  public static volatile boolean expectDebugOutput;
 
   /**
    * Enable assert checks.
@@ -134,8 +135,31 @@ public final class Log {
    */
   private static boolean showTimestamp = true;
 
-  private static final java.text.DateFormat timestampFormat =
-      new java.text.SimpleDateFormat("yyMMdd HH:mm:ss:SSS ");
+  private static final DateTimeFormatter timestampFormat =
+      DateTimeFormatter.ofPattern("yyMMdd HH:mm:ss:SSS ").withZone(ZoneId.systemDefault());
+
+  /**
+   * Walks the stack for callers without rendering a full stack trace.
+   */
+  private static final StackWalker walker =
+      StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE);
+
+  /**
+   * Debug enablement is per outermost class.
+   */
+  private static final ClassValue<Class<?>> outerClass =
+      new ClassValue<>() {
+        @Override
+        protected Class<?> computeValue(Class<?> type) {
+          Class<?> c = type;
+          if (debugInner) {
+            while (c.getEnclosingClass() != null) {
+              c = c.getEnclosingClass();
+            }
+          }
+          return c;
+        }
+      };
 
   /**
    * Strip this out of output, since it doesn't add information to see it repeatedly.  Some projects
@@ -148,17 +172,17 @@ public final class Log {
    * Store which classes we want to see debug info for.  FIXME make it a map and make the value the
    * debug level.
    */
-  private static final HashMap<Class<?>, Integer> debugged = new HashMap<>();
+  private static final Map<Class<?>, Integer> debugged = new ConcurrentHashMap<>();
 
   /**
    * Store which classes we don't want to see debug info for
    */
-  private static final HashSet<Class<?>> notdebugged = new HashSet<>();
+  private static final Set<Class<?>> notdebugged = ConcurrentHashMap.newKeySet();
 
   /**
    * Debug all classes?
    */
-  private static boolean debugAll;
+  private static volatile boolean debugAll;
 
   /**
    * Treat inner/anonymous classes as outer class?
@@ -167,7 +191,7 @@ public final class Log {
 
   private static final String DEFAULT_LOGFILE_NAME = "abbot.log";
   private static final ByteArrayOutputStream preInitLog = new ByteArrayOutputStream();
-  private static PrintStream log = new PrintStream(preInitLog);
+  private static volatile PrintStream log = new PrintStream(preInitLog);
 
   // Save these for future use
   static PrintStream systemOut = System.out;
@@ -336,7 +360,7 @@ public final class Log {
 
   public static void addDebugClass(Class<?> c, int depth) {
     expectDebugOutput = true;
-    debugged.put(c, new Integer(depth));
+    debugged.put(c, depth);
     notdebugged.remove(c);
     Log.debug("Debugging enabled for " + c);
   }
@@ -388,77 +412,68 @@ public final class Log {
     return Class.forName(className);
   }
 
-  private static String getStackTrace(int pop, int lines) {
-    return getStackTrace(pop, lines, new Throwable("--debug--"));
+  /**
+   * Returns the current stack, starting at the first caller outside this class.
+   */
+  private static String getStackTrace(int lines) {
+    return walker.walk(
+        frames ->
+            format(
+                limit(frames.dropWhile(Log::isLogFrame), lines)
+                    .map(StackFrame::toStackTraceElement)));
   }
 
   private static String getStackTrace(int pop, int lines, Throwable thr) {
-    String stack = getStackTrace(pop, thr);
+    String trace = format(limit(Stream.of(thr.getStackTrace()).skip(pop), lines));
     if (lines == FULL_STACK) {
-      return stack;
-    }
-    return trimStackTrace(stack, lines);
-  }
-
-  private static String getStackTrace(int pop, Throwable thr) {
-    OutputStream os = new ByteArrayOutputStream();
-    PrintStream newStream = new PrintStream(os, true);
-    // OUCH! this is a serious performance hit!
-    thr.printStackTrace(newStream);
-    String trace = os.toString();
-
-    // Pop off getStackTrace itself
-    // Skip over any calls to getStackTrace; the JIT sometimes puts a
-    // spurious entry, so don't just stop at the first one.
-    int getLoc = trace.lastIndexOf("getStackTrace");
-    trace = trace.substring(trace.indexOf("\tat ", getLoc) + 3);
-    while (pop-- > 0) {
-      // pop off the calling function
-      int at = trace.indexOf("\tat ");
-      if (at != -1) {
-        trace = trace.substring(at + 3);
+      for (Throwable cause = thr.getCause(); cause != null; cause = cause.getCause()) {
+        trace += "\nCaused by: " + cause + "\n\tat " + format(Stream.of(cause.getStackTrace()));
       }
     }
-
     return trace;
   }
 
-  private static String trimStackTrace(String trace, int lines) {
-    // Keep just as many lines as were requested
-    int end = trace.indexOf(")") + 1;
-    boolean all = (lines == FULL_STACK);
-    while (all || --lines > 0) {
-      int index = trace.indexOf("\tat ", end);
-      if (index < 0) {
-        break;
-      }
-      end = trace.indexOf(")", index) + 1;
-    }
-    return trace.substring(0, end);
+  private static <T> Stream<T> limit(Stream<T> frames, int lines) {
+    return lines == FULL_STACK ? frames : frames.limit(Math.max(1, lines));
   }
 
-  // FIXME with JIT enabled, stack trace sometimes has spurious junk on the
-  // stack, which will indicate the wrong class...
-  private static Class<?> extractClass(String trace) {
-    String tmp = trace.substring(0, trace.indexOf("("));
-    String cname = tmp.substring(0, tmp.lastIndexOf("."));
-    if (debugInner) {
-      int sub = cname.indexOf("$");
-      if (sub >= 0) {
-        cname = cname.substring(0, sub);
-      }
-    }
-    try {
-      cname = cname.trim();
-      return Class.forName(cname);
-    } catch (ClassNotFoundException exc) {
-      internalWarn("Class '" + cname + "' not found");
-      return null;
-    }
+  private static String format(Stream<StackTraceElement> frames) {
+    return frames.map(StackTraceElement::toString).collect(Collectors.joining("\n\tat "));
+  }
+
+  private static boolean isLogFrame(StackFrame frame) {
+    return outerClass.get(frame.getDeclaringClass()) == Log.class;
+  }
+
+  /**
+   * Returns the class of the first caller outside this class.
+   */
+  private static Class<?> getCallerClass() {
+    return walker.walk(
+        frames ->
+            frames
+                .map(StackFrame::getDeclaringClass)
+                .filter(c -> outerClass.get(c) != Log.class)
+                .findFirst()
+                .orElse(null));
   }
 
   public static boolean isClassDebugEnabled(Class<?> c) {
-    return (debugAll || debugged.containsKey(c)) && !notdebugged.contains(c);
+    return c != null && (debugAll || debugged.containsKey(c)) && !notdebugged.contains(c);
+  }
+
+  /**
+   * Returns whether debug output is enabled for the calling class.  Use this to guard expensive
+   * debugging code other than message construction.
+   *
+   * @return whether debug messages from the caller would be logged
+   */
+  public static boolean isDebugEnabled() {
+    return expectDebugOutput && isClassDebugEnabled(outerOf(getCallerClass()));
+  }
+
+  private static Class<?> outerOf(Class<?> c) {
+    return c != null ? outerClass.get(c) : null;
   }
 
   private static int getClassStackDepth(Class<?> c) {
@@ -466,26 +481,46 @@ public final class Log {
     return depth != null && depth != CLASS_STACK_DEPTH ? depth : debugStackDepth;
   }
 
-  private static void internalDebug(Class<?> cls, String msg, int lines) {
-    if (cls == null || isClassDebugEnabled(cls)) {
-      String stack = getStackTrace(2, FULL_STACK);
-      if (cls != null || isClassDebugEnabled(cls = extractClass(stack))) {
-        String tname = showThreads ? ": [" + Thread.currentThread().getName() + "] " : ": ";
-        if (lines == CLASS_STACK_DEPTH) {
-          lines = getClassStackDepth(cls);
-        }
-        internalWarn(trimStackTrace(stack, lines) + tname + msg);
+  private static void internalDebug(Class<?> cls, Supplier<String> msg, int lines) {
+    if (cls == null) {
+      cls = outerOf(getCallerClass());
+    }
+    if (isClassDebugEnabled(cls)) {
+      String tname = showThreads ? ": [" + Thread.currentThread().getName() + "] " : ": ";
+      if (lines == CLASS_STACK_DEPTH) {
+        lines = getClassStackDepth(cls);
       }
+      internalWarn(getStackTrace(lines) + tname + msg.get());
     }
   }
 
   public static void debug(Class<?> c, String event) {
+    if (expectDebugOutput) {
+      internalDebug(c, () -> event, CLASS_STACK_DEPTH);
+    }
+  }
+
+  /**
+   * Log a debug message for the given class, building the message only if debug output is enabled
+   * for it.
+   */
+  public static void debug(Class<?> c, Supplier<String> event) {
     if (expectDebugOutput) {
       internalDebug(c, event, CLASS_STACK_DEPTH);
     }
   }
 
   public static void debug(String event) {
+    if (expectDebugOutput) {
+      internalDebug(null, () -> event, CLASS_STACK_DEPTH);
+    }
+  }
+
+  /**
+   * Log a debug message, building the message only if debug output is enabled for the calling
+   * class.
+   */
+  public static void debug(Supplier<String> event) {
     if (expectDebugOutput) {
       internalDebug(null, event, CLASS_STACK_DEPTH);
     }
@@ -493,33 +528,37 @@ public final class Log {
 
   public static void debug(String event, int lines) {
     if (expectDebugOutput) {
-      internalDebug(null, event, lines);
+      internalDebug(null, () -> event, lines);
     }
   }
 
   public static void debug() {
     if (expectDebugOutput) {
-      internalDebug(null, "", CLASS_STACK_DEPTH);
+      internalDebug(null, () -> "", CLASS_STACK_DEPTH);
     }
   }
 
   public static void debug(Throwable thr) {
     if (expectDebugOutput) {
+      Class<?> cls = outerOf(getCallerClass());
+      if (!isClassDebugEnabled(cls)) {
+        return;
+      }
       String where = getStackTrace(0, excStackDepth, thr);
-      String here = getStackTrace(1, debugStackDepth);
+      String here = getStackTrace(debugStackDepth);
       String type = thr instanceof Error ? "Error" : "Exception thrown";
-      internalDebug(null, type + " at " + where + ": " + thr + " (caught at " + here + ")", 1);
-      if (thr instanceof InvocationTargetException) {
-        thr = ((InvocationTargetException) thr).getTargetException();
-        where = getStackTrace(0, excStackDepth, thr);
-        internalDebug(null, "Target exception was " + thr + " at " + where, 1);
+      internalDebug(cls, () -> type + " at " + where + ": " + thr + " (caught at " + here + ")", 1);
+      if (thr instanceof InvocationTargetException ite) {
+        Throwable target = ite.getTargetException();
+        String targetWhere = getStackTrace(0, excStackDepth, target);
+        internalDebug(cls, () -> "Target exception was " + target + " at " + targetWhere, 1);
       }
     }
   }
 
   public static void debug(Object obj) {
     if (expectDebugOutput) {
-      internalDebug(null, obj == null ? "(null)" : obj.toString(), CLASS_STACK_DEPTH);
+      internalDebug(null, () -> obj == null ? "(null)" : obj.toString(), CLASS_STACK_DEPTH);
     }
   }
 
@@ -539,16 +578,14 @@ public final class Log {
   }
 
   private static void internalWarn(String message) {
-    synchronized (synchronizer) {
-      internalLog(message);
-      if (printConsoleWarnings && log != systemErr && log != systemOut) {
-        System.err.println(abbreviate(message));
-      }
+    internalLog(message);
+    if (printConsoleWarnings && log != systemErr && log != systemOut) {
+      System.err.println(abbreviate(message));
     }
   }
 
   public static String getStack(int lines) {
-    return getStackTrace(1, lines);
+    return getStackTrace(lines);
   }
 
   public static String getStack(int lines, Throwable thr) {
@@ -560,18 +597,18 @@ public final class Log {
   }
 
   public static void warn(String message) {
-    String stack = getStackTrace(1, debugStackDepth);
+    String stack = getStackTrace(debugStackDepth);
     internalWarn(stack + ": " + message);
   }
 
   public static void warn(String message, int lines) {
-    String stack = getStackTrace(1, lines);
+    String stack = getStackTrace(lines);
     internalWarn(stack + ": " + message);
   }
 
   public static void warn(Throwable thr) {
     String where = getStackTrace(0, excStackDepth, thr);
-    String here = getStackTrace(1, debugStackDepth);
+    String here = getStackTrace(debugStackDepth);
     String type = thr instanceof Error ? "Error" : "Exception thrown";
     internalWarn(type + " at " + where + ": " + thr + " (caught at " + here + ")");
     if (thr instanceof InvocationTargetException) {
@@ -583,7 +620,7 @@ public final class Log {
 
   private static void assertTrue(String desc, boolean test, int pop) {
     if (assertChecks && !test) {
-      String stack = getStackTrace(pop + 1, excStackDepth);
+      String stack = getStackTrace(excStackDepth);
       String msg = "Assertion failed" + ((desc != null) ? ": " + desc : "");
       internalWarn(msg);
       internalWarn(" at " + stack);
@@ -638,7 +675,7 @@ public final class Log {
   public static void log(String message) {
     if (loggingEnabled()) {
       if (debugStackDepth != 1) {
-        String stack = getStackTrace(1, 1);
+        String stack = getStackTrace(1);
         internalLog(stack + ": " + message);
       } else {
         internalLog(message);
@@ -648,24 +685,127 @@ public final class Log {
 
   private static void internalLog(String event) {
     if (loggingEnabled()) {
-      StringBuilder msg = new StringBuilder();
-      if (showTimestamp) {
-        msg.append(timestampFormat.format(new Date()));
-      }
-      msg.append(abbreviate(event));
-      synchronized (synchronizer) {
-        log.println(msg);
-      }
+      Writer.INSTANCE.enqueue(new Message(System.currentTimeMillis(), abbreviate(event)));
     }
   }
 
+  /**
+   * Wait until all pending log messages have been written.
+   */
+  public static void flush() {
+    Writer.INSTANCE.flush();
+  }
+
   public static void close() {
     if (loggingEnabled()) {
       log("Log closed");
+      flush();
       try {
         log.close();
       } catch (Exception exc) {
       }
     }
   }
+
+  private record Message(long time, String text) {}
+
+  /**
+   * Writes queued log messages on a background thread, flushing the log whenever the queue runs
+   * empty.  Callers only block if the queue is full.  Messages still queued when the VM exits are
+   * written by a shutdown hook, however logging was enabled.
+   */
+  private static final class Writer implements Runnable {
+
+    private static final Writer INSTANCE = new Writer();
+
+    private static final int CAPACITY = 8192;
+
+    /**
+     * How long the shutdown hook waits for queued messages to be written.
+     */
+    private static final long EXIT_FLUSH_TIMEOUT = 5000;
+
+    private final BlockingQueue<Message> queue = new LinkedBlockingQueue<>(CAPACITY);
+    private final Thread thread;
+    private final Object lock = new Object();
+    private long enqueued = 0;
+    private long written = 0;
+
+    private Writer() {
+      thread = new Thread(this, "Log writer");
+      thread.setDaemon(true);
+      thread.start();
+      Runtime.getRuntime()
+          .addShutdownHook(new Thread(() -> flush(EXIT_FLUSH_TIMEOUT), "Log flush hook"));
+    }
+
+    void enqueue(Message message) {
+      synchronized (lock) {
+        enqueued++;
+      }
+      try {
+        queue.put(message);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        synchronized (lock) {
+          enqueued--;
+        }
+      }
+    }
+
+    void flush() {
+      flush(Long.MAX_VALUE);
+    }
+
+    /**
+     * Wait at most the given number of milliseconds for the messages queued so far to be written.
+     */
+    void flush(long timeout) {
+      if (Thread.currentThread() == thread) {
+        return;
+      }
+      long deadline = System.currentTimeMillis() + Math.min(timeout, Long.MAX_VALUE / 2);
+      synchronized (lock) {
+        long target = enqueued;
+        while (written < target && System.currentTimeMillis() < deadline) {
+          try {
+            lock.wait(100);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+          }
+        }
+      }
+    }
+
+    @Override
+    public void run() {
+      List<Message> batch = new ArrayList<>();
+      while (true) {
+        try {
+          batch.add(queue.take());
+        } catch (InterruptedException e) {
+          return;
+        }
+        queue.drainTo(batch);
+        PrintStream out = log;
+        StringBuilder sb = new StringBuilder();
+        for (Message message : batch) {
+          if (showTimestamp) {
+            sb.append(timestampFormat.format(Instant.ofEpochMilli(message.time())));
+          }
+          sb.append(message.text()).append(System.lineSeparator());
+        }
+        out.print(sb);
+        if (queue.isEmpty()) {
+          out.flush();
+        }
+        synchronized (lock) {
+          written += batch.size();
+          lock.notifyAll();
+        }
+        batch.clear();
+      }
+    }
+  }
 }
@@ -27,8 +27,9 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.text.MessageFormat;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.swing.AbstractButton;
 import javax.swing.JButton;
 import javax.swing.JComboBox;
@@ -94,8 +95,8 @@ public class EventRecorder extends Recorder implements SemanticEvents {
     super(resolver);
     this.captureMotion = captureMotion;
     // Install existing semantic recorders
-    for (int i = 0; i < recorderClasses.length; i++) {
-      getSemanticRecorder(recorderClasses[i]);
+    for (Class<?> cls : recorderClasses) {
+      getSemanticRecorder(cls);
     }
   }
 
@@ -583,9 +584,10 @@ public class EventRecorder extends Recorder implements SemanticEvents {
   }
 
   /**
-   * Maps component classes to corresponding semantic recorders.
+   * Maps component classes to corresponding semantic recorders, or to none.  Not a ClassValue, which would keep this
+   * recorder alive for as long as the classes, since the semantic recorders refer back to it through their listener.
    */
-  private final Map<Class<?>, SemanticRecorder> semanticRecorders = new HashMap<>();
+  private final Map<Class<?>, Optional<SemanticRecorder>> semanticRecorders = new ConcurrentHashMap<>();
 
   /**
    * Return the semantic recorder for the given component.
@@ -605,37 +607,49 @@ public class EventRecorder extends Recorder implements SemanticEvents {
   }
 
   protected SemanticRecorder getSemanticRecorder(Class<?> cls) {
-    // 	System.out.println("getting recorder for: " + cls);
     if (!(Component.class.isAssignableFrom(cls))) {
       throw new IllegalArgumentException("Class (" + cls + ") must derive from " + "Component");
     }
-    SemanticRecorder sr = semanticRecorders.get(cls);
+    Optional<SemanticRecorder> sr = semanticRecorders.get(cls);
     if (sr == null) {
-      Class<?> ccls = Robot.getCanonicalClass(cls);
-      if (ccls != cls) {
-        sr = getSemanticRecorder(ccls);
-        // Additionally cache the mapping from the non-canonical class
-        semanticRecorders.put(cls, sr);
-        return sr;
+      // Not computeIfAbsent, since resolving the superclass' recorder updates the map
+      SemanticRecorder created = createSemanticRecorder(cls);
+      Class<?> superclass = cls.getSuperclass();
+      if (created == null && superclass != null && Component.class.isAssignableFrom(superclass)) {
+        created = getSemanticRecorder(superclass);
       }
-      String cname = Robot.simpleClassName(cls);
-      try {
-        // cname = "abbot.editor.recorder." + cname + "Recorder";
-        cname = getRecorderName(cname);
-        Class<?> recorderClass = Class.forName(cname);
-        Constructor<?> ctor = recorderClass.getConstructor(Resolver.class);
-        sr = (SemanticRecorder) ctor.newInstance(getResolver());
-        sr.addActionListener(getListener());
-      } catch (InvocationTargetException e) {
-        Log.warn(e);
-      } catch (NoSuchMethodException | InstantiationException | IllegalAccessException |
-               ClassNotFoundException e) {
-        sr = getSemanticRecorder(cls.getSuperclass());
-      }
-      // Cache the results for future reference
-      semanticRecorders.put(cls, sr);
+      Optional<SemanticRecorder> previous = semanticRecorders.putIfAbsent(cls, Optional.ofNullable(created));
+      sr = previous != null ? previous : Optional.ofNullable(created);
+    }
+    return sr.orElse(null);
+  }
+
+  /**
+   * Create the recorder for exactly the given class, or return <code>null</code> if it should use
+   * its superclass' recorder.
+   */
+  private SemanticRecorder createSemanticRecorder(Class<?> cls) {
+    if (!(Component.class.isAssignableFrom(cls))) {
+      return null;
+    }
+    Class<?> ccls = Robot.getCanonicalClass(cls);
+    if (ccls != cls) {
+      return getSemanticRecorder(ccls);
+    }
+    String cname = getRecorderName(Robot.simpleClassName(cls));
+    try {
+      Class<?> recorderClass = Class.forName(cname);
+      Constructor<?> ctor = recorderClass.getConstructor(Resolver.class);
+      SemanticRecorder sr = (SemanticRecorder) ctor.newInstance(getResolver());
+      sr.addActionListener(getListener());
+      return sr;
+    } catch (InvocationTargetException e) {
+      Log.warn(e);
+    } catch (NoSuchMethodException | InstantiationException | IllegalAccessException
+             | ClassNotFoundException e) {
+      // use the superclass' recorder
     }
-    return sr;
+    return null;
   }
 
   /**
@@ -95,9 +95,12 @@ public class BasicFinder implements ComponentFinder {
 
   protected Component find(Hierarchy hierarchy, Matcher matcher)
       throws ComponentNotFoundException, MultipleComponentsFoundException {
-    var found = new HashSet<Component>();
-    for (Component component : hierarchy.getRoots()) {
-      findMatches(hierarchy, matcher, component, found);
+    var found = findIndexedMatches(hierarchy, matcher);
+    if (found == null) {
+      found = new HashSet<>();
+      for (Component component : hierarchy.getRoots()) {
+        findMatches(hierarchy, matcher, component, found);
+      }
     }
 
     if (found.isEmpty()) {
@@ -114,6 +117,18 @@ public class BasicFinder implements ComponentFinder {
     return found.iterator().next();
   }
 
+  /**
+   * Looks up the matches in the {@link ComponentIndex}, if enabled.
+   *
+   * @return matching components, or <code>null</code> if the hierarchy must be walked
+   */
+  private Set<Component> findIndexedMatches(Hierarchy hierarchy, Matcher matcher) {
+    if (!ComponentIndex.isEnabled()) {
+      return null;
+    }
+    return ComponentIndex.getDefault().findMatches(hierarchy, hierarchy.getRoots(), matcher);
+  }
+
   protected void findMatches(
       Hierarchy hierarchy,
       Matcher matcher,
@@ -0,0 +1,406 @@
+package abbot.finder;
+
+import abbot.Log;
+import abbot.util.PatternCache;
+import abbot.util.WeakAWTEventListener;
+import com.windowtester.runtime.util.StringComparator;
+import java.awt.AWTEvent;
+import java.awt.Button;
+import java.awt.Checkbox;
+import java.awt.Component;
+import java.awt.Dialog;
+import java.awt.Frame;
+import java.awt.Label;
+import java.awt.TextComponent;
+import java.awt.Window;
+import java.awt.event.AWTEventListener;
+import java.awt.event.ContainerEvent;
+import java.awt.event.WindowEvent;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import javax.swing.AbstractButton;
+import javax.swing.JInternalFrame;
+import javax.swing.JLabel;
+import javax.swing.JMenu;
+import javax.swing.JPopupMenu;
+import javax.swing.SwingUtilities;
+
+/**
+ * Keeps a live index of all components in the AWT hierarchy, keyed by class, name and label text,
+ * so that lookups with an {@link IndexedMatcher} cost about O(matches) instead of O(hierarchy).
+ * <p>
+ * The index is kept up to date from container and window events, and from property changes of the
+ * indexed names and labels. Labels which change without notification (AWT buttons, labels and text
+ * components) are always returned as label candidates. Whenever the index can't be trusted it is
+ * marked dirty; lookups then return <code>null</code> so that finders fall back to a full walk of
+ * the hierarchy, while the index is rebuilt on the event dispatch thread.
+ * <p>
+ * The index is disabled by default; set the system property <code>abbot.finder.component_index
+ * </code> to <code>true</code> to enable it.
+ */
+public class ComponentIndex {
+
+  private static final boolean ENABLED = Boolean.getBoolean("abbot.finder.component_index");
+
+  private static class Holder {
+    public static final ComponentIndex INSTANCE = new ComponentIndex();
+  }
+
+  /** Indexed state of a single component. */
+  private record Entry(Class<?> type, String name, List<String> labels) {}
+
+  private final Hierarchy hierarchy = new AWTHierarchy();
+
+  private final Map<Component, Entry> entries = new WeakHashMap<>();
+  private final Map<Class<?>, Set<Component>> byClass = new HashMap<>();
+  private final Map<String, Set<Component>> byName = new HashMap<>();
+  private final Map<String, Set<Component>> byLabel = new HashMap<>();
+
+  /** Components whose label may change without a property change notification. */
+  private final Set<Component> untrackedLabels = newWeakSet();
+
+  private final AWTEventListener eventListener = this::eventDispatched;
+  private final PropertyChangeListener propertyListener = this::propertyChanged;
+
+  private boolean dirty = true;
+  private boolean rebuildPending = false;
+  private int generation = 0;
+
+  /**
+   * Returns whether the component index is enabled for the finders.
+   */
+  public static boolean isEnabled() {
+    return ENABLED;
+  }
+
+  public static ComponentIndex getDefault() {
+    return Holder.INSTANCE;
+  }
+
+  ComponentIndex() {
+    var mask = AWTEvent.CONTAINER_EVENT_MASK | AWTEvent.WINDOW_EVENT_MASK;
+    new WeakAWTEventListener(eventListener, mask);
+    markDirty();
+  }
+
+  /**
+   * Returns whether the index is currently unusable for lookups.
+   */
+  public synchronized boolean isDirty() {
+    return dirty;
+  }
+
+  /**
+   * Mark the index as unusable until it has been rebuilt from the current hierarchy.
+   */
+  public synchronized void markDirty() {
+    dirty = true;
+    generation++;
+    if (!rebuildPending) {
+      rebuildPending = true;
+      SwingUtilities.invokeLater(this::rebuild);
+    }
+  }
+
+  /**
+   * Returns the components reachable from the given roots which match the given matcher.
+   *
+   * @param hierarchy hierarchy used to resolve parents
+   * @param roots     roots the components must descend from
+   * @param matcher   matcher to apply
+   * @return matching components, or <code>null</code> if the lookup requires a full walk of the
+   * hierarchy
+   */
+  public Set<Component> findMatches(
+      Hierarchy hierarchy,
+      Collection<? extends Component> roots,
+      Matcher matcher) {
+    if (!(matcher instanceof IndexedMatcher indexedMatcher) || isDirty()) {
+      return null;
+    }
+    var candidates = indexedMatcher.getCandidates(this);
+    if (candidates == null) {
+      return null;
+    }
+
+    var rootSet = new HashSet<Component>(roots);
+    var found = new HashSet<Component>();
+    for (Component candidate : candidates) {
+      if (isReachable(hierarchy, candidate, rootSet) && matcher.matches(candidate)) {
+        found.add(candidate);
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Returns all indexed components which are instances of the given class.
+   */
+  public synchronized Collection<Component> getByClass(Class<?> cls) {
+    var result = new ArrayList<Component>();
+    for (Map.Entry<Class<?>, Set<Component>> entry : byClass.entrySet()) {
+      if (cls.isAssignableFrom(entry.getKey())) {
+        result.addAll(entry.getValue());
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns all indexed components whose name matches the given string or pattern, as defined by
+   * {@link StringComparator}.
+   */
+  public synchronized Collection<Component> getByName(String nameOrPattern) {
+    return lookup(byName, nameOrPattern);
+  }
+
+  /**
+   * Returns all indexed components whose label text matches the given string or pattern, as
+   * defined by {@link StringComparator}, plus those whose label can't be tracked.
+   */
+  public synchronized Collection<Component> getByLabel(String labelOrPattern) {
+    var result = lookup(byLabel, labelOrPattern);
+    result.addAll(untrackedLabels);
+    return result;
+  }
+
+  private static List<Component> lookup(Map<String, Set<Component>> map, String stringOrPattern) {
+    if (PatternCache.isLiteral(stringOrPattern)) {
+      var bucket = map.get(stringOrPattern);
+      return bucket != null ? new ArrayList<>(bucket) : new ArrayList<>();
+    }
+    var result = new ArrayList<Component>();
+    for (Map.Entry<String, Set<Component>> entry : map.entrySet()) {
+      if (StringComparator.matches(entry.getKey(), stringOrPattern)) {
+        result.addAll(entry.getValue());
+      }
+    }
+    return result;
+  }
+
+  private boolean isReachable(Hierarchy hierarchy, Component component, Set<Component> roots) {
+    if (!hierarchy.contains(component)) {
+      return false;
+    }
+    Component current = component;
+    while (current != null) {
+      if (roots.contains(current)) {
+        return true;
+      }
+      Component parent = hierarchy.getParent(current);
+      // the popup of a menu is a conceptual child of that menu
+      if (parent == null
+          && current instanceof JPopupMenu popupMenu
+          && popupMenu.getInvoker() instanceof JMenu menu
+          && menu.getPopupMenu() == popupMenu) {
+        parent = menu;
+      }
+      current = parent;
+    }
+    return false;
+  }
+
+  private void eventDispatched(AWTEvent event) {
+    try {
+      if (event instanceof ContainerEvent containerEvent) {
+        if (event.getID() == ContainerEvent.COMPONENT_ADDED) {
+          add(containerEvent.getChild());
+        } else if (event.getID() == ContainerEvent.COMPONENT_REMOVED) {
+          remove(containerEvent.getChild());
+        }
+      } else if (event.getID() == WindowEvent.WINDOW_OPENED) {
+        add(((WindowEvent) event).getWindow());
+      }
+    } catch (RuntimeException e) {
+      Log.warn(e);
+      markDirty();
+    }
+  }
+
+  private void propertyChanged(PropertyChangeEvent event) {
+    if (event.getSource() instanceof Component component) {
+      synchronized (this) {
+        if (entries.containsKey(component)) {
+          indexComponent(component);
+        }
+      }
+    }
+  }
+
+  private synchronized void add(Component component) {
+    indexSubtree(component);
+    // make sure the ancestors are known, too
+    var parent = hierarchy.getParent(component);
+    while (parent != null && !entries.containsKey(parent)) {
+      indexComponent(parent);
+      parent = hierarchy.getParent(parent);
+    }
+  }
+
+  private synchronized void remove(Component component) {
+    // iconified internal frames are still reachable via their desktop icon
+    if (component instanceof JInternalFrame) {
+      return;
+    }
+    unindexSubtree(component);
+  }
+
+  private void rebuild() {
+    int startGeneration;
+    synchronized (this) {
+      rebuildPending = false;
+      startGeneration = generation;
+      for (Component component : new ArrayList<>(entries.keySet())) {
+        unindexComponent(component);
+      }
+    }
+    for (Component root : hierarchy.getRoots()) {
+      add(root);
+    }
+    synchronized (this) {
+      if (startGeneration == generation) {
+        dirty = false;
+      }
+    }
+  }
+
+  private void indexSubtree(Component component) {
+    indexComponent(component);
+    for (Component child : hierarchy.getComponents(component)) {
+      indexSubtree(child);
+    }
+  }
+
+  private void unindexSubtree(Component component) {
+    unindexComponent(component);
+    for (Component child : hierarchy.getComponents(component)) {
+      unindexSubtree(child);
+    }
+  }
+
+  private void indexComponent(Component component) {
+    var old = entries.get(component);
+    if (old != null) {
+      removeKeys(component, old);
+    } else {
+      addPropertyListener(component);
+    }
+
+    var entry = new Entry(component.getClass(), component.getName(), getLabels(component));
+    entries.put(component, entry);
+    bucket(byClass, entry.type()).add(component);
+    if (entry.name() != null) {
+      bucket(byName, entry.name()).add(component);
+    }
+    for (String label : entry.labels()) {
+      bucket(byLabel, label).add(component);
+    }
+    if (!isLabelTracked(component)) {
+      untrackedLabels.add(component);
+    }
+  }
+
+  private void unindexComponent(Component component) {
+    var entry = entries.remove(component);
+    if (entry != null) {
+      removeKeys(component, entry);
+      removePropertyListener(component);
+    }
+  }
+
+  private void removeKeys(Component component, Entry entry) {
+    removeFromBucket(byClass, entry.type(), component);
+    if (entry.name() != null) {
+      removeFromBucket(byName, entry.name(), component);
+    }
+    for (String label : entry.labels()) {
+      removeFromBucket(byLabel, label, component);
+    }
+    untrackedLabels.remove(component);
+  }
+
+  private void addPropertyListener(Component component) {
+    component.addPropertyChangeListener("name", propertyListener);
+    if (component instanceof AbstractButton || component instanceof JLabel) {
+      component.addPropertyChangeListener("text", propertyListener);
+    } else if (component instanceof Frame || component instanceof Dialog) {
+      component.addPropertyChangeListener("title", propertyListener);
+    }
+  }
+
+  private void removePropertyListener(Component component) {
+    component.removePropertyChangeListener("name", propertyListener);
+    component.removePropertyChangeListener("text", propertyListener);
+    component.removePropertyChangeListener("title", propertyListener);
+  }
+
+  private static boolean isLabelTracked(Component component) {
+    return !(component instanceof Button
+        || component instanceof Checkbox
+        || component instanceof Label
+        || component instanceof TextComponent);
+  }
+
+  /**
+   * Returns the label of the given component, both as is and with any mnemonic marker and
+   * accelerator suffix stripped.
+   */
+  private static List<String> getLabels(Component component) {
+    String label = null;
+    if (component instanceof AbstractButton button) {
+      label = button.getText();
+    } else if (component instanceof JLabel jLabel) {
+      label = jLabel.getText();
+    } else if (component instanceof Frame frame) {
+      label = frame.getTitle();
+    } else if (component instanceof Dialog dialog) {
+      label = dialog.getTitle();
+    }
+    if (label == null) {
+      return Collections.emptyList();
+    }
+
+    var trimmed = label;
+    int index = trimmed.indexOf('\t');
+    if (index != -1) {
+      trimmed = trimmed.substring(0, index);
+    }
+    index = trimmed.indexOf('&');
+    if (index != -1) {
+      trimmed = trimmed.substring(0, index) + trimmed.substring(index + 1);
+    }
+    return trimmed.equals(label) ? List.of(label) : List.of(label, trimmed);
+  }
+
+  private static <K> Set<Component> bucket(Map<K, Set<Component>> map, K key) {
+    return map.computeIfAbsent(key, k -> newWeakSet());
+  }
+
+  private static <K> void removeFromBucket(Map<K, Set<Component>> map, K key, Component component) {
+    var bucket = map.get(key);
+    if (bucket != null) {
+      bucket.remove(component);
+      if (bucket.isEmpty()) {
+        map.remove(key);
+      }
+    }
+  }
+
+  private static Set<Component> newWeakSet() {
+    return Collections.newSetFromMap(new WeakHashMap<>());
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "ComponentIndex[" + entries.size() + " components" + (dirty ? ", dirty]" : "]");
+  }
+}
@@ -0,0 +1,20 @@
+package abbot.finder;
+
+import java.awt.Component;
+import java.util.Collection;
+
+/**
+ * A {@link Matcher} which can narrow a search down to a set of candidates taken from a
+ * {@link ComponentIndex}, so that finders need not walk the whole hierarchy. The candidates are
+ * only a pre-selection; finders still apply {@link #matches(Component)} to each of them.
+ */
+public interface IndexedMatcher extends Matcher {
+
+  /**
+   * Returns a superset of all components this matcher could match, taken from the given index.
+   *
+   * @param index component index
+   * @return candidate components, or <code>null</code> if this matcher can't use the index
+   */
+  Collection<Component> getCandidates(ComponentIndex index);
+}
@@ -1,11 +1,14 @@
 package abbot.finder.matchers;
 
+import abbot.finder.ComponentIndex;
+import abbot.finder.IndexedMatcher;
 import java.awt.Component;
+import java.util.Collection;
 
 /**
  * Provides matching of components by class.
  */
-public class ClassMatcher extends AbstractMatcher {
+public class ClassMatcher extends AbstractMatcher implements IndexedMatcher {
 
   private final Class<?> cls;
   private final boolean mustBeShowing;
@@ -25,6 +28,11 @@ public class ClassMatcher extends AbstractMatcher {
         && (!mustBeShowing || component.isShowing());
   }
 
+  @Override
+  public Collection<Component> getCandidates(ComponentIndex index) {
+    return cls != null ? index.getByClass(cls) : null;
+  }
+
   @Override
   public String toString() {
     return "Class matcher (" + cls.getName() + ")";
@@ -1,12 +1,15 @@
 package abbot.finder.matchers;
 
+import abbot.finder.ComponentIndex;
+import abbot.finder.IndexedMatcher;
 import abbot.util.AWT;
 import java.awt.Component;
+import java.util.Collection;
 
 /**
  * Provides matching of Components by component name.
  */
-public class NameMatcher extends AbstractMatcher {
+public class NameMatcher extends AbstractMatcher implements IndexedMatcher {
 
   private final String name;
 
@@ -30,6 +33,12 @@ public class NameMatcher extends AbstractMatcher {
     return stringsMatch(name, componentName);
   }
 
+  @Override
+  public Collection<Component> getCandidates(ComponentIndex index) {
+    // components without a name are not indexed
+    return name != null ? index.getByName(name) : null;
+  }
+
   @Override
   public String toString() {
     return "Name matcher (" + name + ")";
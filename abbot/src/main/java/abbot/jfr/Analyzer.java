@@ -0,0 +1,280 @@
+package abbot.jfr;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Breaks down the time of every test in a flight recording into the time spent in robot actions, idle waits, searches,
+ * condition waits and screen captures.  Time is attributed to the innermost event, so that e.g. an idle wait within a
+ * click counts as idle wait, not as action.  What is left of the time of a test is reported as other; time spent on
+ * other threads, like encoding screenshots, is listed under its category but not taken off other.
+ * <p>
+ * Usage: <code>java abbot.jfr.Analyzer recording.jfr</code>
+ */
+public final class Analyzer {
+
+  /**
+   * What the time of a test is spent on.
+   */
+  public enum Category {
+    ACTION(RobotActionEvent.NAME, "Action"),
+    IDLE(IdleWaitEvent.NAME, "Idle"),
+    FIND(FindEvent.NAME, "Find"),
+    CONDITION(ConditionWaitEvent.NAME, "Condition"),
+    CAPTURE(CaptureEvent.NAME, "Capture");
+
+    private final String eventName;
+    private final String label;
+
+    Category(String eventName, String label) {
+      this.eventName = eventName;
+      this.label = label;
+    }
+
+    static Category of(String eventName) {
+      for (Category category : values()) {
+        if (category.eventName.equals(eventName)) {
+          return category;
+        }
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Time spent by a single test.
+   *
+   * @param name   the test class and name
+   * @param passed whether the test passed
+   * @param total  the duration of the test
+   * @param time   the time spent per category
+   * @param counts the number of events per category
+   * @param other  the time of the test not spent in any category
+   */
+  public record Breakdown(
+      String name,
+      boolean passed,
+      Duration total,
+      Map<Category, Duration> time,
+      Map<Category, Integer> counts,
+      Duration other) {}
+
+  private record Test(String name, boolean passed, long thread, long start, long end) {}
+
+  private static final class Span {
+
+    private final Category category;
+    private final long thread;
+    private final long start;
+    private final long end;
+    private long self;
+
+    private Span(Category category, long thread, long start, long end) {
+      this.category = category;
+      this.thread = thread;
+      this.start = start;
+      this.end = end;
+      this.self = end - start;
+    }
+  }
+
+  private Analyzer() {}
+
+  /**
+   * Break down the time of every test in the given recording, in the order the tests started.
+   */
+  public static List<Breakdown> analyze(Path recording) throws IOException {
+    List<Test> tests = new ArrayList<>();
+    List<Span> spans = new ArrayList<>();
+    try (RecordingFile file = new RecordingFile(recording)) {
+      while (file.hasMoreEvents()) {
+        RecordedEvent event = file.readEvent();
+        String name = event.getEventType().getName();
+        long start = toNanos(event.getStartTime());
+        long end = toNanos(event.getEndTime());
+        if (TestEvent.NAME.equals(name)) {
+          tests.add(
+              new Test(
+                  event.getString("testClass") + " " + event.getString("testName"),
+                  event.getBoolean("passed"),
+                  getThread(event),
+                  start,
+                  end));
+        } else {
+          Category category = Category.of(name);
+          if (category != null) {
+            spans.add(new Span(category, getThread(event), start, end));
+          }
+        }
+      }
+    }
+    computeSelfTimes(spans);
+    tests.sort(Comparator.comparingLong(Test::start));
+
+    // latest end of any test up to each one, so the search for tests containing a span stops early
+    long[] ends = new long[tests.size()];
+    for (int i = 0; i < ends.length; i++) {
+      ends[i] = Math.max(tests.get(i).end(), i > 0 ? ends[i - 1] : Long.MIN_VALUE);
+    }
+    Map<Test, List<Span>> spansByTest = new HashMap<>();
+    for (Span span : spans) {
+      Test test = findTest(tests, ends, span);
+      if (test != null) {
+        spansByTest.computeIfAbsent(test, t -> new ArrayList<>()).add(span);
+      }
+    }
+    List<Breakdown> breakdowns = new ArrayList<>(tests.size());
+    for (Test test : tests) {
+      Map<Category, Duration> time = new EnumMap<>(Category.class);
+      Map<Category, Integer> counts = new EnumMap<>(Category.class);
+      long total = test.end() - test.start();
+      long other = total;
+      for (Span span : spansByTest.getOrDefault(test, List.of())) {
+        time.merge(span.category, Duration.ofNanos(Math.max(0, span.self)), Duration::plus);
+        counts.merge(span.category, 1, Integer::sum);
+        if (span.thread == test.thread()) {
+          other -= Math.max(0, span.self);
+        }
+      }
+      breakdowns.add(
+          new Breakdown(
+              test.name(),
+              test.passed(),
+              Duration.ofNanos(total),
+              time,
+              counts,
+              Duration.ofNanos(Math.max(0, other))));
+    }
+    return breakdowns;
+  }
+
+  private static long toNanos(Instant instant) {
+    return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+  }
+
+  private static long getThread(RecordedEvent event) {
+    RecordedThread thread = event.getThread();
+    return thread != null ? thread.getId() : -1;
+  }
+
+  /**
+   * Take the time of the events nested in another one on the same thread off the outer event.
+   */
+  private static void computeSelfTimes(List<Span> spans) {
+    spans.sort(
+        Comparator.<Span>comparingLong(span -> span.thread)
+            .thenComparingLong(span -> span.start)
+            .thenComparing(Comparator.<Span>comparingLong(span -> span.end).reversed()));
+    Deque<Span> open = new ArrayDeque<>();
+    for (Span span : spans) {
+      while (!open.isEmpty() && (open.peek().thread != span.thread || open.peek().end <= span.start)) {
+        open.pop();
+      }
+      if (!open.isEmpty()) {
+        open.peek().self -= span.end - span.start;
+      }
+      open.push(span);
+    }
+  }
+
+  /**
+   * Find the test the given span happened in, preferring a test running on the same thread if tests ran in parallel.
+   */
+  private static Test findTest(List<Test> tests, long[] ends, Span span) {
+    int low = 0;
+    int high = tests.size() - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      if (tests.get(mid).start() <= span.start) {
+        low = mid + 1;
+      } else {
+        high = mid - 1;
+      }
+    }
+    Test found = null;
+    for (int i = high; i >= 0 && ends[i] >= span.start; i--) {
+      Test test = tests.get(i);
+      if (test.end() >= span.start) {
+        if (test.thread() == span.thread) {
+          return test;
+        }
+        if (found == null) {
+          found = test;
+        }
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Print the given breakdowns as a table, with times in milliseconds.
+   */
+  public static void print(List<Breakdown> breakdowns, PrintStream out) {
+    int width = "Test".length();
+    for (Breakdown breakdown : breakdowns) {
+      width = Math.max(width, breakdown.name().length());
+    }
+    StringBuilder header = new StringBuilder(String.format("%-" + width + "s  %-6s %10s", "Test", "Result", "Total"));
+    for (Category category : Category.values()) {
+      header.append(String.format(" %10s", category.label));
+    }
+    header.append(String.format(" %10s", "Other"));
+    out.println(header);
+
+    long total = 0;
+    long other = 0;
+    Map<Category, Duration> totals = new EnumMap<>(Category.class);
+    for (Breakdown breakdown : breakdowns) {
+      StringBuilder row =
+          new StringBuilder(
+              String.format(
+                  "%-" + width + "s  %-6s %10d",
+                  breakdown.name(),
+                  breakdown.passed() ? "passed" : "failed",
+                  breakdown.total().toMillis()));
+      for (Category category : Category.values()) {
+        Duration time = breakdown.time().getOrDefault(category, Duration.ZERO);
+        totals.merge(category, time, Duration::plus);
+        row.append(String.format(" %10d", time.toMillis()));
+      }
+      row.append(String.format(" %10d", breakdown.other().toMillis()));
+      out.println(row);
+      total += breakdown.total().toNanos();
+      other += breakdown.other().toNanos();
+    }
+    StringBuilder row = new StringBuilder(String.format("%-" + width + "s  %-6s %10d", "Total", "", total / 1_000_000));
+    for (Category category : Category.values()) {
+      row.append(String.format(" %10d", totals.getOrDefault(category, Duration.ZERO).toMillis()));
+    }
+    row.append(String.format(" %10d", other / 1_000_000));
+    out.println(row);
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length != 1) {
+      System.err.println("usage: abbot.jfr.Analyzer <recording.jfr>");
+      System.exit(1);
+    }
+    List<Breakdown> breakdowns = analyze(Paths.get(args[0]));
+    if (breakdowns.isEmpty()) {
+      System.err.println("No " + TestEvent.NAME + " events in " + args[0]);
+      System.exit(1);
+    }
+    print(breakdowns, System.out);
+  }
+}
@@ -0,0 +1,38 @@
+package abbot.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Grabbing screen pixels, or encoding them to a file.
+ */
+@Name(CaptureEvent.NAME)
+@Label("Capture")
+@Category({"WindowTester", "Capture"})
+@Description("Screen capture")
+@Enabled(false)
+@StackTrace(false)
+public class CaptureEvent extends jdk.jfr.Event {
+
+  public static final String NAME = "windowtester.Capture";
+
+  public static final String GRAB = "grab";
+  public static final String ENCODE = "encode";
+
+  @Label("Phase")
+  @Description("grab or encode")
+  public String phase;
+
+  @Label("Width")
+  public int width;
+
+  @Label("Height")
+  public int height;
+
+  @Label("File")
+  public String file;
+}
@@ -0,0 +1,37 @@
+package abbot.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A wait for a condition, see {@link abbot.tester.ConditionWaiter}.
+ */
+@Name(ConditionWaitEvent.NAME)
+@Label("Condition Wait")
+@Category({"WindowTester", "Condition"})
+@Description("Wait for a condition to become true")
+@Enabled(false)
+@StackTrace(false)
+public class ConditionWaitEvent extends jdk.jfr.Event {
+
+  public static final String NAME = "windowtester.ConditionWait";
+
+  @Label("Condition")
+  public String condition;
+
+  @Label("Evaluations")
+  public int evaluations;
+
+  @Label("Satisfied")
+  @Description("Whether the condition became true before the timeout")
+  public boolean satisfied;
+
+  @Label("Timeout")
+  @Timespan(Timespan.MILLISECONDS)
+  public long timeout;
+}
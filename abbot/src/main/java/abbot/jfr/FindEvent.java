@@ -0,0 +1,32 @@
+package abbot.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A search for the components matching a matcher.
+ */
+@Name(FindEvent.NAME)
+@Label("Find")
+@Category({"WindowTester", "Finder"})
+@Description("Search of the component hierarchy")
+@Enabled(false)
+@StackTrace(false)
+public class FindEvent extends jdk.jfr.Event {
+
+  public static final String NAME = "windowtester.Find";
+
+  @Label("Matcher")
+  public String matcher;
+
+  @Label("Visited Components")
+  @Description("Components visited, zero if answered from an index")
+  public int visited;
+
+  @Label("Matches")
+  public int matches;
+}
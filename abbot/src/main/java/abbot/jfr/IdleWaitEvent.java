@@ -0,0 +1,25 @@
+package abbot.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A wait for the event queues to become idle, see {@link abbot.tester.Robot#waitForIdle()}.
+ */
+@Name(IdleWaitEvent.NAME)
+@Label("Idle Wait")
+@Category({"WindowTester", "Robot"})
+@Description("Wait for idle event queues")
+@Enabled(false)
+@StackTrace(false)
+public class IdleWaitEvent extends jdk.jfr.Event {
+
+  public static final String NAME = "windowtester.IdleWait";
+
+  @Label("Event Queues")
+  public int queues;
+}
@@ -0,0 +1,28 @@
+package abbot.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A click, key stroke, mouse motion or drag and drop generated by {@link abbot.tester.Robot}.
+ */
+@Name(RobotActionEvent.NAME)
+@Label("Robot Action")
+@Category({"WindowTester", "Robot"})
+@Description("Input generated by the robot")
+@Enabled(false)
+@StackTrace(false)
+public class RobotActionEvent extends jdk.jfr.Event {
+
+  public static final String NAME = "windowtester.RobotAction";
+
+  @Label("Action")
+  public String action;
+
+  @Label("Component")
+  public String component;
+}
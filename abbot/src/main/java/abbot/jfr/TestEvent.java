@@ -0,0 +1,31 @@
+package abbot.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The execution of a single test; other events are attributed to the test they happen in.
+ */
+@Name(TestEvent.NAME)
+@Label("Test")
+@Category("WindowTester")
+@Description("Execution of a single test")
+@Enabled(false)
+@StackTrace(false)
+public class TestEvent extends jdk.jfr.Event {
+
+  public static final String NAME = "windowtester.Test";
+
+  @Label("Test Class")
+  public String testClass;
+
+  @Label("Test Name")
+  public String testName;
+
+  @Label("Passed")
+  public boolean passed;
+}
@@ -0,0 +1,16 @@
+/**
+ * Flight recorder events for the time spent by tests in robot actions, waits for an idle event
+ * queue, component searches, condition waits and screen captures, and an {@link abbot.jfr.Analyzer}
+ * breaking that time down per test.
+ * <p>
+ * All events are disabled by default, so they cost next to nothing unless recorded.  To record
+ * them, enable them when starting a recording, e.g.
+ *
+ * <pre>
+ * -XX:StartFlightRecording:filename=tests.jfr,+windowtester.Test#enabled=true,
+ *     +windowtester.RobotAction#enabled=true,+windowtester.IdleWait#enabled=true,
+ *     +windowtester.Find#enabled=true,+windowtester.ConditionWait#enabled=true,
+ *     +windowtester.Capture#enabled=true
+ * </pre>
+ */
+package abbot.jfr;
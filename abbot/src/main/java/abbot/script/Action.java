@@ -49,6 +49,9 @@ public class Action extends Call {
 
   private static final String DEFAULT_CLASS_NAME = "java.awt.Component";
 
+  /** The tester resolved along with the target class. */
+  private transient ComponentTester tester;
+
   /**
    * Provide a default value for the target class name, so that the Call parent class won't choke.
    */
@@ -123,8 +126,15 @@ public class Action extends Call {
   }
 
   @Override
-  public Class getTargetClass() throws ClassNotFoundException {
-    return resolveTester(getTargetClassName()).getClass();
+  protected Class<?> resolveTargetClass() throws ClassNotFoundException {
+    tester = resolveTester(getTargetClassName());
+    return tester.getClass();
+  }
+
+  @Override
+  protected void invalidateCallSite() {
+    super.invalidateCallSite();
+    tester = null;
   }
 
   @Override
@@ -148,7 +158,12 @@ public class Action extends Call {
 
   @Override
   protected Object getTarget(Method m) throws ClassNotFoundException {
-    return resolveTester(getTargetClassName());
+    // resolving the target class resolves the tester, too
+    getTargetClass();
+    if (tester == null) {
+      tester = resolveTester(getTargetClassName());
+    }
+    return tester;
   }
 
   @Override
@@ -2,9 +2,15 @@ package abbot.script;
 
 import abbot.Log;
 import abbot.i18n.Strings;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -13,12 +19,17 @@ import java.util.Map;
  * <blockquote><code>
  * &lt;call method="..." args="..." class="..."&gt;<br>
  * </code></blockquote>
+ * The target class, the candidate methods and the method handles used to invoke them, as well as
+ * arguments which evaluate to constants, are remembered between runs of the step.  They are
+ * resolved again when the step's class, method or arguments are changed, or when the resolver's
+ * class loader changes.
  */
 public class Call extends Step {
 
   private String targetClassName = null;
   private String methodName;
   private String[] args;
+  private transient CallSite callSite;
 
   private static final String USAGE =
       "<call class=\"...\" method=\"...\" args=\"...\" [property=\"...\"]/>";
@@ -76,6 +87,7 @@ public class Call extends Step {
       args = new String[0];
     }
     this.args = args;
+    invalidateCallSite();
   }
 
   /**
@@ -93,6 +105,7 @@ public class Call extends Step {
     } else {
       args = ArgumentParser.parseArgumentList(encodedArgs);
     }
+    invalidateCallSite();
   }
 
   public void setMethodName(String mn) {
@@ -100,6 +113,7 @@ public class Call extends Step {
       throw new NullPointerException("Method name may not be null");
     }
     methodName = mn;
+    invalidateCallSite();
   }
 
   public String getMethodName() {
@@ -115,6 +129,7 @@ public class Call extends Step {
       usage(Strings.get("call.class_missing"));
     }
     targetClassName = cn;
+    invalidateCallSite();
   }
 
   @Override
@@ -159,45 +174,68 @@ public class Call extends Step {
   protected Object[] evaluateParameters(Method m, String[] params) throws Exception {
     Object[] args = new Object[params.length];
     Class[] types = m.getParameterTypes();
+    // constants are only remembered for this step's own arguments
+    Object[] constants = params == this.args ? getCallSite().getConstants(m) : null;
     for (int i = 0; i < args.length; i++) {
+      if (constants != null && constants[i] != CallSite.UNRESOLVED) {
+        args[i] = constants[i];
+        continue;
+      }
       args[i] = evaluateParameter(m, params[i], types[i]);
+      if (constants != null && isConstant(params[i], types[i], args[i])) {
+        constants[i] = args[i];
+      }
     }
     return args;
   }
 
+  /**
+   * Whether an argument evaluates to the same immutable value every time.  Property references
+   * and component references may change, and other types may be mutable.
+   */
+  private static boolean isConstant(String param, Class<?> type, Object value) {
+    if (param != null && param.contains("${")) {
+      return false;
+    }
+    boolean simpleType =
+        type.isPrimitive()
+            || type == String.class
+            || type == Boolean.class
+            || type == Character.class
+            || Number.class.isAssignableFrom(type) && type.getName().startsWith("java.lang.");
+    return simpleType
+        && (value == null
+            || value instanceof String
+            || value instanceof Boolean
+            || value instanceof Character
+            || value instanceof Number && value.getClass().getName().startsWith("java.lang."));
+  }
+
   protected Object invoke() throws Throwable {
     boolean retried = false;
     Method[] m = getMethods();
     for (int i = 0; i < m.length; i++) {
       try {
         Object[] params = evaluateParameters(m[i], args);
-        try {
-          Object target = getTarget(m[i]);
-          Log.debug("Invoking " + m[i] + " on " + target + getEncodedArguments() + "'");
-          if (target != null && !m[i].getDeclaringClass().isAssignableFrom(target.getClass())) {
-            // If the class loader mismatches, try to resolve it
-            if (retried) {
-              String msg =
-                  "Class loader mismatch? target "
-                      + target.getClass().getClassLoader()
-                      + " vs. method "
-                      + m[i].getDeclaringClass().getClassLoader();
-              throw new IllegalArgumentException(msg);
-            }
-            retried = true;
-            m = resolveMethods(m[i].getName(), target.getClass(), null);
-            i = -1;
-            continue;
-          }
-          if ((m[i].getModifiers() & Modifier.PUBLIC) == 0
-              || (m[i].getDeclaringClass().getModifiers() & Modifier.PUBLIC) == 0) {
-            Log.debug("Bypassing compiler access restrictions on " + "method " + m[i]);
-            m[i].setAccessible(true);
+        Method method = m[i];
+        Object target = getTarget(method);
+        Log.debug(() -> "Invoking " + method + " on " + target + getEncodedArguments() + "'");
+        if (target != null && !method.getDeclaringClass().isAssignableFrom(target.getClass())) {
+          // If the class loader mismatches, try to resolve it
+          if (retried) {
+            String msg =
+                "Class loader mismatch? target "
+                    + target.getClass().getClassLoader()
+                    + " vs. method "
+                    + method.getDeclaringClass().getClassLoader();
+            throw new IllegalArgumentException(msg);
           }
-          return m[i].invoke(getTarget(m[i]), params);
-        } catch (java.lang.reflect.InvocationTargetException ite) {
-          throw ite.getTargetException();
+          retried = true;
+          m = resolveMethods(method.getName(), target.getClass(), null);
+          i = -1;
+          continue;
         }
+        return getCallSite().invoke(method, target, params);
       } catch (IllegalArgumentException e) {
         if (i == m.length - 1) {
           throw e;
@@ -216,9 +254,43 @@ public class Call extends Step {
   }
 
   public Class getTargetClass() throws ClassNotFoundException {
+    CallSite site = getCallSite();
+    if (site.targetClass == null) {
+      site.targetClass = resolveTargetClass();
+    }
+    return site.targetClass;
+  }
+
+  /**
+   * Resolve the class given by {@link #getTargetClassName()}; the result is remembered by
+   * {@link #getTargetClass()}.
+   */
+  protected Class<?> resolveTargetClass() throws ClassNotFoundException {
     return resolveClass(getTargetClassName());
   }
 
+  /**
+   * Forget everything resolved for invoking this step.  Called whenever the class, method or
+   * arguments change; subclasses which resolve further attributes should call it when those
+   * change.
+   */
+  protected void invalidateCallSite() {
+    callSite = null;
+  }
+
+  /**
+   * Get what is known about invoking this step, starting over if the class loader changed.
+   */
+  private CallSite getCallSite() {
+    ClassLoader loader = getResolver() != null ? getResolver().getContextClassLoader() : null;
+    CallSite site = callSite;
+    if (site == null || site.loader != loader) {
+      site = new CallSite(loader);
+      callSite = site;
+    }
+    return site;
+  }
+
   protected Object getTarget(Method m) throws Throwable {
     if ((m.getModifiers() & Modifier.STATIC) == 0) {
       try {
@@ -248,8 +320,20 @@ public class Call extends Step {
    */
   protected Method[] resolveMethods(String name, Class cls, Class returnType)
       throws NoSuchMethodException {
+    CallSite site = getCallSite();
+    MethodKey key = new MethodKey(name, cls, returnType, args.length);
+    Method[] methods = site.methods.get(key);
+    if (methods == null) {
+      methods = findMethods(name, cls, returnType);
+      site.methods.put(key, methods);
+    }
+    return methods.clone();
+  }
+
+  private Method[] findMethods(String name, Class cls, Class returnType)
+      throws NoSuchMethodException {
     // use getDeclaredMethods to include class methods
-    Log.debug("Resolving methods on " + cls);
+    Log.debug(() -> "Resolving methods on " + cls);
     Method[] mlist = cls.getMethods();
     ArrayList found = new ArrayList();
     for (int i = 0; i < mlist.length; i++) {
@@ -315,4 +399,119 @@ public class Call extends Step {
             new Object[]{methods[0].getName(), methods[0].getDeclaringClass()});
     throw new IllegalArgumentException(msg);
   }
+
+  private record MethodKey(String name, Class<?> cls, Class<?> returnType, int arity) {}
+
+  /**
+   * What has been resolved for invoking a step with the class loader it was resolved with.
+   */
+  private static final class CallSite {
+
+    static final Object UNRESOLVED = new Object();
+
+    private static final MethodType INVOKER_TYPE =
+        MethodType.methodType(Object.class, Object.class, Object[].class);
+
+    /**
+     * Numeric primitive types, each of which widens to those after it.
+     */
+    private static final List<Class<?>> WIDENING =
+        List.of(byte.class, short.class, int.class, long.class, float.class, double.class);
+
+    final ClassLoader loader;
+    final Map<MethodKey, Method[]> methods = new HashMap<>();
+    final Map<Method, MethodHandle> handles = new HashMap<>();
+    final Map<Method, Object[]> constants = new HashMap<>();
+    Class<?> targetClass;
+
+    CallSite(ClassLoader loader) {
+      this.loader = loader;
+    }
+
+    Object[] getConstants(Method method) {
+      return constants.computeIfAbsent(
+          method,
+          m -> {
+            Object[] values = new Object[m.getParameterCount()];
+            Arrays.fill(values, UNRESOLVED);
+            return values;
+          });
+    }
+
+    Object invoke(Method method, Object target, Object[] params) throws Throwable {
+      MethodHandle handle = handles.get(method);
+      if (handle == null) {
+        handle = createHandle(method);
+        handles.put(method, handle);
+      }
+      checkArguments(method, params);
+      return (Object) handle.invokeExact(target, params);
+    }
+
+    /**
+     * Reject the arguments reflection would reject, with an {@link IllegalArgumentException}, which
+     * makes {@link #invoke} try the next method.  The handle would throw a
+     * {@link java.lang.invoke.WrongMethodTypeException} or {@link ClassCastException} instead, which
+     * can't be told apart from one thrown by the method itself.
+     */
+    private static void checkArguments(Method method, Object[] params) {
+      Class<?>[] types = method.getParameterTypes();
+      if (params.length != types.length) {
+        throw new IllegalArgumentException(
+            "Wrong number of arguments for " + method + ": " + params.length);
+      }
+      for (int i = 0; i < types.length; i++) {
+        Object param = params[i];
+        if (param == null && types[i].isPrimitive()) {
+          throw new IllegalArgumentException(
+              "null is not a valid " + types[i] + " argument for " + method);
+        }
+        if (param != null && !isAssignable(types[i], param)) {
+          throw new IllegalArgumentException(
+              param.getClass().getName() + " is not a valid " + types[i] + " argument for "
+                  + method);
+        }
+      }
+    }
+
+    /**
+     * Whether the value can be passed for a parameter of the given type, allowing unboxing and
+     * primitive widening.
+     */
+    private static boolean isAssignable(Class<?> type, Object value) {
+      if (!type.isPrimitive()) {
+        return type.isInstance(value);
+      }
+      Class<?> from = MethodType.methodType(value.getClass()).unwrap().returnType();
+      if (from == type) {
+        return true;
+      }
+      int target = WIDENING.indexOf(type);
+      if (from == char.class) {
+        return target >= WIDENING.indexOf(int.class);
+      }
+      int source = WIDENING.indexOf(from);
+      return source >= 0 && target > source;
+    }
+
+    /**
+     * Create a handle of type <code>(Object target, Object[] args)Object</code> for the method.
+     */
+    private static MethodHandle createHandle(Method method) throws IllegalAccessException {
+      if ((method.getModifiers() & Modifier.PUBLIC) == 0
+          || (method.getDeclaringClass().getModifiers() & Modifier.PUBLIC) == 0) {
+        Log.debug(() -> "Bypassing compiler access restrictions on method " + method);
+        method.setAccessible(true);
+      }
+      MethodHandle handle = MethodHandles.lookup().unreflect(method);
+      if (Modifier.isStatic(method.getModifiers())) {
+        handle = MethodHandles.dropArguments(handle, 0, Object.class);
+      }
+      int count = method.getParameterCount();
+      return handle
+          .asType(MethodType.genericMethodType(count + 1))
+          .asSpreader(Object[].class, count)
+          .asType(INVOKER_TYPE);
+    }
+  }
 }
@@ -0,0 +1,251 @@
+package abbot.script;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The connection between a {@link ForkedStepRunner} and a slave VM.  Messages are sent as binary frames over a
+ * non-blocking socket channel: the payload length, a byte giving the kind of message, and the payload as written by a
+ * {@link DataOutputStream}.  Strings are written as length-prefixed UTF-8, so they may be of any size.
+ * <p>
+ * Reads may time out, see {@link #receive(long)}.  Messages may be sent from any thread.
+ */
+final class ForkedChannel implements Closeable {
+
+  /**
+   * Slave to master: the slave's id, sent once after connecting.
+   */
+  static final byte HELLO = 1;
+
+  /**
+   * Master to slave: run a script.
+   */
+  static final byte RUN = 2;
+
+  /**
+   * Slave to master: a batch of step events.
+   */
+  static final byte EVENTS = 3;
+
+  /**
+   * Slave to master: the script has finished; whether the slave may run another one.
+   */
+  static final byte DONE = 4;
+
+  /**
+   * Master to slave: stop the script after the current step.
+   */
+  static final byte CANCEL = 5;
+
+  /**
+   * Master to slave: exit.
+   */
+  static final byte QUIT = 6;
+
+  private static final int HEADER_SIZE = 5;
+
+  /**
+   * A message received, whose payload may be read with {@link #readString(DataInputStream)} and the
+   * {@link DataInputStream} methods.
+   */
+  record Frame(byte kind, DataInputStream payload) {}
+
+  /**
+   * A message to be sent, whose payload is written with {@link #writeString(String)} and the {@link DataOutputStream}
+   * methods.
+   */
+  static final class Message extends DataOutputStream {
+
+    private final byte kind;
+
+    Message(byte kind) {
+      super(new ByteArrayOutputStream());
+      this.kind = kind;
+    }
+
+    byte getKind() {
+      return kind;
+    }
+
+    void writeString(String value) throws IOException {
+      if (value == null) {
+        writeInt(-1);
+      } else {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeInt(bytes.length);
+        write(bytes);
+      }
+    }
+
+    ByteBuffer toBuffer() {
+      byte[] payload = ((ByteArrayOutputStream) out).toByteArray();
+      return ByteBuffer.allocate(HEADER_SIZE + payload.length)
+          .putInt(payload.length)
+          .put(kind)
+          .put(payload)
+          .flip();
+    }
+  }
+
+  private final SocketChannel channel;
+  private final Selector readSelector;
+  private final Selector writeSelector;
+  private final Object writeLock = new Object();
+
+  // in write mode between reads; only accessed by the receiving thread
+  private ByteBuffer input = ByteBuffer.allocate(8192);
+  private boolean endOfStream;
+
+  ForkedChannel(SocketChannel channel) throws IOException {
+    this.channel = channel;
+    channel.configureBlocking(false);
+    channel.socket().setTcpNoDelay(true);
+    readSelector = Selector.open();
+    writeSelector = Selector.open();
+    channel.register(readSelector, SelectionKey.OP_READ);
+    channel.register(writeSelector, SelectionKey.OP_WRITE);
+  }
+
+  /**
+   * Connect to the master listening on the given local port.
+   */
+  static ForkedChannel connect(int port) throws IOException {
+    return new ForkedChannel(
+        SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), port)));
+  }
+
+  static String readString(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Send the given message, waiting until it has been written completely.
+   */
+  void send(Message message) throws IOException {
+    ByteBuffer buffer = message.toBuffer();
+    synchronized (writeLock) {
+      try {
+        while (buffer.hasRemaining()) {
+          if (channel.write(buffer) == 0) {
+            writeSelector.select();
+            writeSelector.selectedKeys().clear();
+          }
+        }
+      } catch (ClosedSelectorException e) {
+        throw new ClosedChannelException();
+      }
+    }
+  }
+
+  /**
+   * Send a message without payload.
+   */
+  void send(byte kind) throws IOException {
+    send(new Message(kind));
+  }
+
+  /**
+   * Receive the next message.
+   *
+   * @param timeout milliseconds to wait for a complete message, or 0 to wait indefinitely
+   * @return the message, or <code>null</code> if the other side has closed the connection
+   * @throws EOFException           if the connection was closed in the middle of a message
+   * @throws SocketTimeoutException  if no message was received within the timeout
+   * @throws InterruptedIOException if the current thread was interrupted
+   */
+  Frame receive(long timeout) throws IOException {
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+    while (true) {
+      Frame frame = nextFrame();
+      if (frame != null) {
+        return frame;
+      }
+      if (endOfStream) {
+        if (input.position() > 0) {
+          throw new EOFException("Connection closed within a frame");
+        }
+        return null;
+      }
+      long wait = 0;
+      if (timeout > 0) {
+        wait = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        if (wait <= 0) {
+          throw new SocketTimeoutException();
+        }
+      }
+      try {
+        readSelector.select(wait);
+        readSelector.selectedKeys().clear();
+      } catch (ClosedSelectorException e) {
+        throw new ClosedChannelException();
+      }
+      if (Thread.interrupted()) {
+        throw new InterruptedIOException();
+      }
+      if (channel.read(input) == -1) {
+        endOfStream = true;
+      }
+    }
+  }
+
+  /**
+   * Take the next complete frame from the input buffer, growing it if the frame doesn't fit.
+   */
+  private Frame nextFrame() throws IOException {
+    if (input.position() < HEADER_SIZE) {
+      return null;
+    }
+    int length = input.getInt(0);
+    if (length < 0) {
+      throw new IOException("Invalid frame length " + length);
+    }
+    int size = HEADER_SIZE + length;
+    if (input.position() < size) {
+      if (input.capacity() < size) {
+        input = ByteBuffer.allocate(size).put(input.flip());
+      }
+      return null;
+    }
+    input.flip();
+    input.getInt();
+    byte kind = input.get();
+    byte[] payload = new byte[length];
+    input.get(payload);
+    input.compact();
+    return new Frame(kind, new DataInputStream(new ByteArrayInputStream(payload)));
+  }
+
+  @Override
+  public void close() {
+    try {
+      readSelector.close();
+      writeSelector.close();
+      channel.close();
+    } catch (IOException io) {
+      // nothing left to do
+    }
+  }
+}
@@ -4,44 +4,122 @@ import abbot.AssertionFailedError;
 import abbot.Log;
 import abbot.finder.AWTHierarchy;
 import abbot.i18n.Strings;
+import abbot.script.ForkedChannel.Frame;
+import abbot.script.ForkedChannel.Message;
+import abbot.util.EDTExceptionCatcher;
 import abbot.util.ProcessOutputHandler;
 import abbot.util.Properties;
+import java.io.DataInputStream;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.InterruptedIOException;
-import java.io.OutputStream;
 import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.net.InetAddress;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.StringTokenizer;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A StepRunner that runs the step in a separate VM.  Behavior should be indistinguishable from the base StepRunner.
+ * <p>
+ * The master and the slave VM talk over a {@link ForkedChannel}.  The slave sends step events in batches, flushed at
+ * least every few milliseconds and immediately on failures and errors.  If the slave sends nothing for
+ * <code>abbot.runner.slave_timeout</code> milliseconds (default 600000, 0 to wait forever) the script fails with an
+ * error and the slave is destroyed.  Stopping the runner cancels the script in the slave after its current step.
+ * <p>
+ * Slave VMs are launched ahead of time and kept in a pool, so that launching one is mostly hidden behind the previous
+ * script.  Up to <code>abbot.runner.pool_size</code> idle slaves (default 1, 0 to launch a slave per script) are kept
+ * per set of VM arguments.  A slave runs another script only if the previous one ran its application in a class loader
+ * of its own (see {@link Launch}), which is discarded along with the application's windows; otherwise it exits.
  */
 public class ForkedStepRunner extends StepRunner {
 
   private static final int LAUNCH_TIMEOUT = Properties.getProperty("abbot.runner.launch_delay", 60000, 0, 300000);
   private static final int TERMINATE_TIMEOUT = Properties.getProperty("abbot.runner.terminate_delay", 30000, 0, 300000);
+  private static final int SLAVE_TIMEOUT =
+      Properties.getProperty("abbot.runner.slave_timeout", 600000, 0, 86400000);
+  private static final int POOL_SIZE = Properties.getProperty("abbot.runner.pool_size", 1, 0, 16);
 
-  private static ServerSocket serverSocket = null;
-  private Process process = null;
-  private Socket connection = null;
+  /**
+   * Milliseconds between checks whether the runner has been stopped while waiting for the slave.
+   */
+  private static final int POLL_INTERVAL = 100;
+
+  /**
+   * Milliseconds a slave may hold on to step events before sending them.
+   */
+  private static final int FLUSH_INTERVAL = 20;
+
+  /**
+   * Number of step events after which a slave sends them right away.
+   */
+  private static final int BATCH_SIZE = 64;
+
+  private static final Object launchLock = new Object();
+  private static final AtomicInteger slaveIds = new AtomicInteger();
+  private static final Map<String, Deque<Slave>> idleSlaves = new HashMap<>();
+  private static ServerSocketChannel serverChannel = null;
+  private static Selector acceptSelector = null;
+
+  /**
+   * A slave VM and the connection to it.
+   */
+  private record Slave(String vmargs, Process process, ForkedChannel channel) {
+
+    /**
+     * Ask the slave to exit, destroying it if it doesn't do so in time.
+     */
+    void quit() {
+      try {
+        channel.send(ForkedChannel.QUIT);
+      } catch (IOException io) {
+        // already gone
+      }
+      channel.close();
+      process
+          .onExit()
+          .completeOnTimeout(process, TERMINATE_TIMEOUT, TimeUnit.MILLISECONDS)
+          .thenRun(process::destroy);
+    }
+  }
 
   /**
    * When actually within the separate VM, this is what gets run.
    */
   protected static class SlaveStepRunner extends StepRunner {
-    private Socket connection = null;
+    private static ScheduledExecutorService flusher = null;
+
+    private final ForkedChannel channel;
+    private final Object batchLock = new Object();
+    private Message batch = null;
+    private int batched = 0;
+    private volatile boolean exitAttempted = false;
     private Script script = null;
 
+    SlaveStepRunner(ForkedChannel channel) {
+      this.channel = channel;
+    }
+
     /**
      * Notify the master when the application exits.
      */
@@ -50,6 +128,7 @@ public class ForkedStepRunner extends StepRunner {
         public void checkExit(int status) {
           // handle application exit; send something back to
           // the master if called from System.exit
+          exitAttempted = true;
           String msg =
               Strings.get("runner.slave_premature_exit", new Object[] {new Integer(status)});
           fireStepError(script, new Error(msg));
@@ -58,50 +137,85 @@ public class ForkedStepRunner extends StepRunner {
     }
 
     /**
-     * Translate the given event into something we can send back to the master.
+     * Translate the given event into something we can send back to the master.  Events are sent in batches, but
+     * failures and errors right away.
      */
     private void forwardEvent(StepEvent event) {
-      Step step = event.getStep();
-      final StringBuffer sb = new StringBuffer(encodeStep(script, step));
-      sb.append("\n");
-      sb.append(event.getType());
-      sb.append("\n");
-      sb.append(event.getID());
       Throwable thr = event.getError();
-      if (thr != null) {
-        sb.append("\nMSG:");
-        sb.append(thr.getMessage());
-        sb.append("\nSTR:");
-        sb.append(thr);
-        sb.append("\nTRC:");
-        StringWriter writer = new StringWriter();
-        thr.printStackTrace(new PrintWriter(writer));
-        sb.append(writer);
-      }
       try {
-        writeMessage(connection, sb.toString());
+        synchronized (batchLock) {
+          if (batch == null) {
+            batch = new Message(ForkedChannel.EVENTS);
+          }
+          int[] path = encodeStep(script, event.getStep());
+          if (path == null) {
+            path = new int[0];
+          }
+          batch.writeInt(path.length);
+          for (int index : path) {
+            batch.writeInt(index);
+          }
+          batch.writeString(event.getType());
+          batch.writeInt(event.getID());
+          batch.writeBoolean(thr != null);
+          if (thr != null) {
+            StringWriter writer = new StringWriter();
+            thr.printStackTrace(new PrintWriter(writer));
+            batch.writeString(String.valueOf(thr.getMessage()));
+            batch.writeString(thr.toString());
+            batch.writeString(writer.toString());
+          }
+          if (thr != null || ++batched >= BATCH_SIZE) {
+            flush();
+          }
+        }
       } catch (IOException io) {
         // nothing we can do
       }
     }
 
-    public void launchSlave(int port) {
-      // make connection back to originating port
-      try {
-        InetAddress local = InetAddress.getLocalHost();
-        connection = new Socket(local, port);
-      } catch (Throwable thr) {
-        // Can't communicate so the only option is to quit
-        Log.warn(thr);
-        System.exit(1);
+    private void flush() throws IOException {
+      synchronized (batchLock) {
+        if (batch != null) {
+          Message message = batch;
+          batch = null;
+          batched = 0;
+          channel.send(message);
+        }
       }
+    }
+
+    private static synchronized ScheduledExecutorService getFlusher() {
+      if (flusher == null) {
+        flusher =
+            Executors.newSingleThreadScheduledExecutor(
+                task -> {
+                  Thread thread = new Thread(task, "Forked script events");
+                  thread.setDaemon(true);
+                  return thread;
+                });
+      }
+      return flusher;
+    }
+
+    /**
+     * Run the script in the given message, and tell the master when it is done.  The VM exits afterwards unless it
+     * can be reused.
+     */
+    void runScript(DataInputStream in) {
+      // Scripts without a launch of their own use the system class
+      // loader, whatever the previous one left behind.
+      Thread.currentThread().setContextClassLoader(ClassLoader.getSystemClassLoader());
       script = new Script(new AWTHierarchy());
       try {
-        String dirName = readMessage(connection);
+        setStopOnFailure(in.readBoolean());
+        setStopOnError(in.readBoolean());
+        setTerminateOnError(in.readBoolean());
+        String dirName = ForkedChannel.readString(in);
         // Make sure the relative directory of this script is set
         // properly.
         script.setFile(new File(new File(dirName), script.getFile().getName()));
-        String contents = readMessage(connection);
+        String contents = ForkedChannel.readString(in);
         script.load(new StringReader(contents));
         Log.debug("Successfully loaded script, dir=" + dirName);
         // Make sure we only fork once!
@@ -116,12 +230,20 @@ public class ForkedStepRunner extends StepRunner {
       }
 
       // add listener to send messages back to the master
-      addStepListener(
-          new StepListener() {
-            public void stateChanged(StepEvent ev) {
-              forwardEvent(ev);
-            }
-          });
+      addStepListener(this::forwardEvent);
+      ScheduledFuture<?> flushing =
+          getFlusher()
+              .scheduleWithFixedDelay(
+                  () -> {
+                    try {
+                      flush();
+                    } catch (IOException io) {
+                      // master is gone
+                    }
+                  },
+                  FLUSH_INTERVAL,
+                  FLUSH_INTERVAL,
+                  TimeUnit.MILLISECONDS);
 
       // Run the script like we normally would.  The listener handles
       // all events and communication back to the launching process
@@ -129,19 +251,50 @@ public class ForkedStepRunner extends StepRunner {
         SlaveStepRunner.this.run(script);
       } catch (Throwable thr) {
         // Listener catches all events and forwards them, so no one
-        // else is interested.  just quit.
+        // else is interested.
         Log.debug(thr);
       }
+      flushing.cancel(false);
 
+      boolean reusable = reset();
       try {
-        connection.close();
+        flush();
+        Message done = new Message(ForkedChannel.DONE);
+        done.writeBoolean(reusable);
+        channel.send(done);
       } catch (IOException io) {
-        // not much we can do
         Log.warn(io);
+        reusable = false;
+      }
+      if (!reusable) {
+        channel.close();
+        // Return zero even on failure/error, since the script run itself
+        // worked, regardless of test results.
+        System.exit(0);
       }
-      // Return zero even on failure/error, since the script run itself
-      // worked, regardless of test results.
-      System.exit(0);
+    }
+
+    /**
+     * Dispose of the application so that the VM can run another script.
+     *
+     * @return whether the VM can be reused; only if the application was loaded by its own class loader and did not
+     * try to exit
+     */
+    private boolean reset() {
+      UIContext context = script.getUIContext();
+      if (exitAttempted
+          || context == null
+          || !(context.getContextClassLoader() instanceof AppClassLoader)) {
+        return false;
+      }
+      try {
+        terminate();
+      } catch (Throwable thr) {
+        Log.warn(thr);
+        return false;
+      }
+      EDTExceptionCatcher.clear();
+      return true;
     }
   }
 
@@ -152,8 +305,8 @@ public class ForkedStepRunner extends StepRunner {
   public ForkedStepRunner(StepRunner parent) {
     super(parent != null ? parent.helper : null);
     if (parent != null) {
-      setStopOnError(parent.getStopOnError());
       setStopOnFailure(parent.getStopOnFailure());
+      setStopOnError(parent.getStopOnError());
       setTerminateOnError(parent.getTerminateOnError());
     }
   }
@@ -190,17 +343,9 @@ public class ForkedStepRunner extends StepRunner {
   /**
    * Launch a new process, using this class as the main class.
    */
-  Process fork(String vmargs) throws IOException {
-    if (serverSocket == null) {
-      serverSocket = new ServerSocket(0);
-    }
-    int localPort = serverSocket.getLocalPort();
+  Process fork(String vmargs, int id) throws IOException {
     String[] args = {
-      getClass().getName(),
-      String.valueOf(localPort),
-      String.valueOf(getStopOnFailure()),
-      String.valueOf(getStopOnError()),
-      String.valueOf(getTerminateOnError())
+      getClass().getName(), String.valueOf(getServerChannel().socket().getLocalPort()), String.valueOf(id)
     };
     Process p = fork(vmargs, args);
     new ProcessOutputHandler(p) {
@@ -215,36 +360,39 @@ public class ForkedStepRunner extends StepRunner {
     return p;
   }
 
+  private static synchronized ServerSocketChannel getServerChannel() throws IOException {
+    if (serverChannel == null) {
+      serverChannel = ServerSocketChannel.open();
+      serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+      serverChannel.configureBlocking(false);
+      acceptSelector = Selector.open();
+      serverChannel.register(acceptSelector, SelectionKey.OP_ACCEPT);
+      // Idle slaves would otherwise only exit once they notice the connection is gone
+      Runtime.getRuntime()
+          .addShutdownHook(new Thread(ForkedStepRunner::disposeSlaves, "Forked slave shutdown"));
+    }
+    return serverChannel;
+  }
+
   /**
    * Running the step in a separate VM should be indistinguishable from running a regular script.   When running as
-   * master, nothing actually runs locally.  We just fork a subprocess and run the script in that, reporting back its
-   * progress as if it were running locally.
+   * master, nothing actually runs locally.  We just hand the script to a slave VM and run it in that, reporting back
+   * its progress as if it were running locally.
    */
   public void runStep(Step step) throws Throwable {
     Log.debug("run step " + step);
     // Fire the start event prior to forking, then ignore the subsequent
     // forked script start event when we get it.
     fireStepStart(step);
-    process = null;
+    Slave slave = null;
+    boolean reusable = false;
     try {
       Script script = (Script) step;
-      process = forkProcess(script.getVMArgs());
-      sendScript(script);
+      slave = acquireSlave(script.getVMArgs());
+      prepareSlave(script.getVMArgs());
+      sendScript(slave, script);
       try {
-        trackScript(script);
-        try {
-          process.waitFor();
-        } catch (InterruptedException e) {
-        }
-        try {
-          process.exitValue();
-        } catch (IllegalThreadStateException its) {
-          try {
-            Thread.sleep(TERMINATE_TIMEOUT);
-          } catch (InterruptedException ie) {
-          }
-          // check again?
-        }
+        reusable = trackScript(slave, script);
       } catch (IOException io) {
         fireStepError(script, io);
         if (getStopOnError()) {
@@ -262,105 +410,282 @@ public class ForkedStepRunner extends StepRunner {
         throw thr;
       }
     } finally {
-      // Destroy it whether it's terminated or not.
-      if (process != null) {
-        process.destroy();
+      if (slave != null) {
+        releaseSlave(slave, reusable);
       }
     }
     fireStepEnd(step);
   }
 
-  private Process forkProcess(String vmargs) throws Throwable {
-    try {
-      // fork new VM
-      // wait for connection
-      Process p = fork(vmargs);
-      serverSocket.setSoTimeout(LAUNCH_TIMEOUT);
-      connection = serverSocket.accept();
-      Log.debug("Got slave connection on " + connection);
-      return p;
-    } catch (InterruptedIOException ie) {
-      Log.warn(ie);
-      throw new RuntimeException(Strings.get("runner.slave_timed_out"));
+  /**
+   * Take an idle slave for the given VM arguments from the pool, or launch a new one.
+   */
+  private Slave acquireSlave(String vmargs) throws Throwable {
+    String key = vmargs != null ? vmargs : "";
+    synchronized (idleSlaves) {
+      Deque<Slave> idle = idleSlaves.get(key);
+      while (idle != null && !idle.isEmpty()) {
+        Slave slave = idle.poll();
+        if (slave.process().isAlive()) {
+          Log.debug("Reusing slave " + slave.process());
+          return slave;
+        }
+        slave.channel().close();
+      }
+    }
+    return launchSlave(vmargs);
+  }
+
+  /**
+   * Launch slaves in the background until the pool for the given VM arguments is full, so the next script doesn't
+   * have to wait for one.
+   */
+  private void prepareSlave(String vmargs) {
+    String key = vmargs != null ? vmargs : "";
+    synchronized (idleSlaves) {
+      if (idleSlaves.computeIfAbsent(key, k -> new ArrayDeque<>()).size() >= POOL_SIZE) {
+        return;
+      }
+    }
+    Thread thread =
+        new Thread(
+            () -> {
+              try {
+                Slave slave = launchSlave(vmargs);
+                if (!addIdleSlave(key, slave)) {
+                  slave.quit();
+                }
+              } catch (Throwable thr) {
+                Log.warn(thr);
+              }
+            },
+            "Forked slave launcher");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  private static boolean addIdleSlave(String key, Slave slave) {
+    synchronized (idleSlaves) {
+      Deque<Slave> idle = idleSlaves.computeIfAbsent(key, k -> new ArrayDeque<>());
+      if (idle.size() >= POOL_SIZE) {
+        return false;
+      }
+      idle.add(slave);
+      return true;
+    }
+  }
+
+  private void releaseSlave(Slave slave, boolean reusable) {
+    String key = slave.vmargs() != null ? slave.vmargs() : "";
+    if (!reusable || !slave.process().isAlive() || !addIdleSlave(key, slave)) {
+      slave.quit();
+    }
+  }
+
+  /**
+   * Fork a new VM and wait for it to connect.  Launches are serialized, and slaves identify themselves, so that a
+   * connection can't be mistaken for that of another slave.
+   */
+  private Slave launchSlave(String vmargs) throws Throwable {
+    synchronized (launchLock) {
+      int id = slaveIds.incrementAndGet();
+      Process p = fork(vmargs, id);
+      long deadline = System.currentTimeMillis() + LAUNCH_TIMEOUT;
+      ForkedChannel channel = null;
+      try {
+        while (true) {
+          long remaining = deadline - System.currentTimeMillis();
+          if (remaining <= 0 || !p.isAlive()) {
+            throw new SocketTimeoutException();
+          }
+          acceptSelector.select(remaining);
+          acceptSelector.selectedKeys().clear();
+          SocketChannel accepted = serverChannel.accept();
+          if (accepted == null) {
+            continue;
+          }
+          channel = new ForkedChannel(accepted);
+          Frame hello = channel.receive(Math.max(1, deadline - System.currentTimeMillis()));
+          if (hello != null
+              && hello.kind() == ForkedChannel.HELLO
+              && hello.payload().readInt() == id) {
+            Log.debug("Got slave connection on " + accepted);
+            return new Slave(vmargs, p, channel);
+          }
+          // a slave which gave up on an earlier launch
+          channel.close();
+          channel = null;
+        }
+      } catch (Throwable thr) {
+        // Whatever went wrong, the slave must not outlive the launch
+        if (channel != null) {
+          channel.close();
+        }
+        p.destroyForcibly();
+        if (thr instanceof InterruptedIOException) {
+          Log.warn(thr);
+          throw new RuntimeException(Strings.get("runner.slave_timed_out"));
+        }
+        throw thr;
+      }
     }
   }
 
-  private void sendScript(Script script) throws IOException {
+  private void sendScript(Slave slave, Script script) throws IOException {
     // send script data
     StringWriter writer = new StringWriter();
     script.save(writer);
-    writeMessage(connection, script.getDirectory().toString());
-    writeMessage(connection, writer.toString());
+    Message message = new Message(ForkedChannel.RUN);
+    message.writeBoolean(getStopOnFailure());
+    message.writeBoolean(getStopOnError());
+    message.writeBoolean(getTerminateOnError());
+    message.writeString(script.getDirectory().toString());
+    message.writeString(writer.toString());
+    slave.channel().send(message);
   }
 
-  private void trackScript(Script script) throws IOException, ForkedFailure, ForkedError {
-    StepEvent ev;
-    while (!stopped() && (ev = receiveEvent(script)) != null) {
-      Log.debug("Forked event received: " + ev);
-      // If it's the script start event, ignore it since we
-      // already sent one prior to launching the process
-      if (ev.getStep() == script
-          && (StepEvent.STEP_START.equals(ev.getType())
-              || StepEvent.STEP_END.equals(ev.getType()))) {
+  /**
+   * Replay the slave's step events locally until it is done with the script.
+   *
+   * @return whether the slave can run another script
+   */
+  private boolean trackScript(Slave slave, Script script) throws Throwable {
+    Throwable stopped = null;
+    boolean cancelled = false;
+    long lastReceived = System.currentTimeMillis();
+    while (true) {
+      if (stopped() && !cancelled) {
+        // Stop the slave as well, and wait for it to finish the step
+        slave.channel().send(ForkedChannel.CANCEL);
+        cancelled = true;
+        lastReceived = System.currentTimeMillis();
+      }
+      Frame frame;
+      try {
+        frame = slave.channel().receive(POLL_INTERVAL);
+      } catch (SocketTimeoutException e) {
+        long idle = System.currentTimeMillis() - lastReceived;
+        if (cancelled && idle > TERMINATE_TIMEOUT) {
+          return false;
+        }
+        if (SLAVE_TIMEOUT > 0 && idle > SLAVE_TIMEOUT) {
+          throw new InterruptedIOException(
+              Strings.get("runner.slave_unresponsive", new Object[] {SLAVE_TIMEOUT}));
+        }
         continue;
       }
+      lastReceived = System.currentTimeMillis();
+      if (frame == null) {
+        Log.debug("End of stream");
+        break;
+      }
+      if (frame.kind() == ForkedChannel.DONE) {
+        if (stopped != null) {
+          throw stopped;
+        }
+        return frame.payload().readBoolean();
+      }
+      if (frame.kind() != ForkedChannel.EVENTS) {
+        continue;
+      }
+      DataInputStream in = frame.payload();
+      while (in.available() > 0) {
+        StepEvent ev = receiveEvent(script, in);
+        // Once stopped, the slave is only finishing up
+        if (stopped != null || cancelled) {
+          continue;
+        }
+        stopped = replayEvent(script, ev);
+      }
+    }
+    if (stopped != null) {
+      throw stopped;
+    }
+    return false;
+  }
 
-      Log.debug("Replaying forked event locally " + ev);
-      Throwable err = ev.getError();
-      if (err != null) {
-        setError(ev.getStep(), err);
-        fireStepEvent(ev);
-        if (err instanceof AssertionFailedError) {
-          if (getStopOnFailure()) {
-            throw (ForkedFailure) err;
-          }
-        } else {
-          if (getStopOnError()) {
-            throw (ForkedError) err;
-          }
+  /**
+   * Replay the given event locally.
+   *
+   * @return the error to stop on, if any
+   */
+  private Throwable replayEvent(Script script, StepEvent ev) {
+    Log.debug("Forked event received: " + ev);
+    // If it's the script start event, ignore it since we
+    // already sent one prior to launching the process
+    if (ev.getStep() == script
+        && (StepEvent.STEP_START.equals(ev.getType())
+            || StepEvent.STEP_END.equals(ev.getType()))) {
+      return null;
+    }
+
+    Log.debug("Replaying forked event locally " + ev);
+    Throwable err = ev.getError();
+    if (err != null) {
+      setError(ev.getStep(), err);
+      fireStepEvent(ev);
+      if (err instanceof AssertionFailedError) {
+        if (getStopOnFailure()) {
+          return err;
         }
       } else {
-        fireStepEvent(ev);
+        if (getStopOnError()) {
+          return err;
+        }
       }
+    } else {
+      fireStepEvent(ev);
     }
+    return null;
   }
 
-  static Step decodeStep(Sequence root, String code) {
-    if (code.equals("-1")) {
-      return root;
+  /**
+   * Shut down the idle slave VMs.  Called at exit, but may be called at any time to release them earlier.
+   */
+  public static void disposeSlaves() {
+    List<Slave> slaves = new ArrayList<>();
+    synchronized (idleSlaves) {
+      idleSlaves.values().forEach(slaves::addAll);
+      idleSlaves.clear();
     }
-    int comma = code.indexOf(",");
-    if (comma == -1) {
-      // Let number format exceptions propagate up, since it's a fatal
-      // script error.
-      int index = Integer.parseInt(code);
-      return root.getStep(index);
+    slaves.forEach(Slave::quit);
+  }
+
+  static Step decodeStep(Sequence root, int[] path) {
+    Step step = root;
+    // Let index exceptions propagate up, since it's a fatal
+    // script error.
+    for (int index : path) {
+      step = ((Sequence) step).getStep(index);
     }
-    String ind = code.substring(0, comma);
-    code = code.substring(comma + 1);
-    return decodeStep((Sequence) root.getStep(Integer.parseInt(ind)), code);
+    return step;
   }
 
   /**
-   * Encode the given step into a set of indices.
+   * Encode the given step into its indices within the nested sequences of the given root.
+   *
+   * @return the indices, empty for the root itself, or <code>null</code> if the step is not found
    */
-  static String encodeStep(Sequence root, Step step) {
+  static int[] encodeStep(Sequence root, Step step) {
     if (root.equals(step)) {
-      return "-1";
+      return new int[0];
     }
     synchronized (root.steps()) {
       int index = root.indexOf(step);
       if (index != -1) {
-        return String.valueOf(index);
+        return new int[] {index};
       }
       index = 0;
       Iterator iter = root.steps().iterator();
       while (iter.hasNext()) {
         Step seq = (Step) iter.next();
         if (seq instanceof Sequence) {
-          String encoding = encodeStep((Sequence) seq, step);
+          int[] encoding = encodeStep((Sequence) seq, step);
           if (encoding != null) {
-            return index + "," + encoding;
+            int[] path = new int[encoding.length + 1];
+            path[0] = index;
+            System.arraycopy(encoding, 0, path, 1, encoding.length);
+            return path;
           }
         }
         ++index;
@@ -370,42 +695,21 @@ public class ForkedStepRunner extends StepRunner {
   }
 
   /**
-   * Receive a serialized event on the connection and convert it back into a real event, setting the local
-   * representation of the given step's exception/error if necessary.
+   * Read a serialized event from a batch and convert it back into a real event.
    */
-  private StepEvent receiveEvent(Script script) throws IOException {
-    String buf = readMessage(connection);
-    if (buf == null) {
-      Log.debug("End of stream");
-      return null; // end of stream
-    }
-    StringTokenizer st = new StringTokenizer(buf, "\n");
-    String code = st.nextToken();
-    String type = st.nextToken();
-    String id = st.nextToken();
-    Step step = decodeStep(script, code);
+  private StepEvent receiveEvent(Script script, DataInputStream in) throws IOException {
+    int[] path = new int[in.readInt()];
+    for (int i = 0; i < path.length; i++) {
+      path[i] = in.readInt();
+    }
+    Step step = decodeStep(script, path);
+    String type = ForkedChannel.readString(in);
+    int id = in.readInt();
     Throwable thr = null;
-    if (st.hasMoreTokens()) {
-      String msg = st.nextToken();
-      String string;
-      String trace;
-      msg = msg.substring(4);
-      String next = st.nextToken();
-      while (!next.startsWith("STR:")) {
-        msg += next;
-        next = st.nextToken();
-      }
-      string = next.substring(4);
-      next = st.nextToken();
-      while (!next.startsWith("TRC:")) {
-        string += next;
-        next = st.nextToken();
-      }
-      trace = next.substring(4);
-      while (st.hasMoreTokens()) {
-        trace = trace + "\n" + st.nextToken();
-      }
-
+    if (in.readBoolean()) {
+      String msg = ForkedChannel.readString(in);
+      String string = ForkedChannel.readString(in);
+      String trace = ForkedChannel.readString(in);
       if (type.equals(StepEvent.STEP_FAILURE)) {
         Log.debug("Creating local forked step failure");
         thr = new ForkedFailure(msg, string, trace);
@@ -414,46 +718,7 @@ public class ForkedStepRunner extends StepRunner {
         thr = new ForkedError(msg, string, trace);
       }
     }
-    StepEvent event = new StepEvent(step, type, Integer.parseInt(id), thr);
-    return event;
-  }
-
-  private static void writeMessage(Socket connection, String msg) throws IOException {
-    OutputStream os = connection.getOutputStream();
-    byte[] buf = msg.getBytes();
-    int len = buf.length;
-    for (int i = 0; i < 4; i++) {
-      byte val = (byte) (len >> 24);
-      os.write(val);
-      len <<= 8;
-    }
-    os.write(buf, 0, buf.length);
-    os.flush();
-  }
-
-  private static String readMessage(Socket connection) throws IOException {
-    InputStream is = connection.getInputStream();
-    // FIXME probably want a socket timeout, in case the slave script
-    // hangs
-    int len = 0;
-    for (int i = 0; i < 4; i++) {
-      int data = is.read();
-      if (data == -1) {
-        return null;
-      }
-      len = (len << 8) | data;
-    }
-    byte[] buf = new byte[len];
-    int offset = 0;
-    while (offset < len) {
-      int count = is.read(buf, offset, buf.length - offset);
-      if (count == -1) {
-        return null;
-      }
-      offset += count;
-    }
-    String msg = new String(buf, 0, len);
-    return msg;
+    return new StepEvent(step, type, id, thr);
   }
 
   /**
@@ -536,23 +801,52 @@ public class ForkedStepRunner extends StepRunner {
 
   public static void main(String[] args) {
     args = Log.init(args);
+    ForkedChannel channel = null;
     try {
-      final int port = Integer.parseInt(args[0]);
-      final SlaveStepRunner runner = new SlaveStepRunner();
-      runner.setStopOnFailure("true".equals(args[1]));
-      runner.setStopOnError("true".equals(args[2]));
-      runner.setTerminateOnError("true".equals(args[3]));
-      new Thread(
-              new Runnable() {
-                public void run() {
-                  runner.launchSlave(port);
-                }
-              },
-              "Forked script")
-          .start();
+      int port = Integer.parseInt(args[0]);
+      int id = Integer.parseInt(args[1]);
+      // make connection back to originating port
+      try {
+        channel = ForkedChannel.connect(port);
+        Message hello = new Message(ForkedChannel.HELLO);
+        hello.writeInt(id);
+        channel.send(hello);
+      } catch (Throwable thr) {
+        // Can't communicate so the only option is to quit
+        Log.warn(thr);
+        System.exit(1);
+      }
     } catch (Throwable e) {
-      System.err.println("usage: abbot.script.ForkedStepRunner <port>");
+      System.err.println("usage: abbot.script.ForkedStepRunner <port> <id>");
       System.exit(1);
     }
+    serve(channel);
+  }
+
+  /**
+   * Run the scripts sent by the master, one at a time, until told to quit.
+   */
+  private static void serve(ForkedChannel channel) {
+    SlaveStepRunner runner = null;
+    while (true) {
+      Frame frame;
+      try {
+        frame = channel.receive(0);
+      } catch (IOException io) {
+        Log.warn(io);
+        frame = null;
+      }
+      if (frame == null || frame.kind() == ForkedChannel.QUIT) {
+        System.exit(0);
+      } else if (frame.kind() == ForkedChannel.RUN) {
+        SlaveStepRunner scriptRunner = new SlaveStepRunner(channel);
+        DataInputStream in = frame.payload();
+        Thread thread = new Thread(() -> scriptRunner.runScript(in), "Forked script");
+        thread.start();
+        runner = scriptRunner;
+      } else if (frame.kind() == ForkedChannel.CANCEL && runner != null) {
+        runner.stop();
+      }
+    }
   }
 }
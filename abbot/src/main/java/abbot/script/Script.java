@@ -13,19 +13,17 @@ import abbot.tester.Robot;
 import abbot.util.Properties;
 import java.awt.Component;
 import java.io.BufferedInputStream;
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -37,6 +35,7 @@ import java.util.WeakHashMap;
 import org.dom4j.Document;
 import org.dom4j.DocumentHelper;
 import org.dom4j.Element;
+import org.dom4j.Node;
 
 /**
  * Provide a structure to encapsulate actions invoked on GUI components and tests performed on those
@@ -77,6 +76,11 @@ public class Script extends Sequence implements Resolver {
   private transient Map<String, ComponentReference> refs =
       Collections.unmodifiableMap(new HashMap<>());
 
+  /**
+   * The map backing {@link #refs} while the script is being loaded.
+   */
+  private transient Map<String, ComponentReference> loadingRefs;
+
   /**
    * Maps components to references.  This cache provides a 20% speedup when adding new references.
    */
@@ -129,7 +133,7 @@ public class Script extends Sequence implements Resolver {
   }
 
   public Script(Hierarchy hierarchy) {
-    this((File) null, hierarchy);
+    this(toFile(null, null), hierarchy);
   }
 
   public Script(File file) {
@@ -151,7 +155,7 @@ public class Script extends Sequence implements Resolver {
 
     try {
       load();
-    } catch (IOException e) {
+    } catch (IOException | InvalidScriptException e) {
       setScriptError(e);
     }
   }
@@ -301,10 +305,11 @@ public class Script extends Sequence implements Resolver {
   public void save() throws IOException {
     File file = getFile();
     Log.debug("Saving script to '" + file + "' " + hashCode());
-    OutputStreamWriter writer =
-        new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8);
-    save(new BufferedWriter(writer));
-    writer.close();
+    try (Writer writer =
+        new BufferedWriter(
+            new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+      save(writer);
+    }
     lastSaved = getHash();
   }
 
@@ -358,39 +363,43 @@ public class Script extends Sequence implements Resolver {
   }
 
   /**
-   * Loads the XML test script.  Performs a check against the XML schema.
+   * Loads the XML test script.
    *
    * @param reader Provides the script data
    * @throws InvalidScriptException invalid script
    */
   public void load(Reader reader) throws InvalidScriptException {
+    ScriptReader.Handler handler = beginLoad();
+    try {
+      ScriptReader.read(reader, handler);
+    } finally {
+      loadingRefs = null;
+    }
+    endLoad();
+  }
+
+  /**
+   * Prepare to receive the contents of the script as they are read.
+   */
+  private ScriptReader.Handler beginLoad() {
     clear();
-    /*        try {
-                // Set things up to optionally validate on load
-                SAXBuilder builder =
-                    new SAXBuilder("org.apache.xerces.parsers.SAXParser", false);
-                if (validate) {
-                    URL url = getClass().getClassLoader().getResource("abbot/abbot.xsd");
-                    if (url != null) {
-                        builder = new SAXBuilder("org.apache.xerces.parsers.SAXParser", true);
-                        builder.setFeature("http://apache.org/xml/features/validation/schema", true);
-                        builder.setProperty("http://apache.org/xml/properties/schema/external-noNamespaceSchemaLocation", url.toString());
-                    }
-                    else {
-                        Log.warn("Could not find abbot/abbot.xsd, disabling XML validation");
-                        validate = false;
-                    }
-                }
-                Document doc = builder.build(reader);
-                Element root = doc.getRootElement();
-                Map map = createAttributeMap(root);
-                parseAttributes(map);
-                parseChildren(root);
-            }
-            catch(JDOMException e) {
-                throw new InvalidScriptException(e.getMessage());
-            }
-    */
+    // References are collected without copying the map for each one
+    loadingRefs = new HashMap<>();
+    refs = Collections.unmodifiableMap(loadingRefs);
+    return new ScriptReader.Handler() {
+      @Override
+      public void attributes(Map<String, String> attributes) {
+        parseAttributes(attributes);
+      }
+
+      @Override
+      public void content(Node node) throws InvalidScriptException {
+        parseNode(node);
+      }
+    };
+  }
+
+  private void endLoad() throws InvalidScriptException {
     // Make sure we have all referenced components
     synchronized (this) {
       synchReferenceIDs();
@@ -429,21 +438,31 @@ public class Script extends Sequence implements Resolver {
       throw new InvalidScriptException("Path " + getFilename() + " refers to a directory");
     }
     if (file.length() != 0) {
-      try (Reader reader =
-          new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
-
-        try (BufferedReader bufferedReader = new BufferedReader(reader)) {
-          load(bufferedReader);
-        }
-      } catch (FileNotFoundException e) {
+      ScriptReader.Handler handler = beginLoad();
+      try {
+        ScriptReader.read(file, handler);
+      } catch (NoSuchFileException e) {
         // should have been detected
         Log.warn("File '" + file + "' exists but is not found");
+      } finally {
+        loadingRefs = null;
       }
+      endLoad();
     } else {
       Log.warn("Script file " + this + " is empty");
     }
   }
 
+  /**
+   * Load the given scripts in parallel.  Errors loading a script are reported when it is run, as for a script created
+   * from a single file.
+   *
+   * @return the scripts, in the order of the given files
+   */
+  public static List<Script> loadAll(List<File> files, Hierarchy hierarchy) {
+    return files.parallelStream().map(file -> new Script(file, hierarchy)).toList();
+  }
+
   protected String getFullXMLString() {
     try {
       formatForSave = true;
@@ -677,6 +696,11 @@ public class Script extends Sequence implements Resolver {
    * Add a new component reference to the script.  For use only when parsing a script.
    */
   private ComponentReference addComponentReference(Element el) throws InvalidScriptException {
+    if (loadingRefs != null) {
+      ComponentReference ref = new ComponentReference(this, el);
+      loadingRefs.put(ref.getID(), ref);
+      return ref;
+    }
     synchReferenceIDs();
     ComponentReference ref = new ComponentReference(this, el);
     Log.debug("adding " + el);
@@ -715,7 +739,10 @@ public class Script extends Sequence implements Resolver {
   }
 
   public ComponentReference getComponentReference(String name) {
-    synchReferenceIDs();
+    // IDs can't change while loading
+    if (loadingRefs == null) {
+      synchReferenceIDs();
+    }
     return refs.get(name);
   }
 
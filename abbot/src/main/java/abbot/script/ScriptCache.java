@@ -0,0 +1,299 @@
+package abbot.script;
+
+import abbot.Log;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import org.dom4j.Attribute;
+import org.dom4j.CharacterData;
+import org.dom4j.Comment;
+import org.dom4j.DocumentHelper;
+import org.dom4j.Element;
+import org.dom4j.Node;
+
+/**
+ * On-disk cache of parsed script files.  Each entry holds what {@link ScriptReader} read from a file in a compact
+ * binary form, which is much quicker to read back than the XML.  Entries are keyed by the absolute path of the file,
+ * and are only used while the file has the same size and SHA-256 digest as when it was read; hashing the file costs
+ * a fraction of parsing it, and unlike modification times can't miss an edit.
+ * <p>
+ * The cache is enabled by setting the system property <code>abbot.script.cache_dir</code> to the directory holding
+ * the entries.  It may be shared by several VMs; entries are replaced atomically.
+ */
+final class ScriptCache {
+
+  private static final String CACHE_DIR = "abbot.script.cache_dir";
+
+  private static final int MAGIC = 0xABB07C5C;
+  private static final int VERSION = 2;
+
+  private static final String DIGEST = "SHA-256";
+
+  private static final byte END = 0;
+  private static final byte ELEMENT = 1;
+  private static final byte TEXT = 2;
+  private static final byte COMMENT = 3;
+
+  private ScriptCache() {}
+
+  static boolean isEnabled() {
+    String dir = System.getProperty(CACHE_DIR);
+    return dir != null && !dir.isEmpty();
+  }
+
+  private static String getKey(File file) {
+    return file.getAbsoluteFile().toPath().normalize().toString();
+  }
+
+  private static Path getEntry(String key) {
+    return Paths.get(System.getProperty(CACHE_DIR), String.format("%08x.script", key.hashCode()));
+  }
+
+  /**
+   * Pass the cached contents of the given file to the handler.  The entry is decoded completely before anything is
+   * passed on, so the handler sees either the whole script or nothing; entries which can't be decoded are dropped.
+   *
+   * @return whether the cache held the current contents of the file
+   */
+  static boolean read(File file, ScriptReader.Handler handler) throws InvalidScriptException {
+    if (!isEnabled()) {
+      return false;
+    }
+    String key = getKey(file);
+    Path entry = getEntry(key);
+    byte[] data;
+    try {
+      data = Files.readAllBytes(entry);
+    } catch (IOException e) {
+      return false;
+    }
+    ByteBuffer in = ByteBuffer.wrap(data);
+    Map<String, String> attributes;
+    List<Node> content = new ArrayList<>();
+    try {
+      if (in.getInt() != MAGIC
+          || in.getInt() != VERSION
+          || !key.equals(readString(in))
+          || in.getLong() != file.length()) {
+        return false;
+      }
+      byte[] digest = new byte[in.getInt()];
+      in.get(digest);
+      if (!MessageDigest.isEqual(digest, digest(file))) {
+        return false;
+      }
+      attributes = readAttributes(in);
+      for (byte kind = in.get(); kind != END; kind = in.get()) {
+        content.add(readNode(kind, in));
+      }
+      if (in.hasRemaining()) {
+        throw new IllegalArgumentException(in.remaining() + " bytes after the end");
+      }
+    } catch (IOException e) {
+      return false;
+    } catch (BufferUnderflowException
+        | IndexOutOfBoundsException
+        | NegativeArraySizeException
+        | IllegalArgumentException e) {
+      // Entries are replaced atomically, so this is another version's or a damaged file
+      Log.warn("Dropping unreadable script cache entry " + entry + " for " + file + ": " + e);
+      try {
+        Files.deleteIfExists(entry);
+      } catch (IOException e2) {
+        Log.warn("Could not delete " + entry + ": " + e2);
+      }
+      return false;
+    }
+    Log.debug("Reading " + file + " from the script cache");
+    handler.attributes(attributes);
+    for (Node node : content) {
+      handler.content(node);
+    }
+    return true;
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance(DIGEST);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static byte[] digest(File file) throws IOException {
+    MessageDigest digest = newDigest();
+    try (InputStream in = new DigestInputStream(Files.newInputStream(file.toPath()), digest)) {
+      in.transferTo(OutputStream.nullOutputStream());
+    }
+    return digest.digest();
+  }
+
+  /**
+   * Returns a handler which records what is read from the given file and passes it on to the given handler, or
+   * <code>null</code> if the cache is disabled.  The file must be read through {@link Recorder#wrap}.
+   */
+  static Recorder record(File file, ScriptReader.Handler handler) {
+    return isEnabled() ? new Recorder(file, handler) : null;
+  }
+
+  /**
+   * Records what is read from a file, to be stored in the cache once the whole file has been read.
+   */
+  static final class Recorder implements ScriptReader.Handler {
+
+    private final String key;
+    private final long length;
+    private final ScriptReader.Handler handler;
+    private final MessageDigest digest = newDigest();
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final DataOutputStream out = new DataOutputStream(bytes);
+
+    private Recorder(File file, ScriptReader.Handler handler) {
+      this.key = getKey(file);
+      // taken before reading, so changes while reading invalidate the entry
+      this.length = file.length();
+      this.handler = handler;
+    }
+
+    /**
+     * Returns a stream which computes the digest of the file as it is read.  It must be read to the end before
+     * {@link #commit}.
+     */
+    InputStream wrap(InputStream in) {
+      return new DigestInputStream(in, digest);
+    }
+
+    @Override
+    public void attributes(Map<String, String> attributes) throws InvalidScriptException {
+      try {
+        out.writeInt(attributes.size());
+        for (Map.Entry<String, String> entry : attributes.entrySet()) {
+          writeString(out, entry.getKey());
+          writeString(out, entry.getValue());
+        }
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+      handler.attributes(attributes);
+    }
+
+    @Override
+    public void content(Node node) throws InvalidScriptException {
+      try {
+        writeNode(out, node);
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+      handler.content(node);
+    }
+
+    /**
+     * Store the recorded contents; failures are only logged, since the file has been read anyway.
+     */
+    void commit() {
+      try {
+        out.writeByte(END);
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        DataOutputStream headerOut = new DataOutputStream(header);
+        headerOut.writeInt(MAGIC);
+        headerOut.writeInt(VERSION);
+        writeString(headerOut, key);
+        headerOut.writeLong(length);
+        byte[] hash = digest.digest();
+        headerOut.writeInt(hash.length);
+        headerOut.write(hash);
+        bytes.writeTo(headerOut);
+        Path entry = getEntry(key);
+        Files.createDirectories(entry.getParent());
+        Path tmp = Files.createTempFile(entry.getParent(), "script", ".tmp");
+        try {
+          Files.write(tmp, header.toByteArray());
+          Files.move(tmp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+          Files.deleteIfExists(tmp);
+        }
+      } catch (IOException e) {
+        Log.warn("Could not cache script " + key + ": " + e);
+      }
+    }
+  }
+
+  private static void writeNode(DataOutputStream out, Node node) throws IOException {
+    if (node instanceof Element el) {
+      out.writeByte(ELEMENT);
+      writeString(out, el.getName());
+      out.writeInt(el.attributeCount());
+      for (Attribute attribute : el.attributes()) {
+        writeString(out, attribute.getName());
+        writeString(out, attribute.getValue());
+      }
+      for (Iterator<Node> iter = el.nodeIterator(); iter.hasNext(); ) {
+        writeNode(out, iter.next());
+      }
+      out.writeByte(END);
+    } else if (node instanceof Comment) {
+      out.writeByte(COMMENT);
+      writeString(out, node.getText());
+    } else if (node instanceof CharacterData) {
+      out.writeByte(TEXT);
+      writeString(out, node.getText());
+    }
+  }
+
+  private static Node readNode(byte kind, ByteBuffer in) {
+    return switch (kind) {
+      case ELEMENT -> {
+        Element el = DocumentHelper.createElement(readString(in));
+        for (int count = in.getInt(); count > 0; count--) {
+          el.addAttribute(readString(in), readString(in));
+        }
+        for (byte child = in.get(); child != END; child = in.get()) {
+          el.add(readNode(child, in));
+        }
+        yield el;
+      }
+      case TEXT -> DocumentHelper.createText(readString(in));
+      case COMMENT -> DocumentHelper.createComment(readString(in));
+      default -> throw new IllegalArgumentException("Unknown node kind " + kind);
+    };
+  }
+
+  private static Map<String, String> readAttributes(ByteBuffer in) {
+    Map<String, String> attributes = new HashMap<>();
+    for (int count = in.getInt(); count > 0; count--) {
+      attributes.put(readString(in), readString(in));
+    }
+    return attributes;
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(ByteBuffer in) {
+    int length = in.getInt();
+    String value = new String(in.array(), in.position(), length, StandardCharsets.UTF_8);
+    in.position(in.position() + length);
+    return value;
+  }
+}
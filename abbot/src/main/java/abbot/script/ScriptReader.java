@@ -0,0 +1,145 @@
+package abbot.script;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.dom4j.DocumentHelper;
+import org.dom4j.Element;
+import org.dom4j.Node;
+
+/**
+ * Reads script XML with a streaming parser, handing over each element directly below the root as soon as it is
+ * complete, so the whole document is never held in memory.  Steps and component references are still built from
+ * their own dom4j {@link Element}s, which stay small.
+ * <p>
+ * Script files may be read through the {@link ScriptCache}, which skips parsing XML for files which haven't changed.
+ */
+final class ScriptReader {
+
+  /**
+   * Receives the parts of a script as they are read.
+   */
+  interface Handler {
+
+    /**
+     * Called once with the attributes of the root element, before any content.
+     */
+    void attributes(Map<String, String> attributes) throws InvalidScriptException;
+
+    /**
+     * Called for every element and comment directly below the root, in document order.
+     */
+    void content(Node node) throws InvalidScriptException;
+  }
+
+  private static final ThreadLocal<XMLInputFactory> FACTORY =
+      ThreadLocal.withInitial(
+          () -> {
+            XMLInputFactory factory = XMLInputFactory.newFactory();
+            factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+            factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+            factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+            return factory;
+          });
+
+  private ScriptReader() {}
+
+  /**
+   * Read the given script file, from the cache if possible.
+   */
+  static void read(File file, Handler handler) throws IOException, InvalidScriptException {
+    if (ScriptCache.read(file, handler)) {
+      return;
+    }
+    ScriptCache.Recorder recorder = ScriptCache.record(file, handler);
+    InputStream stream = Files.newInputStream(file.toPath());
+    try (InputStream in = recorder != null ? recorder.wrap(stream) : stream) {
+      XMLStreamReader xml = FACTORY.get().createXMLStreamReader(in);
+      try {
+        read(xml, recorder != null ? recorder : handler);
+      } finally {
+        xml.close();
+      }
+      if (recorder != null) {
+        // the digest covers the whole file
+        in.transferTo(OutputStream.nullOutputStream());
+      }
+    } catch (XMLStreamException e) {
+      throw new InvalidScriptException(e.getMessage());
+    }
+    if (recorder != null) {
+      recorder.commit();
+    }
+  }
+
+  /**
+   * Read script XML from the given reader.
+   */
+  static void read(Reader reader, Handler handler) throws InvalidScriptException {
+    try {
+      XMLStreamReader xml = FACTORY.get().createXMLStreamReader(reader);
+      try {
+        read(xml, handler);
+      } finally {
+        xml.close();
+      }
+    } catch (XMLStreamException e) {
+      throw new InvalidScriptException(e.getMessage());
+    }
+  }
+
+  private static void read(XMLStreamReader xml, Handler handler) throws XMLStreamException {
+    xml.nextTag();
+    Map<String, String> attributes = new HashMap<>();
+    for (int i = 0; i < xml.getAttributeCount(); i++) {
+      attributes.put(xml.getAttributeLocalName(i), xml.getAttributeValue(i));
+    }
+    handler.attributes(attributes);
+    while (true) {
+      switch (xml.next()) {
+        case XMLStreamConstants.START_ELEMENT -> handler.content(readElement(xml));
+        case XMLStreamConstants.COMMENT -> handler.content(DocumentHelper.createComment(xml.getText()));
+        case XMLStreamConstants.END_ELEMENT -> {
+          return;
+        }
+        default -> {
+          // whitespace between steps
+        }
+      }
+    }
+  }
+
+  /**
+   * Build the element the reader is positioned at, leaving the reader at its end tag.
+   */
+  private static Element readElement(XMLStreamReader xml) throws XMLStreamException {
+    Element el = DocumentHelper.createElement(xml.getLocalName());
+    for (int i = 0; i < xml.getAttributeCount(); i++) {
+      el.addAttribute(xml.getAttributeLocalName(i), xml.getAttributeValue(i));
+    }
+    while (true) {
+      switch (xml.next()) {
+        case XMLStreamConstants.START_ELEMENT -> el.add(readElement(xml));
+        case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA, XMLStreamConstants.SPACE ->
+            el.addText(xml.getText());
+        case XMLStreamConstants.COMMENT -> el.addComment(xml.getText());
+        case XMLStreamConstants.END_ELEMENT -> {
+          return el;
+        }
+        default -> {
+          // processing instructions
+        }
+      }
+    }
+  }
+}
@@ -57,17 +57,23 @@ public class Sequence extends Step {
     synchronized (sequence) {
       Iterator<Node> iter = el.nodeIterator();
       while (iter.hasNext()) {
-        Node obj = iter.next();
-        if (obj instanceof Element) {
-          parseChild((Element) obj);
-        } else if (obj instanceof org.dom4j.Comment) {
-          String text = obj.getText();
-          addStep(new abbot.script.Comment(getResolver(), text));
-        }
+        parseNode(iter.next());
       }
     }
   }
 
+  /**
+   * Add the step given by an element or comment; other nodes are ignored.
+   */
+  protected void parseNode(Node node) throws InvalidScriptException {
+    if (node instanceof Element) {
+      parseChild((Element) node);
+    } else if (node instanceof org.dom4j.Comment) {
+      String text = node.getText();
+      addStep(new abbot.script.Comment(getResolver(), text));
+    }
+  }
+
   public String getDefaultDescription() {
     return Strings.get("sequence.desc", new Object[]{String.valueOf(size())});
   }
@@ -77,13 +83,13 @@ public class Sequence extends Step {
   }
 
   protected Element addContent(Element el) {
-    List<Sequence> seq;
+    List<Step> seq;
     synchronized (sequence) {
-      seq = (ArrayList) sequence.clone();
+      seq = new ArrayList<>(sequence);
     }
 
-    for (Sequence value : seq) {
-      if (value instanceof org.dom4j.Comment) {
+    for (Step value : seq) {
+      if (value instanceof Comment) {
         el.add(DocumentHelper.createComment(value.getDescription()));
       } else {
         el.add(value.toXML());
@@ -105,13 +111,13 @@ public class Sequence extends Step {
   }
 
   protected void runStep(StepRunner runner) throws Throwable {
-    Iterator<Sequence> iter;
+    Iterator<Step> iter;
     synchronized (sequence) {
-      iter = ((ArrayList<Sequence>) sequence.clone()).iterator();
+      iter = new ArrayList<>(sequence).iterator();
     }
     if (runner != null) {
       while (iter.hasNext() && !runner.stopped()) {
-        runner.runStep((Step) iter.next());
+        runner.runStep(iter.next());
       }
     } else {
       while (iter.hasNext()) {
@@ -15,6 +15,7 @@ import abbot.script.ComponentReference;
 import abbot.script.Condition;
 import abbot.util.AWT;
 import abbot.util.Bugs;
+import abbot.util.ClassRegistry;
 import abbot.util.WeakAWTEventListener;
 import java.awt.AWTEvent;
 import java.awt.Component;
@@ -28,9 +29,10 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.accessibility.AccessibleContext;
 import javax.accessibility.AccessibleIcon;
 
@@ -196,12 +198,19 @@ public class ComponentTester extends Robot {
           "getLocation");
 
   /**
-   * Maps class names to their corresponding Tester object.
+   * Testers set explicitly, by class name.
    */
-  private static final HashMap<String, ComponentTester> testers = new HashMap<>();
+  private static final Map<String, ComponentTester> customTesters = new ConcurrentHashMap<>();
+
+  /**
+   * Resolved testers per component class.
+   */
+  private static final ClassRegistry<ComponentTester> testers =
+      new ClassRegistry<>(ComponentTester::lookupTester);
 
   public static void setTester(Class<?> forClass, ComponentTester tester) {
-    testers.put(forClass.getName(), tester);
+    customTesters.put(forClass.getName(), tester);
+    testers.invalidate();
   }
 
   public static ComponentTester getTester(Component comp) {
@@ -209,46 +218,53 @@ public class ComponentTester extends Robot {
   }
 
   public static ComponentTester getTester(Class<?> componentClass) {
+    if (!Component.class.isAssignableFrom(componentClass)) {
+      String msg = "Class " + componentClass.getName() + " is not derived from java.awt.Component";
+      throw new IllegalArgumentException(msg);
+    }
+    return testers.get(componentClass);
+  }
+
+  /**
+   * Resolve the testers of the given component classes ahead of time, e.g. at startup.
+   */
+  public static void warmUp(Class<?>... componentClasses) {
+    testers.warmUp(componentClasses);
+  }
+
+  /**
+   * Find the tester for exactly the given class, or <code>null</code> to use the superclass'
+   * tester.  Testers are resolved once per class (not per class name), so extension testers loaded
+   * in the context of the code under test are remembered as well.
+   */
+  private static ComponentTester lookupTester(Class<?> componentClass) {
     String className = componentClass.getName();
-    ComponentTester tester = testers.get(className);
+    ComponentTester tester = customTesters.get(className);
+    if (tester != null || !Component.class.isAssignableFrom(componentClass)) {
+      return tester;
+    }
+    Log.debug(() -> "Looking up tester for " + componentClass);
+    String testerName = simpleClassName(componentClass) + "Tester";
+    Package pkg = ComponentTester.class.getPackage();
+    String pkgName = "";
+    if (pkg == null) {
+      Log.warn(
+          "ComponentTester.class has null package; "
+              + "the class loader is likely flawed: "
+              + ComponentTester.class.getClassLoader()
+              + ", "
+              + Thread.currentThread().getContextClassLoader(),
+          Log.FULL_STACK);
+      pkgName = "abbot.tester";
+    } else {
+      pkgName = pkg.getName();
+    }
+    if (className.startsWith("javax.swing.") || className.startsWith("java.awt.")) {
+      tester = findTester(pkgName + "." + testerName, componentClass);
+    }
     if (tester == null) {
-      if (!Component.class.isAssignableFrom(componentClass)) {
-        String msg = "Class " + className + " is not derived from java.awt.Component";
-        throw new IllegalArgumentException(msg);
-      }
-      Log.debug("Looking up tester for " + componentClass);
-      String testerName = simpleClassName(componentClass) + "Tester";
-      Package pkg = ComponentTester.class.getPackage();
-      String pkgName = "";
-      if (pkg == null) {
-        Log.warn(
-            "ComponentTester.class has null package; "
-                + "the class loader is likely flawed: "
-                + ComponentTester.class.getClassLoader()
-                + ", "
-                + Thread.currentThread().getContextClassLoader(),
-            Log.FULL_STACK);
-        pkgName = "abbot.tester";
-      } else {
-        pkgName = pkg.getName();
-      }
-      if (className.startsWith("javax.swing.") || className.startsWith("java.awt.")) {
-        tester = findTester(pkgName + "." + testerName, componentClass);
-      }
-      if (tester == null) {
-        tester = findTester(pkgName + ".extensions." + testerName, componentClass);
-        if (tester == null) {
-          tester = getTester(componentClass.getSuperclass());
-        }
-      }
-      if (!tester.isExtension()) {
-        // Only cache it if it's part of the standard framework,
-        // but cache it for every level that we looked up, so we
-        // don't repeat the effort.
-        testers.put(componentClass.getName(), tester);
-      }
+      tester = findTester(pkgName + ".extensions." + testerName, componentClass);
     }
-
     return tester;
   }
 
@@ -693,7 +709,13 @@ public class ComponentTester extends Robot {
 
   public boolean assertImage(Component component, java.io.File fileImage, boolean ignoreBorder) {
     BufferedImage img = capture(component, ignoreBorder);
-    return new ImageComparator().compare(img, fileImage) == 0;
+    return new ImageComparator().compare(fileImage, img) == 0;
+  }
+
+  public boolean assertImage(Component component, BufferedImage expected, boolean ignoreBorder) {
+    ImageDifference diff =
+        compareCapture(component, ignoreBorder, expected, new ImageComparator());
+    return diff != null && diff.isMatch();
   }
 
   /**
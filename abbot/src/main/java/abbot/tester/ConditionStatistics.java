@@ -0,0 +1,79 @@
+package abbot.tester;
+
+import abbot.util.LatencyHistogram;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters collected by the {@link ConditionWaiter} for one kind of condition.
+ */
+public class ConditionStatistics {
+
+  private final String name;
+  private final AtomicLong waits = new AtomicLong();
+  private final AtomicLong evaluations = new AtomicLong();
+  private final AtomicLong timeouts = new AtomicLong();
+  private final LatencyHistogram wakeLatency;
+
+  ConditionStatistics(String name) {
+    this.name = name;
+    this.wakeLatency = new LatencyHistogram(name + " wake latency");
+  }
+
+  void waitStarted() {
+    waits.incrementAndGet();
+  }
+
+  void evaluated() {
+    evaluations.incrementAndGet();
+  }
+
+  void timedOut() {
+    timeouts.incrementAndGet();
+  }
+
+  void woken(long latencyNanos) {
+    wakeLatency.record(latencyNanos);
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Returns how often a condition of this kind was waited for.
+   */
+  public long getWaitCount() {
+    return waits.get();
+  }
+
+  /**
+   * Returns how often a condition of this kind was tested.
+   */
+  public long getEvaluationCount() {
+    return evaluations.get();
+  }
+
+  public long getTimeoutCount() {
+    return timeouts.get();
+  }
+
+  /**
+   * Returns the time between a UI change being signalled and the waiting thread waking up.
+   */
+  public LatencyHistogram getWakeLatency() {
+    return wakeLatency;
+  }
+
+  @Override
+  public String toString() {
+    return name
+        + ": waits="
+        + getWaitCount()
+        + " evaluations="
+        + getEvaluationCount()
+        + " timeouts="
+        + getTimeoutCount()
+        + " "
+        + wakeLatency;
+  }
+}
@@ -0,0 +1,172 @@
+package abbot.tester;
+
+import abbot.jfr.ConditionWaitEvent;
+import abbot.script.Condition;
+import abbot.util.Properties;
+import abbot.util.WeakAWTEventListener;
+import java.awt.AWTEvent;
+import java.awt.event.AWTEventListener;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Waits for {@link Condition}s to become true, re-evaluating them whenever the UI may have
+ * changed instead of at a fixed interval.
+ * <p>
+ * Waiters are woken whenever the {@link IdleEventQueue} runs empty after dispatching events, which
+ * covers property, document and model changes made on the event dispatch thread, and on window,
+ * component, container and focus events, which may also be generated off the dispatch thread. A
+ * timer serves as fallback for state changes no event tells about; it starts at 1 ms and backs off
+ * exponentially while no event arrives, up to the requested polling interval, so conditions are
+ * evaluated at least as often as the caller asked for. The system property
+ * <code>abbot.robot.condition_max_backoff</code> (default 100 ms) caps longer intervals.
+ */
+public class ConditionWaiter {
+
+  private static final int MIN_BACKOFF = 1;
+
+  private static final int MAX_BACKOFF =
+      Properties.getProperty("abbot.robot.condition_max_backoff", 100, 1, 60000);
+
+  private static class Holder {
+    public static final ConditionWaiter INSTANCE = new ConditionWaiter();
+  }
+
+  public static ConditionWaiter getDefault() {
+    return Holder.INSTANCE;
+  }
+
+  private final Object lock = new Object();
+
+  /**
+   * Incremented on every signal; guarded by {@link #lock}.
+   */
+  private long generation = 0;
+
+  /**
+   * Time of the most recent signal; guarded by {@link #lock}.
+   */
+  private long signalledAt = 0;
+
+  private final AtomicInteger waiters = new AtomicInteger();
+  private final Map<String, ConditionStatistics> statistics = new ConcurrentHashMap<>();
+  private final AWTEventListener listener = event -> signal();
+
+  ConditionWaiter() {
+    long mask = AWTEvent.WINDOW_EVENT_MASK
+        | AWTEvent.COMPONENT_EVENT_MASK
+        | AWTEvent.CONTAINER_EVENT_MASK
+        | AWTEvent.FOCUS_EVENT_MASK;
+    new WeakAWTEventListener(listener, mask);
+  }
+
+  /**
+   * Wake all waiting threads so they re-evaluate their conditions.
+   */
+  public void signal() {
+    if (waiters.get() == 0) {
+      return;
+    }
+    synchronized (lock) {
+      generation++;
+      signalledAt = System.nanoTime();
+      lock.notifyAll();
+    }
+  }
+
+  /**
+   * Wait for the given condition, collecting statistics under the condition's class name.
+   *
+   * @see #await(Condition, String, long, int)
+   */
+  public boolean await(Condition condition, long timeout, int interval) {
+    return await(condition, condition.getClass().getName(), timeout, interval);
+  }
+
+  /**
+   * Wait for the given condition to become true.
+   *
+   * @param condition condition to wait for
+   * @param name      name to collect statistics under
+   * @param timeout   maximum time to wait in milliseconds
+   * @param interval  longest fallback polling interval in milliseconds
+   * @return <code>true</code> if the condition was met, <code>false</code> if the wait timed out or
+   * was interrupted
+   */
+  public boolean await(Condition condition, String name, long timeout, int interval) {
+    var stats = statistics.computeIfAbsent(name, ConditionStatistics::new);
+    stats.waitStarted();
+    var event = new ConditionWaitEvent();
+    event.begin();
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+    long maxBackoff = Math.max(MIN_BACKOFF, Math.min(interval, MAX_BACKOFF));
+    long backoff = MIN_BACKOFF;
+
+    waiters.incrementAndGet();
+    try {
+      while (true) {
+        long observed;
+        synchronized (lock) {
+          observed = generation;
+        }
+        stats.evaluated();
+        event.evaluations++;
+        if (condition.test()) {
+          event.satisfied = true;
+          return true;
+        }
+
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          stats.timedOut();
+          return false;
+        }
+        var signalled = awaitSignal(
+            observed,
+            Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(backoff)),
+            stats);
+        backoff = signalled ? MIN_BACKOFF : Math.min(backoff * 2, maxBackoff);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      stats.timedOut();
+      return false;
+    } finally {
+      waiters.decrementAndGet();
+      if (event.shouldCommit()) {
+        event.condition = name;
+        event.timeout = timeout;
+        event.commit();
+      }
+    }
+  }
+
+  private boolean awaitSignal(long observed, long nanos, ConditionStatistics stats)
+      throws InterruptedException {
+    long end = System.nanoTime() + nanos;
+    synchronized (lock) {
+      while (generation == observed) {
+        long remaining = end - System.nanoTime();
+        if (remaining <= 0) {
+          return false;
+        }
+        TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+      }
+      stats.woken(System.nanoTime() - signalledAt);
+      return true;
+    }
+  }
+
+  /**
+   * Returns the statistics collected so far, keyed by condition name.
+   */
+  public Map<String, ConditionStatistics> getStatistics() {
+    return Map.copyOf(statistics);
+  }
+
+  public void resetStatistics() {
+    statistics.clear();
+  }
+}
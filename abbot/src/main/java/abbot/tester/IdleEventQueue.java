@@ -0,0 +1,151 @@
+package abbot.tester;
+
+import abbot.Log;
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.awt.event.InvocationEvent;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Event queue which signals waiting threads as soon as it runs out of events, so that
+ * {@link Robot#waitForIdle()} need not repeatedly post invocation events and poll the queue, and
+ * the {@link ConditionWaiter} re-evaluates conditions once the UI has settled.
+ * <p>
+ * The queue is pushed on top of the system event queue. If the application later pushes its own
+ * queue on top of this one, this queue is no longer {@link #isActive() active} and the robot falls
+ * back to polling.
+ * <p>
+ * Installation may be suppressed by setting the system property
+ * <code>abbot.robot.idle_event_queue</code> to <code>false</code>.
+ */
+final class IdleEventQueue extends EventQueue {
+
+  private static final boolean ENABLED =
+      !"false".equals(System.getProperty("abbot.robot.idle_event_queue"));
+
+  private final Toolkit toolkit;
+  private final EventQueue baseQueue;
+
+  private final Object lock = new Object();
+
+  /**
+   * Number of events dispatched so far.
+   */
+  private long dispatched = 0;
+
+  /**
+   * Value of {@link #dispatched} when the queue was last found empty.
+   */
+  private long idleAt = 0;
+
+  private IdleEventQueue(Toolkit toolkit, EventQueue baseQueue) {
+    this.toolkit = toolkit;
+    this.baseQueue = baseQueue;
+  }
+
+  /**
+   * Install an idle-detecting queue on top of the given toolkit's system event queue.
+   *
+   * @return the installed queue, or <code>null</code> if disabled or installation failed
+   */
+  static IdleEventQueue install(Toolkit toolkit) {
+    if (!ENABLED) {
+      return null;
+    }
+    try {
+      var systemQueue = toolkit.getSystemEventQueue();
+      var queue = new IdleEventQueue(toolkit, systemQueue);
+      systemQueue.push(queue);
+      return queue;
+    } catch (RuntimeException e) {
+      Log.warn("Unable to install idle event queue: " + e);
+      return null;
+    }
+  }
+
+  /**
+   * Returns whether this queue is still the one events are dispatched from.
+   */
+  boolean isActive() {
+    return toolkit.getSystemEventQueue() == this;
+  }
+
+  /**
+   * Returns whether the given queue is superseded by this one, i.e. any event posted to it is
+   * forwarded to this queue.
+   */
+  boolean supersedes(EventQueue queue) {
+    return queue == this || queue == baseQueue;
+  }
+
+  /**
+   * Returns the number of events dispatched from this queue.
+   */
+  long getDispatchCount() {
+    synchronized (lock) {
+      return dispatched;
+    }
+  }
+
+  /**
+   * Wait until every event posted before this call has been dispatched and the queue has been
+   * found empty afterwards.
+   *
+   * @param timeout maximum time to wait in milliseconds
+   * @return whether the queue became idle before the timeout expired
+   */
+  boolean waitForIdle(long timeout) throws InterruptedException {
+    var marker = new IdleMarker();
+    postEvent(new InvocationEvent(toolkit, marker));
+
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+    synchronized (lock) {
+      while (marker.sequence == 0 || idleAt < marker.sequence) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          return false;
+        }
+        TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+      }
+    }
+    return true;
+  }
+
+  @Override
+  protected void dispatchEvent(AWTEvent event) {
+    try {
+      super.dispatchEvent(event);
+    } finally {
+      var empty = peekEvent() == null;
+      synchronized (lock) {
+        dispatched++;
+        if (empty) {
+          idleAt = dispatched;
+          lock.notifyAll();
+        }
+      }
+      if (empty) {
+        ConditionWaiter.getDefault().signal();
+      }
+    }
+  }
+
+  /**
+   * Remembers its own position in the dispatch sequence.
+   */
+  private class IdleMarker implements Runnable {
+
+    /**
+     * Guarded by {@link IdleEventQueue#lock}; zero until dispatched.
+     */
+    private long sequence = 0;
+
+    @Override
+    public void run() {
+      synchronized (lock) {
+        sequence = dispatched + 1;
+      }
+    }
+  }
+}
@@ -1,12 +1,26 @@
 package abbot.tester;
 
 import abbot.Log;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.imageio.ImageIO;
 
 /**
- * This code expects the availability of the com.sun.image.codec.jpeg extensions from the Sun JDK 1.3 or JRE.
+ * Compares images pixel by pixel in memory.  Integer-packed images (such as those returned by
+ * {@link Robot#capture(java.awt.Component)}) are read straight from their backing arrays; other
+ * image types are read a row at a time.
+ * <p>
+ * By default images must be identical.  A per-channel tolerance allows for small color
+ * differences (e.g. anti-aliasing), ignored regions mask out volatile areas like clocks or
+ * carets, and a maximum mismatch percentage allows for a number of differing pixels.  Unless a
+ * diff image is requested, the comparison stops as soon as the images are known not to match.
  * <p>
  * Original comparison code contributed by asmithmb.
  * <p>
@@ -14,59 +28,223 @@ import java.io.IOException;
  */
 public class ImageComparator implements java.util.Comparator {
 
-  private final FileComparator comparator = new FileComparator();
+  private int tolerance = 0;
+  private double maxMismatchPercentage = 0;
+  private boolean createDiffImage = false;
+  private final List<Rectangle> ignoredRegions = new ArrayList<>();
 
-  private static File convertToJPEGFile(Object obj) throws IOException {
-    if (obj != null) {
-      if (obj instanceof String) {
-        obj = new File((String) obj);
-      }
-      if (obj instanceof BufferedImage) {
-        File file = File.createTempFile("ImageComparator", ".jpg");
-        Log.debug("Creating " + file);
-        writeJPEG(file, (BufferedImage) obj);
-        file.deleteOnExit();
-        return file;
-      }
-      if (obj instanceof File) {
-        return (File) obj;
-      }
+  public ImageComparator() {
+  }
+
+  /**
+   * @param tolerance maximum difference per color channel (0-255) for pixels to be considered equal
+   */
+  public ImageComparator(int tolerance) {
+    setTolerance(tolerance);
+  }
+
+  /**
+   * Set the maximum difference per color channel (0-255) for pixels to be considered equal.
+   */
+  public void setTolerance(int tolerance) {
+    if (tolerance < 0 || tolerance > 255) {
+      throw new IllegalArgumentException("Tolerance must be between 0 and 255: " + tolerance);
     }
-    return null;
+    this.tolerance = tolerance;
+  }
+
+  public int getTolerance() {
+    return tolerance;
+  }
+
+  /**
+   * Set the percentage of compared pixels which may differ while the images are still considered
+   * equal.
+   */
+  public void setMaxMismatchPercentage(double percentage) {
+    if (percentage < 0 || percentage > 100) {
+      throw new IllegalArgumentException("Percentage must be between 0 and 100: " + percentage);
+    }
+    this.maxMismatchPercentage = percentage;
+  }
+
+  public double getMaxMismatchPercentage() {
+    return maxMismatchPercentage;
+  }
+
+  /**
+   * Set whether {@link #difference(BufferedImage, BufferedImage)} should produce a diff image.
+   * Doing so requires all pixels to be compared.
+   */
+  public void setCreateDiffImage(boolean create) {
+    this.createDiffImage = create;
+  }
+
+  public boolean isCreateDiffImage() {
+    return createDiffImage;
+  }
+
+  /**
+   * Exclude the given region, in image coordinates, from comparison.
+   */
+  public void addIgnoredRegion(Rectangle region) {
+    ignoredRegions.add(new Rectangle(region));
+  }
+
+  public void clearIgnoredRegions() {
+    ignoredRegions.clear();
   }
 
   /**
    * Write the given buffered image to disk.
+   *
+   * @deprecated images are compared in memory; use {@link ImageIO} directly to save them.
    */
+  @Deprecated
   public static void writeJPEG(File file, BufferedImage img) throws IOException {
-    // NOT Supported in Mac Java5+
-    //      FileOutputStream os = new FileOutputStream(file);
-    //      JPEGImageEncoder ie = JPEGCodec.createJPEGEncoder(os);
-    //      JPEGEncodeParam param = ie.getDefaultJPEGEncodeParam(img);
-    //      // Lossless, please
-    //      param.setQuality(1.0f, false);
-    //      ie.setJPEGEncodeParam(param);
-    //      ie.encode(img);
-    //      os.close();
-    throw new UnsupportedOperationException();
+    if (!ImageIO.write(img, "jpg", file)) {
+      throw new IOException("No JPEG writer available for " + file);
+    }
+  }
+
+  private static BufferedImage toImage(Object obj) throws IOException {
+    if (obj instanceof BufferedImage image) {
+      return image;
+    }
+    if (obj instanceof String path) {
+      obj = new File(path);
+    }
+    if (obj instanceof File file) {
+      BufferedImage image = ImageIO.read(file);
+      if (image == null) {
+        throw new IOException("Unreadable image file " + file);
+      }
+      return image;
+    }
+    return null;
   }
 
   /**
-   * Compare two images.  May be BufferedImages or File arguments.
+   * Compare two images.  May be BufferedImages, File or String (file name) arguments.  Returns zero
+   * if the images match according to this comparator's settings.
    */
   public int compare(Object obj1, Object obj2) {
+    BufferedImage image1;
+    BufferedImage image2;
     try {
-      obj1 = convertToJPEGFile(obj1);
+      image1 = toImage(obj1);
     } catch (IOException io) {
-      obj1 = null;
+      Log.warn(io);
+      image1 = null;
     }
     try {
-      obj2 = convertToJPEGFile(obj2);
+      image2 = toImage(obj2);
     } catch (IOException io) {
-      obj2 = null;
+      Log.warn(io);
+      image2 = null;
+    }
+    if (image1 == null || image2 == null) {
+      return image1 == image2 ? 0 : (image1 == null ? -1 : 1);
+    }
+    ImageDifference diff = difference(image1, image2);
+    Log.debug("Comparing " + obj1 + " and " + obj2 + ": " + diff);
+    return diff.isMatch() ? 0 : 1;
+  }
+
+  /**
+   * Compare two images and describe their difference.
+   */
+  public ImageDifference difference(BufferedImage expected, BufferedImage actual) {
+    int width = expected.getWidth();
+    int height = expected.getHeight();
+    if (width != actual.getWidth() || height != actual.getHeight()) {
+      return ImageDifference.sizeMismatch();
+    }
+
+    // Alpha is undefined for opaque images, so only compare it if both have it
+    int mask =
+        expected.getColorModel().hasAlpha() && actual.getColorModel().hasAlpha()
+            ? 0xFFFFFFFF
+            : 0x00FFFFFF;
+    boolean[] ignored = ignoredRegions.isEmpty() ? null : new boolean[width];
+    long compared = countComparedPixels(width, height);
+    long allowed = (long) Math.floor(compared * maxMismatchPercentage / 100);
+    BufferedImage diffImage =
+        createDiffImage ? new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB) : null;
+
+    PixelRows rows1 = new PixelRows(expected);
+    PixelRows rows2 = new PixelRows(actual);
+    long mismatched = 0;
+    for (int y = 0; y < height; y++) {
+      if (ignored != null) {
+        maskRow(ignored, y);
+      }
+      int[] row1 = rows1.row(y);
+      int[] row2 = rows2.row(y);
+      int offset1 = rows1.offset(y);
+      int offset2 = rows2.offset(y);
+      for (int x = 0; x < width; x++) {
+        if (ignored != null && ignored[x]) {
+          continue;
+        }
+        int p1 = row1[offset1 + x] & mask;
+        int p2 = row2[offset2 + x] & mask;
+        if (p1 != p2 && !withinTolerance(p1, p2)) {
+          mismatched++;
+          if (diffImage != null) {
+            diffImage.setRGB(x, y, 0xFFFF0000);
+          } else if (mismatched > allowed) {
+            return new ImageDifference(true, false, false, compared, mismatched, null);
+          }
+        }
+      }
+    }
+    return new ImageDifference(true, mismatched <= allowed, true, compared, mismatched, diffImage);
+  }
+
+  private boolean withinTolerance(int p1, int p2) {
+    if (tolerance == 0) {
+      return false;
+    }
+    for (int shift = 0; shift < 32; shift += 8) {
+      int c1 = (p1 >>> shift) & 0xFF;
+      int c2 = (p2 >>> shift) & 0xFF;
+      if (Math.abs(c1 - c2) > tolerance) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private long countComparedPixels(int width, int height) {
+    long total = (long) width * height;
+    if (ignoredRegions.isEmpty()) {
+      return total;
+    }
+    boolean[] ignored = new boolean[width];
+    long excluded = 0;
+    for (int y = 0; y < height; y++) {
+      maskRow(ignored, y);
+      for (boolean b : ignored) {
+        if (b) {
+          excluded++;
+        }
+      }
+    }
+    return total - excluded;
+  }
+
+  private void maskRow(boolean[] ignored, int y) {
+    Arrays.fill(ignored, false);
+    for (Rectangle r : ignoredRegions) {
+      if (y >= r.y && y < r.y + r.height) {
+        int from = Math.max(0, r.x);
+        int to = Math.min(ignored.length, r.x + r.width);
+        for (int x = from; x < to; x++) {
+          ignored[x] = true;
+        }
+      }
     }
-    Log.debug("Comparing " + obj1 + " and " + obj2);
-    return comparator.compare(obj1, obj2);
   }
 
   /**
@@ -75,4 +253,48 @@ public class ImageComparator implements java.util.Comparator {
   public boolean equals(Object obj) {
     return obj == this || (obj != null && obj.getClass().equals(getClass()));
   }
+
+  /**
+   * Provides ARGB pixel rows of an image, directly from the backing array where the image is
+   * integer-packed, otherwise by copying each row into a reusable buffer.
+   */
+  private static class PixelRows {
+
+    private final BufferedImage image;
+    private final int[] data;
+    private final int stride;
+    private final int origin;
+
+    PixelRows(BufferedImage image) {
+      this.image = image;
+      var raster = image.getRaster();
+      int type = image.getType();
+      if ((type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB)
+          && raster.getDataBuffer() instanceof DataBufferInt buffer
+          && buffer.getNumBanks() == 1
+          && raster.getSampleModel() instanceof SinglePixelPackedSampleModel model) {
+        data = buffer.getData();
+        stride = model.getScanlineStride();
+        origin =
+            buffer.getOffset()
+                - raster.getSampleModelTranslateY() * stride
+                - raster.getSampleModelTranslateX();
+      } else {
+        data = new int[image.getWidth()];
+        stride = 0;
+        origin = 0;
+      }
+    }
+
+    int[] row(int y) {
+      if (stride == 0) {
+        image.getRGB(0, y, data.length, 1, data, 0, data.length);
+      }
+      return data;
+    }
+
+    int offset(int y) {
+      return stride == 0 ? 0 : origin + y * stride;
+    }
+  }
 }
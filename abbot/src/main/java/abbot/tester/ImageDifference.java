@@ -0,0 +1,101 @@
+package abbot.tester;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Result of comparing two images with an {@link ImageComparator}.
+ */
+public class ImageDifference {
+
+  private final boolean sameSize;
+  private final boolean match;
+  private final boolean complete;
+  private final long comparedPixels;
+  private final long mismatchedPixels;
+  private final BufferedImage diffImage;
+
+  ImageDifference(
+      boolean sameSize,
+      boolean match,
+      boolean complete,
+      long comparedPixels,
+      long mismatchedPixels,
+      BufferedImage diffImage) {
+    this.sameSize = sameSize;
+    this.match = match;
+    this.complete = complete;
+    this.comparedPixels = comparedPixels;
+    this.mismatchedPixels = mismatchedPixels;
+    this.diffImage = diffImage;
+  }
+
+  static ImageDifference sizeMismatch() {
+    return new ImageDifference(false, false, true, 0, 0, null);
+  }
+
+  /**
+   * Returns whether the images are considered equal by the comparator's settings.
+   */
+  public boolean isMatch() {
+    return match;
+  }
+
+  /**
+   * Returns whether both images have the same dimensions.  Images of different size never match.
+   */
+  public boolean isSameSize() {
+    return sameSize;
+  }
+
+  /**
+   * Returns whether all pixels were compared.  If not, the comparison stopped as soon as the
+   * images were known not to match, and the mismatch counts are lower bounds.
+   */
+  public boolean isComplete() {
+    return complete;
+  }
+
+  /**
+   * Returns the number of pixels compared, excluding ignored regions.
+   */
+  public long getComparedPixels() {
+    return comparedPixels;
+  }
+
+  public long getMismatchedPixels() {
+    return mismatchedPixels;
+  }
+
+  /**
+   * Returns the percentage of compared pixels which differ beyond the tolerance; 100 if the images
+   * differ in size.
+   */
+  public double getMismatchPercentage() {
+    if (!sameSize) {
+      return 100;
+    }
+    return comparedPixels == 0 ? 0 : mismatchedPixels * 100.0 / comparedPixels;
+  }
+
+  /**
+   * Returns an image of the compared size where mismatching pixels are opaque red and all others
+   * transparent, or <code>null</code> if no diff image was requested.
+   */
+  public BufferedImage getDiffImage() {
+    return diffImage;
+  }
+
+  @Override
+  public String toString() {
+    if (!sameSize) {
+      return "ImageDifference[size mismatch]";
+    }
+    return String.format(
+        "ImageDifference[%s, %d of %d pixels differ (%.3f%%)%s]",
+        match ? "match" : "mismatch",
+        mismatchedPixels,
+        comparedPixels,
+        getMismatchPercentage(),
+        complete ? "" : ", stopped early");
+  }
+}
@@ -56,6 +56,9 @@ public class JListLocation extends ComponentLocation {
    * Find the first String match in the list and return the index.
    */
   private int valueToIndex(JList<?> list, String value) {
+    if (RenderedValueIndex.isEnabled()) {
+      return RenderedValueIndex.findIndex(list, value);
+    }
     int size = list.getModel().getSize();
     for (int i = 0; i < size; i++) {
       String str = JListTester.valueToString(list, i);
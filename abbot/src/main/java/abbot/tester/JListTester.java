@@ -45,7 +45,15 @@ public class JListTester extends JComponentTester {
   }
 
   private static String convertToString(Component renderedListComponent, Object value) {
-    return convertListValueIntoString(renderedListComponent)
+    return labelToString(convertListValueIntoString(renderedListComponent), value);
+  }
+
+  /**
+   * Return the String representation of a list value given the trimmed text of its renderer, if the renderer is a
+   * label.
+   */
+  static String labelToString(Optional<String> label, Object value) {
+    return label
         .filter(v -> !v.isEmpty() && !ArgumentParser.isDefaultToString(v))
         .orElseGet(() -> {
           String string = ArgumentParser.toString(value);
@@ -80,6 +80,14 @@ public class JTableLocation extends ComponentLocation {
    * Return the row, col of the first object matching the given String.
    */
   private Cell valueToCell(JTable table, String value) {
+    if (RenderedValueIndex.isEnabled()) {
+      Cell found = RenderedValueIndex.findCell(table, value);
+      if (found != null) {
+        return found;
+      }
+      String msg = Strings.get("tester.JTable.invalid_value", new Object[] {value});
+      throw new LocationUnavailableException(msg);
+    }
     for (int row = 0; row < table.getRowCount(); row++) {
       for (int col = 0; col < table.getColumnCount(); col++) {
         String str = JTableTester.valueToString(table, row, col);
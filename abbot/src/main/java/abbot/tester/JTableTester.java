@@ -24,11 +24,16 @@ public class JTableTester extends JComponentTester {
         table
             .getCellRenderer(row, col)
             .getTableCellRendererComponent(table, value, false, false, row, col);
-    if (cr instanceof javax.swing.JLabel) {
-      String label = ((javax.swing.JLabel) cr).getText();
-      if (label == null) {
-        label = "";
-      }
+    String label = cr instanceof javax.swing.JLabel ? ((javax.swing.JLabel) cr).getText() : null;
+    return labelToString(label, value);
+  }
+
+  /**
+   * Return the String representation of a cell value given the text of its renderer, which may be <code>null</code>
+   * if the renderer isn't a label.
+   */
+  static String labelToString(String label, Object value) {
+    if (label != null) {
       label = label.trim();
       if (!"".equals(label) && !ArgumentParser.isDefaultToString(label)) {
         return label;
@@ -6,18 +6,48 @@ import java.awt.Component;
 import java.awt.Container;
 import java.awt.Point;
 import java.awt.Rectangle;
+import java.awt.event.KeyEvent;
+import java.awt.event.KeyListener;
+import java.util.Objects;
+import java.util.Set;
 import javax.swing.CellRendererPane;
+import javax.swing.InputMap;
 import javax.swing.JComponent;
+import javax.swing.JEditorPane;
+import javax.swing.JPasswordField;
+import javax.swing.JTextArea;
 import javax.swing.JTextField;
+import javax.swing.JTextPane;
+import javax.swing.KeyStroke;
 import javax.swing.text.BadLocationException;
 import javax.swing.text.DefaultEditorKit;
 import javax.swing.text.JTextComponent;
+import javax.swing.text.Keymap;
 
 /**
  * Provides actions and assertions {@link JTextComponent}-based components.
  */
 public class JTextComponentTester extends JComponentTester {
 
+  /**
+   * Whether {@link #actionKeyString(Component, String)} may insert text into the document instead
+   * of typing it.
+   */
+  private static final boolean insertText = Boolean.getBoolean("abbot.tester.insert_text");
+
+  /**
+   * Components which handle typed keys only through the default key typed action; subclasses
+   * might override <code>processKeyEvent</code>, and e.g. {@link javax.swing.JFormattedTextField}
+   * handles keys itself.
+   */
+  private static final Set<Class<?>> insertableClasses =
+      Set.of(
+          JTextField.class,
+          JPasswordField.class,
+          JTextArea.class,
+          JEditorPane.class,
+          JTextPane.class);
+
   /**
    * Type the given text into the given component, replacing any existing text already there.  If the empty string or
    * <code>null</code> is given, simply removes all existing text.
@@ -32,6 +62,128 @@ public class JTextComponentTester extends JComponentTester {
     }
   }
 
+  /**
+   * Type the given string into the given component.  If the system property
+   * <code>abbot.tester.insert_text</code> is <code>true</code>, printable text is instead inserted
+   * into the document directly, one character at a time, and the key events for each character are
+   * passed to the component's key listeners.  This is much quicker for long strings, but it is not
+   * typing:
+   * <ul>
+   * <li>the events are not dispatched, so they bypass <code>processKeyEvent</code>, input
+   * methods, key event dispatchers and the key bindings of the component and its ancestors;
+   * <li>the text goes through <code>replaceSelection</code>, and so through any DocumentFilter and
+   * listeners, but not through whatever a custom key typed action would do;
+   * <li>modifier keys aren't pressed for characters which need them.
+   * </ul>
+   * Tests which pass this way may therefore fail when the text is typed.  To limit that, the text
+   * is only inserted into stock, enabled and editable text fields, areas and panes without key
+   * bindings of their own for the keys of the text, and only if it has no control characters;
+   * other text is typed as usual.
+   */
+  @Override
+  public void actionKeyString(Component c, String text) {
+    if (insertText && c instanceof JTextComponent && canInsert((JTextComponent) c, text)) {
+      actionFocus(c);
+      insertText((JTextComponent) c, text);
+      waitForIdle();
+    } else {
+      super.actionKeyString(c, text);
+    }
+  }
+
+  private static boolean canInsert(JTextComponent tc, String text) {
+    if (!insertableClasses.contains(tc.getClass()) || !tc.isEditable() || !tc.isEnabled()) {
+      return false;
+    }
+    Keymap keymap = tc.getKeymap();
+    if (keymap == null
+        || !(keymap.getDefaultAction() instanceof DefaultEditorKit.DefaultKeyTypedAction)) {
+      return false;
+    }
+    // The input map includes the keymap, and maps typed keys without a binding to the default
+    // action, like this private use character
+    InputMap inputMap = tc.getInputMap(JComponent.WHEN_FOCUSED);
+    Object typedDefault = inputMap.get(KeyStroke.getKeyStroke('\uE000'));
+    for (int i = 0; i < text.length(); i++) {
+      char ch = text.charAt(i);
+      // Tab and enter may move the focus or fire actions, which only typing them does
+      if (Character.isISOControl(ch)) {
+        return false;
+      }
+      KeyStroke ks = KeyStrokeMap.getKeyStroke(ch);
+      if (!Objects.equals(inputMap.get(KeyStroke.getKeyStroke(ch)), typedDefault)
+          || ks != null && inputMap.get(ks) != null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void insertText(final JTextComponent tc, final String text) {
+    invokeAndWait(
+        tc,
+        new Runnable() {
+          public void run() {
+            for (int i = 0; i < text.length(); i++) {
+              char ch = text.charAt(i);
+              KeyStroke ks = KeyStrokeMap.getKeyStroke(ch);
+              long when = System.currentTimeMillis();
+              if (ks != null) {
+                fireKeyEvent(
+                    tc,
+                    new KeyEvent(
+                        tc,
+                        KeyEvent.KEY_PRESSED,
+                        when,
+                        ks.getModifiers(),
+                        ks.getKeyCode(),
+                        KeyEvent.CHAR_UNDEFINED));
+              }
+              KeyEvent typed =
+                  new KeyEvent(
+                      tc,
+                      KeyEvent.KEY_TYPED,
+                      when,
+                      ks != null ? ks.getModifiers() : 0,
+                      KeyEvent.VK_UNDEFINED,
+                      ch);
+              fireKeyEvent(tc, typed);
+              // As for JComponent, a consumed event isn't handled by the component itself
+              if (!typed.isConsumed()) {
+                tc.replaceSelection(String.valueOf(ch));
+              }
+              if (ks != null) {
+                fireKeyEvent(
+                    tc,
+                    new KeyEvent(
+                        tc,
+                        KeyEvent.KEY_RELEASED,
+                        when,
+                        ks.getModifiers(),
+                        ks.getKeyCode(),
+                        KeyEvent.CHAR_UNDEFINED));
+              }
+            }
+          }
+        });
+  }
+
+  private static void fireKeyEvent(JTextComponent tc, KeyEvent e) {
+    for (KeyListener listener : tc.getKeyListeners()) {
+      switch (e.getID()) {
+        case KeyEvent.KEY_PRESSED:
+          listener.keyPressed(e);
+          break;
+        case KeyEvent.KEY_TYPED:
+          listener.keyTyped(e);
+          break;
+        default:
+          listener.keyReleased(e);
+          break;
+      }
+    }
+  }
+
   /**
    * Click at the given index position.
    */
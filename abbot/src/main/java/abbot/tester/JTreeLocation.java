@@ -251,7 +251,10 @@ public class JTreeLocation extends ComponentLocation {
       return true;
     }
     // Try a string comparison
-    String objString = JTreeTester.valueToString(tree, path);
+    String objString =
+        RenderedValueIndex.isEnabled()
+            ? RenderedValueIndex.valueToString(tree, path)
+            : JTreeTester.valueToString(tree, path);
     return StringComparator.matches(objString, pattern.toString());
   }
 
@@ -293,12 +296,18 @@ public class JTreeLocation extends ComponentLocation {
     // node objects.  Convert them to existing tree objects if necessary.
     // Return null if any of them are not found.
     Log.debug(
-        "Comparing " + realPath + " with " + input[0] + " from " + java.util.Arrays.asList(input));
+        () ->
+            "Comparing "
+                + realPath
+                + " with "
+                + input[0]
+                + " from "
+                + java.util.Arrays.asList(input));
     TreeModel model = tree.getModel();
     if (!matchesLastComponent(tree, input[0], realPath)) {
       Log.debug("no root match");
     } else {
-      Log.debug("node matched: " + realPath.getLastPathComponent());
+      Log.debug(() -> "node matched: " + realPath.getLastPathComponent());
       if (input.length == 1) {
         return realPath;
       }
@@ -307,10 +316,11 @@ public class JTreeLocation extends ComponentLocation {
       System.arraycopy(input, 1, subs, 0, subs.length);
       Object obj = realPath.getLastPathComponent();
       int count = model.getChildCount(obj);
-      Log.debug("Obj " + obj + " (" + obj.getClass() + ") has " + count);
+      Log.debug(() -> "Obj " + obj + " (" + obj.getClass() + ") has " + count);
       // Find the right child to match
       for (int i = 0; i < count; i++) {
-        Log.debug("checking child " + i);
+        int index = i;
+        Log.debug(() -> "checking child " + index);
         Object child = model.getChild(obj, i);
         TreePath newPath = findMatchingPath(tree, realPath.pathByAddingChild(child), subs);
         if (newPath != null) {
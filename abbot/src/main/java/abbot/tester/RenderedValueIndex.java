@@ -0,0 +1,567 @@
+package abbot.tester;
+
+import abbot.Log;
+import abbot.util.PatternCache;
+import abbot.util.Properties;
+import com.windowtester.runtime.util.StringComparator;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import java.util.stream.IntStream;
+import javax.swing.DefaultListCellRenderer;
+import javax.swing.Icon;
+import javax.swing.JComponent;
+import javax.swing.JList;
+import javax.swing.JTable;
+import javax.swing.JTree;
+import javax.swing.ListCellRenderer;
+import javax.swing.ListModel;
+import javax.swing.RowSorter;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+import javax.swing.event.ListSelectionEvent;
+import javax.swing.event.RowSorterListener;
+import javax.swing.event.TableColumnModelEvent;
+import javax.swing.event.TableColumnModelListener;
+import javax.swing.event.TableModelListener;
+import javax.swing.event.TreeExpansionEvent;
+import javax.swing.event.TreeExpansionListener;
+import javax.swing.event.TreeModelEvent;
+import javax.swing.event.TreeModelListener;
+import javax.swing.table.DefaultTableCellRenderer;
+import javax.swing.table.TableCellRenderer;
+import javax.swing.table.TableColumnModel;
+import javax.swing.table.TableModel;
+import javax.swing.tree.TreeModel;
+import javax.swing.tree.TreePath;
+
+/**
+ * Remembers the rendered values of the cells of a {@link JTable}, the items of a {@link JList} or the nodes of a
+ * {@link JTree}, which locations given by value are matched against.  Values are rendered when first needed and kept
+ * until the component's revision changes, which happens on every model, row sorter, column model and property change
+ * and, for trees, on expansion, or until a cell renderer is replaced; the next lookup then renders them again.
+ * <p>
+ * Tables and lists find the first cell with a given value with a hash lookup, and the first one matching a regular
+ * expression with a single pass over the rendered values.  Cells shown by the default renderer are rendered from
+ * their value's <code>toString()</code>.  A cell found is also checked against its current rendered value, in case
+ * its renderer shows something else by now.  Models which change without notifying their listeners aren't
+ * supported, just as by Swing itself.
+ * <p>
+ * Setting the system property <code>abbot.tester.value_index.parallel_threshold</code> renders the values of
+ * tables and lists with at least that many default rendered cells in parallel.  The model's
+ * <code>getValueAt</code> or <code>getElementAt</code> and the values' <code>toString()</code> are then called from
+ * threads of the common fork/join pool, so this is only safe for models and values which may be read from any
+ * thread while the event dispatch thread waits; it is off by default.
+ * <p>
+ * The index may be disabled by setting the system property <code>abbot.tester.value_index</code> to
+ * <code>false</code>, in which case locations render every cell for every lookup.
+ */
+public abstract class RenderedValueIndex {
+
+  private static final boolean ENABLED =
+      Boolean.parseBoolean(System.getProperty("abbot.tester.value_index", "true"));
+
+  private static final int PARALLEL_THRESHOLD =
+      Properties.getProperty(
+          "abbot.tester.value_index.parallel_threshold", Integer.MAX_VALUE, 1, Integer.MAX_VALUE);
+
+  private static final String KEY = RenderedValueIndex.class.getName();
+  private static final Object LOCK = new Object();
+
+  /**
+   * Table classes whose cell renderer depends only on the column, i.e. which don't override
+   * {@link JTable#getCellRenderer(int, int)}.
+   */
+  private static final ClassValue<Boolean> COLUMN_RENDERERS =
+      new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+          try {
+            return type.getMethod("getCellRenderer", int.class, int.class).getDeclaringClass() == JTable.class;
+          } catch (NoSuchMethodException e) {
+            return false;
+          }
+        }
+      };
+
+  private final AtomicInteger revision = new AtomicInteger();
+  private final PropertyChangeListener propertyListener = this::propertyChange;
+
+  public static boolean isEnabled() {
+    return ENABLED;
+  }
+
+  /**
+   * Returns the first cell, in row-major order, whose rendered value equals or matches the given value.
+   *
+   * @return the cell in view coordinates, or <code>null</code> if none matches
+   */
+  public static JTableLocation.Cell findCell(JTable table, String value) {
+    int found = get(table, c -> new TableIndex((JTable) c)).find(value);
+    int columns = table.getColumnCount();
+    return found == -1 || columns == 0 ? null : new JTableLocation.Cell(found / columns, found % columns);
+  }
+
+  /**
+   * Returns the index of the first list item whose rendered value equals or matches the given value.
+   *
+   * @return the index, or -1 if none matches
+   */
+  public static int findIndex(JList<?> list, String value) {
+    return get(list, c -> new ListIndex((JList<?>) c)).find(value);
+  }
+
+  /**
+   * Returns the rendered value of the last component of the given path, as given by
+   * {@link JTreeTester#valueToString(JTree, TreePath)}.
+   */
+  public static String valueToString(JTree tree, TreePath path) {
+    return get(tree, c -> new TreeIndex((JTree) c)).valueToString(path);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T extends RenderedValueIndex> T get(
+      JComponent component, Function<JComponent, T> factory) {
+    synchronized (LOCK) {
+      RenderedValueIndex index = (RenderedValueIndex) component.getClientProperty(KEY);
+      if (index == null) {
+        index = factory.apply(component);
+        component.putClientProperty(KEY, index);
+        component.addPropertyChangeListener(index.propertyListener);
+        index.attach();
+      }
+      return (T) index;
+    }
+  }
+
+  /**
+   * Returns the current revision, which changes whenever the rendered values may have changed.
+   */
+  public int getRevision() {
+    return revision.get();
+  }
+
+  void invalidate() {
+    revision.incrementAndGet();
+  }
+
+  /**
+   * Add listeners to the component's models.
+   */
+  abstract void attach();
+
+  private void propertyChange(PropertyChangeEvent e) {
+    if (KEY.equals(e.getPropertyName())) {
+      return;
+    }
+    // Follow replaced models
+    if (e.getOldValue() != null) {
+      detach(e.getOldValue());
+    }
+    if (e.getNewValue() != null) {
+      attach(e.getNewValue());
+    }
+    invalidate();
+  }
+
+  /**
+   * Start listening to the given property value, if it is one of the models listened to.
+   */
+  abstract void attach(Object model);
+
+  /**
+   * Stop listening to the given property value, if it is one of the models listened to.
+   */
+  abstract void detach(Object model);
+
+  /**
+   * Rendered values of a component whose cells are numbered consecutively.
+   */
+  private abstract static class CellIndex extends RenderedValueIndex {
+
+    /**
+     * The rendered values, and the position of the first cell with each value.
+     */
+    private record Snapshot(
+        int revision, Object renderers, String[] values, Map<String, Integer> positions) {
+
+      Snapshot(int revision, Object renderers, String[] values) {
+        this(revision, renderers, values, new HashMap<>(values.length * 4 / 3 + 1));
+        for (int i = 0; i < values.length; i++) {
+          if (values[i] != null) {
+            positions.putIfAbsent(values[i], i);
+          }
+        }
+      }
+
+      int find(String value) {
+        Integer exact = positions.get(value);
+        int limit = exact != null ? exact : values.length;
+        if (!PatternCache.isLiteral(value)) {
+          Pattern pattern;
+          try {
+            pattern = PatternCache.getDefault().lookup(value, 0);
+          } catch (PatternSyntaxException e) {
+            pattern = null;
+          }
+          for (int i = 0; pattern != null && i < limit; i++) {
+            if (values[i] != null && pattern.matcher(values[i]).matches()) {
+              return i;
+            }
+          }
+        }
+        return exact != null ? exact : -1;
+      }
+    }
+
+    private Snapshot snapshot;
+
+    int find(String value) {
+      while (true) {
+        Snapshot current;
+        boolean rendered = false;
+        synchronized (this) {
+          int revision = getRevision();
+          Object renderers = getRenderers();
+          if (snapshot == null
+              || snapshot.revision() != revision
+              || !Objects.equals(snapshot.renderers(), renderers)) {
+            snapshot = new Snapshot(revision, renderers, renderAll());
+            rendered = true;
+          }
+          current = snapshot;
+        }
+        int index = current.find(value);
+        if (index == -1 || rendered || (index < size() && StringComparator.matches(render(index), value))) {
+          return index;
+        }
+        Log.debug(() -> "Rendered value of cell " + index + " changed, rendering all cells again");
+        invalidate();
+      }
+    }
+
+    /**
+     * Returns the renderers in use, which may be replaced without notice.
+     */
+    abstract Object getRenderers();
+
+    /**
+     * Returns the number of cells.
+     */
+    abstract int size();
+
+    /**
+     * Returns the rendered value of the given cell.
+     */
+    abstract String render(int index);
+
+    /**
+     * Returns the rendered values of all cells.
+     */
+    abstract String[] renderAll();
+
+    static IntStream range(int count, int cells) {
+      IntStream range = IntStream.range(0, count);
+      return cells >= PARALLEL_THRESHOLD ? range.parallel() : range;
+    }
+  }
+
+  private static final class TableIndex extends CellIndex implements TableColumnModelListener {
+
+    private final JTable table;
+    private final TableModelListener modelListener = e -> invalidate();
+    private final RowSorterListener sorterListener = e -> invalidate();
+
+    TableIndex(JTable table) {
+      this.table = table;
+    }
+
+    @Override
+    void attach() {
+      attach(table.getModel());
+      attach(table.getColumnModel());
+      if (table.getRowSorter() != null) {
+        attach(table.getRowSorter());
+      }
+    }
+
+    @Override
+    void attach(Object model) {
+      if (model instanceof TableModel tableModel) {
+        tableModel.addTableModelListener(modelListener);
+      } else if (model instanceof TableColumnModel columnModel) {
+        columnModel.addColumnModelListener(this);
+      } else if (model instanceof RowSorter<?> sorter) {
+        sorter.addRowSorterListener(sorterListener);
+      }
+    }
+
+    @Override
+    void detach(Object model) {
+      if (model instanceof TableModel tableModel) {
+        tableModel.removeTableModelListener(modelListener);
+      } else if (model instanceof TableColumnModel columnModel) {
+        columnModel.removeColumnModelListener(this);
+      } else if (model instanceof RowSorter<?> sorter) {
+        sorter.removeRowSorterListener(sorterListener);
+      }
+    }
+
+    @Override
+    Object getRenderers() {
+      List<TableCellRenderer> renderers = new ArrayList<>();
+      for (int col = 0; table.getRowCount() > 0 && col < table.getColumnCount(); col++) {
+        renderers.add(table.getCellRenderer(0, col));
+      }
+      return renderers;
+    }
+
+    @Override
+    int size() {
+      return table.getRowCount() * table.getColumnCount();
+    }
+
+    @Override
+    String render(int index) {
+      int columns = table.getColumnCount();
+      return JTableTester.valueToString(table, index / columns, index % columns);
+    }
+
+    @Override
+    String[] renderAll() {
+      int rows = table.getRowCount();
+      int cols = table.getColumnCount();
+      String[] values = new String[rows * cols];
+      boolean[] plain = new boolean[cols];
+      boolean anyPlain = false;
+      for (int col = 0; rows > 0 && col < cols; col++) {
+        plain[col] = COLUMN_RENDERERS.get(table.getClass()) && isPlain(table.getCellRenderer(0, col));
+        anyPlain |= plain[col];
+      }
+      if (anyPlain) {
+        range(rows, values.length).forEach(row -> {
+          for (int col = 0; col < cols; col++) {
+            if (plain[col]) {
+              Object value = table.getValueAt(row, col);
+              values[row * cols + col] = JTableTester.labelToString(value == null ? "" : value.toString(), value);
+            }
+          }
+        });
+      }
+      for (int row = 0; row < rows; row++) {
+        for (int col = 0; col < cols; col++) {
+          if (!plain[col]) {
+            values[row * cols + col] = JTableTester.valueToString(table, row, col);
+          }
+        }
+      }
+      return values;
+    }
+
+    /**
+     * Whether the renderer shows the value's <code>toString()</code>, which may then be obtained without it.
+     */
+    private static boolean isPlain(TableCellRenderer renderer) {
+      return renderer.getClass() == DefaultTableCellRenderer.class
+          || renderer.getClass() == DefaultTableCellRenderer.UIResource.class;
+    }
+
+    @Override
+    public void columnAdded(TableColumnModelEvent e) {
+      invalidate();
+    }
+
+    @Override
+    public void columnRemoved(TableColumnModelEvent e) {
+      invalidate();
+    }
+
+    @Override
+    public void columnMoved(TableColumnModelEvent e) {
+      if (e.getFromIndex() != e.getToIndex()) {
+        invalidate();
+      }
+    }
+
+    @Override
+    public void columnMarginChanged(ChangeEvent e) {}
+
+    @Override
+    public void columnSelectionChanged(ListSelectionEvent e) {}
+  }
+
+  private static final class ListIndex extends CellIndex implements ListDataListener {
+
+    private final JList<?> list;
+
+    ListIndex(JList<?> list) {
+      this.list = list;
+    }
+
+    @Override
+    void attach() {
+      attach(list.getModel());
+    }
+
+    @Override
+    void attach(Object model) {
+      if (model instanceof ListModel<?> listModel) {
+        listModel.addListDataListener(this);
+      }
+    }
+
+    @Override
+    void detach(Object model) {
+      if (model instanceof ListModel<?> listModel) {
+        listModel.removeListDataListener(this);
+      }
+    }
+
+    @Override
+    Object getRenderers() {
+      return list.getCellRenderer();
+    }
+
+    @Override
+    int size() {
+      return list.getModel().getSize();
+    }
+
+    @Override
+    String render(int index) {
+      return JListTester.valueToString(list, index);
+    }
+
+    @Override
+    String[] renderAll() {
+      ListModel<?> model = list.getModel();
+      String[] values = new String[model.getSize()];
+      if (isPlain(list.getCellRenderer())) {
+        range(values.length, values.length).forEach(i -> {
+          Object value = model.getElementAt(i);
+          String label = value instanceof Icon ? "" : value == null ? "" : value.toString();
+          values[i] = JListTester.labelToString(Optional.of(label.trim()), value);
+        });
+      } else {
+        for (int i = 0; i < values.length; i++) {
+          values[i] = JListTester.valueToString(list, i);
+        }
+      }
+      return values;
+    }
+
+    /**
+     * Whether the renderer shows the value's <code>toString()</code>, which may then be obtained without it.
+     */
+    private static boolean isPlain(ListCellRenderer<?> renderer) {
+      return renderer.getClass() == DefaultListCellRenderer.class
+          || renderer.getClass() == DefaultListCellRenderer.UIResource.class;
+    }
+
+    @Override
+    public void intervalAdded(ListDataEvent e) {
+      invalidate();
+    }
+
+    @Override
+    public void intervalRemoved(ListDataEvent e) {
+      invalidate();
+    }
+
+    @Override
+    public void contentsChanged(ListDataEvent e) {
+      invalidate();
+    }
+  }
+
+  /**
+   * Rendered values of tree nodes, rendered as the search for a path visits them.
+   */
+  private static final class TreeIndex extends RenderedValueIndex
+      implements TreeModelListener, TreeExpansionListener {
+
+    private final JTree tree;
+    // guarded by this; null values are kept as well
+    private final Map<Object, String> values = new IdentityHashMap<>();
+    private int valuesRevision;
+
+    TreeIndex(JTree tree) {
+      this.tree = tree;
+    }
+
+    synchronized String valueToString(TreePath path) {
+      if (valuesRevision != getRevision()) {
+        values.clear();
+        valuesRevision = getRevision();
+      }
+      Object node = path.getLastPathComponent();
+      if (values.containsKey(node)) {
+        return values.get(node);
+      }
+      String value = JTreeTester.valueToString(tree, path);
+      values.put(node, value);
+      return value;
+    }
+
+    @Override
+    void attach() {
+      attach(tree.getModel());
+      tree.addTreeExpansionListener(this);
+    }
+
+    @Override
+    void attach(Object model) {
+      if (model instanceof TreeModel treeModel) {
+        treeModel.addTreeModelListener(this);
+      }
+    }
+
+    @Override
+    void detach(Object model) {
+      if (model instanceof TreeModel treeModel) {
+        treeModel.removeTreeModelListener(this);
+      }
+    }
+
+    @Override
+    public void treeNodesChanged(TreeModelEvent e) {
+      invalidate();
+    }
+
+    @Override
+    public void treeNodesInserted(TreeModelEvent e) {
+      invalidate();
+    }
+
+    @Override
+    public void treeNodesRemoved(TreeModelEvent e) {
+      invalidate();
+    }
+
+    @Override
+    public void treeStructureChanged(TreeModelEvent e) {
+      invalidate();
+    }
+
+    @Override
+    public void treeExpanded(TreeExpansionEvent event) {
+      invalidate();
+    }
+
+    @Override
+    public void treeCollapsed(TreeExpansionEvent event) {
+      invalidate();
+    }
+  }
+}
@@ -9,9 +9,12 @@ import abbot.finder.Matcher;
 import abbot.finder.MultipleComponentsFoundException;
 import abbot.finder.matchers.JMenuItemMatcher;
 import abbot.i18n.Strings;
+import abbot.jfr.IdleWaitEvent;
+import abbot.jfr.RobotActionEvent;
 import abbot.script.Condition;
 import abbot.util.AWT;
 import abbot.util.Bugs;
+import abbot.util.LatencyHistogram;
 import abbot.util.Properties;
 import abbot.util.Reflector;
 import java.awt.AWTEvent;
@@ -46,7 +49,9 @@ import java.awt.event.MouseEvent;
 import java.awt.event.PaintEvent;
 import java.awt.event.WindowEvent;
 import java.awt.image.BufferedImage;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import javax.accessibility.AccessibleAction;
 import javax.accessibility.AccessibleContext;
 import javax.accessibility.AccessibleIcon;
@@ -172,6 +177,13 @@ public class Robot implements AWTConstants {
 
   private static final WindowTracker tracker;
 
+  /**
+   * Event queue which signals when it becomes idle, if installed.
+   */
+  private static final IdleEventQueue idleQueue;
+
+  private static final LatencyHistogram idleWaitLatency = new LatencyHistogram("waitForIdle");
+
   /**
    * Current input state.  This will either be that of the AWT event queue or of the robot,
    * depending on the dispatch mode. Note that the robot state may be different from that seen by
@@ -187,6 +199,13 @@ public class Robot implements AWTConstants {
 
   private static final int SLEEP_INTERVAL = 10;
 
+  /**
+   * Whether {@link #keyString(String)} generates the events for a string in bulk rather than one
+   * key at a time.  Off unless the system property <code>abbot.robot.bulk_text</code> is
+   * <code>true</code>.
+   */
+  private static final boolean bulkText = Boolean.getBoolean("abbot.robot.bulk_text");
+
   private static int autoDelay = DEFAULT_DELAY;
 
   public static int getAutoDelay() {
@@ -201,8 +220,16 @@ public class Robot implements AWTConstants {
     return state;
   }
 
+  /**
+   * Returns the distribution of time spent in {@link #waitForIdle()}.
+   */
+  public static LatencyHistogram getIdleWaitLatency() {
+    return idleWaitLatency;
+  }
+
   static {
     robot = createRobot();
+    idleQueue = IdleEventQueue.install(toolkit);
     tracker = WindowTracker.getTracker();
     state = new InputState();
   }
@@ -494,7 +521,22 @@ public class Robot implements AWTConstants {
     }
   }
 
+  /**
+   * Key events collected for {@link #postKeyString(String)} instead of being posted, or
+   * <code>null</code>.
+   */
+  private List<KeyEvent> keyBatch = null;
+  private Component keyBatchTarget = null;
+
   private void postKeyEvent(int id, int modifiers, int keycode, char ch) {
+    if (keyBatch != null) {
+      KeyEvent ev =
+          new KeyEvent(keyBatchTarget, id, System.currentTimeMillis(), modifiers, keycode, ch);
+      // Keep the input state current for the modifiers of the events which follow
+      state.update(ev);
+      keyBatch.add(ev);
+      return;
+    }
     Component c = findFocusOwner();
     if (c != null) {
       postEvent(c, new KeyEvent(c, id, System.currentTimeMillis(), modifiers, keycode, ch));
@@ -533,11 +575,15 @@ public class Robot implements AWTConstants {
       };
 
   /**
-   * Check for a blocked event queue (symptomatic of an active w32 AWT popup menu).
+   * Check for a blocked event queue (symptomatic of an active w32 AWT popup menu).  A popup menu
+   * known to block is detected from the AWT tree lock, without waiting for the queue.
    *
    * @return whether the event queue is blocked.
    */
   protected boolean queueBlocked() {
+    if (AWT.isAWTPopupMenuBlocking()) {
+      return true;
+    }
     return postInvocationEvent(toolkit.getSystemEventQueue(), toolkit, 200);
   }
 
@@ -572,6 +618,11 @@ public class Robot implements AWTConstants {
     // processed.  We need better than that.  Make sure the given event
     // queue is empty when this method returns
 
+    if (idleQueue != null && eq == idleQueue && idleQueue.isActive()) {
+      waitForIdleSignal();
+      return;
+    }
+
     // We always post at least one idle event to allow any current event
     // dispatch processing to finish.
     long start = System.currentTimeMillis();
@@ -603,6 +654,24 @@ public class Robot implements AWTConstants {
     } while (eq.peekEvent() != null);
   }
 
+  /**
+   * Wait for the idle event queue to signal that it ran empty, instead of polling it.
+   */
+  private void waitForIdleSignal() {
+    try {
+      if (!idleQueue.waitForIdle(IDLE_TIMEOUT)) {
+        Log.warn(
+            "Timed out waiting for idle event queue after "
+                + IDLE_TIMEOUT
+                + "ms",
+            Log.FULL_STACK);
+      }
+    } catch (InterruptedException e) {
+      Log.warn("Idle wait interrupted");
+      Thread.currentThread().interrupt();
+    }
+  }
+
   /**
    * Wait for an idle AWT event queue.  Note that this is different from the implementation of
    * <code>java.awt.Robot.waitForIdle()</code>, which may have events on the queue when it returns.
@@ -610,18 +679,49 @@ public class Robot implements AWTConstants {
    * since in that case it may never return.
    */
   public void waitForIdle() {
+    long start = System.nanoTime();
+    IdleWaitEvent event = new IdleWaitEvent();
+    event.begin();
     if (eventPostDelay > autoDelay) {
       delay(eventPostDelay - autoDelay);
     }
     Collection<EventQueue> queues = tracker.getEventQueues();
     if (queues.size() == 1) {
       waitForIdle(toolkit.getSystemEventQueue());
+    } else if (idleQueue != null && idleQueue.isActive()) {
+      // queues below the idle queue forward all their events to it
+      waitForIdle(idleQueue);
+      for (EventQueue eq : queues) {
+        if (!idleQueue.supersedes(eq)) {
+          waitForIdle(eq);
+        }
+      }
     } else {
       // FIXME this resurrects dead event queues
       for (EventQueue eq : queues) {
         waitForIdle(eq);
       }
     }
+    idleWaitLatency.recordSince(start);
+    event.queues = queues.size();
+    event.commit();
+  }
+
+  /**
+   * Perform the given action, recording it if action events are enabled.
+   */
+  private void record(String action, Component comp, Runnable body) {
+    RobotActionEvent event = new RobotActionEvent();
+    event.begin();
+    try {
+      body.run();
+    } finally {
+      if (event.shouldCommit()) {
+        event.action = action;
+        event.component = comp != null ? toString(comp) : null;
+        event.commit();
+      }
+    }
   }
 
   public Color sample(int x, int y) {
@@ -671,6 +771,17 @@ public class Robot implements AWTConstants {
     return capture(bounds);
   }
 
+  /**
+   * Capture the given component and compare it in memory against the expected image.
+   *
+   * @return the difference, or <code>null</code> if the screen can't be captured
+   */
+  public ImageDifference compareCapture(
+      Component comp, boolean ignoreBorder, BufferedImage expected, ImageComparator comparator) {
+    BufferedImage img = capture(comp, ignoreBorder);
+    return img != null ? comparator.difference(expected, img) : null;
+  }
+
   // Bug workaround support
   protected void jitter(Component comp, int x, int y) {
     mouseMove(comp, (x > 0 ? x - 1 : x + 1), y);
@@ -739,6 +850,10 @@ public class Robot implements AWTConstants {
   }
 
   public void mouseMove(Component comp, int x, int y) {
+    record("mouseMove", comp, () -> doMouseMove(comp, x, y));
+  }
+
+  private void doMouseMove(Component comp, int x, int y) {
     if (!waitForComponent(comp, componentDelay)) {
       String msg = "Can't obtain position of component " + toString(comp);
       throw new ComponentNotShowingException(msg);
@@ -802,6 +917,10 @@ public class Robot implements AWTConstants {
 
   // TODO: maybe auto-switch to robot mode if available?
   public void drag(Component src, int sx, int sy, int buttons) {
+    record("drag", src, () -> doDrag(src, sx, sy, buttons));
+  }
+
+  private void doDrag(Component src, int sx, int sy, int buttons) {
     if (Bugs.dragDropRequiresNativeEvents()
         && eventMode != EM_ROBOT
         && !Boolean.getBoolean("abbot.ignore_drag_error")) {
@@ -844,6 +963,10 @@ public class Robot implements AWTConstants {
   }
 
   public void drop(Component target, int x, int y) {
+    record("drop", target, () -> doDrop(target, x, y));
+  }
+
+  private void doDrop(Component target, int x, int y) {
     // Delay between final move and drop to ensure drop ends.
     int DROP_DELAY =
         Properties.getProperty("abbot.robot.drop_delay", Platform.isWindows() ? 200 : 0, 0, 60000);
@@ -976,6 +1099,10 @@ public class Robot implements AWTConstants {
 
   // FIXME should this be renamed to "key"?
   public void keyStroke(char ch) {
+    record("keyStroke", null, () -> doKeyStroke(ch));
+  }
+
+  private void doKeyStroke(char ch) {
     KeyStroke ks = KeyStrokeMap.getKeyStroke(ch);
     if (ks == null) {
       // If no mapping is available, we omit press/release events and
@@ -1004,10 +1131,118 @@ public class Robot implements AWTConstants {
     }
   }
 
+  /**
+   * Type the given string.  If <code>abbot.robot.bulk_text</code> is set, the events for the
+   * string are generated in bulk: robot mode generates them without the auto delay after each
+   * event, and AWT mode posts them in batches, waiting for idle only in between.  Either way,
+   * callers wait for idle once all keys have been typed.
+   * <p>
+   * In AWT mode, a batch only ends after tab, enter, escape or keys with ctrl, alt or meta; the
+   * keys of a batch all go to the component which had the focus when it started.  Fields which
+   * move the focus by themselves, e.g. to the next field once they are full, get keys meant for
+   * the next component, so bulk typing is off by default.
+   */
   public void keyString(String str) {
-    char[] ch = str.toCharArray();
-    for (int i = 0; i < ch.length; i++) {
-      keyStroke(ch[i]);
+    record("keyString", null, () -> doKeyString(str));
+  }
+
+  private void doKeyString(String str) {
+    // OSX needs time between key strokes
+    if (!bulkText || Bugs.hasKeyStrokeGenerationBug()) {
+      char[] ch = str.toCharArray();
+      for (int i = 0; i < ch.length; i++) {
+        keyStroke(ch[i]);
+      }
+    } else if (eventMode == EM_ROBOT) {
+      robotKeyString(str);
+    } else {
+      postKeyString(str);
+    }
+  }
+
+  /**
+   * Generate the native events for the given string back to back, leaving it to the caller to
+   * wait for them to be processed.
+   */
+  private void robotKeyString(String str) {
+    robot.setAutoDelay(0);
+    try {
+      for (int i = 0; i < str.length(); i++) {
+        char ch = str.charAt(i);
+        KeyStroke ks = KeyStrokeMap.getKeyStroke(ch);
+        if (ks == null) {
+          // waits for the native events so far before posting KEY_TYPED
+          keyStroke(ch);
+        } else {
+          key(ch, ks.getKeyCode(), ks.getModifiers());
+        }
+      }
+    } finally {
+      robot.setAutoDelay(autoDelay);
+    }
+  }
+
+  /**
+   * Post the events for the given string to the focus owner in batches, without a delay after each
+   * event.  A batch ends after a key which may move the focus or trigger an action, so that the
+   * keys after it are posted to whichever component has the focus once the batch has been
+   * processed, as they would be when typed one at a time.
+   */
+  private void postKeyString(String str) {
+    int i = 0;
+    while (i < str.length()) {
+      Component focus = findFocusOwner();
+      if (focus == null) {
+        Log.warn("No component has focus, keystrokes discarded", Log.FULL_STACK);
+        return;
+      }
+      if (AWT.isAWTPopupMenuBlocking()) {
+        throw new Error("Event queue is blocked by an active AWT PopupMenu");
+      }
+      List<KeyEvent> batch = new ArrayList<>();
+      keyBatch = batch;
+      keyBatchTarget = focus;
+      try {
+        boolean last = false;
+        while (i < str.length() && !last) {
+          char ch = str.charAt(i++);
+          KeyStroke ks = KeyStrokeMap.getKeyStroke(ch);
+          if (ks == null) {
+            Log.debug("No key mapping for '" + ch + "'");
+            postKeyEvent(KeyEvent.KEY_TYPED, 0, KeyEvent.VK_UNDEFINED, ch);
+          } else {
+            key(ch, ks.getKeyCode(), ks.getModifiers());
+            last = endsKeyBatch(ks);
+          }
+        }
+      } finally {
+        keyBatch = null;
+        keyBatchTarget = null;
+      }
+      Log.debug("POST: " + batch.size() + " key events to " + toString(focus));
+      EventQueue q = getEventQueue(focus);
+      for (KeyEvent ev : batch) {
+        q.postEvent(ev);
+      }
+      if (!batch.isEmpty()) {
+        lastEventPosted = batch.get(batch.size() - 1);
+      }
+      if (i < str.length()) {
+        waitForIdle();
+      }
+    }
+  }
+
+  private static boolean endsKeyBatch(KeyStroke ks) {
+    switch (ks.getKeyCode()) {
+      case KeyEvent.VK_TAB:
+      case KeyEvent.VK_ENTER:
+      case KeyEvent.VK_ESCAPE:
+        return true;
+      default:
+        // Accelerators and mnemonics
+        int mask = InputEvent.CTRL_DOWN_MASK | InputEvent.ALT_DOWN_MASK | InputEvent.META_DOWN_MASK;
+        return (ks.getModifiers() & mask) != 0;
     }
   }
 
@@ -1101,6 +1336,10 @@ public class Robot implements AWTConstants {
   }
 
   public void click(Component comp, int x, int y, int mask, int count) {
+    record("click", comp, () -> doClick(comp, x, y, mask, count));
+  }
+
+  private void doClick(Component comp, int x, int y, int mask, int count) {
     var message = "Click at ("
         + x
         + ","
@@ -2065,8 +2304,9 @@ public class Robot implements AWTConstants {
   }
 
   /**
-   * Wait for the given Condition to return true, waiting for timeout ms, polling at the given
-   * interval.
+   * Wait for the given Condition to return true, waiting for timeout ms.  The condition is
+   * re-evaluated whenever the UI changes, and at least every <code>interval</code> ms; see
+   * {@link ConditionWaiter}.
    *
    * @param condition condition
    * @param timeout   timeout
@@ -2074,13 +2314,9 @@ public class Robot implements AWTConstants {
    * @throws WaitTimedOutError if the timeout is exceeded.
    */
   public void wait(Condition condition, long timeout, int interval) {
-    long start = System.currentTimeMillis();
-    while (!condition.test()) {
-      if (System.currentTimeMillis() - start > timeout) {
-        String msg = "Timed out waiting for " + condition;
-        throw new WaitTimedOutError(msg);
-      }
-      delay(interval);
+    if (!ConditionWaiter.getDefault().await(condition, timeout, interval)) {
+      String msg = "Timed out waiting for " + condition;
+      throw new WaitTimedOutError(msg);
     }
   }
 
@@ -25,10 +25,12 @@ import java.lang.ref.WeakReference;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Timer;
 import java.util.WeakHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import javax.swing.SwingUtilities;
 
 /**
@@ -40,6 +42,26 @@ public class WindowTracker {
     public static final WindowTracker INSTANCE = new WindowTracker();
   }
 
+  /**
+   * Notified of every window event the tracker sees, on the event dispatch thread.
+   */
+  public interface Listener {
+    /**
+     * @param window the window
+     * @param id     the {@link WindowEvent} id, e.g. {@link WindowEvent#WINDOW_OPENED}
+     */
+    void windowEvent(Window window, int id);
+  }
+
+  private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+  /**
+   * The AWT listeners are only referenced weakly by the toolkit.
+   */
+  private final ContextTracker contextTracker;
+
+  private final WindowReadyTracker windowReadyTracker;
+
   /**
    * Maps unique event queues to the set of root windows found on each queue.
    */
@@ -87,10 +109,10 @@ public class WindowTracker {
    * app contexts. WARNING: if an applet loads this class, it will only ever see stuff in its own app context.
    */
   WindowTracker() {
-    ContextTracker contextTracker = new ContextTracker();
+    contextTracker = new ContextTracker();
     long mask = AWTEvent.WINDOW_EVENT_MASK | AWTEvent.COMPONENT_EVENT_MASK;
     new WeakAWTEventListener(contextTracker, mask);
-    WindowReadyTracker windowReadyTracker = new WindowReadyTracker();
+    windowReadyTracker = new WindowReadyTracker();
     mask = AWTEvent.MOUSE_MOTION_EVENT_MASK | AWTEvent.MOUSE_EVENT_MASK | AWTEvent.PAINT_EVENT_MASK;
     new WeakAWTEventListener(windowReadyTracker, mask);
     // hold the event queue references weakly
@@ -181,6 +203,14 @@ public class WindowTracker {
     return set;
   }
 
+  public void addListener(Listener listener) {
+    listeners.add(listener);
+  }
+
+  public void removeListener(Listener listener) {
+    listeners.remove(listener);
+  }
+
   /**
    * Return all available root Windows.  A root Window is one that has a null parent.  Nominally this means a list
    * similar to that returned by Frame.getFrames(), but in the case of an Applet may return a few Dialogs as well.
@@ -280,6 +310,13 @@ public class WindowTracker {
           noteContext(comp);
         }
       }
+      if (comp instanceof Window window
+          && id >= WindowEvent.WINDOW_FIRST
+          && id <= WindowEvent.WINDOW_LAST) {
+        for (Listener listener : listeners) {
+          listener.windowEvent(window, id);
+        }
+      }
     }
   }
 
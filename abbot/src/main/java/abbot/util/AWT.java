@@ -314,31 +314,11 @@ public class AWT {
     // hack based on 1.4.2 java.awt.PopupMenu implementation,
     // which blocks the event dispatch thread while the popup is visible,
     // while holding the AWT tree lock
+    return TreeLockProbeHolder.INSTANCE.isHeld();
+  }
 
-    // Start another thread which attempts to get the tree lock
-    // If it can't get the tree lock, then there is a popup active in the
-    // current tree.
-    // Any component can provide the tree lock
-    ThreadStateChecker checker = new ThreadStateChecker(frames[0].getTreeLock());
-    try {
-      synchronized (checker) {
-        checker.start();
-        if (!checker.started) {
-          // avoid failure under heavy load
-          checker.wait(30000);
-          if (!checker.started) {
-            throw new Error("Popup checking thread never started");
-          }
-        }
-      }
-      // Wait a little bit for the checker to finish
-      if (checker.isAlive()) {
-        checker.join(100);
-      }
-      return checker.isAlive();
-    } catch (InterruptedException e) {
-      return false;
-    }
+  private static class TreeLockProbeHolder {
+    public static final TreeLockProbe INSTANCE = new TreeLockProbe();
   }
 
   public static void dismissAWTPopup() {
@@ -1026,26 +1006,4 @@ public class AWT {
       default -> throw new IllegalArgumentException("Unrecognized mask '" + mask + "'");
     };
   }
-
-  // Try to lock the AWT tree lock; returns immediately if it can
-  private static class ThreadStateChecker extends Thread {
-    public boolean started;
-    private final Object lock;
-
-    public ThreadStateChecker(Object lock) {
-      super("thread state checker");
-      setDaemon(true);
-      this.lock = lock;
-    }
-
-    @Override
-    public void run() {
-      synchronized (this) {
-        started = true;
-        notifyAll();
-      }
-      synchronized (lock) {
-      }
-    }
-  }
 }
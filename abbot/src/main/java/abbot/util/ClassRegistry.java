@@ -0,0 +1,110 @@
+package abbot.util;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Thread-safe registry of values per class, such as the tester or recorder for a component class.
+ * The value for a class is resolved once and remembered in a {@link ClassValue}, so lookups don't
+ * take any locks.
+ * <p>
+ * A class gets the value registered for it with {@link #register}, or else the one created for it
+ * by the factory.  Otherwise it inherits the value of its superclass and, failing that, of its
+ * interfaces in declaration order.  Registering a value invalidates everything resolved so far,
+ * since subclasses may inherit it.
+ * <p>
+ * A {@link ClassValue} keeps the values of a registry for as long as the classes they were resolved for, and the
+ * registry itself as long as any value refers back to it.  Use this for registries which live as long as those
+ * classes anyway, like static ones, and whose values don't refer to the registry's owner; otherwise use a map.
+ *
+ * @param <V> type of the values
+ */
+public class ClassRegistry<V> {
+
+  private final Function<Class<?>, ? extends V> factory;
+  private final Map<Class<?>, V> registered = new ConcurrentHashMap<>();
+  private volatile ClassValue<Optional<V>> resolved = newCache();
+
+  /**
+   * Create a registry holding registered values only.
+   */
+  public ClassRegistry() {
+    this(cls -> null);
+  }
+
+  /**
+   * @param factory creates the value for a class which has none registered, or returns
+   *                <code>null</code> if the class should inherit it
+   */
+  public ClassRegistry(Function<Class<?>, ? extends V> factory) {
+    this.factory = factory;
+  }
+
+  private ClassValue<Optional<V>> newCache() {
+    return new ClassValue<>() {
+      @Override
+      protected Optional<V> computeValue(Class<?> type) {
+        return Optional.ofNullable(resolve(type));
+      }
+    };
+  }
+
+  private V resolve(Class<?> cls) {
+    V value = registered.get(cls);
+    if (value == null) {
+      value = factory.apply(cls);
+    }
+    if (value == null && cls.getSuperclass() != null) {
+      value = get(cls.getSuperclass());
+    }
+    if (value == null) {
+      for (Class<?> type : cls.getInterfaces()) {
+        value = get(type);
+        if (value != null) {
+          break;
+        }
+      }
+    }
+    return value;
+  }
+
+  /**
+   * Returns the value for the given class, or <code>null</code> if neither the class nor any of
+   * its supertypes has one.
+   */
+  public V get(Class<?> cls) {
+    return resolved.get(cls).orElse(null);
+  }
+
+  /**
+   * Register the value for the given class and its subclasses, replacing any previous one.
+   *
+   * @param value the value, or <code>null</code> to remove the registration
+   */
+  public void register(Class<?> cls, V value) {
+    if (value != null) {
+      registered.put(cls, value);
+    } else {
+      registered.remove(cls);
+    }
+    invalidate();
+  }
+
+  /**
+   * Forget all resolved values, e.g. because the factory would now create different ones.
+   */
+  public void invalidate() {
+    resolved = newCache();
+  }
+
+  /**
+   * Resolve the values of the given classes ahead of time.
+   */
+  public void warmUp(Class<?>... classes) {
+    for (Class<?> cls : classes) {
+      get(cls);
+    }
+  }
+}
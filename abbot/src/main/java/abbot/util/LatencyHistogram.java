@@ -0,0 +1,141 @@
+package abbot.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of latencies in nanoseconds. Values are kept in logarithmic buckets with
+ * eight linear sub-buckets each, so any reported percentile is within 12.5% of the recorded value.
+ * Recording never allocates and is safe to call from any thread.
+ */
+public class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+  private final String name;
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong total = new AtomicLong();
+  private final AtomicLong max = new AtomicLong();
+
+  public LatencyHistogram(String name) {
+    this.name = name;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Record a single latency.
+   *
+   * @param nanos latency in nanoseconds; negative values are recorded as zero
+   */
+  public void record(long nanos) {
+    var value = Math.max(0, nanos);
+    counts.incrementAndGet(indexOf(value));
+    count.incrementAndGet();
+    total.addAndGet(value);
+    max.accumulateAndGet(value, Math::max);
+  }
+
+  /**
+   * Record the time elapsed since the given {@link System#nanoTime()} value.
+   */
+  public void recordSince(long startNanos) {
+    record(System.nanoTime() - startNanos);
+  }
+
+  public long getCount() {
+    return count.get();
+  }
+
+  public long getTotalNanos() {
+    return total.get();
+  }
+
+  public long getMaxNanos() {
+    return max.get();
+  }
+
+  public long getMeanNanos() {
+    var n = count.get();
+    return n == 0 ? 0 : total.get() / n;
+  }
+
+  /**
+   * Returns the (upper bound of the) latency below which the given percentage of all recorded
+   * values fall.
+   *
+   * @param percentile percentile between 0 and 100
+   * @return latency in nanoseconds
+   */
+  public long getPercentileNanos(double percentile) {
+    var n = count.get();
+    if (n == 0) {
+      return 0;
+    }
+    var threshold = (long) Math.ceil(n * Math.min(100, Math.max(0, percentile)) / 100);
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += counts.get(i);
+      if (seen >= Math.max(1, threshold)) {
+        return Math.min(upperBoundOf(i), max.get());
+      }
+    }
+    return max.get();
+  }
+
+  public void reset() {
+    for (int i = 0; i < BUCKETS; i++) {
+      counts.set(i, 0);
+    }
+    count.set(0);
+    total.set(0);
+    max.set(0);
+  }
+
+  private static int indexOf(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int shift = exponent - SUB_BUCKET_BITS;
+    int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+    return (shift + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  private static long upperBoundOf(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    int shift = index / SUB_BUCKETS - 1;
+    long lower = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+    return lower + (1L << shift) - 1;
+  }
+
+  @Override
+  public String toString() {
+    return name
+        + ": count="
+        + getCount()
+        + " mean="
+        + toMillis(getMeanNanos())
+        + "ms p50="
+        + toMillis(getPercentileNanos(50))
+        + "ms p99="
+        + toMillis(getPercentileNanos(99))
+        + "ms max="
+        + toMillis(getMaxNanos())
+        + "ms total="
+        + toMillis(getTotalNanos())
+        + "ms";
+  }
+
+  private static String toMillis(long nanos) {
+    return String.format("%.3f", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+  }
+}
@@ -0,0 +1,168 @@
+package abbot.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Bounded, thread-safe cache of compiled regular expressions, shared by {@link Regexp} and
+ * {@link com.windowtester.runtime.util.StringComparator}.  Strings without any special regular
+ * expression characters are remembered as literals and never compiled, so callers can match them
+ * with plain string comparison.  Invalid patterns are cached as well, so they are only parsed once.
+ * <p>
+ * The number of cached patterns may be set with the system property
+ * <code>abbot.util.pattern_cache_size</code> (default 512); least recently used patterns are
+ * dropped first.
+ */
+public class PatternCache {
+
+  private static final String REGEX_CHARS = "\\^$.|?*+()[]{}";
+
+  private static final int DEFAULT_SIZE = 512;
+
+  private static class Holder {
+    public static final PatternCache INSTANCE =
+        new PatternCache(
+            Properties.getProperty("abbot.util.pattern_cache_size", DEFAULT_SIZE, 0, 100000));
+  }
+
+  /**
+   * Compiled form of a pattern; <code>pattern</code> is <code>null</code> for literals and invalid
+   * patterns.
+   */
+  private record Entry(Pattern pattern, PatternSyntaxException error) {}
+
+  private record Key(String regex, int flags) {}
+
+  private static final Entry LITERAL = new Entry(null, null);
+
+  private final int maxSize;
+  private final Map<Key, Entry> entries;
+  private long hits = 0;
+  private long misses = 0;
+
+  public static PatternCache getDefault() {
+    return Holder.INSTANCE;
+  }
+
+  public PatternCache(int maxSize) {
+    this.maxSize = maxSize;
+    this.entries =
+        new LinkedHashMap<>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            return size() > PatternCache.this.maxSize;
+          }
+        };
+  }
+
+  /**
+   * Returns whether the given string contains no characters with special meaning in a regular
+   * expression, i.e. it can only match itself.
+   */
+  public static boolean isLiteral(String string) {
+    for (int i = 0; i < string.length(); i++) {
+      if (REGEX_CHARS.indexOf(string.charAt(i)) != -1) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns whether the given regular expression matches the whole input.
+   *
+   * @throws PatternSyntaxException if the regular expression is invalid
+   */
+  public boolean matches(String regex, String input) {
+    return matches(regex, 0, input);
+  }
+
+  /**
+   * Returns whether the given regular expression, compiled with the given {@link Pattern} flags,
+   * matches the whole input.
+   *
+   * @throws PatternSyntaxException if the regular expression is invalid
+   */
+  public boolean matches(String regex, int flags, String input) {
+    Pattern pattern = lookup(regex, flags);
+    return pattern != null ? pattern.matcher(input).matches() : regex.equals(input);
+  }
+
+  /**
+   * Returns whether the given regular expression, compiled with the given {@link Pattern} flags,
+   * matches anywhere within the input.
+   *
+   * @throws PatternSyntaxException if the regular expression is invalid
+   */
+  public boolean find(String regex, int flags, String input) {
+    Pattern pattern = lookup(regex, flags);
+    return pattern != null ? pattern.matcher(input).find() : input.contains(regex);
+  }
+
+  /**
+   * Returns the compiled pattern, or <code>null</code> if the regular expression is a literal.
+   *
+   * @throws PatternSyntaxException if the regular expression is invalid
+   */
+  public Pattern lookup(String regex, int flags) {
+    var key = new Key(regex, flags);
+    Entry entry;
+    synchronized (this) {
+      entry = entries.get(key);
+      if (entry != null) {
+        hits++;
+      } else {
+        misses++;
+      }
+    }
+    if (entry == null) {
+      entry = compile(regex, flags);
+      if (maxSize > 0) {
+        synchronized (this) {
+          entries.put(key, entry);
+        }
+      }
+    }
+    if (entry.error() != null) {
+      throw entry.error();
+    }
+    return entry.pattern();
+  }
+
+  private static Entry compile(String regex, int flags) {
+    // Line and dot modes don't affect strings without special characters
+    if ((flags & ~(Pattern.MULTILINE | Pattern.DOTALL)) == 0 && isLiteral(regex)) {
+      return LITERAL;
+    }
+    try {
+      return new Entry(Pattern.compile(regex, flags), null);
+    } catch (PatternSyntaxException e) {
+      return new Entry(null, e);
+    }
+  }
+
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public synchronized void clear() {
+    entries.clear();
+    hits = 0;
+    misses = 0;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "PatternCache[size=" + entries.size() + " hits=" + hits + " misses=" + misses + "]";
+  }
+}
@@ -1,28 +1,26 @@
 package abbot.util;
 
 import abbot.Log;
-import gnu.regexp.RE;
-import gnu.regexp.REException;
-import gnu.regexp.REMatch;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 /**
- * Simple wrapper around the more fully-featured RE class.
+ * Simple wrapper around {@link java.util.regex}, using compiled patterns from the shared
+ * {@link PatternCache}.  A leading <code>(?m)</code> enables multi-line mode, in which
+ * <code>.</code> also matches line terminators.
  */
 public class Regexp {
+
+  private static final String MULTILINE = "(?m)";
+
   /**
    * Return whether there is a match for the given regular expression within the given string.
    */
   public static boolean stringContainsMatch(String regexp, String actual) {
     try {
-      boolean multiline = false;
-      if (regexp.startsWith("(?m)")) {
-        multiline = true;
-        regexp = regexp.substring(4);
-      }
-      RE e = new RE(regexp, multiline ? RE.REG_MULTILINE | RE.REG_DOT_NEWLINE : 0);
-      REMatch m = e.getMatch(actual);
-      return m != null;
-    } catch (REException exc) {
+      int flags = flags(regexp);
+      return PatternCache.getDefault().find(strip(regexp, flags), flags, actual);
+    } catch (PatternSyntaxException exc) {
       Log.warn(exc);
       return false;
     }
@@ -36,16 +34,19 @@ public class Regexp {
       actual = "";
     }
     try {
-      boolean multiline = false;
-      if (regexp.startsWith("(?m)")) {
-        multiline = true;
-        regexp = regexp.substring(4);
-      }
-      RE e = new RE(regexp, multiline ? RE.REG_MULTILINE | RE.REG_DOT_NEWLINE : 0);
-      return e.isMatch(actual);
-    } catch (REException exc) {
+      int flags = flags(regexp);
+      return PatternCache.getDefault().matches(strip(regexp, flags), flags, actual);
+    } catch (PatternSyntaxException exc) {
       Log.warn(exc);
       return false;
     }
   }
+
+  private static int flags(String regexp) {
+    return regexp.startsWith(MULTILINE) ? Pattern.MULTILINE | Pattern.DOTALL : 0;
+  }
+
+  private static String strip(String regexp, int flags) {
+    return flags != 0 ? regexp.substring(MULTILINE.length()) : regexp;
+  }
 }
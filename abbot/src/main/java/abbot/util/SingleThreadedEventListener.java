@@ -4,7 +4,10 @@ import abbot.Log;
 import abbot.tester.Robot;
 import java.awt.AWTEvent;
 import java.awt.event.AWTEventListener;
-import java.util.ArrayList;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.swing.SwingUtilities;
 
 /**
@@ -12,20 +15,31 @@ import javax.swing.SwingUtilities;
  * recorders and other listeners to safely manipulate GUI objects without concern for event dispatch thread-safety.
  * <p>
  * Window.show generates WINDOW_OPENED (and possibly hierarchy and other events) to any listeners from whatever thread
- * the method was invoked on.
+ * the method was invoked on.  Such events are put on a lock-free queue, and at most one task to drain it is pending on
+ * the event queue at any time, however many events arrive.  The queue depth and the time events wait on the queue are
+ * available from {@link #getQueueDepth()}, {@link #getPeakQueueDepth()} and {@link #getDeferralLatency()}.
  * <p>
  * NOTE: Applet runners may run several simultaneous event dispatch threads when displaying multiple applets
  * simultaneously.  If this listener is installed in the parent context of those dispatch threads, it will be invoked on
  * each of those threads, possibly simultaneously.
  */
 public abstract class SingleThreadedEventListener implements AWTEventListener {
-  private final ArrayList deferredEvents = new ArrayList();
+
+  /**
+   * An event deferred at the given {@link System#nanoTime()}.
+   */
+  private record Deferred(AWTEvent event, long nanos) {}
+
+  private final Queue<Deferred> deferredEvents = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger queueDepth = new AtomicInteger();
+  private final AtomicInteger peakQueueDepth = new AtomicInteger();
+  private final AtomicBoolean drainPending = new AtomicBoolean();
+  private final LatencyHistogram deferralLatency = new LatencyHistogram("event deferral");
 
   private final Runnable action =
-      new Runnable() {
-        public void run() {
-          processDeferredEvents();
-        }
+      () -> {
+        drainPending.set(false);
+        processDeferredEvents();
       };
 
   /**
@@ -36,20 +50,24 @@ public abstract class SingleThreadedEventListener implements AWTEventListener {
       // Often the application under test will invoke Window.show, which
       // spawns hierarchy events.  We want to ensure we respond to those
       // events on the dispatch thread to avoid deadlock.
-      Log.debug("deferring event handling of " + Robot.toString(event));
-      synchronized (deferredEvents) {
-        deferredEvents.add(event);
-      }
+      Log.debug(() -> "deferring event handling of " + Robot.toString(event));
+      peakQueueDepth.accumulateAndGet(queueDepth.incrementAndGet(), Math::max);
+      deferredEvents.add(new Deferred(event, System.nanoTime()));
       // Ensure that in the absence of any subsequent event thread
       // events deferred events still get processed.
       // If regular events are received before this action is run, the
       // deferred events will be processed prior to those events and the
-      // action will do nothing.
-      SwingUtilities.invokeLater(action);
+      // action will do nothing.  A drain already pending will pick this
+      // event up, so don't post another one.
+      if (drainPending.compareAndSet(false, true)) {
+        SwingUtilities.invokeLater(action);
+      }
     } else {
       // Ensure any deferred events are processed prior to subsequently
       // posted events.
-      processDeferredEvents();
+      if (queueDepth.get() > 0) {
+        processDeferredEvents();
+      }
       processEvent(event);
     }
   }
@@ -58,27 +76,45 @@ public abstract class SingleThreadedEventListener implements AWTEventListener {
    * Process any events that were generated off the event queue but not immediately handled.
    */
   protected void processDeferredEvents() {
-    // Make a copy of the deferred events and empty the queue
-    ArrayList queue = new ArrayList();
-    synchronized (deferredEvents) {
-      // In the rare case where there are multiple simultaneous dispatch
-      // threads, it's possible for deferred events to get posted while
-      // another event is being processed.  At most this will mean a few
-      // events get processed out of order, but they will likely be from
-      // different event dispatch contexts, so it shouldn't matter.
-      queue.addAll(deferredEvents);
-      deferredEvents.clear();
-    }
-    while (queue.size() > 0) {
-      AWTEvent prev = null;
+    // In the rare case where there are multiple simultaneous dispatch
+    // threads, it's possible for deferred events to get posted while
+    // another event is being processed.  At most this will mean a few
+    // events get processed out of order, but they will likely be from
+    // different event dispatch contexts, so it shouldn't matter.
+    // Only the events queued so far are processed, so that a producer
+    // which keeps on deferring events can't starve the dispatch thread;
+    // later ones are picked up by the drain they post.
+    int batch = queueDepth.get();
+    Deferred deferred;
+    while (batch-- > 0 && (deferred = deferredEvents.poll()) != null) {
+      queueDepth.decrementAndGet();
+      deferralLatency.recordSince(deferred.nanos());
       Log.debug("processing deferred event");
-      // Process any events that were generated
-      prev = (AWTEvent) queue.get(0);
-      queue.remove(0);
-      processEvent(prev);
+      processEvent(deferred.event());
     }
   }
 
+  /**
+   * Returns the number of events waiting to be processed on the event dispatch thread.
+   */
+  public int getQueueDepth() {
+    return queueDepth.get();
+  }
+
+  /**
+   * Returns the largest number of events which have been waiting at the same time.
+   */
+  public int getPeakQueueDepth() {
+    return peakQueueDepth.get();
+  }
+
+  /**
+   * Returns the time deferred events waited to be processed on the event dispatch thread.
+   */
+  public LatencyHistogram getDeferralLatency() {
+    return deferralLatency;
+  }
+
   /**
    * This method is not protected by any synchronization locks (nor should it be); in the presence of multiple
    * simultaneous event dispatch threads, the listener must be threadsafe.
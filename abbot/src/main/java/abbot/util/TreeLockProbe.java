@@ -0,0 +1,98 @@
+package abbot.util;
+
+import java.awt.AWTEvent;
+import java.awt.Component;
+import java.awt.event.AWTEventListener;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tells whether the AWT tree lock is held by some thread, e.g. by an AWT popup menu which blocks the event dispatch
+ * thread while showing.  A single daemon thread tries to take the lock whenever asked to; if it doesn't get it within
+ * 100 ms, the lock is considered held.  No thread is created per check.
+ * <p>
+ * A verdict is kept until the next input or window event is dispatched, since a popup is usually shown or hidden in
+ * response to one, but for 100 ms at most, since popups may also be shown by code run on the event dispatch thread
+ * and other threads hold the lock for a moment.
+ */
+final class TreeLockProbe {
+
+  private static final long TIMEOUT = TimeUnit.MILLISECONDS.toNanos(100);
+
+  private static final long EVENT_MASK =
+      AWTEvent.MOUSE_EVENT_MASK | AWTEvent.KEY_EVENT_MASK | AWTEvent.WINDOW_EVENT_MASK;
+
+  private record Verdict(long generation, boolean held, long nanos) {}
+
+  private final Object treeLock = new Component() {}.getTreeLock();
+  private final AtomicLong generation = new AtomicLong();
+  private final AWTEventListener listener = event -> generation.incrementAndGet();
+  private volatile Verdict verdict;
+
+  // guarded by this
+  private long requested;
+  private long completed;
+
+  TreeLockProbe() {
+    new WeakAWTEventListener(listener, EVENT_MASK);
+    Thread thread = new Thread(this::probe, "AWT tree lock probe");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  private void probe() {
+    long ticket = 0;
+    while (true) {
+      synchronized (this) {
+        while (requested == ticket) {
+          try {
+            wait();
+          } catch (InterruptedException e) {
+            // keep serving requests
+          }
+        }
+        ticket = requested;
+      }
+      synchronized (treeLock) {
+        // only checking that it can be taken
+      }
+      synchronized (this) {
+        completed = ticket;
+        notifyAll();
+      }
+    }
+  }
+
+  boolean isHeld() {
+    if (Thread.holdsLock(treeLock)) {
+      return true;
+    }
+    long current = generation.get();
+    Verdict last = verdict;
+    if (last != null
+        && last.generation() == current
+        && System.nanoTime() - last.nanos() < TIMEOUT) {
+      return last.held();
+    }
+    boolean held;
+    synchronized (this) {
+      // If the probe is still waiting for the lock, wait for that attempt
+      long ticket = completed < requested ? requested : ++requested;
+      notifyAll();
+      long deadline = System.nanoTime() + TIMEOUT;
+      long remaining = TIMEOUT;
+      while (completed < ticket && remaining > 0) {
+        try {
+          TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return false;
+        }
+        remaining = deadline - System.nanoTime();
+      }
+      held = completed < ticket;
+    }
+    verdict = new Verdict(current, held, System.nanoTime());
+    return held;
+  }
+}
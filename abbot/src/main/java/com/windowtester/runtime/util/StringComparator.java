@@ -10,6 +10,7 @@
  *******************************************************************************/
 package com.windowtester.runtime.util;
 
+import abbot.util.PatternCache;
 import java.util.regex.PatternSyntaxException;
 
 /**
@@ -86,7 +87,7 @@ public class StringComparator {
     }
 
     try {
-      return string.matches(stringOrPattern);
+      return PatternCache.getDefault().matches(stringOrPattern, string);
     } catch (PatternSyntaxException e) {
       // do nothing
     }
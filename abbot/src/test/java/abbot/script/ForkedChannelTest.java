@@ -0,0 +1,183 @@
+package abbot.script;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import abbot.script.ForkedChannel.Frame;
+import abbot.script.ForkedChannel.Message;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ForkedChannelTest {
+
+  private static final long TIMEOUT = 10000;
+
+  private ServerSocketChannel server;
+  private SocketChannel accepted;
+  private ForkedChannel master;
+  private ForkedChannel slave;
+
+  @BeforeEach
+  void connect() throws IOException {
+    server = ServerSocketChannel.open();
+    server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    slave = ForkedChannel.connect(((InetSocketAddress) server.getLocalAddress()).getPort());
+    accepted = server.accept();
+  }
+
+  @AfterEach
+  void close() throws IOException {
+    slave.close();
+    if (master != null) {
+      master.close();
+    }
+    accepted.close();
+    server.close();
+  }
+
+  private ForkedChannel getMaster() throws IOException {
+    if (master == null) {
+      master = new ForkedChannel(accepted);
+    }
+    return master;
+  }
+
+  @Test
+  void message_should_be_received_with_kind_and_payload() throws IOException {
+    var hello = new Message(ForkedChannel.HELLO);
+    hello.writeInt(42);
+    hello.writeBoolean(true);
+    hello.writeString("id");
+    hello.writeString(null);
+    slave.send(hello);
+
+    Frame frame = getMaster().receive(TIMEOUT);
+
+    assertEquals(ForkedChannel.HELLO, frame.kind());
+    assertEquals(42, frame.payload().readInt());
+    assertEquals(true, frame.payload().readBoolean());
+    assertEquals("id", ForkedChannel.readString(frame.payload()));
+    assertNull(ForkedChannel.readString(frame.payload()));
+    assertEquals(0, frame.payload().available());
+  }
+
+  @Test
+  void message_without_payload_should_be_received() throws IOException {
+    getMaster().send(ForkedChannel.QUIT);
+
+    Frame frame = slave.receive(TIMEOUT);
+
+    assertEquals(ForkedChannel.QUIT, frame.kind());
+    assertEquals(0, frame.payload().available());
+  }
+
+  @Test
+  void multi_byte_strings_should_be_received_unchanged() throws IOException {
+    var text = "Grüße – 日本語 😀";
+    var message = new Message(ForkedChannel.RUN);
+    message.writeString(text);
+    message.writeString("");
+    getMaster().send(message);
+
+    Frame frame = slave.receive(TIMEOUT);
+
+    assertEquals(text, ForkedChannel.readString(frame.payload()));
+    assertEquals("", ForkedChannel.readString(frame.payload()));
+  }
+
+  @Test
+  void payload_larger_than_the_socket_buffers_should_be_received() throws Exception {
+    var builder = new StringBuilder();
+    for (int i = 0; builder.length() < 4_000_000; i++) {
+      builder.append("step ").append(i).append(" é€\n");
+    }
+    var script = builder.toString();
+    var message = new Message(ForkedChannel.RUN);
+    message.writeString(script);
+    message.writeInt(7);
+    // sending blocks until the receiver has read most of it
+    var sent =
+        CompletableFuture.runAsync(
+            () -> {
+              try {
+                getMaster().send(message);
+              } catch (IOException e) {
+                throw new IllegalStateException(e);
+              }
+            });
+
+    Frame frame = slave.receive(TIMEOUT);
+
+    sent.get();
+    assertEquals(script, ForkedChannel.readString(frame.payload()));
+    assertEquals(7, frame.payload().readInt());
+  }
+
+  @Test
+  void messages_should_be_received_in_order() throws IOException {
+    for (int i = 0; i < 100; i++) {
+      var message = new Message(ForkedChannel.EVENTS);
+      message.writeInt(i);
+      slave.send(message);
+    }
+    slave.send(ForkedChannel.DONE);
+
+    for (int i = 0; i < 100; i++) {
+      Frame frame = getMaster().receive(TIMEOUT);
+      assertEquals(ForkedChannel.EVENTS, frame.kind());
+      assertEquals(i, frame.payload().readInt());
+    }
+    assertEquals(ForkedChannel.DONE, getMaster().receive(TIMEOUT).kind());
+  }
+
+  @Test
+  void end_of_stream_should_be_received_as_null() throws IOException {
+    accepted.close();
+
+    assertNull(slave.receive(TIMEOUT));
+  }
+
+  @Test
+  void end_of_stream_within_a_frame_should_fail() throws IOException {
+    var truncated = ByteBuffer.allocate(15).putInt(100).put(ForkedChannel.RUN).put(new byte[10]).flip();
+    while (truncated.hasRemaining()) {
+      accepted.write(truncated);
+    }
+    accepted.close();
+
+    assertThrows(EOFException.class, () -> slave.receive(TIMEOUT));
+  }
+
+  @Test
+  void negative_frame_length_should_fail() throws IOException {
+    var invalid = ByteBuffer.allocate(5).putInt(-1).put(ForkedChannel.RUN).flip();
+    while (invalid.hasRemaining()) {
+      accepted.write(invalid);
+    }
+
+    assertThrows(IOException.class, () -> slave.receive(TIMEOUT));
+  }
+
+  @Test
+  void receive_should_time_out_without_message() {
+    assertThrows(SocketTimeoutException.class, () -> slave.receive(50));
+  }
+
+  @Test
+  void send_on_closed_channel_should_fail() {
+    slave.close();
+
+    assertThrows(IOException.class, () -> slave.send(ForkedChannel.QUIT));
+  }
+}
@@ -0,0 +1,174 @@
+package abbot.script;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+import abbot.AssertionFailedError;
+import abbot.finder.AWTHierarchy;
+import java.awt.GraphicsEnvironment;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ForkedStepRunnerTest {
+
+  private static final String STEPS =
+      """
+      <AWTTestScript>
+        <!-- first -->
+        <call class="java.lang.System" method="getProperty" args="user.dir"/>
+        <assert class="java.lang.Boolean" method="parseBoolean" args="true"/>
+        <sequence desc="outer">
+          <!-- nested -->
+          <wait class="java.lang.Boolean" method="parseBoolean" args="true"/>
+          <sequence desc="inner">
+            <call class="java.lang.System" method="currentTimeMillis"/>
+          </sequence>
+        </sequence>
+        <expression>1 + 1</expression>
+      </AWTTestScript>
+      """;
+
+  @TempDir Path dir;
+
+  /**
+   * Called by the forked script, in the slave VM.
+   */
+  public static void touch(String path) throws IOException {
+    Files.writeString(Path.of(path), String.valueOf(ProcessHandle.current().pid()));
+  }
+
+  /**
+   * Called by the forked script, in the slave VM.
+   */
+  public static boolean no() {
+    return false;
+  }
+
+  @AfterAll
+  static void disposeSlaves() {
+    ForkedStepRunner.disposeSlaves();
+  }
+
+  private static Script load(String xml) throws InvalidScriptException {
+    var script = new Script(new AWTHierarchy());
+    script.load(new StringReader(xml));
+    return script;
+  }
+
+  private static void collect(Sequence sequence, List<Step> steps) {
+    for (Object step : sequence.steps()) {
+      steps.add((Step) step);
+      if (step instanceof Sequence nested) {
+        collect(nested, steps);
+      }
+    }
+  }
+
+  @Test
+  void every_step_should_decode_to_itself() throws InvalidScriptException {
+    var script = load(STEPS);
+    List<Step> steps = new ArrayList<>();
+    collect(script, steps);
+
+    assertEquals(9, steps.size());
+    for (Step step : steps) {
+      int[] path = ForkedStepRunner.encodeStep(script, step);
+      assertSame(step, ForkedStepRunner.decodeStep(script, path), step.toString());
+    }
+  }
+
+  @Test
+  void root_should_encode_to_empty_path() throws InvalidScriptException {
+    var script = load(STEPS);
+
+    assertArrayEquals(new int[0], ForkedStepRunner.encodeStep(script, script));
+    assertSame(script, ForkedStepRunner.decodeStep(script, new int[0]));
+  }
+
+  @Test
+  void nested_step_should_encode_to_indices_of_enclosing_sequences() throws InvalidScriptException {
+    var script = load(STEPS);
+    var outer = (Sequence) script.getStep(3);
+    var inner = (Sequence) outer.getStep(2);
+
+    assertArrayEquals(new int[] {3, 2, 0}, ForkedStepRunner.encodeStep(script, inner.getStep(0)));
+  }
+
+  @Test
+  void paths_should_survive_saving_and_loading_the_script() throws IOException {
+    var script = load(STEPS);
+    var writer = new StringWriter();
+    script.save(writer);
+    var copy = load(writer.toString());
+    List<Step> steps = new ArrayList<>();
+    collect(script, steps);
+
+    for (Step step : steps) {
+      int[] path = ForkedStepRunner.encodeStep(script, step);
+      assertEquals(step.getClass(), ForkedStepRunner.decodeStep(copy, path).getClass());
+    }
+  }
+
+  @Test
+  void step_outside_of_the_script_should_not_encode() throws InvalidScriptException {
+    var script = load(STEPS);
+    var other = load(STEPS);
+
+    assertNull(ForkedStepRunner.encodeStep(script, other.getStep(1)));
+  }
+
+  @Test
+  void invalid_path_should_fail_to_decode() throws InvalidScriptException {
+    var script = load(STEPS);
+
+    assertThrows(RuntimeException.class, () -> ForkedStepRunner.decodeStep(script, new int[] {99}));
+  }
+
+  @Test
+  void forked_script_should_run_its_steps_in_the_slave() throws Throwable {
+    // Running any script initializes the robot, which needs a display
+    assumeFalse(GraphicsEnvironment.isHeadless());
+    var marker = dir.resolve("marker");
+    var file = dir.resolve("forked.xml");
+    Files.writeString(
+        file,
+        """
+        <AWTTestScript forked="true">
+          <call class="%s" method="touch" args="%s"/>
+          <assert class="%s" method="no"/>
+        </AWTTestScript>
+        """
+            .formatted(getClass().getName(), marker, getClass().getName()));
+    var script = new Script(file.toString(), new AWTHierarchy());
+    script.load();
+    var runner = new StepRunner();
+    List<StepEvent> events = new ArrayList<>();
+    runner.addStepListener(events::add);
+
+    assertThrows(AssertionFailedError.class, () -> runner.run(script));
+
+    assertTrue(Files.exists(marker), "forked step did not run");
+    assertNotEquals(
+        String.valueOf(ProcessHandle.current().pid()), Files.readString(marker), "step not run in a slave");
+    assertInstanceOf(AssertionFailedError.class, runner.getError(script.getStep(1)));
+    assertTrue(
+        events.stream()
+            .anyMatch(
+                ev -> ev.getStep() == script.getStep(0) && StepEvent.STEP_END.equals(ev.getType())));
+  }
+}
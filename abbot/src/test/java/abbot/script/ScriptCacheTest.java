@@ -0,0 +1,228 @@
+package abbot.script;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import abbot.finder.AWTHierarchy;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import org.dom4j.Node;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ScriptCacheTest {
+
+  private static final String SCRIPT =
+      """
+      <?xml version="1.0" encoding="UTF-8"?>
+      <AWTTestScript desc="Grüße &amp; &lt;more&gt;" forked="false">
+        <component id="Dialog 日本" class="javax.swing.JDialog" title="日本"/>
+        <component id="OK" class="javax.swing.JButton" text="OK" window="Dialog 日本"/>
+        <!-- top level comment -->
+        <sequence desc="outer">
+          <!-- nested comment -->
+          <call class="java.lang.System" method="getProperty" args="user.dir"/>
+          <expression><![CDATA[1 < 2 && "x".length() == 1]]></expression>
+        </sequence>
+        <annotation title="Note">Some text
+      on two lines 😀</annotation>
+      </AWTTestScript>
+      """;
+
+  @TempDir Path dir;
+  private Path cache;
+  private Path file;
+
+  /**
+   * Collects what is read, as attributes and serialized nodes.
+   */
+  private static class Collector implements ScriptReader.Handler {
+    Map<String, String> attributes;
+    final List<String> content = new ArrayList<>();
+
+    @Override
+    public void attributes(Map<String, String> attributes) {
+      this.attributes = attributes;
+    }
+
+    @Override
+    public void content(Node node) {
+      content.add(node.asXML());
+    }
+  }
+
+  @BeforeEach
+  void enableCache() throws IOException {
+    cache = dir.resolve("cache");
+    System.setProperty("abbot.script.cache_dir", cache.toString());
+    file = dir.resolve("script.xml");
+    Files.writeString(file, SCRIPT);
+  }
+
+  @AfterEach
+  void disableCache() {
+    System.clearProperty("abbot.script.cache_dir");
+  }
+
+  private Collector parse() throws Exception {
+    var collector = new Collector();
+    ScriptReader.read(file.toFile(), collector);
+    return collector;
+  }
+
+  private Collector readCache() throws Exception {
+    var collector = new Collector();
+    assertTrue(ScriptCache.read(file.toFile(), collector), "not read from cache");
+    return collector;
+  }
+
+  private boolean isCached() throws Exception {
+    var collector = new Collector();
+    var cached = ScriptCache.read(file.toFile(), collector);
+    if (!cached) {
+      assertNull(collector.attributes);
+      assertEquals(List.of(), collector.content);
+    }
+    return cached;
+  }
+
+  private Path getEntry() throws IOException {
+    try (Stream<Path> entries = Files.list(cache)) {
+      var list = entries.toList();
+      assertEquals(1, list.size(), list.toString());
+      return list.get(0);
+    }
+  }
+
+  @Test
+  void parsing_should_store_an_entry() throws Exception {
+    assertFalse(isCached());
+
+    parse();
+
+    assertTrue(Files.exists(getEntry()));
+    assertTrue(isCached());
+  }
+
+  @Test
+  void entry_should_return_what_was_parsed() throws Exception {
+    var parsed = parse();
+
+    var cached = readCache();
+
+    assertEquals(parsed.attributes, cached.attributes);
+    assertEquals(parsed.content, cached.content);
+    assertEquals(5, cached.content.size());
+    assertEquals("Grüße & <more>", cached.attributes.get("desc"));
+  }
+
+  @Test
+  void script_loaded_from_cache_should_equal_script_loaded_from_xml() throws Exception {
+    var parsed = new Script(file.toString(), new AWTHierarchy());
+    parsed.load();
+    assertTrue(isCached());
+
+    var cached = new Script(file.toString(), new AWTHierarchy());
+    cached.load();
+
+    var expected = new StringWriter();
+    parsed.save(expected);
+    var actual = new StringWriter();
+    cached.save(actual);
+    assertEquals(expected.toString(), actual.toString());
+  }
+
+  @Test
+  void edit_keeping_size_and_modification_time_should_invalidate_entry() throws Exception {
+    parse();
+    var modified = Files.getLastModifiedTime(file);
+
+    Files.writeString(file, SCRIPT.replace("outer", "OUTER"));
+    Files.setLastModifiedTime(file, modified);
+
+    assertFalse(isCached());
+    assertTrue(parse().content.get(3).contains("OUTER"));
+    assertTrue(readCache().content.get(3).contains("OUTER"));
+  }
+
+  @Test
+  void edit_changing_size_should_invalidate_entry() throws Exception {
+    parse();
+
+    Files.writeString(file, SCRIPT.replace("outer", "outermost"));
+
+    assertFalse(isCached());
+  }
+
+  @Test
+  void touching_the_file_should_keep_entry() throws Exception {
+    parse();
+
+    Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 60000));
+
+    assertTrue(isCached());
+  }
+
+  @Test
+  void truncated_entry_should_be_dropped_and_file_parsed_again() throws Exception {
+    var expected = parse();
+    var entry = getEntry();
+    var data = Files.readAllBytes(entry);
+    Files.write(entry, Arrays.copyOf(data, data.length - 20));
+
+    assertFalse(isCached());
+    assertFalse(Files.exists(entry));
+
+    assertEquals(expected.content, parse().content);
+    assertEquals(expected.content, readCache().content);
+  }
+
+  @Test
+  void entry_with_trailing_garbage_should_be_dropped() throws Exception {
+    parse();
+    var entry = getEntry();
+    Files.write(entry, new byte[] {1, 2, 3}, StandardOpenOption.APPEND);
+
+    assertFalse(isCached());
+    assertFalse(Files.exists(entry));
+  }
+
+  @Test
+  void entry_of_another_file_should_not_be_used() throws Exception {
+    parse();
+    var other = dir.resolve("other.xml");
+    Files.writeString(other, SCRIPT);
+    // as if the names of the two entries collided
+    var key = other.toAbsolutePath().normalize().toString();
+    Files.copy(getEntry(), cache.resolve(String.format("%08x.script", key.hashCode())));
+
+    var collector = new Collector();
+    assertFalse(ScriptCache.read(other.toFile(), collector));
+  }
+
+  @Test
+  void disabled_cache_should_neither_read_nor_write_entries() throws Exception {
+    parse();
+    System.clearProperty("abbot.script.cache_dir");
+
+    assertFalse(isCached());
+    Files.delete(getEntry());
+    parse();
+    try (Stream<Path> entries = Files.list(cache)) {
+      assertEquals(0, entries.count());
+    }
+  }
+}
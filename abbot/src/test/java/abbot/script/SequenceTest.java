@@ -0,0 +1,40 @@
+package abbot.script;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+import abbot.finder.AWTHierarchy;
+import org.dom4j.Comment;
+import org.dom4j.Element;
+import org.junit.jupiter.api.Test;
+
+class SequenceTest {
+
+  @Test
+  void comment_step_should_be_saved_as_xml_comment() {
+    var script = new Script(new AWTHierarchy());
+    var sequence = new Sequence(script, "steps");
+    sequence.addStep(new abbot.script.Comment(script, "remember me"));
+    sequence.addStep(new Call(script, "call", "java.lang.System", "currentTimeMillis", new String[0]));
+
+    Element el = sequence.toXML();
+
+    assertEquals(2, el.nodeCount());
+    assertInstanceOf(Comment.class, el.node(0));
+    assertEquals("remember me", el.node(0).getText());
+    assertEquals("call", ((Element) el.node(1)).getName());
+  }
+
+  @Test
+  void saved_comment_should_load_as_comment_step() throws InvalidScriptException {
+    var script = new Script(new AWTHierarchy());
+    var sequence = new Sequence(script, "steps");
+    sequence.addStep(new abbot.script.Comment(script, "remember me"));
+
+    var loaded = new Sequence(script, sequence.toXML(), sequence.getAttributes());
+
+    assertEquals(1, loaded.size());
+    assertInstanceOf(abbot.script.Comment.class, loaded.getStep(0));
+    assertEquals("remember me", loaded.getStep(0).getDescription());
+  }
+}
@@ -0,0 +1,158 @@
+package abbot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class ClassRegistryTest {
+
+  interface First {}
+
+  interface Second {}
+
+  static class Base {}
+
+  static class Derived extends Base implements Second, First {}
+
+  static class MoreDerived extends Derived {}
+
+  static class Unrelated implements Serializable {}
+
+  private final Map<Class<?>, AtomicInteger> created = new ConcurrentHashMap<>();
+
+  private ClassRegistry<String> newRegistry(Map<Class<?>, String> values) {
+    return new ClassRegistry<>(
+        cls -> {
+          created.computeIfAbsent(cls, c -> new AtomicInteger()).incrementAndGet();
+          return values.get(cls);
+        });
+  }
+
+  private int createdFor(Class<?> cls) {
+    var count = created.get(cls);
+    return count != null ? count.get() : 0;
+  }
+
+  @Test
+  void class_should_get_value_created_for_it() {
+    var registry = newRegistry(Map.of(Derived.class, "derived", Base.class, "base"));
+
+    assertEquals("derived", registry.get(Derived.class));
+    assertEquals("base", registry.get(Base.class));
+  }
+
+  @Test
+  void class_without_value_should_inherit_superclass_value() {
+    var registry = newRegistry(Map.of(Base.class, "base", First.class, "first"));
+
+    assertEquals("base", registry.get(MoreDerived.class));
+  }
+
+  @Test
+  void class_without_superclass_value_should_inherit_interface_value_in_declaration_order() {
+    var registry = newRegistry(Map.of(First.class, "first", Second.class, "second"));
+
+    assertEquals("second", registry.get(Derived.class));
+    assertEquals("second", registry.get(MoreDerived.class));
+  }
+
+  @Test
+  void class_without_any_value_should_get_null() {
+    var registry = newRegistry(Map.of(Base.class, "base"));
+
+    assertNull(registry.get(Unrelated.class));
+    assertNull(registry.get(Object.class));
+  }
+
+  @Test
+  void value_should_be_created_once_per_class() {
+    var registry = newRegistry(Map.of(Base.class, "base"));
+
+    for (int i = 0; i < 3; i++) {
+      assertEquals("base", registry.get(MoreDerived.class));
+    }
+
+    assertEquals(1, createdFor(MoreDerived.class));
+    assertEquals(1, createdFor(Derived.class));
+    assertEquals(1, createdFor(Base.class));
+  }
+
+  @Test
+  void missing_value_should_be_cached() {
+    var registry = newRegistry(Map.of());
+
+    assertNull(registry.get(Unrelated.class));
+    assertNull(registry.get(Unrelated.class));
+
+    assertEquals(1, createdFor(Unrelated.class));
+    assertEquals(1, createdFor(Serializable.class));
+    assertEquals(1, createdFor(Object.class));
+  }
+
+  @Test
+  void registered_value_should_take_precedence_over_created_value() {
+    var registry = newRegistry(Map.of(Derived.class, "derived"));
+    registry.register(Derived.class, "registered");
+
+    assertEquals("registered", registry.get(Derived.class));
+    assertEquals(0, createdFor(Derived.class));
+  }
+
+  @Test
+  void registering_should_invalidate_resolved_values_of_subclasses() {
+    var registry = newRegistry(Map.of());
+    assertNull(registry.get(MoreDerived.class));
+
+    registry.register(Base.class, "base");
+
+    assertEquals("base", registry.get(MoreDerived.class));
+  }
+
+  @Test
+  void removing_registration_should_restore_created_value() {
+    var registry = newRegistry(Map.of(Base.class, "base"));
+    registry.register(Base.class, "registered");
+    assertEquals("registered", registry.get(Derived.class));
+
+    registry.register(Base.class, null);
+
+    assertEquals("base", registry.get(Derived.class));
+  }
+
+  @Test
+  void invalidate_should_create_values_again() {
+    var registry = newRegistry(Map.of(Base.class, "base"));
+    registry.get(Base.class);
+
+    registry.invalidate();
+    registry.get(Base.class);
+
+    assertEquals(2, createdFor(Base.class));
+  }
+
+  @Test
+  void warm_up_should_resolve_values_ahead_of_time() {
+    var registry = newRegistry(Map.of(Base.class, "base"));
+
+    registry.warmUp(Derived.class, Unrelated.class);
+    registry.get(Derived.class);
+    registry.get(Unrelated.class);
+
+    assertEquals(1, createdFor(Derived.class));
+    assertEquals(1, createdFor(Unrelated.class));
+  }
+
+  @Test
+  void registry_without_factory_should_only_hold_registered_values() {
+    var registry = new ClassRegistry<String>();
+    registry.register(First.class, "first");
+
+    assertEquals("first", registry.get(MoreDerived.class));
+    assertNull(registry.get(Base.class));
+  }
+}
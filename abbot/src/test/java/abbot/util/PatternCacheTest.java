@@ -0,0 +1,212 @@
+package abbot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.windowtester.runtime.util.StringComparator;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import org.junit.jupiter.api.Test;
+
+class PatternCacheTest {
+
+  /** Pairs of pattern and input, covering literals, regular expressions and invalid patterns. */
+  private static final String[][] CASES = {
+    {"OK", "OK"},
+    {"OK", "Cancel"},
+    {"OK", "OK "},
+    {"File", "File..."},
+    {"Save As", "Save As"},
+    {"Save.*", "Save As..."},
+    {"Save.*", "Open"},
+    {"Sa?ve", "Sve"},
+    {"a|b", "b"},
+    {"(One|Two) items", "Two items"},
+    {"[0-9]+ rows", "42 rows"},
+    {"[0-9]+ rows", "42 cols"},
+    {"File...", "File..."},
+    {"File...", "Filexyz"},
+    {"C:\\\\temp", "C:\\temp"},
+    {"$100", "$100"},
+    {"^x$", "x"},
+    {"(unclosed", "(unclosed"},
+    {"(unclosed", "unclosed"},
+    {"[", "["},
+    {"*", "*"},
+    {"", ""},
+    {"", "x"},
+  };
+
+  private static boolean stringMatches(String string, String stringOrPattern) {
+    if (string.equals(stringOrPattern)) {
+      return true;
+    }
+    try {
+      return string.matches(stringOrPattern);
+    } catch (PatternSyntaxException e) {
+      return false;
+    }
+  }
+
+  @Test
+  void string_comparator_should_match_like_string_matches() {
+    for (String[] c : CASES) {
+      assertEquals(
+          stringMatches(c[1], c[0]),
+          StringComparator.matches(c[1], c[0]),
+          "'" + c[0] + "' against '" + c[1] + "'");
+    }
+  }
+
+  @Test
+  void matches_should_agree_with_compiled_pattern_whatever_the_flags() {
+    var cache = new PatternCache(100);
+    for (int flags : new int[] {0, Pattern.CASE_INSENSITIVE, Pattern.MULTILINE | Pattern.DOTALL}) {
+      for (String[] c : CASES) {
+        Pattern pattern;
+        try {
+          pattern = Pattern.compile(c[0], flags);
+        } catch (PatternSyntaxException e) {
+          assertThrows(PatternSyntaxException.class, () -> cache.matches(c[0], flags, c[1]));
+          continue;
+        }
+        var message = "'" + c[0] + "' against '" + c[1] + "' with flags " + flags;
+        assertEquals(pattern.matcher(c[1]).matches(), cache.matches(c[0], flags, c[1]), message);
+        assertEquals(pattern.matcher(c[1]).find(), cache.find(c[0], flags, c[1]), message);
+      }
+    }
+  }
+
+  @Test
+  void case_insensitive_literal_should_be_compiled() {
+    var cache = new PatternCache(10);
+
+    assertNull(cache.lookup("ok", 0));
+    assertNotNull(cache.lookup("ok", Pattern.CASE_INSENSITIVE));
+    assertTrue(cache.matches("ok", Pattern.CASE_INSENSITIVE, "OK"));
+  }
+
+  @Test
+  void regexp_should_match_whole_string_and_find_within_it() {
+    assertTrue(Regexp.stringMatch("Save.*", "Save As..."));
+    assertFalse(Regexp.stringMatch("Save", "Save As..."));
+    assertTrue(Regexp.stringContainsMatch("Save", "Save As..."));
+    assertTrue(Regexp.stringContainsMatch("[0-9]+", "row 42"));
+    assertTrue(Regexp.stringMatch("", null));
+    assertFalse(Regexp.stringMatch("(unclosed", "(unclosed"));
+  }
+
+  @Test
+  void regexp_multiline_prefix_should_let_dot_match_line_terminators() {
+    assertFalse(Regexp.stringMatch("first.*last", "first\nlast"));
+    assertTrue(Regexp.stringMatch("(?m)first.*last", "first\nlast"));
+    assertTrue(Regexp.stringContainsMatch("(?m)^last$", "first\nlast\n"));
+    assertFalse(Regexp.stringContainsMatch("^last$", "first\nlast\n"));
+  }
+
+  @Test
+  void repeated_lookup_should_hit_the_cache() {
+    var cache = new PatternCache(10);
+
+    var first = cache.lookup("Save.*", 0);
+    var second = cache.lookup("Save.*", 0);
+
+    assertSame(first, second);
+    assertEquals(1, cache.getMisses());
+    assertEquals(1, cache.getHits());
+    assertEquals(1, cache.size());
+  }
+
+  @Test
+  void flags_should_be_part_of_the_key() {
+    var cache = new PatternCache(10);
+
+    cache.lookup("Save.*", 0);
+    cache.lookup("Save.*", Pattern.CASE_INSENSITIVE);
+
+    assertEquals(2, cache.getMisses());
+    assertEquals(0, cache.getHits());
+    assertEquals(2, cache.size());
+  }
+
+  @Test
+  void literals_should_be_cached_without_compiling() {
+    var cache = new PatternCache(10);
+
+    assertNull(cache.lookup("OK", 0));
+    assertNull(cache.lookup("OK", 0));
+
+    assertEquals(1, cache.getHits());
+    assertEquals(1, cache.size());
+  }
+
+  @Test
+  void invalid_pattern_should_be_cached_and_fail_every_time() {
+    var cache = new PatternCache(10);
+
+    var first = assertThrows(PatternSyntaxException.class, () -> cache.lookup("(unclosed", 0));
+    var second = assertThrows(PatternSyntaxException.class, () -> cache.lookup("(unclosed", 0));
+
+    assertSame(first, second);
+    assertEquals(1, cache.getMisses());
+    assertEquals(1, cache.getHits());
+  }
+
+  @Test
+  void least_recently_used_pattern_should_be_evicted() {
+    var cache = new PatternCache(2);
+    cache.lookup("a.*", 0);
+    cache.lookup("b.*", 0);
+    cache.lookup("a.*", 0);
+
+    cache.lookup("c.*", 0);
+
+    assertEquals(2, cache.size());
+    assertEquals(3, cache.getMisses());
+    cache.lookup("a.*", 0);
+    assertEquals(3, cache.getMisses());
+    cache.lookup("b.*", 0);
+    assertEquals(4, cache.getMisses());
+  }
+
+  @Test
+  void cache_of_size_zero_should_never_hold_patterns() {
+    var cache = new PatternCache(0);
+
+    cache.lookup("a.*", 0);
+    cache.lookup("a.*", 0);
+
+    assertEquals(0, cache.size());
+    assertEquals(2, cache.getMisses());
+    assertTrue(cache.matches("a.*", "abc"));
+  }
+
+  @Test
+  void clear_should_drop_patterns_and_counters() {
+    var cache = new PatternCache(10);
+    cache.lookup("a.*", 0);
+    cache.lookup("a.*", 0);
+
+    cache.clear();
+
+    assertEquals(0, cache.size());
+    assertEquals(0, cache.getHits());
+    assertEquals(0, cache.getMisses());
+    cache.lookup("a.*", 0);
+    assertEquals(1, cache.getMisses());
+  }
+
+  @Test
+  void is_literal_should_reject_every_special_character() {
+    assertTrue(PatternCache.isLiteral("Save As"));
+    assertTrue(PatternCache.isLiteral(""));
+    for (char c : "\\^$.|?*+()[]{}".toCharArray()) {
+      assertFalse(PatternCache.isLiteral("a" + c + "b"), String.valueOf(c));
+    }
+  }
+}
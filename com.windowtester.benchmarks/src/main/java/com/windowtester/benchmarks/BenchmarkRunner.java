@@ -0,0 +1,35 @@
+package com.windowtester.benchmarks;
+
+import java.awt.GraphicsEnvironment;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.openjdk.jmh.Main;
+
+/**
+ * Runs the benchmarks with the usual JMH command line options, writing the results as JSON to
+ * <code>jmh-result.json</code> unless another result format is given, so runs can be compared.
+ * Without a display, the benchmarks which need one are left out.
+ */
+public final class BenchmarkRunner {
+
+  private static final List<Class<?>> DISPLAY_BENCHMARKS =
+      List.of(
+          SwingWidgetFinderBenchmark.class, IdentifierBenchmark.class, KeyStrokeMapBenchmark.class);
+
+  private BenchmarkRunner() {}
+
+  public static void main(String[] args) throws Exception {
+    List<String> options = new ArrayList<>(Arrays.asList(args));
+    if (!options.contains("-rf")) {
+      options.addAll(List.of("-rf", "json"));
+    }
+    if (GraphicsEnvironment.isHeadless()) {
+      for (var benchmark : DISPLAY_BENCHMARKS) {
+        System.err.println("No display, skipping " + benchmark.getSimpleName());
+        options.addAll(List.of("-e", benchmark.getName()));
+      }
+    }
+    Main.main(options.toArray(String[]::new));
+  }
+}
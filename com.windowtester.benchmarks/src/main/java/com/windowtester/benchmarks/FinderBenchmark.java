@@ -0,0 +1,65 @@
+package com.windowtester.benchmarks;
+
+import abbot.finder.AWTHierarchy;
+import abbot.finder.BasicFinder;
+import abbot.finder.ComponentSearchException;
+import abbot.finder.Hierarchy;
+import abbot.finder.matchers.ClassMatcher;
+import abbot.finder.matchers.NameMatcher;
+import java.awt.Component;
+import java.util.concurrent.TimeUnit;
+import javax.swing.JTextField;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Searches of the off-screen hierarchy with {@link BasicFinder}, and walks of it with
+ * {@link AWTHierarchy}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FinderBenchmark {
+
+  private final Hierarchy hierarchy = new AWTHierarchy();
+  private final BasicFinder finder = new BasicFinder(hierarchy);
+
+  @Benchmark
+  public Component findByName(SwingFixture fixture) throws ComponentSearchException {
+    return finder.find(fixture.getRoot(), new NameMatcher(SwingFixture.TARGET_NAME));
+  }
+
+  @Benchmark
+  public void findAllByClass(SwingFixture fixture, Blackhole blackhole) {
+    try {
+      blackhole.consume(finder.find(fixture.getRoot(), new ClassMatcher(JTextField.class)));
+    } catch (ComponentSearchException e) {
+      // expected, there are many text fields
+      blackhole.consume(e);
+    }
+  }
+
+  @Benchmark
+  public int getComponents(SwingFixture fixture) {
+    return walk(fixture.getRoot());
+  }
+
+  private int walk(Component component) {
+    int count = 1;
+    for (Component child : hierarchy.getComponents(component)) {
+      count += walk(child);
+    }
+    return count;
+  }
+}
@@ -0,0 +1,36 @@
+package com.windowtester.benchmarks;
+
+import com.windowtester.internal.swing.locator.ScopedComponentIdentifierBuilder;
+import com.windowtester.runtime.swing.SwingWidgetLocator;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Identification of a leaf by {@link ScopedComponentIdentifierBuilder#identify}, as done by the
+ * recorder for every recorded event. The leaf's text is repeated in every panel, so its locator
+ * has to be elaborated with its parents. Needs a display, since only the active window is
+ * searched.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IdentifierBenchmark {
+
+  private final ScopedComponentIdentifierBuilder builder = new ScopedComponentIdentifierBuilder();
+
+  @Benchmark
+  public SwingWidgetLocator identify(WindowFixture fixture) {
+    return builder.identify(fixture.getTarget());
+  }
+}
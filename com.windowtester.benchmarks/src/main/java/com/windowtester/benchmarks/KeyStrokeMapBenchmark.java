@@ -0,0 +1,33 @@
+package com.windowtester.benchmarks;
+
+import abbot.tester.KeyStrokeMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Key stroke lookups by {@link KeyStrokeMap#getKeyStroke}, as done for every character typed;
+ * needs a display, since the map is built from the toolkit's key bindings.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeyStrokeMapBenchmark {
+
+  private static final String TEXT = "The quick brown fox jumps over the lazy dog, 0123456789!";
+
+  @Benchmark
+  public void getKeyStroke(Blackhole blackhole) {
+    for (int i = 0; i < TEXT.length(); i++) {
+      blackhole.consume(KeyStrokeMap.getKeyStroke(TEXT.charAt(i)));
+    }
+  }
+}
@@ -0,0 +1,67 @@
+package com.windowtester.benchmarks;
+
+import abbot.finder.Matcher;
+import com.windowtester.internal.swing.locator.MatcherFactory;
+import com.windowtester.runtime.swing.SwingWidgetLocator;
+import java.awt.Component;
+import java.util.concurrent.TimeUnit;
+import javax.swing.JButton;
+import javax.swing.JPanel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Creation of matchers by {@link MatcherFactory#getMatcher}, and their evaluation against every
+ * component of the off-screen hierarchy.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MatcherBenchmark {
+
+  private final SwingWidgetLocator simple = new SwingWidgetLocator(JButton.class, "Button 0");
+
+  private final SwingWidgetLocator nested =
+      new SwingWidgetLocator(
+          JButton.class,
+          "Button 0",
+          new SwingWidgetLocator(JPanel.class, 1, new SwingWidgetLocator(JPanel.class)));
+
+  private final Matcher simpleMatcher = MatcherFactory.getMatcher(simple);
+  private final Matcher nestedMatcher = MatcherFactory.getMatcher(nested);
+
+  @Benchmark
+  public Matcher getMatcher() {
+    return MatcherFactory.getMatcher(nested);
+  }
+
+  @Benchmark
+  public int matchSimple(SwingFixture fixture) {
+    return count(simpleMatcher, fixture);
+  }
+
+  @Benchmark
+  public int matchNested(SwingFixture fixture) {
+    return count(nestedMatcher, fixture);
+  }
+
+  private static int count(Matcher matcher, SwingFixture fixture) {
+    int matches = 0;
+    for (Component component : fixture.getComponents()) {
+      if (matcher.matches(component)) {
+        matches++;
+      }
+    }
+    return matches;
+  }
+}
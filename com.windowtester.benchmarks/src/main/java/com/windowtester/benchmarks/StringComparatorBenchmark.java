@@ -0,0 +1,37 @@
+package com.windowtester.benchmarks;
+
+import com.windowtester.runtime.util.StringComparator;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Matching of widget texts against literal and regular expression locator texts by
+ * {@link StringComparator#matches}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StringComparatorBenchmark {
+
+  @Param({"Save changes", "Discard changes", "Save.*", "(Save|Discard) changes"})
+  public String pattern;
+
+  private final String text = "Save changes";
+
+  @Benchmark
+  public boolean matches() {
+    return StringComparator.matches(text, pattern);
+  }
+}
@@ -0,0 +1,85 @@
+package com.windowtester.benchmarks;
+
+import java.awt.Component;
+import java.awt.Container;
+import java.awt.GridLayout;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.swing.JButton;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * A synthetic Swing hierarchy which is never shown, so it can be built headless: nested panels,
+ * <code>breadth</code> children per panel and <code>depth</code> levels deep, with buttons, labels
+ * and text fields as leaves. Leaves repeat the same texts in every panel, like the rows of a
+ * form, so identifying one takes its parents into account. The last leaf is named
+ * {@link #TARGET_NAME}.
+ */
+@State(Scope.Benchmark)
+public class SwingFixture {
+
+  public static final String TARGET_NAME = "target";
+
+  @Param({"4"})
+  public int breadth;
+
+  @Param({"3", "5"})
+  public int depth;
+
+  protected JPanel root;
+  protected List<Component> components;
+  protected Component target;
+
+  @Setup(Level.Trial)
+  public void buildHierarchy() throws InterruptedException, InvocationTargetException {
+    SwingUtilities.invokeAndWait(
+        () -> {
+          components = new ArrayList<>();
+          root = createPanel(0);
+          target.setName(TARGET_NAME);
+        });
+  }
+
+  private JPanel createPanel(int level) {
+    var panel = new JPanel(new GridLayout(0, breadth));
+    components.add(panel);
+    for (int i = 0; i < breadth; i++) {
+      var child = level + 1 < depth ? createPanel(level + 1) : createLeaf(i);
+      panel.add(child);
+    }
+    return panel;
+  }
+
+  private Component createLeaf(int index) {
+    Component leaf =
+        switch (index % 3) {
+          case 0 -> new JButton("Button " + index);
+          case 1 -> new JLabel("Label " + index);
+          default -> new JTextField("Text " + index);
+        };
+    components.add(leaf);
+    target = leaf;
+    return leaf;
+  }
+
+  public Container getRoot() {
+    return root;
+  }
+
+  public List<Component> getComponents() {
+    return components;
+  }
+
+  public Component getTarget() {
+    return target;
+  }
+}
@@ -0,0 +1,47 @@
+package com.windowtester.benchmarks;
+
+import com.windowtester.internal.finder.swing.SwingWidgetFinder;
+import com.windowtester.runtime.locator.IWidgetLocator;
+import com.windowtester.runtime.swing.SwingWidgetLocator;
+import com.windowtester.runtime.swing.locator.NamedWidgetLocator;
+import java.util.concurrent.TimeUnit;
+import javax.swing.JButton;
+import javax.swing.JPanel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Searches of all windows with {@link SwingWidgetFinder#findAll}; needs a display.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SwingWidgetFinderBenchmark {
+
+  private final SwingWidgetFinder finder = new SwingWidgetFinder();
+
+  private final IWidgetLocator byName = new NamedWidgetLocator(SwingFixture.TARGET_NAME);
+
+  private final IWidgetLocator byParent =
+      new SwingWidgetLocator(JButton.class, "Button 0", new SwingWidgetLocator(JPanel.class));
+
+  @Benchmark
+  public IWidgetLocator[] findAllByName(WindowFixture fixture) {
+    return finder.findAll(byName);
+  }
+
+  @Benchmark
+  public IWidgetLocator[] findAllWithParent(WindowFixture fixture) {
+    return finder.findAll(byParent);
+  }
+}
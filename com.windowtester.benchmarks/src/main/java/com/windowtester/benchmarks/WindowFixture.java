@@ -0,0 +1,55 @@
+package com.windowtester.benchmarks;
+
+import java.awt.GraphicsEnvironment;
+import java.awt.KeyboardFocusManager;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.TimeUnit;
+import javax.swing.JFrame;
+import javax.swing.SwingUtilities;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * The synthetic hierarchy shown in an active frame, for code which only searches windows. Needs a
+ * display; on a machine without one, run the benchmarks under Xvfb.
+ */
+@State(Scope.Benchmark)
+public class WindowFixture extends SwingFixture {
+
+  private static final long ACTIVATION_TIMEOUT = TimeUnit.SECONDS.toNanos(5);
+
+  protected JFrame frame;
+
+  @Setup(Level.Trial)
+  public void showWindow() throws InterruptedException, InvocationTargetException {
+    if (GraphicsEnvironment.isHeadless()) {
+      throw new IllegalStateException(
+          "Benchmark needs a display, e.g. run it with xvfb-run, or exclude it");
+    }
+    SwingUtilities.invokeAndWait(
+        () -> {
+          frame = new JFrame("Benchmark");
+          frame.getContentPane().add(root);
+          frame.pack();
+          frame.setVisible(true);
+          frame.toFront();
+        });
+    var deadline = System.nanoTime() + ACTIVATION_TIMEOUT;
+    while (KeyboardFocusManager.getCurrentKeyboardFocusManager().getActiveWindow() != frame) {
+      if (System.nanoTime() > deadline) {
+        throw new IllegalStateException("Benchmark frame was not activated");
+      }
+      Thread.sleep(10);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void disposeWindow() throws InterruptedException, InvocationTargetException {
+    if (frame != null) {
+      SwingUtilities.invokeAndWait(frame::dispose);
+    }
+  }
+}
@@ -1,9 +1,22 @@
 package com.windowtester.junit5;
 
+import abbot.Log;
+import abbot.jfr.TestEvent;
+import abbot.util.Properties;
+import java.awt.AWTEvent;
 import java.awt.Component;
 import java.awt.Dialog;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
 import java.awt.Window;
+import java.awt.event.AWTEventListener;
+import java.awt.event.HierarchyEvent;
+import java.awt.event.WindowEvent;
+import java.lang.reflect.InvocationTargetException;
 import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.extension.ExtensionContext;
 import org.junit.jupiter.api.extension.ExtensionContext.Namespace;
@@ -13,6 +26,10 @@ public class WindowtesterExecutionStorage {
 
   private static final String UI_COMPONENT_KEY = "UI_COMPONENT";
   private static final String UI_CONTEXT_KEY = "UI_CONTEXT";
+  private static final String TEST_EVENT_KEY = "TEST_EVENT";
+
+  private static final int TEARDOWN_TIMEOUT =
+      Properties.getProperty("windowtester.junit5.teardown_timeout", 5000, 0, 600000);
 
   private final Store store;
 
@@ -30,27 +47,51 @@ public class WindowtesterExecutionStorage {
     return uiContext;
   }
 
-  void wipe() {
-    wipeUIComponent();
+  void saveTestEvent(TestEvent event) {
+    store.put(TEST_EVENT_KEY, event);
+  }
 
-    Arrays.stream(Window.getWindows()).forEach(Window::dispose);
-    // Ensure disposal is complete
-    while (anyWindowStillVisible()) {
-      try {
-        pauseForASecond();
-      } catch (InterruptedException ex) {
-        Thread.currentThread().interrupt();
-      }
-    }
+  TestEvent removeTestEvent() {
+    return store.remove(TEST_EVENT_KEY, TestEvent.class);
   }
 
-  private void pauseForASecond() throws InterruptedException {
-    TimeUnit.SECONDS.sleep(1);
+  /**
+   * Dispose the UI under test and all other windows, and wait until every displayable window has
+   * been closed or the timeout set by the system property
+   * <code>windowtester.junit5.teardown_timeout</code> (milliseconds, default 5000) expires.
+   *
+   * @return time spent in teardown, in nanoseconds
+   */
+  long wipe() {
+    var start = System.nanoTime();
+    var listener = new WindowClosedListener();
+    var toolkit = Toolkit.getDefaultToolkit();
+    toolkit.addAWTEventListener(
+        listener, AWTEvent.WINDOW_EVENT_MASK | AWTEvent.HIERARCHY_EVENT_MASK);
+    try {
+      if (EventQueue.isDispatchThread()) {
+        disposeAll(listener);
+      } else {
+        EventQueue.invokeAndWait(() -> disposeAll(listener));
+        if (!listener.await(TEARDOWN_TIMEOUT)) {
+          Log.warn("Windows still open after teardown: " + listener.getPending());
+        }
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    } catch (InvocationTargetException ex) {
+      throw new RuntimeException("Fail to close windows.", ex.getCause());
+    } finally {
+      toolkit.removeAWTEventListener(listener);
+    }
+    return System.nanoTime() - start;
   }
 
-  // Check if any window is still active
-  private static boolean anyWindowStillVisible() {
-    return Arrays.stream(Window.getWindows()).anyMatch(Window::isVisible);
+  private void disposeAll(WindowClosedListener listener) {
+    Arrays.stream(Window.getWindows()).filter(Window::isDisplayable).forEach(listener::expect);
+    listener.arm();
+    wipeUIComponent();
+    Arrays.stream(Window.getWindows()).forEach(Window::dispose);
   }
 
   private void wipeUIComponent() {
@@ -67,4 +108,53 @@ public class WindowtesterExecutionStorage {
     store.remove(UI_COMPONENT_KEY);
     store.remove(UI_CONTEXT_KEY);
   }
+
+  /**
+   * Tracks windows until they've been closed, i.e. received {@link WindowEvent#WINDOW_CLOSED} or
+   * are found no longer displayable on a hierarchy change.
+   */
+  private static class WindowClosedListener implements AWTEventListener {
+
+    private final Set<Window> pending = ConcurrentHashMap.newKeySet();
+    private final CountDownLatch closed = new CountDownLatch(1);
+    private volatile boolean armed = false;
+
+    void expect(Window window) {
+      pending.add(window);
+    }
+
+    /**
+     * Start signalling once all expected windows are registered.
+     */
+    void arm() {
+      armed = true;
+    }
+
+    Set<Window> getPending() {
+      return pending;
+    }
+
+    boolean await(long timeout) throws InterruptedException {
+      // Nothing to wait for if no window was open
+      pending.removeIf(window -> !window.isDisplayable());
+      if (pending.isEmpty()) {
+        return true;
+      }
+      return closed.await(timeout, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void eventDispatched(AWTEvent event) {
+      if (event.getID() == WindowEvent.WINDOW_CLOSED) {
+        pending.remove(((WindowEvent) event).getWindow());
+      } else if (event instanceof HierarchyEvent hierarchyEvent
+          && hierarchyEvent.getChanged() instanceof Window window
+          && !window.isDisplayable()) {
+        pending.remove(window);
+      }
+      if (armed && pending.isEmpty()) {
+        closed.countDown();
+      }
+    }
+  }
 }
@@ -2,9 +2,11 @@ package com.windowtester.junit5;
 
 import static javax.swing.WindowConstants.DISPOSE_ON_CLOSE;
 
+import abbot.jfr.TestEvent;
 import com.windowtester.junit5.resolver.AnnotationResolver;
 import com.windowtester.junit5.resolver.FieldInfo;
 import com.windowtester.junit5.resolver.SwingUIContextParameterResolver;
+import com.windowtester.runtime.util.ScreenCapture;
 import java.awt.BorderLayout;
 import java.awt.Component;
 import java.awt.Dialog;
@@ -12,8 +14,11 @@ import java.awt.Dimension;
 import java.awt.EventQueue;
 import java.awt.Frame;
 import java.awt.Window;
+import java.io.File;
 import java.lang.reflect.InvocationTargetException;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import javax.swing.JComponent;
 import javax.swing.JFrame;
 import javax.swing.JPanel;
@@ -28,6 +33,29 @@ import org.junit.jupiter.api.extension.ParameterResolver;
 public class WindowtesterExtension
     implements ParameterResolver, BeforeTestExecutionCallback, AfterTestExecutionCallback {
 
+  /**
+   * Report entry key under which the teardown time of each test is published, in milliseconds.
+   */
+  public static final String TEARDOWN_REPORT_KEY = "windowtester.teardown.ms";
+
+  /**
+   * Report entry key under which the screenshot file of a failed test is published.
+   */
+  public static final String SCREENSHOT_REPORT_KEY = "windowtester.screenshot";
+
+  /**
+   * Report entry key under which the recent frames of a failed test are published, as a comma
+   * separated list of files (see {@link ScreenCapture#recordFrame()}).
+   */
+  public static final String FRAMES_REPORT_KEY = "windowtester.frames";
+
+  /**
+   * Whether to capture the screen when a test fails, before its windows are disposed; set the
+   * system property <code>windowtester.junit5.screenshot_on_failure</code> to <code>true</code>.
+   */
+  private static final boolean SCREENSHOT_ON_FAILURE =
+      Boolean.getBoolean("windowtester.junit5.screenshot_on_failure");
+
   private final SwingUIContextParameterResolver swingUIContextResolver;
 
   public WindowtesterExtension() {
@@ -50,6 +78,10 @@ public class WindowtesterExtension
 
   @Override
   public void beforeTestExecution(ExtensionContext context) {
+    var event = new TestEvent();
+    event.begin();
+    getStorage(context).saveTestEvent(event);
+    ScreenCapture.discardFrames();
     new AnnotationResolver(context)
         .tryToFindAnnotatedField(UIUnderTest.class)
         .filter(fieldInfo -> fieldInfo.result() instanceof Component)
@@ -75,7 +107,35 @@ public class WindowtesterExtension
 
   @Override
   public void afterTestExecution(ExtensionContext context) {
-    getStorage(context).wipe();
+    if (context.getExecutionException().isPresent()) {
+      var name = context.getRequiredTestMethod().getName();
+      var frames = ScreenCapture.flushFrames(name);
+      if (SCREENSHOT_ON_FAILURE) {
+        var file = ScreenCapture.createScreenCapture(name);
+        if (file != null) {
+          context.publishReportEntry(SCREENSHOT_REPORT_KEY, file.getAbsolutePath());
+        }
+      }
+      var files = frames.join();
+      if (!files.isEmpty()) {
+        context.publishReportEntry(
+            FRAMES_REPORT_KEY,
+            files.stream().map(File::getAbsolutePath).collect(Collectors.joining(",")));
+      }
+    } else {
+      ScreenCapture.discardFrames();
+    }
+    var storage = getStorage(context);
+    var nanos = storage.wipe();
+    context.publishReportEntry(
+        TEARDOWN_REPORT_KEY, String.valueOf(TimeUnit.NANOSECONDS.toMillis(nanos)));
+    var event = storage.removeTestEvent();
+    if (event != null && event.shouldCommit()) {
+      event.testClass = context.getRequiredTestClass().getName();
+      event.testName = context.getDisplayName();
+      event.passed = context.getExecutionException().isEmpty();
+      event.commit();
+    }
   }
 
   private JFrame createWindow(Component component) {
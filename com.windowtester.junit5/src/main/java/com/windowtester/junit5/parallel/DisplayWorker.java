@@ -0,0 +1,123 @@
+package com.windowtester.junit5.parallel;
+
+import static org.junit.platform.engine.discovery.DiscoverySelectors.selectClass;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.platform.engine.TestExecutionResult;
+import org.junit.platform.engine.reporting.ReportEntry;
+import org.junit.platform.launcher.TestExecutionListener;
+import org.junit.platform.launcher.TestIdentifier;
+import org.junit.platform.launcher.core.LauncherDiscoveryRequestBuilder;
+import org.junit.platform.launcher.core.LauncherFactory;
+
+/**
+ * Worker JVM started by {@link ParallelTestLauncher}. It runs on its own display, executes the
+ * test classes it is handed one at a time and streams the results back over its standard output
+ * (see {@link WorkerProtocol}). Since each worker has its own toolkit, window tracker and robot,
+ * tests in different workers can't interfere with each other.
+ */
+public final class DisplayWorker {
+
+  private DisplayWorker() {
+    // hide public constructor
+  }
+
+  public static void main(String[] args) throws Exception {
+    // Keep the protocol stream free of test output
+    PrintStream protocol = new PrintStream(System.out, true, StandardCharsets.UTF_8);
+    System.setOut(System.err);
+
+    var in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+    var launcher = LauncherFactory.create();
+    var listener = new StreamingListener(protocol);
+
+    protocol.println(WorkerProtocol.encode(WorkerProtocol.READY));
+    String line;
+    while ((line = in.readLine()) != null) {
+      var fields = WorkerProtocol.decode(line);
+      if (WorkerProtocol.QUIT.equals(fields.get(0))) {
+        break;
+      }
+      if (WorkerProtocol.RUN.equals(fields.get(0)) && fields.size() > 1) {
+        var className = fields.get(1);
+        var request =
+            LauncherDiscoveryRequestBuilder.request().selectors(selectClass(className)).build();
+        try {
+          launcher.execute(request, listener);
+        } catch (RuntimeException e) {
+          protocol.println(
+              WorkerProtocol.encode(
+                  WorkerProtocol.FINISHED, className, className, "FAILED", "0", e.toString()));
+        }
+        protocol.println(WorkerProtocol.encode(WorkerProtocol.DONE, className));
+        protocol.println(WorkerProtocol.encode(WorkerProtocol.READY));
+      }
+    }
+    System.exit(0);
+  }
+
+  /**
+   * Sends test results and report entries to the launcher.
+   */
+  private static class StreamingListener implements TestExecutionListener {
+
+    private final PrintStream protocol;
+    private final Map<String, Long> started = new ConcurrentHashMap<>();
+
+    StreamingListener(PrintStream protocol) {
+      this.protocol = protocol;
+    }
+
+    @Override
+    public void executionStarted(TestIdentifier testIdentifier) {
+      started.put(testIdentifier.getUniqueId(), System.nanoTime());
+    }
+
+    @Override
+    public void executionSkipped(TestIdentifier testIdentifier, String reason) {
+      if (testIdentifier.isTest()) {
+        send(testIdentifier, "SKIPPED", 0, reason);
+      }
+    }
+
+    @Override
+    public void executionFinished(
+        TestIdentifier testIdentifier, TestExecutionResult testExecutionResult) {
+      var start = started.remove(testIdentifier.getUniqueId());
+      var millis = start != null ? (System.nanoTime() - start) / 1_000_000 : 0;
+      var status = testExecutionResult.getStatus();
+      // Containers are only reported if they failed, e.g. in @BeforeAll
+      if (testIdentifier.isTest() || status != TestExecutionResult.Status.SUCCESSFUL) {
+        var message = testExecutionResult.getThrowable().map(Throwable::toString).orElse("");
+        send(testIdentifier, status.name(), millis, message);
+      }
+    }
+
+    @Override
+    public void reportingEntryPublished(TestIdentifier testIdentifier, ReportEntry entry) {
+      entry
+          .getKeyValuePairs()
+          .forEach(
+              (key, value) ->
+                  protocol.println(
+                      WorkerProtocol.encode(
+                          WorkerProtocol.REPORT, testIdentifier.getUniqueId(), key, value)));
+    }
+
+    private void send(TestIdentifier testIdentifier, String status, long millis, String message) {
+      protocol.println(
+          WorkerProtocol.encode(
+              WorkerProtocol.FINISHED,
+              testIdentifier.getUniqueId(),
+              testIdentifier.getDisplayName(),
+              status,
+              String.valueOf(millis),
+              message));
+    }
+  }
+}
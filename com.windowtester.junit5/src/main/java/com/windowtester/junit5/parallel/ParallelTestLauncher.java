@@ -0,0 +1,184 @@
+package com.windowtester.junit5.parallel;
+
+import static org.junit.platform.engine.discovery.DiscoverySelectors.selectClass;
+import static org.junit.platform.engine.discovery.DiscoverySelectors.selectPackage;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.platform.engine.DiscoverySelector;
+import org.junit.platform.engine.support.descriptor.ClassSource;
+import org.junit.platform.launcher.TestIdentifier;
+import org.junit.platform.launcher.TestPlan;
+import org.junit.platform.launcher.core.LauncherDiscoveryRequestBuilder;
+import org.junit.platform.launcher.core.LauncherFactory;
+
+/**
+ * Runs JUnit 5 test classes in parallel, each worker in a JVM of its own bound to a display of its
+ * own. WindowTester relies on a single toolkit, window tracker and robot per JVM, so Swing tests
+ * can't run concurrently within one JVM; forking scales them with the number of cores instead.
+ * <p>
+ * Test classes are handed out one at a time to whichever worker is idle, and results (including
+ * the screenshots of failed tests) are streamed back and printed as they arrive. A worker which
+ * dies is replaced and its test class reported as failed. The exit code is non-zero if any test
+ * failed.
+ * <pre>
+ * java -cp &lt;test classpath&gt; com.windowtester.junit5.parallel.ParallelTestLauncher
+ *     [--workers n] [--display-base n] [--xvfb command | --no-xvfb] [--jvm-arg arg]...
+ *     [--class-timeout seconds] (--package name | className)...
+ * </pre>
+ * By default every worker starts <code>Xvfb</code> on display <code>display-base + worker</code>
+ * (starting at :90). With <code>--no-xvfb</code> the workers use the displays given by the base
+ * number without starting a server, or inherit the launcher's <code>DISPLAY</code> if no base is
+ * given either; since workers sharing a display would steal each other's focus and input, there
+ * is only one worker then.
+ * <p>
+ * A worker which takes longer than the class timeout (default 30 minutes, 0 for none) for a test
+ * class is killed, and the class reported as failed.
+ */
+public final class ParallelTestLauncher {
+
+  private static final int DEFAULT_DISPLAY_BASE = 90;
+
+  private static final long DEFAULT_CLASS_TIMEOUT = TimeUnit.MINUTES.toMillis(30);
+
+  private final int workers;
+  private final int displayBase;
+  private final String xvfbCommand;
+  private final List<String> jvmArgs;
+  private final long classTimeout;
+  private final PrintStream console;
+
+  public ParallelTestLauncher(
+      int workers, int displayBase, String xvfbCommand, List<String> jvmArgs, PrintStream console) {
+    this(workers, displayBase, xvfbCommand, jvmArgs, DEFAULT_CLASS_TIMEOUT, console);
+  }
+
+  /**
+   * @param displayBase  number of the first worker's display, or -1 for a single worker on the
+   *                     launcher's display
+   * @param classTimeout milliseconds a worker may take for a test class, or 0 for no limit
+   */
+  public ParallelTestLauncher(
+      int workers,
+      int displayBase,
+      String xvfbCommand,
+      List<String> jvmArgs,
+      long classTimeout,
+      PrintStream console) {
+    if (displayBase < 0 && workers > 1) {
+      throw new IllegalArgumentException("Workers can't share the launcher's display");
+    }
+    this.workers = workers;
+    this.displayBase = displayBase;
+    this.xvfbCommand = xvfbCommand;
+    this.jvmArgs = List.copyOf(jvmArgs);
+    this.classTimeout = classTimeout;
+    this.console = console;
+  }
+
+  public static void main(String[] args) throws Exception {
+    int workers = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    Integer displayBase = null;
+    String xvfb = "Xvfb";
+    long classTimeout = DEFAULT_CLASS_TIMEOUT;
+    List<String> jvmArgs = new ArrayList<>();
+    List<DiscoverySelector> selectors = new ArrayList<>();
+    for (int i = 0; i < args.length; i++) {
+      switch (args[i]) {
+        case "--workers" -> workers = Math.max(1, Integer.parseInt(args[++i]));
+        case "--display-base" -> displayBase = Integer.parseInt(args[++i]);
+        case "--xvfb" -> xvfb = args[++i];
+        case "--no-xvfb" -> xvfb = null;
+        case "--jvm-arg" -> jvmArgs.add(args[++i]);
+        case "--class-timeout" ->
+            classTimeout = TimeUnit.SECONDS.toMillis(Math.max(0, Long.parseLong(args[++i])));
+        case "--package" -> selectors.add(selectPackage(args[++i]));
+        default -> selectors.add(selectClass(args[i]));
+      }
+    }
+    if (selectors.isEmpty()) {
+      System.err.println("No test classes or packages given");
+      System.exit(2);
+    }
+    if (displayBase == null) {
+      displayBase = xvfb != null ? DEFAULT_DISPLAY_BASE : -1;
+    }
+    if (displayBase < 0 && workers > 1) {
+      System.err.println(
+          "Running a single worker, since there are no displays for more; see --display-base");
+      workers = 1;
+    }
+    var launcher =
+        new ParallelTestLauncher(workers, displayBase, xvfb, jvmArgs, classTimeout, System.out);
+    System.exit(launcher.execute(selectors) ? 0 : 1);
+  }
+
+  /**
+   * Discover the test classes for the given selectors and run them on the workers.
+   *
+   * @return whether all tests passed
+   */
+  public boolean execute(List<DiscoverySelector> selectors) throws InterruptedException {
+    var request = LauncherDiscoveryRequestBuilder.request().selectors(selectors).build();
+    Queue<String> classes =
+        new ConcurrentLinkedQueue<>(getTestClasses(LauncherFactory.create().discover(request)));
+    var results = new TestResults(console);
+    console.println("Running " + classes.size() + " test classes on " + workers + " workers");
+
+    ExecutorService executor = Executors.newFixedThreadPool(workers);
+    for (int i = 0; i < workers; i++) {
+      var display = displayBase >= 0 ? displayBase + i : -1;
+      var slot = new WorkerSlot(i, display, xvfbCommand, jvmArgs, classTimeout, console);
+      executor.execute(() -> work(slot, classes, results));
+    }
+    executor.shutdown();
+    executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+
+    for (String className : classes) {
+      results.crashed("launcher", className, "no worker left to run it");
+    }
+    results.printSummary();
+    return results.isSuccessful();
+  }
+
+  private void work(WorkerSlot slot, Queue<String> classes, TestResults results) {
+    try {
+      slot.start();
+      String className;
+      while ((className = classes.poll()) != null) {
+        var failure = slot.run(className, results);
+        if (failure != null) {
+          results.crashed(slot.getName(), className, failure);
+          slot.restart();
+        }
+      }
+    } catch (IOException e) {
+      console.println("[" + slot.getName() + "] " + e);
+    } finally {
+      slot.stop();
+    }
+  }
+
+  private static Set<String> getTestClasses(TestPlan plan) {
+    Set<String> classes = new LinkedHashSet<>();
+    for (TestIdentifier root : plan.getRoots()) {
+      for (TestIdentifier child : plan.getChildren(root)) {
+        child
+            .getSource()
+            .filter(ClassSource.class::isInstance)
+            .map(source -> ((ClassSource) source).getClassName())
+            .ifPresent(classes::add);
+      }
+    }
+    return classes;
+  }
+}
@@ -0,0 +1,87 @@
+package com.windowtester.junit5.parallel;
+
+import com.windowtester.junit5.WindowtesterExtension;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the results streamed back by all workers of a {@link ParallelTestLauncher} and echoes
+ * them to the console as they arrive.
+ */
+class TestResults {
+
+  private final PrintStream console;
+  private final List<String> failures = new ArrayList<>();
+  private final List<String> screenshots = new ArrayList<>();
+  private int succeeded = 0;
+  private int failed = 0;
+  private int aborted = 0;
+  private int skipped = 0;
+
+  TestResults(PrintStream console) {
+    this.console = console;
+  }
+
+  /**
+   * Fields: type, unique id, display name, status, millis, message.
+   */
+  synchronized void finished(String worker, List<String> fields) {
+    var name = fields.get(2);
+    var status = fields.get(3);
+    var message = fields.size() > 5 ? fields.get(5) : "";
+    switch (status) {
+      case "SUCCESSFUL" -> succeeded++;
+      case "ABORTED" -> aborted++;
+      case "SKIPPED" -> skipped++;
+      default -> {
+        failed++;
+        failures.add(fields.get(1) + ": " + message);
+      }
+    }
+    var line = "[" + worker + "] " + status + " " + name + " (" + fields.get(4) + " ms)";
+    console.println(message.isEmpty() ? line : line + ": " + message);
+  }
+
+  /**
+   * Fields: type, unique id, key, value.
+   */
+  synchronized void reported(String worker, List<String> fields) {
+    if (WindowtesterExtension.SCREENSHOT_REPORT_KEY.equals(fields.get(2))) {
+      screenshots.add(fields.get(3));
+      console.println("[" + worker + "] screenshot " + fields.get(3));
+    }
+  }
+
+  /**
+   * Record a test class which could not be completed, e.g. because its worker died.
+   */
+  synchronized void crashed(String worker, String className, String reason) {
+    failed++;
+    failures.add(className + ": " + reason);
+    console.println("[" + worker + "] FAILED " + className + ": " + reason);
+  }
+
+  synchronized boolean isSuccessful() {
+    return failed == 0;
+  }
+
+  synchronized void printSummary() {
+    console.println();
+    console.println(
+        "Tests: "
+            + succeeded
+            + " succeeded, "
+            + failed
+            + " failed, "
+            + aborted
+            + " aborted, "
+            + skipped
+            + " skipped");
+    failures.forEach(failure -> console.println("  " + failure));
+    if (!screenshots.isEmpty()) {
+      console.println("Screenshots:");
+      screenshots.forEach(file -> console.println("  " + file));
+    }
+  }
+}
@@ -0,0 +1,78 @@
+package com.windowtester.junit5.parallel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Line based protocol between {@link ParallelTestLauncher} and its {@link DisplayWorker}s.
+ * Every message is a single line of tab separated, escaped fields, the first being the message
+ * type. The launcher sends {@link #RUN} and {@link #QUIT}; workers send the others on their
+ * standard output. Anything the tests themselves print goes to the worker's standard error.
+ */
+final class WorkerProtocol {
+
+  /** Worker is ready for the next test class. */
+  static final String READY = "READY";
+
+  /** Launcher to worker: run the given test class. */
+  static final String RUN = "RUN";
+
+  /** Launcher to worker: exit. */
+  static final String QUIT = "QUIT";
+
+  /** A test or container finished: unique id, display name, status, millis, message. */
+  static final String FINISHED = "FINISHED";
+
+  /** A report entry was published: unique id, key, value. */
+  static final String REPORT = "REPORT";
+
+  /** The test class assigned by the last {@link #RUN} has been executed. */
+  static final String DONE = "DONE";
+
+  private WorkerProtocol() {
+    // hide public constructor
+  }
+
+  static String encode(String... fields) {
+    var sb = new StringBuilder();
+    for (int i = 0; i < fields.length; i++) {
+      if (i > 0) {
+        sb.append('\t');
+      }
+      escape(sb, fields[i] != null ? fields[i] : "");
+    }
+    return sb.toString();
+  }
+
+  static List<String> decode(String line) {
+    var fields = new ArrayList<String>();
+    var sb = new StringBuilder();
+    for (int i = 0; i < line.length(); i++) {
+      char c = line.charAt(i);
+      if (c == '\t') {
+        fields.add(sb.toString());
+        sb.setLength(0);
+      } else if (c == '\\' && i + 1 < line.length()) {
+        char next = line.charAt(++i);
+        sb.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+      } else {
+        sb.append(c);
+      }
+    }
+    fields.add(sb.toString());
+    return fields;
+  }
+
+  private static void escape(StringBuilder sb, String field) {
+    for (int i = 0; i < field.length(); i++) {
+      char c = field.charAt(i);
+      switch (c) {
+        case '\\' -> sb.append("\\\\");
+        case '\t' -> sb.append("\\t");
+        case '\n' -> sb.append("\\n");
+        case '\r' -> sb.append("\\r");
+        default -> sb.append(c);
+      }
+    }
+  }
+}
@@ -0,0 +1,225 @@
+package com.windowtester.junit5.parallel;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One worker of a {@link ParallelTestLauncher}: an optional Xvfb server on a display of its own
+ * and a {@link DisplayWorker} JVM bound to that display.
+ */
+class WorkerSlot {
+
+  private static final long DISPLAY_STARTUP_TIMEOUT = TimeUnit.SECONDS.toMillis(10);
+
+  private final int index;
+  private final int display;
+  private final String xvfbCommand;
+  private final List<String> jvmArgs;
+  private final long classTimeout;
+  private final PrintStream console;
+
+  private Process xvfb;
+  private Process worker;
+  private BufferedReader fromWorker;
+  private PrintWriter toWorker;
+
+  /**
+   * @param display     display number, or -1 to inherit the launcher's display
+   * @param xvfbCommand  Xvfb executable, or <code>null</code> if the display already exists
+   * @param classTimeout milliseconds the worker may take for a test class, or 0 for no limit
+   */
+  WorkerSlot(
+      int index,
+      int display,
+      String xvfbCommand,
+      List<String> jvmArgs,
+      long classTimeout,
+      PrintStream console) {
+    this.index = index;
+    this.display = display;
+    this.xvfbCommand = xvfbCommand;
+    this.jvmArgs = jvmArgs;
+    this.classTimeout = classTimeout;
+    this.console = console;
+  }
+
+  String getName() {
+    return display >= 0 ? "worker " + index + " :" + display : "worker " + index;
+  }
+
+  void start() throws IOException {
+    if (xvfbCommand != null && display >= 0 && (xvfb == null || !xvfb.isAlive())) {
+      startXvfb();
+    }
+
+    var command = new ArrayList<String>();
+    command.add(ProcessHandle.current().info().command().orElse("java"));
+    command.addAll(jvmArgs);
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add("-Dwindowtester.junit5.screenshot_on_failure=true");
+    command.add(DisplayWorker.class.getName());
+
+    var builder = new ProcessBuilder(command);
+    if (display >= 0) {
+      builder.environment().put("DISPLAY", ":" + display);
+    }
+    worker = builder.start();
+    fromWorker =
+        new BufferedReader(
+            new InputStreamReader(worker.getInputStream(), StandardCharsets.UTF_8));
+    toWorker = new PrintWriter(worker.getOutputStream(), true, StandardCharsets.UTF_8);
+    pump(worker, "[" + getName() + "] ");
+  }
+
+  private void startXvfb() throws IOException {
+    xvfb =
+        new ProcessBuilder(
+                xvfbCommand, ":" + display, "-screen", "0", "1280x1024x24", "-nolisten", "tcp")
+            .redirectErrorStream(true)
+            .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+            .start();
+    var socket = new File("/tmp/.X11-unix/X" + display);
+    var deadline = System.currentTimeMillis() + DISPLAY_STARTUP_TIMEOUT;
+    while (!socket.exists()) {
+      if (!xvfb.isAlive() || System.currentTimeMillis() > deadline) {
+        xvfb.destroy();
+        throw new IOException("Unable to start " + xvfbCommand + " on display :" + display);
+      }
+      try {
+        Thread.sleep(50);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while starting display :" + display);
+      }
+    }
+  }
+
+  private void pump(Process process, String prefix) {
+    var thread =
+        new Thread(
+            () -> {
+              try (var reader =
+                  new BufferedReader(
+                      new InputStreamReader(process.getErrorStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                  console.println(prefix + line);
+                }
+              } catch (IOException e) {
+                // worker is gone
+              }
+            },
+            getName() + " output");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Run a test class in this slot's worker, passing every message to the given results.  A worker
+   * which takes longer than the class timeout is killed.
+   *
+   * @return <code>null</code> if the worker completed the class, or why it didn't
+   */
+  String run(String className, TestResults results) throws IOException {
+    var timedOut = new AtomicBoolean();
+    CompletableFuture<Void> watchdog = null;
+    if (classTimeout > 0) {
+      var process = worker;
+      watchdog =
+          CompletableFuture.runAsync(
+              () -> {
+                timedOut.set(true);
+                process.destroyForcibly();
+              },
+              CompletableFuture.delayedExecutor(classTimeout, TimeUnit.MILLISECONDS));
+    }
+    try {
+      if (runToCompletion(className, results)) {
+        return null;
+      }
+    } finally {
+      if (watchdog != null) {
+        watchdog.cancel(false);
+      }
+    }
+    return timedOut.get()
+        ? "timed out after " + TimeUnit.MILLISECONDS.toSeconds(classTimeout) + " s"
+        : "worker terminated unexpectedly";
+  }
+
+  private boolean runToCompletion(String className, TestResults results) throws IOException {
+    if (!awaitReady()) {
+      return false;
+    }
+    toWorker.println(WorkerProtocol.encode(WorkerProtocol.RUN, className));
+    String line;
+    while ((line = fromWorker.readLine()) != null) {
+      var fields = WorkerProtocol.decode(line);
+      switch (fields.get(0)) {
+        case WorkerProtocol.FINISHED -> results.finished(getName(), fields);
+        case WorkerProtocol.REPORT -> results.reported(getName(), fields);
+        case WorkerProtocol.DONE -> {
+          return true;
+        }
+        default -> {
+          // ignore
+        }
+      }
+    }
+    return false;
+  }
+
+  private boolean awaitReady() throws IOException {
+    String line;
+    while ((line = fromWorker.readLine()) != null) {
+      if (WorkerProtocol.READY.equals(WorkerProtocol.decode(line).get(0))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Replace a worker which died; the display is reused if it is still alive.
+   */
+  void restart() throws IOException {
+    stopWorker();
+    start();
+  }
+
+  void stop() {
+    stopWorker();
+    if (xvfb != null) {
+      xvfb.destroy();
+    }
+  }
+
+  private void stopWorker() {
+    if (worker == null) {
+      return;
+    }
+    if (worker.isAlive()) {
+      toWorker.println(WorkerProtocol.encode(WorkerProtocol.QUIT));
+      try {
+        if (!worker.waitFor(5, TimeUnit.SECONDS)) {
+          worker.destroyForcibly();
+        }
+      } catch (InterruptedException e) {
+        worker.destroyForcibly();
+        Thread.currentThread().interrupt();
+      }
+    }
+    worker = null;
+  }
+}
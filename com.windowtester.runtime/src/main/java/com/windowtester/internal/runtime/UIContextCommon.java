@@ -208,6 +208,6 @@ public abstract class UIContextCommon implements IUIContext {
     TraceHandler.trace(
         IRuntimePluginTraceOptions.CONDITIONS,
         "Creating screenshot (" + desc + ") for testcase: " + testcaseID);
-    ScreenCapture.createScreenCapture(testcaseID);
+    ScreenCapture.createScreenCaptureAsync(testcaseID);
   }
 }
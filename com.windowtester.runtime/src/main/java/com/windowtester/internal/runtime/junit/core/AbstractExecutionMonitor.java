@@ -45,10 +45,12 @@ public abstract class AbstractExecutionMonitor
         throw new IllegalStateException("test is already stopped");
       }
       _isRunning = isRunning;
+      stateChanged();
     }
 
     public void setException(Throwable e) {
       _exceptionCache.cache(e);
+      stateChanged();
     }
 
     TestExceptionCache getExceptions() {
@@ -220,6 +222,13 @@ public abstract class AbstractExecutionMonitor
     state.throwException();
   }
 
+  /**
+   * Called whenever the running state changes or an exception is cached, so that subclasses can
+   * wake up a pending {@link #doWaitForFinish()}.
+   */
+  protected void stateChanged() {
+  }
+
   /**
    * Do the wait in the <code>waitUntilFinished</code> loop.
    * <p>
@@ -36,4 +36,11 @@ import java.awt.Component;
   public boolean matches(Component component) {
     return matcher.matches(component);
   }
+
+  /**
+   * Get the adapted matcher.
+   */
+  IWidgetMatcher<?> getWidgetMatcher() {
+    return matcher;
+  }
 }
@@ -37,4 +37,22 @@ public class AdapterFactory {
     }
     return new WidgetMatcherAdapter(matcher);
   }
+
+  /**
+   * Get the <code>IWidgetMatcher</code> adapted by this <code>Matcher</code>.
+   *
+   * @return the adapted matcher, or <code>null</code> if the given matcher is not an adapter
+   */
+  public IWidgetMatcher<?> getAdaptee(Matcher matcher) {
+    return matcher instanceof AbbotFinderMatcherAdapter adapter ? adapter.getWidgetMatcher() : null;
+  }
+
+  /**
+   * Get the <code>Matcher</code> adapted by this <code>IWidgetMatcher</code>.
+   *
+   * @return the adapted matcher, or <code>null</code> if the given matcher is not an adapter
+   */
+  public Matcher getAdaptee(IWidgetMatcher<?> matcher) {
+    return matcher instanceof WidgetMatcherAdapter adapter ? adapter.getMatcher() : null;
+  }
 }
@@ -37,6 +37,13 @@ public class WidgetMatcherAdapter implements IWidgetMatcher<Component> {
     return matcher.matches(widget);
   }
 
+  /**
+   * Get the adapted matcher.
+   */
+  public Matcher getMatcher() {
+    return matcher;
+  }
+
   @Override
   public String toString() {
     return matcher.toString();
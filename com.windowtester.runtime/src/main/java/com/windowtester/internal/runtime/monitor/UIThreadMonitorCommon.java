@@ -10,6 +10,8 @@
  *******************************************************************************/
 package com.windowtester.internal.runtime.monitor;
 
+import abbot.util.LatencyHistogram;
+import abbot.util.Properties;
 import com.windowtester.internal.debug.IRuntimePluginTraceOptions;
 import com.windowtester.internal.debug.Logger;
 import com.windowtester.internal.debug.ThreadUtil;
@@ -24,13 +26,22 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Abstract superclass providing common behavior for objects that monitor the UI Thread and notifies
- * listeners if the UI thread is either hung or idle for an extended period of time. Typically this
- * is accomplished by launching a background thread (minimum priority) that checks to see if the UI
- * is responsive and processing input. If the UI becomes unresponsive or idle for a period longer
- * than expected, then the associated
+ * listeners if the UI thread is either hung or idle for an extended period of time. A background
+ * thread (minimum priority) posts a heartbeat to the UI thread every
+ * <code>windowtester.monitor.heartbeat_interval</code> milliseconds (default 250) and records how
+ * long it took to be dispatched in {@link #getDispatchLatency()}. A heartbeat which has not been
+ * dispatched within <code>windowtester.monitor.stall_threshold</code> milliseconds (default 2000)
+ * is reported as a stall, and the thread state and screen are captured in the background.
+ * <p>
+ * If the UI does not process any input for a period longer than expected, then the associated
  * {@link com.windowtester.runtime.monitor.IUIThreadMonitorListener} (see
  * {@link
  * com.windowtester.runtime.monitor.IUIThreadMonitor#setListener(com.windowtester.runtime.monitor.IUIThreadMonitorListener)})
@@ -46,6 +57,43 @@ public abstract class UIThreadMonitorCommon implements IUIThreadMonitor {
 
   private static int traceMode = TRACE_UNINITIALIZED;
 
+  /**
+   * Milliseconds between heartbeats posted to the UI thread.
+   */
+  private static final long HEARTBEAT_INTERVAL =
+      Properties.getProperty("windowtester.monitor.heartbeat_interval", 10L, 10_000L, 250L);
+
+  /**
+   * Milliseconds after which a heartbeat which has not been dispatched is reported as a stall.
+   */
+  private static final long STALL_THRESHOLD =
+      Properties.getProperty("windowtester.monitor.stall_threshold", 100L, 600_000L, 2_000L);
+
+  /**
+   * Milliseconds between checks whether the UI has been idle longer than expected.
+   */
+  private static final long CHECK_INTERVAL = 1_000;
+
+  /**
+   * Milliseconds without input after which the UI is considered idle.
+   */
+  private static final long IDLE_PERIOD = 10_000;
+
+  /**
+   * Milliseconds a heartbeat may be pending for the UI thread to still be considered responsive.
+   */
+  private static final long RESPONSIVE_PERIOD = 1_000;
+
+  /**
+   * Seconds {@link #gracefulExit(boolean)} waits for diagnostics still being captured.
+   */
+  private static final long DIAGNOSTICS_TIMEOUT = 10;
+
+  /**
+   * Value of {@link #heartbeatPosted} while no heartbeat is pending.
+   */
+  private static final long NONE = Long.MIN_VALUE;
+
   /**
    * The user interface context used by the receiver to handle conditions when the UI thread has
    * been idle too long in an attempt to get the test running again.
@@ -53,55 +101,78 @@ public abstract class UIThreadMonitorCommon implements IUIThreadMonitor {
   private final IUIContext uiContext;
 
   /**
-   * The object to synchronize against when accessing the {@link #listener},
-   * {@link #defaultExpectedDelay}, {@link #uiThreadResponsive}, {@link #uiEventProcessed} and
-   * {@link #uiBusyUntil} fields.
+   * The object to synchronize against when starting or stopping the monitor.
    */
   protected final Object lock = new Object();
 
   /**
    * The listener associated with the receiver that will be notified if the UI is no longer
-   * responsive and processing input. Synchronize against {@link #lock} when accessing this field.
+   * responsive and processing input.
    */
-  private IUIThreadMonitorListener listener;
+  private volatile IUIThreadMonitorListener listener;
 
   /**
    * Default expected delay... 2 minutes unless overridden by a call to
-   * {@link #setDefaultExpectedDelay(long)}. Synchronize against {@link #lock} when accessing this
-   * field.
+   * {@link #setDefaultExpectedDelay(long)}.
    */
-  private long defaultExpectedDelay = 120_000;
+  private volatile long defaultExpectedDelay = 120_000;
 
   /**
-   * Flag indicating that the UI is responsive. Synchronize against {@link #lock} when accessing
-   * this field.
+   * The system time before which the UI thread should have processed a new event. This is set as
+   * needed during test execution by calling {@link #expectDelay(long)}.
    */
-  protected boolean uiThreadResponsive;
+  private final AtomicLong uiBusyUntil = new AtomicLong();
 
   /**
-   * Flag indicating that the UI is processing events. Synchronize against {@link #lock} when
-   * accessing this field.
+   * The system time at which the UI last processed an input event.
    */
-  private boolean uiEventProcessed;
+  private volatile long lastEventMillis;
 
   /**
-   * The system time before which the UI thread should have processed a new event. This is set as
-   * needed during test execution by calling {@link #expectDelay(long)}. Synchronize against
-   * {@link #lock} when accessing this field.
+   * The {@link System#nanoTime()} at which the pending heartbeat was posted, or {@link #NONE}.
+   */
+  private final AtomicLong heartbeatPosted = new AtomicLong(NONE);
+
+  /**
+   * The time it takes the UI thread to dispatch a heartbeat.
+   */
+  private final LatencyHistogram dispatchLatency = new LatencyHistogram("EDT dispatch latency");
+
+  /**
+   * The heartbeat posted to the UI thread.
+   */
+  private final Runnable heartbeat = this::heartbeatDispatched;
+
+  /**
+   * The scheduler running {@link #tick()}, or <code>null</code> if the monitor is not running.
+   * Synchronize against {@link #lock} when accessing this field.
+   */
+  private ScheduledExecutorService scheduler;
+
+  private volatile boolean stalled;
+  private volatile long stallCount;
+
+  // state of the idle check, only accessed by the scheduler
+  private long nextCheckMillis;
+  private long lastEscalationMillis;
+  private int uiTimeoutCount;
+
+  /**
+   * Diagnostics being captured by {@link #captureDiagnostics(String)}.
    */
-  private long uiBusyUntil;
+  private volatile CompletableFuture<Void> diagnostics = CompletableFuture.completedFuture(null);
 
   /**
-   * Stack traces at time of UI inactivity generated by {@link #fireUITimeout(boolean)} and consumed
-   * by {@link #writeResults(PrintWriter, boolean)}
+   * Stack traces at time of UI inactivity generated by {@link #captureDiagnostics(String)} and
+   * consumed by {@link #writeResults(PrintWriter, boolean)}
    */
-  private String stackTraces;
+  private volatile String stackTraces;
 
   /**
-   * Screen capture at time of UI inactivity generated by {@link #fireUITimeout(boolean)} and
+   * Screen capture at time of UI inactivity generated by {@link #captureDiagnostics(String)} and
    * consumed by {@link #writeResults(PrintWriter, boolean)}
    */
-  private File screenCapture;
+  private volatile File screenCapture;
 
   /**
    * Construct a new instance to monitor the health of the user interface thread.
@@ -121,14 +192,12 @@ public abstract class UIThreadMonitorCommon implements IUIThreadMonitor {
    * @return the listener or <code>null</code> if none.
    */
   protected IUIThreadMonitorListener getListener() {
-    synchronized (lock) {
-      return listener;
-    }
+    return listener;
   }
 
   @Override
   public void setListener(IUIThreadMonitorListener newListener) {
-    com.windowtester.runtime.monitor.IUIThreadMonitorListener oldListener;
+    IUIThreadMonitorListener oldListener;
     synchronized (lock) {
       oldListener = listener;
       listener = newListener;
@@ -137,11 +206,12 @@ public abstract class UIThreadMonitorCommon implements IUIThreadMonitor {
     if (newListener != null) {
       if (oldListener == null) {
         addEventListeners();
-        launchMonitorThread();
+        startMonitor();
       }
     } else {
       if (oldListener != null) {
         removeEventListeners();
+        stopMonitor();
       }
     }
   }
@@ -149,22 +219,39 @@ public abstract class UIThreadMonitorCommon implements IUIThreadMonitor {
   @Override
   public void expectDelay(long millis) {
     long currentTime = System.currentTimeMillis();
-    synchronized (lock) {
-      uiBusyUntil = currentTime + Math.max(millis, defaultExpectedDelay);
-    }
+    uiBusyUntil.set(currentTime + Math.max(millis, defaultExpectedDelay));
     trace("expect delay ", millis);
   }
 
   @Override
   public void setDefaultExpectedDelay(long millis) {
-    synchronized (lock) {
-      long currentTime = System.currentTimeMillis();
-      synchronized (lock) {
-        defaultExpectedDelay = millis;
-        uiBusyUntil = currentTime + defaultExpectedDelay;
-      }
-    }
-    trace("default delay ", defaultExpectedDelay);
+    long currentTime = System.currentTimeMillis();
+    defaultExpectedDelay = millis;
+    uiBusyUntil.set(currentTime + millis);
+    trace("default delay ", millis);
+  }
+
+  /**
+   * Returns the time it takes the UI thread to dispatch an event posted to it, as measured by the
+   * heartbeat while the monitor is running.
+   */
+  public LatencyHistogram getDispatchLatency() {
+    return dispatchLatency;
+  }
+
+  /**
+   * Answer whether the UI thread is currently stalled, i.e. has not dispatched the pending
+   * heartbeat within the stall threshold.
+   */
+  public boolean isStalled() {
+    return stalled;
+  }
+
+  /**
+   * Answer the number of stalls detected since the monitor was created.
+   */
+  public long getStallCount() {
+    return stallCount;
   }
 
   /**
@@ -180,9 +267,8 @@ public abstract class UIThreadMonitorCommon implements IUIThreadMonitor {
     var listener = getListener();
 
     // log current thread state before triggering shutdown
-    stackTraces = ThreadUtil.getStackTraces();
-    screenCapture = ScreenCapture.createScreenCapture("UIThreadMonitor-timeout");
-    Logger.log("UIThreadMonitor: timeout, current thread state\n", stackTraces);
+    captureDiagnostics("UIThreadMonitor-timeout")
+        .thenRun(() -> Logger.log("UIThreadMonitor: timeout, current thread state\n", stackTraces));
 
     if (listener != null) {
       var thread =
@@ -198,6 +284,30 @@ public abstract class UIThreadMonitorCommon implements IUIThreadMonitor {
     }
   }
 
+  /**
+   * Capture the stack traces of all threads and the screen on a background thread, so that
+   * neither the monitor nor the UI thread is held up.
+   *
+   * @param name the name of the screen capture
+   * @return a future completed once the diagnostics have been captured
+   */
+  private CompletableFuture<Void> captureDiagnostics(String name) {
+    var future =
+        CompletableFuture.runAsync(
+            () -> {
+              stackTraces = ThreadUtil.getStackTraces();
+              screenCapture = ScreenCapture.createScreenCapture(name);
+            },
+            task -> {
+              var thread = new Thread(task, "UIThreadMonitor Diagnostics");
+              thread.setPriority(Thread.MIN_PRIORITY);
+              thread.setDaemon(true);
+              thread.start();
+            });
+    diagnostics = future;
+    return future;
+  }
+
   /**
    * Attempt to gracefully exit the application
    *
@@ -206,6 +316,11 @@ public abstract class UIThreadMonitorCommon implements IUIThreadMonitor {
    *                     new events recently and may be hung.
    */
   protected void gracefulExit(boolean isResponsive) {
+    try {
+      diagnostics.get(DIAGNOSTICS_TIMEOUT, TimeUnit.SECONDS);
+    } catch (Exception e) {
+      Logger.log("UIThreadMonitor: diagnostics incomplete", e);
+    }
     generateResults(isResponsive);
     // TODO [author=Dan] How do we gracefully exit?
     forcedExit(isResponsive);
@@ -226,90 +341,148 @@ public abstract class UIThreadMonitorCommon implements IUIThreadMonitor {
   }
 
   /**
-   * Launch a background thread (minimum priority) that checks to see if the UI is still alive and
-   * processing input.
-   */
-  private void launchMonitorThread() {
-    var monitorThread =
-        new Thread("UIThreadMonitor") {
-          @Override
-          public void run() {
-            initExpectedDelay();
-            trace("monitor start", null);
-
-            int checkEventsCount = 0;
-            int uiTimeoutCount = 0;
-            while (true) {
-              if (hasTestEnded()) {
-                trace("monitor end 1", null);
-                break;
-              }
-
-              checkEventsProcessed();
-              if (hasTestEnded()) {
-                trace("monitor end 2", null);
-                break;
-              }
-              if (wereEventsProcessed()) {
-                trace("events processed", null);
-                checkEventsCount = 0;
-                uiTimeoutCount = 0;
-                continue;
-              }
-              checkEventsCount++;
-              if (checkEventsCount <= 10) {
-                trace("no events process " + checkEventsCount, null);
-                continue;
-              }
-
-              boolean isResponsive = isUIThreadResponsive();
-              if (hasTestEnded()) {
-                trace("monitor end 3", null);
-                break;
-              }
-
-              if (isResponsive && processConditions()) {
-                trace("conditions handled", null);
-                continue;
-              }
-              if (isDelayExpected()) {
-                trace("delay expected", null);
-                continue;
-              }
-              trace("delay exceeded " + uiTimeoutCount, null);
-
-              // Take increasingly more drastic steps
-              // based upon how long the delay continues
-
-              switch (uiTimeoutCount) {
-                case 0:
-                  fireUITimeout(isResponsive);
-                  break;
-                case 1:
-                  gracefulExit(isResponsive);
-                  break;
-                case 2:
-                default:
-                  forcedExit(isResponsive);
-              }
-              checkEventsCount = 0;
-              uiTimeoutCount++;
-            }
-          }
-        };
-    monitorThread.setPriority(Thread.MIN_PRIORITY);
-    monitorThread.setDaemon(true);
-    monitorThread.start();
+   * Start a background thread (minimum priority) that posts heartbeats to the UI thread and checks
+   * to see if the UI is still alive and processing input.
+   */
+  private void startMonitor() {
+    synchronized (lock) {
+      if (scheduler != null) {
+        return;
+      }
+      var currentTime = System.currentTimeMillis();
+      uiBusyUntil.accumulateAndGet(currentTime + defaultExpectedDelay, Math::max);
+      lastEventMillis = currentTime;
+      lastEscalationMillis = 0;
+      nextCheckMillis = currentTime + CHECK_INTERVAL;
+      uiTimeoutCount = 0;
+      heartbeatPosted.set(NONE);
+      stalled = false;
+      scheduler =
+          Executors.newSingleThreadScheduledExecutor(
+              task -> {
+                var thread = new Thread(task, "UIThreadMonitor");
+                thread.setPriority(Thread.MIN_PRIORITY);
+                thread.setDaemon(true);
+                return thread;
+              });
+      scheduler.scheduleWithFixedDelay(
+          this::tick, HEARTBEAT_INTERVAL, HEARTBEAT_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+    trace("monitor start", null);
+  }
+
+  private void stopMonitor() {
+    synchronized (lock) {
+      if (scheduler == null) {
+        return;
+      }
+      scheduler.shutdown();
+      scheduler = null;
+    }
+    trace("monitor end", null);
+  }
+
+  /**
+   * Run by the scheduler: post the next heartbeat or detect a stall, and escalate if the UI has
+   * been idle longer than expected.
+   */
+  private void tick() {
+    if (hasTestEnded()) {
+      stopMonitor();
+      return;
+    }
+    try {
+      checkHeartbeat();
+      checkActivity();
+    } catch (RuntimeException e) {
+      // keep the monitor running
+      Logger.log("UIThreadMonitor: check failed", e);
+    }
+  }
+
+  private void checkHeartbeat() {
+    var now = System.nanoTime();
+    // read once: the heartbeat may be dispatched, resetting it to NONE, at any time
+    var posted = heartbeatPosted.get();
+    if (posted == NONE) {
+      if (heartbeatPosted.compareAndSet(NONE, now)) {
+        postHeartbeat(heartbeat);
+      }
+      return;
+    }
+    var pending = now - posted;
+    if (!stalled && pending > TimeUnit.MILLISECONDS.toNanos(STALL_THRESHOLD)) {
+      stalled = true;
+      stallCount++;
+      var message = "UI thread stalled for " + TimeUnit.NANOSECONDS.toMillis(pending) + " ms";
+      trace(message, null);
+      captureDiagnostics("UIThreadMonitor-stall")
+          .thenRun(
+              () -> Logger.log("UIThreadMonitor: " + message + ", thread state\n", stackTraces));
+    }
+  }
+
+  /**
+   * Run on the UI thread once the heartbeat has been dispatched.
+   */
+  private void heartbeatDispatched() {
+    var posted = heartbeatPosted.getAndSet(NONE);
+    if (posted != NONE) {
+      dispatchLatency.recordSince(posted);
+    }
+    if (stalled) {
+      stalled = false;
+      trace("stall ended", null);
+    }
   }
 
   /**
-   * Initialize the expected delay based upon the default expected delay.
+   * Check once every {@link #CHECK_INTERVAL} whether the UI has been idle longer than expected and,
+   * if so, take increasingly more drastic steps: notify the listener, then exit gracefully, then
+   * forcibly.
    */
-  private void initExpectedDelay() {
+  private void checkActivity() {
     var currentTime = System.currentTimeMillis();
-    synchronized (lock) {
-      uiBusyUntil = Math.max(uiBusyUntil, currentTime + defaultExpectedDelay);
+    if (currentTime < nextCheckMillis) {
+      return;
+    }
+    nextCheckMillis = currentTime + CHECK_INTERVAL;
+
+    var lastEvent = lastEventMillis;
+    if (lastEvent > lastEscalationMillis && uiTimeoutCount > 0) {
+      trace("events processed", null);
+      uiTimeoutCount = 0;
+    }
+    var idle = currentTime - Math.max(lastEvent, lastEscalationMillis);
+    if (idle <= IDLE_PERIOD) {
+      return;
+    }
+    trace("no events processed ", idle);
+
+    boolean isResponsive = isUIThreadResponsive();
+    if (isResponsive && processConditions()) {
+      trace("conditions handled", null);
+      return;
+    }
+    if (isDelayExpected()) {
+      trace("delay expected", null);
+      return;
     }
+    trace("delay exceeded " + uiTimeoutCount, null);
+
+    switch (uiTimeoutCount) {
+      case 0:
+        fireUITimeout(isResponsive);
+        break;
+      case 1:
+        gracefulExit(isResponsive);
+        break;
+      case 2:
+      default:
+        forcedExit(isResponsive);
+    }
+    lastEscalationMillis = System.currentTimeMillis();
+    uiTimeoutCount++;
   }
 
   /**
@@ -319,10 +492,7 @@ public abstract class UIThreadMonitorCommon implements IUIThreadMonitor {
    * interface thread has been idle or unresponsive longer than expected
    */
   private boolean isDelayExpected() {
-    var currentTime = System.currentTimeMillis();
-    synchronized (lock) {
-      return currentTime < uiBusyUntil;
-    }
+    return System.currentTimeMillis() < uiBusyUntil.get();
   }
 
   /**
@@ -336,53 +506,14 @@ public abstract class UIThreadMonitorCommon implements IUIThreadMonitor {
     return monitor.process(uiContext) != IConditionMonitor.PROCESS_NONE;
   }
 
-  /**
-   * Check if events were processed during the last call to {@link #checkEventsProcessed()}.
-   *
-   * @return <code>true</code> if events were processed, else <code>false</code>
-   */
-  private boolean wereEventsProcessed() {
-    synchronized (lock) {
-      return uiEventProcessed;
-    }
-  }
-
-  /**
-   * Setup a test to see if the UI thread is still processing events. Assume that event listeners
-   * have already been added to update _uiEventProcessed. Use {@link #wereEventsProcessed()} to
-   * determine if events were processed, but check {@link #hasTestEnded()} first.
-   */
-  private void checkEventsProcessed() {
-    synchronized (lock) {
-      uiEventProcessed = false;
-    }
-    try {
-      Thread.sleep(1000);
-    } catch (InterruptedException e) {
-      // ignored
-    }
-  }
-
   /**
    * Called by subclasses to indicate that events were processed and to adjust the expected busy
-   * time.
+   * time. Called for every input event, so this does not block.
    */
   protected void markEventProcessed() {
     var currentTime = System.currentTimeMillis();
-    synchronized (lock) {
-      uiEventProcessed = true;
-      uiBusyUntil = Math.max(uiBusyUntil, currentTime + defaultExpectedDelay);
-    }
-  }
-
-  /**
-   * Called by subclasses to indicate that the UI thread was responsive for the current period of
-   * time.
-   */
-  protected void markUIThreadResponsive() {
-    synchronized (lock) {
-      uiThreadResponsive = true;
-    }
+    lastEventMillis = currentTime;
+    uiBusyUntil.accumulateAndGet(currentTime + defaultExpectedDelay, Math::max);
   }
 
   /**
@@ -396,14 +527,23 @@ public abstract class UIThreadMonitorCommon implements IUIThreadMonitor {
   protected abstract void removeEventListeners();
 
   /**
-   * Wait for up to one second to determine if the user interface thread is responsive and
-   * processing new events.
+   * Post the given heartbeat to be run on the user interface thread.
+   */
+  protected abstract void postHeartbeat(Runnable heartbeat);
+
+  /**
+   * Determine if the user interface thread is responsive, i.e. if no heartbeat has been pending for
+   * longer than one second.
    *
    * @return <code>true</code> if the user interface thread is responsive, or
-   * <code>false</code> if it has not processed any new events within the last
+   * <code>false</code> if it has not processed the pending heartbeat within the last
    * one second
    */
-  protected abstract boolean isUIThreadResponsive();
+  protected boolean isUIThreadResponsive() {
+    var posted = heartbeatPosted.get();
+    return posted == NONE
+        || System.nanoTime() - posted <= TimeUnit.MILLISECONDS.toNanos(RESPONSIVE_PERIOD);
+  }
 
   /**
    * Determine if the test has ended.
@@ -454,7 +594,7 @@ public abstract class UIThreadMonitorCommon implements IUIThreadMonitor {
     buf.append("UIThreadMonitor: ")
         .append(currentTime)
         .append(" ")
-        .append(uiBusyUntil)
+        .append(uiBusyUntil.get())
         .append(" ")
         .append(message);
     if (value != null) {
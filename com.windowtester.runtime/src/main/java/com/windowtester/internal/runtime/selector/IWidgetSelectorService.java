@@ -35,8 +35,8 @@ public interface IWidgetSelectorService {
   void set(Class<?> widgetClass, IWidgetSelectorDelegate selector);
 
   /**
-   * Get the widget selector associated with the given type.  If none has been registered, return
-   * <code>null</code>.
+   * Get the widget selector associated with the given type, or else with its closest supertype.  If
+   * none has been registered, return <code>null</code>.
    *
    * @param widgetClass the widget class in question
    * @return the associated widget selector (or <code>null</code>)
@@ -10,15 +10,19 @@
  *******************************************************************************/
 package com.windowtester.internal.runtime.selector;
 
+import abbot.util.ClassRegistry;
 import com.windowtester.runtime.IWidgetSelectorDelegate;
-import java.util.HashMap;
-import java.util.Map;
 
+/**
+ * Registry of selector delegates.  A widget class without a delegate of its own uses the one of its
+ * closest superclass or, failing that, of one of its interfaces.  Lookups are lock-free and may be
+ * made from any thread.
+ */
 public class WidgetSelectorService implements IWidgetSelectorService {
 
   private static final WidgetSelectorService INSTANCE = new WidgetSelectorService();
 
-  private final Map<Class<?>, IWidgetSelectorDelegate> map = new HashMap<>();
+  private final ClassRegistry<IWidgetSelectorDelegate> delegates = new ClassRegistry<>();
 
   private WidgetSelectorService() {
     // hide public constructor
@@ -26,12 +30,12 @@ public class WidgetSelectorService implements IWidgetSelectorService {
 
   @Override
   public void set(Class<?> widgetClass, IWidgetSelectorDelegate selector) {
-    map.put(widgetClass, selector);
+    delegates.register(widgetClass, selector);
   }
 
   @Override
   public IWidgetSelectorDelegate get(Class<?> widgetClass) {
-    return map.get(widgetClass);
+    return delegates.get(widgetClass);
   }
 
   public static IWidgetSelectorService getInstance() {
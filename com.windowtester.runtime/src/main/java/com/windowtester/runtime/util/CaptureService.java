@@ -0,0 +1,408 @@
+/*******************************************************************************
+ *  Copyright (c) 2012 Google, Inc.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  Contributors:
+ *  Google, Inc. - initial API and implementation
+ *******************************************************************************/
+package com.windowtester.runtime.util;
+
+import abbot.jfr.CaptureEvent;
+import abbot.util.Properties;
+import com.windowtester.internal.debug.LogHandler;
+import java.awt.AWTException;
+import java.awt.Rectangle;
+import java.awt.Robot;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.FileImageOutputStream;
+
+/**
+ * Grabs screen pixels on the calling thread and encodes them to PNG files on a small pool of
+ * background threads, so that a failing test is only held up for as long as the grab takes.
+ * <p>
+ * At most <code>windowtester.capture.queue_size</code> images (default 8) wait to be encoded by
+ * <code>windowtester.capture.encoders</code> threads (default 1). When the queue is full, the
+ * system property <code>windowtester.capture.drop_policy</code> decides what happens:
+ * <code>caller</code> (the default) encodes the new image on the calling thread,
+ * <code>oldest</code> drops the image which has waited longest, and <code>newest</code> drops the
+ * new one. A dropped image's file is reported as <code>null</code>.
+ * <p>
+ * The last <code>windowtester.capture.frames</code> frames (default 0, i.e. none) recorded with
+ * {@link #recordFrame(Supplier)} are kept in memory, and only encoded when they are flushed.
+ * <p>
+ * The paths of the last {@value #MAX_PATHS} files written are remembered, see {@link #getPaths()}.
+ */
+final class CaptureService {
+
+  enum DropPolicy {
+    CALLER,
+    OLDEST,
+    NEWEST
+  }
+
+  private static final int QUEUE_SIZE =
+      Properties.getProperty("windowtester.capture.queue_size", 8, 1, 1024);
+
+  private static final int ENCODERS =
+      Properties.getProperty("windowtester.capture.encoders", 1, 1, 16);
+
+  private static final int FRAMES = Properties.getProperty("windowtester.capture.frames", 0, 0, 256);
+
+  private static final DropPolicy DROP_POLICY =
+      getDropPolicy(System.getProperty("windowtester.capture.drop_policy"));
+
+  /**
+   * Seconds to wait at shutdown for queued images to be written.
+   */
+  private static final long SHUTDOWN_TIMEOUT = 10;
+
+  private static final String IMAGE_EXT = "png";
+
+  /**
+   * Number of file paths remembered.
+   */
+  static final int MAX_PATHS = 1000;
+
+  /**
+   * Deflate level 1 (the PNG writer uses level <code>9 - round(9 * quality)</code>): about twice as
+   * fast as the default level 4 for screen contents, for files which are a little larger.
+   */
+  private static final float COMPRESSION_QUALITY = 0.9f;
+
+  private static final class Holder {
+
+    private static final CaptureService INSTANCE = new CaptureService();
+  }
+
+  private record Frame(BufferedImage image, long millis) {}
+
+  private final class EncodeTask implements Runnable {
+
+    private final BufferedImage image;
+    private final File file;
+    private final CompletableFuture<File> result = new CompletableFuture<>();
+
+    private EncodeTask(BufferedImage image, File file) {
+      this.image = image;
+      this.file = file;
+    }
+
+    @Override
+    public void run() {
+      result.complete(write(image, file) ? file : null);
+    }
+
+    private void drop() {
+      LogHandler.log("Screen capture queue full, dropped " + file);
+      result.complete(null);
+    }
+  }
+
+  private final Robot robot = createRobot();
+  private final ThreadPoolExecutor encoders;
+  private final AtomicInteger counter = new AtomicInteger();
+  // guarded by paths
+  private final Deque<String> paths = new ArrayDeque<>();
+
+  // guarded by frames
+  private final Deque<Frame> frames = new ArrayDeque<>();
+
+  private CaptureService() {
+    var threads = new AtomicInteger();
+    encoders =
+        new ThreadPoolExecutor(
+            ENCODERS,
+            ENCODERS,
+            30,
+            TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(QUEUE_SIZE),
+            task -> {
+              var thread = new Thread(task, "Screen capture encoder " + threads.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            },
+            (task, executor) -> reject((EncodeTask) task, executor));
+    encoders.allowCoreThreadTimeOut(true);
+    // Encoders are daemons, so that they don't keep the VM alive, but the screenshots of a
+    // failing test are usually taken just before it exits
+    Runtime.getRuntime()
+        .addShutdownHook(new Thread(this::shutdown, "Screen capture encoder shutdown"));
+  }
+
+  static CaptureService getInstance() {
+    return Holder.INSTANCE;
+  }
+
+  static DropPolicy getDropPolicy(String value) {
+    if (value != null) {
+      try {
+        return DropPolicy.valueOf(value.trim().toUpperCase(Locale.ROOT));
+      } catch (IllegalArgumentException e) {
+        LogHandler.log("Unknown screen capture drop policy: " + value);
+      }
+    }
+    return DropPolicy.CALLER;
+  }
+
+  private static Robot createRobot() {
+    try {
+      return new Robot();
+    } catch (AWTException | SecurityException e) {
+      LogHandler.log(e);
+      return null;
+    }
+  }
+
+  /**
+   * Grab the given region of the screen, only asked for if it can be grabbed, and write it to a file with the given name in the
+   * background.
+   *
+   * @return a future completed with the file, or with <code>null</code> if the image could not be
+   * grabbed or written
+   */
+  CompletableFuture<File> capture(Supplier<Rectangle> bounds, String name) {
+    var image = grab(bounds);
+    if (image == null) {
+      return CompletableFuture.completedFuture(null);
+    }
+    return encode(image, getFile(name, "screenshot"));
+  }
+
+  /**
+   * Grab the given region of the screen into the frame buffer, dropping the oldest frame if the
+   * buffer is full.
+   *
+   * @return whether a frame was recorded; <code>false</code> if the buffer is disabled
+   */
+  boolean recordFrame(Supplier<Rectangle> bounds) {
+    if (FRAMES == 0) {
+      return false;
+    }
+    var image = grab(bounds);
+    if (image == null) {
+      return false;
+    }
+    synchronized (frames) {
+      if (frames.size() == FRAMES) {
+        frames.removeFirst();
+      }
+      frames.addLast(new Frame(image, System.currentTimeMillis()));
+    }
+    return true;
+  }
+
+  /**
+   * Write the buffered frames to files with the given name in the background, oldest first, and
+   * empty the buffer.
+   *
+   * @return a future completed with the files written
+   */
+  CompletableFuture<List<File>> flushFrames(String name) {
+    List<Frame> flushed;
+    synchronized (frames) {
+      flushed = new ArrayList<>(frames);
+      frames.clear();
+    }
+    List<CompletableFuture<File>> files = new ArrayList<>(flushed.size());
+    for (var frame : flushed) {
+      files.add(encode(frame.image(), getFile(name, "frame_" + frame.millis())));
+    }
+    return CompletableFuture.allOf(files.toArray(CompletableFuture[]::new))
+        .thenApply(
+            ignored -> files.stream().map(CompletableFuture::join).filter(Objects::nonNull).toList());
+  }
+
+  /**
+   * Drop the buffered frames.
+   *
+   * @return whether there were any
+   */
+  boolean discardFrames() {
+    synchronized (frames) {
+      var any = !frames.isEmpty();
+      frames.clear();
+      return any;
+    }
+  }
+
+  List<String> getPaths() {
+    synchronized (paths) {
+      return List.copyOf(paths);
+    }
+  }
+
+  void clearPaths() {
+    synchronized (paths) {
+      paths.clear();
+    }
+  }
+
+  /**
+   * Grab the given region of the screen on the calling thread.
+   *
+   * @return the image, or <code>null</code> if it could not be grabbed
+   */
+  BufferedImage grab(Supplier<Rectangle> bounds) {
+    if (robot == null) {
+      return null;
+    }
+    var region = bounds.get();
+    if (region == null || region.isEmpty()) {
+      return null;
+    }
+    for (int i = 0; i < ScreenCapture.MAX_CAPTURE_RETRIES; ++i) {
+      try {
+        var event = new CaptureEvent();
+        event.begin();
+        var image = robot.createScreenCapture(region);
+        if (event.shouldCommit()) {
+          event.phase = CaptureEvent.GRAB;
+          event.width = region.width;
+          event.height = region.height;
+          event.commit();
+        }
+        return image;
+      } catch (OutOfMemoryError e) {
+        LogHandler.log("OutOfMemoryError caught in screen capture (attempt [" + i + "])");
+        // Buffered frames and queued images are what this holds on to; once they are gone,
+        // waiting won't free any memory for the next attempt
+        if (!release()) {
+          break;
+        }
+      }
+    }
+    LogHandler.log("Screen Capture failed");
+    return null;
+  }
+
+  private boolean release() {
+    var released = discardFrames();
+    List<Runnable> queued = new ArrayList<>();
+    encoders.getQueue().drainTo(queued);
+    for (var task : queued) {
+      ((EncodeTask) task).drop();
+    }
+    return released || !queued.isEmpty();
+  }
+
+  private CompletableFuture<File> encode(BufferedImage image, File file) {
+    var task = new EncodeTask(image, file);
+    encoders.execute(task);
+    return task.result;
+  }
+
+  private void reject(EncodeTask task, ThreadPoolExecutor executor) {
+    if (executor.isShutdown()) {
+      task.run();
+      return;
+    }
+    switch (DROP_POLICY) {
+      case CALLER -> task.run();
+      case NEWEST -> task.drop();
+      case OLDEST -> {
+        var oldest = (EncodeTask) executor.getQueue().poll();
+        if (oldest != null) {
+          oldest.drop();
+        }
+        executor.execute(task);
+      }
+    }
+  }
+
+  private void shutdown() {
+    encoders.shutdown();
+    try {
+      if (!encoders.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS)) {
+        LogHandler.log("Screen captures still being written at shutdown");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private File getFile(String name, String kind) {
+    return new File(
+        ScreenCapture.getOutputLocation()
+            + name
+            + "_"
+            + kind
+            + "_"
+            + counter.getAndIncrement()
+            + "."
+            + IMAGE_EXT);
+  }
+
+  /**
+   * Write the given image to the given file on the calling thread.
+   *
+   * @return whether the file was written
+   */
+  boolean write(BufferedImage image, File file) {
+    var dir = file.getParentFile();
+    if (dir != null && !dir.exists()) {
+      dir.mkdirs();
+    }
+    var event = new CaptureEvent();
+    event.begin();
+    ImageWriter writer = ImageIO.getImageWritersByFormatName(IMAGE_EXT).next();
+    try (var out = new FileImageOutputStream(file)) {
+      var param = writer.getDefaultWriteParam();
+      param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+      param.setCompressionQuality(COMPRESSION_QUALITY);
+      writer.setOutput(out);
+      writer.write(null, new IIOImage(image, null, null), param);
+    } catch (IOException e) {
+      LogHandler.log(e);
+      return false;
+    } finally {
+      writer.dispose();
+    }
+    if (event.shouldCommit()) {
+      event.phase = CaptureEvent.ENCODE;
+      event.width = image.getWidth();
+      event.height = image.getHeight();
+      event.file = file.getPath();
+      event.commit();
+    }
+    recordPath(file);
+    return true;
+  }
+
+  private void recordPath(File file) {
+    var path = file.getAbsolutePath();
+    synchronized (paths) {
+      if (paths.size() == MAX_PATHS) {
+        paths.removeFirst();
+      }
+      paths.addLast(path);
+      // Only kept up to date for whoever asked for it by setting it
+      var property = System.getProperty(ScreenCapture.WINDOW_TESTER_SCREEN_CAPTURE_PATHS_KEY);
+      if (property != null) {
+        System.setProperty(
+            ScreenCapture.WINDOW_TESTER_SCREEN_CAPTURE_PATHS_KEY,
+            property.isEmpty() ? path : property + "," + path);
+      }
+    }
+  }
+}
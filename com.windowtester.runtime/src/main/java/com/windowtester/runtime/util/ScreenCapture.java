@@ -10,25 +10,34 @@
  *******************************************************************************/
 package com.windowtester.runtime.util;
 
-import com.windowtester.internal.debug.LogHandler;
-import java.awt.AWTException;
+import java.awt.Component;
+import java.awt.IllegalComponentStateException;
 import java.awt.Rectangle;
-import java.awt.Robot;
 import java.awt.Toolkit;
 import java.awt.image.BufferedImage;
 import java.io.File;
-import java.io.IOException;
 import java.nio.file.FileSystems;
-import javax.imageio.ImageIO;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Dumps a <em>png</em> of the current screen in the standard "wintest" output directory (as defined
- * by {@link ScreenCapture#getOutputLocation()}). Since taking screen shots consumes considerable
- * resources, heap limits may be exceeded during a capture.  To address this,
- * {@link OutOfMemoryError}s are caught in the default handler implementation and the capture
- * retried after a short interval ({@link ScreenCapture#CAPTURE_RETRY_INTERVAL}).  The number of
+ * by {@link ScreenCapture#getOutputLocation()}). The screen is grabbed on the calling thread, and
+ * encoded on a background thread; see {@link #createScreenCaptureAsync(String)}. Since taking
+ * screen shots consumes considerable resources, heap limits may be exceeded during a capture.  To
+ * address this, {@link OutOfMemoryError}s are caught in the default handler implementation, and
+ * the capture retried after releasing the frames and queued images held in memory.  The number of
  * retries is bounded by {@link ScreenCapture#MAX_CAPTURE_RETRIES}.
  * <p>
+ * Regions of the screen and single components may be captured with
+ * {@link #createScreenCapture(Rectangle, String)} and
+ * {@link #createScreenCapture(Component, String)}.
+ * <p>
+ * If the system property <code>windowtester.capture.frames</code> is set to a positive number,
+ * that many of the frames recorded by {@link #recordFrame()} are kept in memory, to be written by
+ * {@link #flushFrames(String)} when a test fails, or dropped by {@link #discardFrames()} when it
+ * passes.
+ * <p>
  * Screen capture behavior can be specialized:
  *
  * <p>
@@ -52,33 +61,19 @@ import javax.imageio.ImageIO;
 public class ScreenCapture {
 
   public static final int MAX_CAPTURE_RETRIES = 5;
+
+  /**
+   * @deprecated captures are retried as soon as memory has been released
+   */
+  @Deprecated
   public static final int CAPTURE_RETRY_INTERVAL = 3000;
 
-  private static final String WINDOW_TESTER_SCREEN_CAPTURE_PATHS_KEY =
-      "WindowTesterScreenCapturePaths";
-  private static final String BASE_IMAGE_NAME = "screenshot";
-  // best format for ui graphics
-  private static final String IMAGE_EXT = "png";
+  static final String WINDOW_TESTER_SCREEN_CAPTURE_PATHS_KEY = "WindowTesterScreenCapturePaths";
 
   private static final String PATH_DELIM = FileSystems.getDefault().getSeparator();
 
   // TODO: make this use configurable
-  private static String outputDir = "wintest";
-
-  // increment counter for unique screenshot file names
-  // on a per-run basis
-  private static int counter = 0;
-
-  // keep a static Robot around to do the screen capture
-  private static Robot robot;
-
-  static {
-    try {
-      robot = new Robot();
-    } catch (AWTException e) {
-      LogHandler.log(e);
-    }
-  }
+  private static volatile String outputDir = "wintest";
 
   /**
    * A user-defined screen capture strategy.
@@ -101,74 +96,46 @@ public class ScreenCapture {
      * files will be overwritten.
      * <p>
      * The name parameter will be used as a prefix for the name of the produced image.
-     * <p>
-     * TODO parameterize the image file location
      *
      * @return the file into which the image was stored, or <code>null</code> if the image could not
      * be stored.
      */
     @Override
     public File createScreenCapture(String name) {
-      var image = captureScreen();
-      if (image == null) {
-        return null;
-      }
-
-      var path =
-          getOutputLocation() + name + "_" + BASE_IMAGE_NAME + "_" + counter++ + "." + IMAGE_EXT;
-      var file = new File(path);
-      return createScreenCaptureFile(image, file);
+      return captureScreen(name).join();
+    }
+
+    static CompletableFuture<File> captureScreen(String name) {
+      return CaptureService.getInstance().capture(ScreenCapture::getScreenBounds, name);
     }
 
+    /**
+     * Grab the whole screen on the calling thread.
+     *
+     * @return the image, or <code>null</code> if it could not be grabbed
+     * @deprecated use {@link ScreenCapture#createScreenCaptureAsync(String)}, which writes the
+     * image in the background
+     */
+    @Deprecated
     public static BufferedImage captureScreen() {
-      // determine current screen size
-      var toolkit = Toolkit.getDefaultToolkit();
-      var screenSize = toolkit.getScreenSize();
-      var screenRect = new Rectangle(screenSize);
-
-      for (int i = 0; i < MAX_CAPTURE_RETRIES; ++i) {
-        try {
-          return robot.createScreenCapture(screenRect);
-        } catch (OutOfMemoryError e) {
-          LogHandler.log("OutOfMemoryError caught in screen capture (attempt [" + i + "])");
-          try {
-            Thread.sleep(CAPTURE_RETRY_INTERVAL);
-          } catch (InterruptedException e1) {
-            // do nothing
-          }
-        }
-      }
-      LogHandler.log("Screen Capture failed");
-      return null;
+      return CaptureService.getInstance().grab(ScreenCapture::getScreenBounds);
     }
 
+    /**
+     * Write the given image to the given PNG file on the calling thread.
+     *
+     * @return the file, or <code>null</code> if it could not be written
+     * @deprecated use {@link ScreenCapture#createScreenCaptureAsync(String)}, which writes the
+     * image in the background
+     */
+    @Deprecated
     public static File createScreenCaptureFile(BufferedImage image, File outputFile) {
-      try {
-        ensureOutputDirExists();
-        // save captured image to PNG file
-        ImageIO.write(image, IMAGE_EXT, outputFile);
-      } catch (IOException e) {
-        LogHandler.log(e);
-        return null;
-      }
-
-      var paths = System.getProperty(WINDOW_TESTER_SCREEN_CAPTURE_PATHS_KEY);
-      if (paths != null) {
-        if (!paths.isEmpty()) {
-          paths += ",";
-        }
-        paths += outputFile.getAbsolutePath();
-        System.setProperty(WINDOW_TESTER_SCREEN_CAPTURE_PATHS_KEY, paths);
-      }
-      return outputFile;
+      return CaptureService.getInstance().write(image, outputFile) ? outputFile : null;
     }
   }
 
-  private static void ensureOutputDirExists() {
-    var dir = new File(outputDir);
-    if (!dir.exists()) {
-      dir.mkdir();
-    }
+  private static Rectangle getScreenBounds() {
+    return new Rectangle(Toolkit.getDefaultToolkit().getScreenSize());
   }
 
   /**
@@ -178,7 +145,7 @@ public class ScreenCapture {
     return outputDir + PATH_DELIM;
   }
 
-  private static IScreenCaptureHandler handler;
+  private static volatile IScreenCaptureHandler handler;
 
   private static IScreenCaptureHandler getDefaultHandler() {
     return new DefaultScreenCaptureHandler();
@@ -227,6 +194,94 @@ public class ScreenCapture {
     return getHandler().createScreenCapture(name);
   }
 
+  /**
+   * Grab the screen pixels, and save them as a PNG image file in the background (see
+   * {@link #createScreenCapture(String)}). A user-defined handler is called on this thread.
+   *
+   * @return a future completed with the file into which the image was stored, or with
+   * <code>null</code> if the image could not be stored.
+   */
+  public static CompletableFuture<File> createScreenCaptureAsync(String name) {
+    var current = getHandler();
+    if (current instanceof DefaultScreenCaptureHandler) {
+      return DefaultScreenCaptureHandler.captureScreen(name);
+    }
+    return CompletableFuture.completedFuture(current.createScreenCapture(name));
+  }
+
+  /**
+   * Grab the pixels of the given region of the screen, and save them as a PNG image file in the
+   * background.
+   *
+   * @return a future completed with the file into which the image was stored, or with
+   * <code>null</code> if the image could not be stored.
+   */
+  public static CompletableFuture<File> createScreenCapture(Rectangle bounds, String name) {
+    return CaptureService.getInstance().capture(() -> bounds, name);
+  }
+
+  /**
+   * Grab the pixels of the given component, e.g. a window, as currently shown on the screen, and
+   * save them as a PNG image file in the background.
+   *
+   * @return a future completed with the file into which the image was stored, or with
+   * <code>null</code> if the component is not showing or the image could not be stored.
+   */
+  public static CompletableFuture<File> createScreenCapture(Component component, String name) {
+    return CaptureService.getInstance().capture(() -> getBounds(component), name);
+  }
+
+  private static Rectangle getBounds(Component component) {
+    try {
+      return new Rectangle(component.getLocationOnScreen(), component.getSize());
+    } catch (IllegalComponentStateException e) {
+      // not showing
+      return null;
+    }
+  }
+
+  /**
+   * Keep the current screen pixels in memory, dropping the oldest frame kept if there are already
+   * <code>windowtester.capture.frames</code>.
+   *
+   * @return whether a frame was recorded; <code>false</code> if no frames are kept
+   */
+  public static boolean recordFrame() {
+    return CaptureService.getInstance().recordFrame(ScreenCapture::getScreenBounds);
+  }
+
+  /**
+   * Save the frames kept in memory as PNG image files in the background, oldest first, and forget
+   * them.
+   *
+   * @return a future completed with the files into which the frames were stored
+   */
+  public static CompletableFuture<List<File>> flushFrames(String name) {
+    return CaptureService.getInstance().flushFrames(name);
+  }
+
+  /**
+   * Forget the frames kept in memory.
+   */
+  public static void discardFrames() {
+    CaptureService.getInstance().discardFrames();
+  }
+
+  /**
+   * Get the absolute paths of the last image files stored, at most 1000, in the order they were
+   * stored.
+   */
+  public static List<String> getCapturePaths() {
+    return CaptureService.getInstance().getPaths();
+  }
+
+  /**
+   * Forget the paths of the image files stored so far.
+   */
+  public static void clearCapturePaths() {
+    CaptureService.getInstance().clearPaths();
+  }
+
   private static IScreenCaptureHandler getHandler() {
     if (handler == null) {
       handler = getDefaultHandler();
@@ -10,6 +10,8 @@
  *******************************************************************************/
 package com.windowtester.runtime.util;
 
+import abbot.util.PatternCache;
+
 /**
  * The String comparison algorithm used in widget text matching.
  * <br><br>
@@ -82,7 +84,7 @@ public class StringComparator {
       return true;
     } else {
       try {
-        return string.matches(stringOrPattern);
+        return PatternCache.getDefault().matches(stringOrPattern, string);
       } catch (java.util.regex.PatternSyntaxException e) {
         // do nothing
       }
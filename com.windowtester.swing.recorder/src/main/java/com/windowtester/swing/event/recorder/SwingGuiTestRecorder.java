@@ -40,6 +40,14 @@ public class SwingGuiTestRecorder implements IEventRecorder {
   // the listener
   private static final EventNormalizer normalizer = new EventNormalizer();
 
+  private final SingleThreadedEventListener eventListener =
+      new SingleThreadedEventListener() {
+        @Override
+        protected void processEvent(AWTEvent event) {
+          startRecordingEvent(event);
+        }
+      };
+
   /**
    * Create an instance
    */
@@ -134,14 +142,15 @@ public class SwingGuiTestRecorder implements IEventRecorder {
    * start listening for events
    */
   private void startListening() {
-    normalizer.startListening(
-        new SingleThreadedEventListener() {
-          @Override
-          protected void processEvent(AWTEvent event) {
-            startRecordingEvent(event);
-          }
-        },
-        FIXTURE_EVENT_MASK);
+    normalizer.startListening(eventListener, FIXTURE_EVENT_MASK);
+  }
+
+  /**
+   * Returns the listener passing AWT events to the recorder on the event dispatch thread, e.g. to
+   * monitor how many events are waiting for it.
+   */
+  public SingleThreadedEventListener getEventListener() {
+    return eventListener;
   }
 
   /**
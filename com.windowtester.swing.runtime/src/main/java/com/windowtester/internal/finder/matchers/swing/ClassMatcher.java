@@ -10,13 +10,16 @@
  *******************************************************************************/
 package com.windowtester.internal.finder.matchers.swing;
 
+import abbot.finder.ComponentIndex;
+import abbot.finder.IndexedMatcher;
 import abbot.finder.matchers.AbstractMatcher;
 import java.awt.Component;
+import java.util.Collection;
 
 /**
  * Provides matching of components by class.
  */
-public class ClassMatcher extends AbstractMatcher {
+public class ClassMatcher extends AbstractMatcher implements IndexedMatcher {
   private final Class cls;
 
   public ClassMatcher(Class cls) {
@@ -35,6 +38,11 @@ public class ClassMatcher extends AbstractMatcher {
     return cls.isAssignableFrom(component.getClass());
   }
 
+  @Override
+  public Collection<Component> getCandidates(ComponentIndex index) {
+    return cls != null ? index.getByClass(cls) : null;
+  }
+
   public String toString() {
     return "Class matcher (" + cls.getName() + ")";
   }
@@ -10,9 +10,12 @@
  *******************************************************************************/
 package com.windowtester.internal.finder.matchers.swing;
 
+import abbot.finder.ComponentIndex;
+import abbot.finder.IndexedMatcher;
 import abbot.finder.Matcher;
 import abbot.finder.matchers.AbstractMatcher;
 import java.awt.Component;
+import java.util.Collection;
 
 /**
  * This matcher does not have anything to do with org.eclipse.swt.widgets.Composite; rather, it allows searches for
@@ -20,7 +23,7 @@ import java.awt.Component;
  * CompositeMatcher if and only if the widget matches in all of the component matchers.  Nulls in the array of matchers
  * are ignored
  */
-public class CompositeMatcher extends AbstractMatcher {
+public class CompositeMatcher extends AbstractMatcher implements IndexedMatcher {
   private final Matcher[] matchers;
 
   public CompositeMatcher(Matcher[] matchers) {
@@ -41,6 +44,23 @@ public class CompositeMatcher extends AbstractMatcher {
     return result;
   }
 
+  /**
+   * Since all matchers must match, the smallest candidate set of any of them will do.
+   */
+  @Override
+  public Collection<Component> getCandidates(ComponentIndex index) {
+    Collection<Component> candidates = null;
+    for (Matcher matcher : matchers) {
+      if (matcher instanceof IndexedMatcher indexedMatcher) {
+        var current = indexedMatcher.getCandidates(index);
+        if (current != null && (candidates == null || current.size() < candidates.size())) {
+          candidates = current;
+        }
+      }
+    }
+    return candidates;
+  }
+
   public String toString() {
     StringBuffer buffer = new StringBuffer();
     buffer.append("Composite matcher with " + matchers.length + " component matchers:\n");
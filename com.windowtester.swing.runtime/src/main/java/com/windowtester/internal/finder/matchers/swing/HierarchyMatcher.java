@@ -10,10 +10,13 @@
  *******************************************************************************/
 package com.windowtester.internal.finder.matchers.swing;
 
+import abbot.finder.ComponentIndex;
+import abbot.finder.IndexedMatcher;
 import abbot.finder.Matcher;
 import abbot.finder.matchers.ClassMatcher;
 import com.windowtester.internal.swing.WidgetLocatorService;
 import java.awt.Component;
+import java.util.Collection;
 import javax.swing.JPopupMenu;
 
 /**
@@ -54,7 +57,7 @@ import javax.swing.JPopupMenu;
  * constructs like this <code>new HierarchyMatcher(Text.class, Group.class)</code> (or possibly like
  * this <code>new HierarchyMatcher(Text.class, -1, Group.class)</code>).
  */
-public final class HierarchyMatcher implements Matcher {
+public final class HierarchyMatcher implements IndexedMatcher {
 
   /**
    * A matcher composed of target class and name info
@@ -77,6 +80,11 @@ public final class HierarchyMatcher implements Matcher {
    */
   private static final int DEFAULT_INDEX = -1;
 
+  /**
+   * Used to compute indexes; it holds no state of its own, so it is shared.
+   */
+  private static final WidgetLocatorService INFO_SERVICE = new WidgetLocatorService();
+
   ///////////////////////////////////////////////////////////////////////////////////////////////////
   //
   // Constructors
@@ -170,7 +178,6 @@ public final class HierarchyMatcher implements Matcher {
     }
 
     var matches = false;
-    var infoService = new WidgetLocatorService();
 
     Component parent = component.getParent();
     // If parent is  a JPopupMenu, get the parent menu
@@ -184,12 +191,20 @@ public final class HierarchyMatcher implements Matcher {
 
     if (parent != null && matcher.matches(component)
         && parentMatcher != null && parentMatcher.matches(parent)) {
-      int indexRelativeToParent = infoService.getIndex(component, parent);
+      int indexRelativeToParent = INFO_SERVICE.getIndex(component, parent);
       matches = indexRelativeToParent == index;
     }
     return matches;
   }
 
+  @Override
+  public Collection<Component> getCandidates(ComponentIndex index) {
+    // every match must match the target matcher
+    return matcher instanceof IndexedMatcher indexedMatcher
+        ? indexedMatcher.getCandidates(index)
+        : null;
+  }
+
   ///////////////////////////////////////////////////////////////////////////////////////////////////
   //
   // Accessors
@@ -203,6 +218,13 @@ public final class HierarchyMatcher implements Matcher {
     return matcher;
   }
 
+  /**
+   * Get the index of the target relative to its parent, or -1 if unspecified.
+   */
+  public int getIndex() {
+    return index;
+  }
+
   /**
    * Get the matcher identifying the parent of the target of this match.
    */
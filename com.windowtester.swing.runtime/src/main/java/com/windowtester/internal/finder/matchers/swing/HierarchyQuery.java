@@ -0,0 +1,301 @@
+/*******************************************************************************
+ *  Copyright (c) 2012 Google, Inc.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  Contributors:
+ *  Google, Inc. - initial API and implementation
+ *******************************************************************************/
+package com.windowtester.internal.finder.matchers.swing;
+
+import abbot.finder.ComponentIndex;
+import abbot.finder.Hierarchy;
+import abbot.finder.IndexedMatcher;
+import abbot.finder.Matcher;
+import com.windowtester.internal.finder.swing.HierarchyWalker;
+import com.windowtester.internal.runtime.matcher.AdapterFactory;
+import com.windowtester.internal.swing.WidgetLocatorService;
+import com.windowtester.runtime.swing.SwingWidgetLocator;
+import java.awt.Component;
+import java.awt.Container;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.swing.JPopupMenu;
+
+/**
+ * A query plan for a chain of {@link HierarchyMatcher}s, to be used for a single find.
+ * <p>
+ * A hierarchy matcher evaluates its chain bottom-up: every candidate re-runs all of its parent
+ * matchers and recomputes its index among its siblings.  A query instead resolves the outermost
+ * parent matcher first and then only looks at the children of the components matched at each
+ * level, see {@link #findAll}.  Used as a plain {@link Matcher}, it still matches bottom-up, but
+ * remembers the result of every level for every component it has seen.
+ * <p>
+ * In either case sibling indexes are computed once per parent and the components' text is only
+ * read once.  Since results are remembered, a query is only valid as long as the hierarchy does not
+ * change; create a new one for every find.
+ */
+public final class HierarchyQuery implements IndexedMatcher {
+
+  /**
+   * Locator classes which match using their matcher, i.e. which don't override
+   * {@link SwingWidgetLocator#matches(Object)}.
+   */
+  private static final ClassValue<Boolean> DELEGATING_LOCATORS =
+      new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+          try {
+            return type.getMethod("matches", Object.class).getDeclaringClass()
+                == SwingWidgetLocator.class;
+          } catch (NoSuchMethodException e) {
+            return false;
+          }
+        }
+      };
+
+  /**
+   * A level of the chain: a target matcher and the target's index relative to its parent.
+   */
+  private record Step(Matcher matcher, int index) {}
+
+  private final Matcher root;
+  private final Step[] steps;
+  private final List<Map<Component, Boolean>> results = new ArrayList<>();
+  private final SiblingIndex siblings = new SiblingIndex();
+  private final boolean counting;
+
+  private HierarchyQuery(Matcher root, List<Step> steps) {
+    this.root = root;
+    this.steps = steps.toArray(new Step[0]);
+    counting =
+        root instanceof IndexMatcher
+            || steps.stream().anyMatch(step -> step.matcher() instanceof IndexMatcher);
+    for (int i = 0; i <= this.steps.length; i++) {
+      results.add(new IdentityHashMap<>());
+    }
+  }
+
+  /**
+   * Create a query for the given matcher.
+   *
+   * @return a query, or <code>null</code> if the matcher is not a hierarchy matcher with a parent
+   * matcher
+   */
+  public static HierarchyQuery create(Matcher matcher) {
+    var steps = new ArrayList<Step>();
+    var current = unwrap(matcher);
+    while (current instanceof HierarchyMatcher hierarchyMatcher
+        && hierarchyMatcher.getParentMatcher() != null) {
+      var target = unwrap(hierarchyMatcher.getTargetMatcher());
+      steps.add(0, new Step(target, hierarchyMatcher.getIndex()));
+      current = unwrap(hierarchyMatcher.getParentMatcher());
+    }
+    return steps.isEmpty() ? null : new HierarchyQuery(current, steps);
+  }
+
+  /**
+   * Returns a query for the given matcher if it is a hierarchy matcher, or the matcher itself.
+   */
+  public static Matcher optimize(Matcher matcher) {
+    var query = create(matcher);
+    return query != null ? query : matcher;
+  }
+
+  /**
+   * Strip adapters and plain locators, which only delegate to the matcher they wrap.
+   */
+  private static Matcher unwrap(Matcher matcher) {
+    var adapters = new AdapterFactory();
+    while (true) {
+      var widgetMatcher = adapters.getAdaptee(matcher);
+      if (widgetMatcher instanceof SwingWidgetLocator locator
+          && DELEGATING_LOCATORS.get(locator.getClass())
+          && locator.getMatcher() != null) {
+        widgetMatcher = locator.getMatcher();
+      }
+      var adaptee = widgetMatcher != null ? adapters.getAdaptee(widgetMatcher) : null;
+      if (adaptee == null) {
+        return matcher;
+      }
+      matcher = adaptee;
+    }
+  }
+
+  /**
+   * Find the components matching this query which are reachable from the given roots, in the order
+   * in which they are reached, see {@link HierarchyWalker}.
+   * <p>
+   * The hierarchy is walked once to collect the matches of the outermost parent matcher and the
+   * children of every component.  Each further level of the chain is then matched against the
+   * children of the previous level's matches only.  Components whose parent was not reached from
+   * the roots are matched bottom-up.
+   * <p>
+   * An {@link IndexMatcher} counts the matches it has seen, so a chain containing one is matched
+   * bottom-up against every component in the order of the walk, like a plain hierarchy matcher.
+   *
+   * @param hierarchy the hierarchy to walk
+   * @param roots     the components to start from
+   * @param found     receives the matching components
+   * @return the number of components visited
+   */
+  public int findAll(
+      Hierarchy hierarchy, Collection<? extends Component> roots, Collection<Component> found) {
+    if (counting) {
+      return HierarchyWalker.walk(
+          hierarchy,
+          roots,
+          component -> {
+            if (matches(steps.length, component)) {
+              found.add(component);
+            }
+          });
+    }
+
+    Map<Component, Integer> order = new IdentityHashMap<>();
+    Map<Component, List<Component>> children = new IdentityHashMap<>();
+    var outermost = new ArrayList<Component>();
+    HierarchyWalker.walk(
+        hierarchy,
+        roots,
+        component -> {
+          order.put(component, order.size());
+          children.computeIfAbsent(getParent(component), key -> new ArrayList<>()).add(component);
+          if (matches(0, component)) {
+            outermost.add(component);
+          }
+        });
+
+    // components without a parent in the walk are matched bottom-up
+    var detached = new ArrayList<Component>();
+    children.forEach(
+        (parent, list) -> {
+          if (parent == null || !order.containsKey(parent)) {
+            detached.addAll(list);
+          }
+        });
+
+    List<Component> current = outermost;
+    for (int level = 1; level <= steps.length; level++) {
+      var next = new ArrayList<Component>();
+      for (Component parent : current) {
+        for (Component child : children.getOrDefault(parent, List.of())) {
+          if (matches(level, child)) {
+            next.add(child);
+          }
+        }
+      }
+      for (Component component : detached) {
+        if (matches(level, component)) {
+          next.add(component);
+        }
+      }
+      current = next;
+    }
+
+    current.sort(Comparator.comparing(order::get));
+    found.addAll(current);
+    return order.size();
+  }
+
+  @Override
+  public boolean matches(Component component) {
+    return component != null && matches(steps.length, component);
+  }
+
+  private boolean matches(int level, Component component) {
+    var memo = results.get(level);
+    var result = memo.get(component);
+    if (result == null) {
+      result = evaluate(level, component);
+      memo.put(component, result);
+    }
+    return result;
+  }
+
+  /**
+   * Same as {@link HierarchyMatcher#matches}, with the parent chain resolved from memo.
+   */
+  private boolean evaluate(int level, Component component) {
+    if (level == 0) {
+      return root.matches(component);
+    }
+    var step = steps[level - 1];
+    if (!step.matcher().matches(component)) {
+      return false;
+    }
+    var parent = getParent(component);
+    return parent == null
+        || matches(level - 1, parent) && siblings.getIndex(component, parent) == step.index();
+  }
+
+  /**
+   * The parent as seen by {@link HierarchyMatcher}: the invoker of popup menus stands in for the
+   * menu itself.
+   */
+  private static Component getParent(Component component) {
+    Component parent = component.getParent();
+    if (parent instanceof JPopupMenu popupMenu) {
+      parent = popupMenu.getInvoker();
+    }
+    return parent;
+  }
+
+  @Override
+  public Collection<Component> getCandidates(ComponentIndex index) {
+    var target = steps[steps.length - 1].matcher();
+    return target instanceof IndexedMatcher indexedMatcher
+        ? indexedMatcher.getCandidates(index)
+        : null;
+  }
+
+  @Override
+  public String toString() {
+    return "Hierarchy query (" + root + ", " + List.of(steps) + ")";
+  }
+
+  /**
+   * Indexes of components among their siblings, as defined by
+   * {@link WidgetLocatorService#getIndex}, computed once for all children of a parent.
+   */
+  private static class SiblingIndex {
+
+    private final WidgetLocatorService infoService = new WidgetLocatorService();
+    private final Map<Component, Map<Component, Integer>> indexes = new IdentityHashMap<>();
+
+    int getIndex(Component component, Component parent) {
+      return indexes.computeIfAbsent(parent, this::computeIndexes).getOrDefault(component, -1);
+    }
+
+    private Map<Component, Integer> computeIndexes(Component parent) {
+      Map<Component, Integer> result = new IdentityHashMap<>();
+      if (!(parent instanceof Container container)) {
+        return result;
+      }
+      // children of the exact same class and text are told apart by their position
+      Map<Class<?>, Map<String, List<Component>>> groups = new LinkedHashMap<>();
+      for (Component child : container.getComponents()) {
+        groups
+            .computeIfAbsent(child.getClass(), key -> new HashMap<>())
+            .computeIfAbsent(infoService.getWidgetText(child), key -> new ArrayList<>())
+            .add(child);
+      }
+      for (Map<String, List<Component>> byText : groups.values()) {
+        for (List<Component> group : byText.values()) {
+          for (int i = 0; i < group.size(); i++) {
+            result.put(group.get(i), group.size() > 1 ? i : -1);
+          }
+        }
+      }
+      return result;
+    }
+  }
+}
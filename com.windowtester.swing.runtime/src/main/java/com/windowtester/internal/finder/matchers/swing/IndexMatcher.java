@@ -31,13 +31,14 @@ public class IndexMatcher implements Matcher {
     if (_matcher.matches(component)) {
       _current++;
       Log.debug(
-          "Found match for matcher:\n"
-              + _matcher
-              + "\n Must check index:["
-              + _current
-              + "=="
-              + _index
-              + "]");
+          () ->
+              "Found match for matcher:\n"
+                  + _matcher
+                  + "\n Must check index:["
+                  + _current
+                  + "=="
+                  + _index
+                  + "]");
       if (_current == _index) {
         matches = true;
       }
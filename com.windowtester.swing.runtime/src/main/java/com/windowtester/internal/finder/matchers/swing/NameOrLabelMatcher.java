@@ -10,9 +10,13 @@
  *******************************************************************************/
 package com.windowtester.internal.finder.matchers.swing;
 
+import abbot.finder.ComponentIndex;
+import abbot.finder.IndexedMatcher;
 import abbot.finder.matchers.AbstractMatcher;
 import abbot.finder.matchers.NameMatcher;
 import java.awt.Component;
+import java.util.Collection;
+import java.util.HashSet;
 
 /***
  * Provides matching with either name or label
@@ -22,7 +26,7 @@ import java.awt.Component;
  * for example, to the human-readable text in a button).
  */
 
-public class NameOrLabelMatcher extends AbstractMatcher {
+public class NameOrLabelMatcher extends AbstractMatcher implements IndexedMatcher {
 
   /**
    * The name matcher for matching on names
@@ -82,6 +86,18 @@ public class NameOrLabelMatcher extends AbstractMatcher {
     }
   }
 
+  @Override
+  public Collection<Component> getCandidates(ComponentIndex index) {
+    var byName = nameMatcher.getCandidates(index);
+    var byLabel = labelMatcher.getCandidates(index);
+    if (byName == null || byLabel == null) {
+      return null;
+    }
+    var candidates = new HashSet<Component>(byName);
+    candidates.addAll(byLabel);
+    return candidates;
+  }
+
   @Override
   public String toString() {
     return "Name Or Label matcher (" + labelMatcher.getText() + ")";
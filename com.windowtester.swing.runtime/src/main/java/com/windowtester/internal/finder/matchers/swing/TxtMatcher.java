@@ -10,6 +10,8 @@
  *******************************************************************************/
 package com.windowtester.internal.finder.matchers.swing;
 
+import abbot.finder.ComponentIndex;
+import abbot.finder.IndexedMatcher;
 import abbot.finder.matchers.AbstractMatcher;
 import java.awt.Button;
 import java.awt.Checkbox;
@@ -18,10 +20,11 @@ import java.awt.Dialog;
 import java.awt.Frame;
 import java.awt.Label;
 import java.awt.TextComponent;
+import java.util.Collection;
 import javax.swing.AbstractButton;
 import javax.swing.JLabel;
 
-public class TxtMatcher extends AbstractMatcher {
+public class TxtMatcher extends AbstractMatcher implements IndexedMatcher {
 
   private final String text;
   private String componentText = null;
@@ -78,6 +81,11 @@ public class TxtMatcher extends AbstractMatcher {
     return stringsMatch(text, componentText);
   }
 
+  @Override
+  public Collection<Component> getCandidates(ComponentIndex index) {
+    return text != null ? index.getByLabel(text) : null;
+  }
+
   /**
    * Retrieve the text of this matcher.
    *
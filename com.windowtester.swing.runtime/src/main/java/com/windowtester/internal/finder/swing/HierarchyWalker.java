@@ -0,0 +1,72 @@
+/*******************************************************************************
+ *  Copyright (c) 2012 Google, Inc.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  Contributors:
+ *  Google, Inc. - initial API and implementation
+ *******************************************************************************/
+package com.windowtester.internal.finder.swing;
+
+import abbot.finder.Hierarchy;
+import java.awt.Component;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Walks component trees without recursion.
+ * <p>
+ * Components are visited in the order of a recursive search: the children of a component, in the
+ * order the hierarchy returns them, before the component itself.  Stateful matchers such as
+ * {@link com.windowtester.internal.finder.matchers.swing.IndexMatcher} count matches in this
+ * order, so it must not change.
+ */
+public final class HierarchyWalker {
+
+  private HierarchyWalker() {
+    // hide public constructor
+  }
+
+  /**
+   * Visit every component reachable from the given roots once.
+   *
+   * @param hierarchy the hierarchy to walk
+   * @param roots     the components to start from
+   * @param visitor   called for every component
+   * @return the number of components visited
+   */
+  public static int walk(
+      Hierarchy hierarchy, Collection<? extends Component> roots, Consumer<Component> visitor) {
+    Set<Component> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+    var path = new ArrayDeque<Component>();
+    var children = new ArrayDeque<Iterator<Component>>();
+    for (Component root : roots) {
+      if (!visited.add(root)) {
+        continue;
+      }
+      path.push(root);
+      children.push(hierarchy.getComponents(root).iterator());
+      while (!path.isEmpty()) {
+        var remaining = children.peek();
+        if (remaining.hasNext()) {
+          var child = remaining.next();
+          if (visited.add(child)) {
+            path.push(child);
+            children.push(hierarchy.getComponents(child).iterator());
+          }
+        } else {
+          children.pop();
+          visitor.accept(path.pop());
+        }
+      }
+    }
+    return visited.size();
+  }
+}
@@ -11,19 +11,41 @@
 package com.windowtester.internal.finder.swing;
 
 import abbot.finder.AWTHierarchy;
+import abbot.finder.ComponentIndex;
 import abbot.finder.Hierarchy;
 import abbot.finder.Matcher;
+import abbot.jfr.FindEvent;
+import com.windowtester.internal.finder.matchers.swing.HierarchyQuery;
 import com.windowtester.internal.runtime.finder.IWidgetFinder;
 import com.windowtester.internal.runtime.matcher.AdapterFactory;
 import com.windowtester.runtime.locator.IWidgetLocator;
 import com.windowtester.runtime.locator.WidgetReference;
 import java.awt.Component;
+import java.awt.KeyboardFocusManager;
 import java.awt.Window;
+import java.lang.reflect.InvocationTargetException;
 import java.util.Arrays;
-import java.util.HashSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.swing.SwingUtilities;
 
-/** A Swing Widget Finder. */
+/**
+ * A Swing Widget Finder.
+ * <p>
+ * Every component is visited at most once per search, even where it is reachable both as a root
+ * window and as a window owned by another one.  The search may be restricted to the active window
+ * or to the components matched by a parent locator.  Locators with parents are resolved from the
+ * outermost parent down, so only the subtrees of matching parents are searched for the target.
+ * <p>
+ * In snapshot mode the whole search, i.e. walking the window forest and applying the matcher, is
+ * done in a single task on the event dispatch thread, so that it sees a consistent component
+ * tree.  Snapshot mode is enabled by default if the system property
+ * <code>windowtester.finder.edt_snapshot</code> is <code>true</code>.
+ */
 public class SwingWidgetFinder implements IWidgetFinder {
 
   private static final IWidgetFinder DEFAULT = new SwingWidgetFinder(new AWTHierarchy());
@@ -32,7 +54,29 @@ public class SwingWidgetFinder implements IWidgetFinder {
     return DEFAULT;
   }
 
+  /**
+   * Which windows to search.
+   */
+  public enum Scope {
+    /** All displayable windows. */
+    ALL_WINDOWS,
+    /** The active window and the windows it owns; all windows if none is active. */
+    ACTIVE_WINDOW
+  }
+
+  /**
+   * Cost of a single {@link #findAll} call.
+   *
+   * @param visitedComponents number of components visited
+   * @param nanos             duration of the search in nanoseconds
+   */
+  public record SearchStatistics(int visitedComponents, long nanos) {}
+
+  private static final ThreadLocal<SearchStatistics> lastStatistics = new ThreadLocal<>();
+
   private final Hierarchy hierarchy;
+  private volatile boolean snapshot = Boolean.getBoolean("windowtester.finder.edt_snapshot");
+  private volatile Scope scope = Scope.ALL_WINDOWS;
 
   public SwingWidgetFinder() {
     this(AWTHierarchy.getDefault());
@@ -42,24 +86,143 @@ public class SwingWidgetFinder implements IWidgetFinder {
     hierarchy = h;
   }
 
+  public void setSnapshot(boolean snapshot) {
+    this.snapshot = snapshot;
+  }
+
+  public boolean isSnapshot() {
+    return snapshot;
+  }
+
+  public void setScope(Scope scope) {
+    this.scope = scope;
+  }
+
+  public Scope getScope() {
+    return scope;
+  }
+
+  /**
+   * Returns the statistics of the last search made by the calling thread, or <code>null</code> if
+   * it made none.
+   */
+  public static SearchStatistics getLastStatistics() {
+    return lastStatistics.get();
+  }
+
   @Override
   public IWidgetLocator[] findAll(IWidgetLocator locator) {
     var matcher = new AdapterFactory().adapt(locator);
+    return toLocators(search(matcher, null));
+  }
 
-    var matchingComponents = new HashSet<Component>();
-    addMatchingComponents(matcher, matchingComponents);
+  /**
+   * Find the widgets identified by the given locator within the components identified by the
+   * parent locator.
+   *
+   * @param locator the locator to use to identify matches
+   * @param parent  the locator identifying the components to search
+   * @return the matching widgets (not <code>null</code>, but may be empty)
+   */
+  public IWidgetLocator[] findAll(IWidgetLocator locator, IWidgetLocator parent) {
+    var parents = new LinkedHashSet<Component>();
+    for (IWidgetLocator reference : findAll(parent)) {
+      if (((WidgetReference<?>) reference).getWidget() instanceof Component component) {
+        parents.add(component);
+      }
+    }
+    var matcher = new AdapterFactory().adapt(locator);
+    return toLocators(search(matcher, parents));
+  }
 
-    return matchingComponents.stream()
+  private static IWidgetLocator[] toLocators(Collection<Component> components) {
+    return components.stream()
         .map(WidgetReference::new)
         .map(IWidgetLocator.class::cast)
         .toArray(IWidgetLocator[]::new);
   }
 
-  private void addMatchingComponents(Matcher matcher, HashSet<Component> found) {
-    Arrays.stream(Window.getWindows())
+  /**
+   * Search the given roots, or the windows in scope if <code>null</code>.
+   */
+  Collection<Component> search(Matcher matcher, Collection<Component> roots) {
+    var event = new FindEvent();
+    event.begin();
+    var found = searchInScope(matcher, roots);
+    if (event.shouldCommit()) {
+      var statistics = lastStatistics.get();
+      event.matcher = matcher.toString();
+      event.visited = statistics != null ? statistics.visitedComponents() : 0;
+      event.matches = found.size();
+      event.commit();
+    }
+    return found;
+  }
+
+  private Collection<Component> searchInScope(Matcher matcher, Collection<Component> roots) {
+    if (!snapshot || SwingUtilities.isEventDispatchThread()) {
+      return doSearch(matcher, roots);
+    }
+    var result = new AtomicReference<Collection<Component>>(Collections.emptySet());
+    var statistics = new AtomicReference<SearchStatistics>();
+    try {
+      SwingUtilities.invokeAndWait(
+          () -> {
+            result.set(doSearch(matcher, roots));
+            statistics.set(lastStatistics.get());
+          });
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (InvocationTargetException e) {
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+    lastStatistics.set(statistics.get());
+    return result.get();
+  }
+
+  private Collection<Component> doSearch(Matcher matcher, Collection<Component> roots) {
+    var start = System.nanoTime();
+    var found = new LinkedHashSet<Component>();
+    // parent chains are resolved top-down, see HierarchyQuery
+    var query = HierarchyQuery.create(matcher);
+    if (query != null) {
+      matcher = query;
+    }
+    if (roots == null) {
+      var windows = getWindowsInScope();
+      if (ComponentIndex.isEnabled()) {
+        var indexed = ComponentIndex.getDefault().findMatches(hierarchy, windows, matcher);
+        if (indexed != null) {
+          found.addAll(indexed);
+          lastStatistics.set(new SearchStatistics(0, System.nanoTime() - start));
+          return found;
+        }
+      }
+      roots = windows;
+    }
+    var visited =
+        query != null
+            ? query.findAll(hierarchy, roots, found)
+            : findMatches(matcher, roots, found);
+    lastStatistics.set(new SearchStatistics(visited, System.nanoTime() - start));
+    return found;
+  }
+
+  private List<Component> getWindowsInScope() {
+    if (scope == Scope.ACTIVE_WINDOW) {
+      var active = KeyboardFocusManager.getCurrentKeyboardFocusManager().getActiveWindow();
+      if (active != null && active.isDisplayable()) {
+        return List.of(active);
+      }
+    }
+    return Arrays.stream(Window.getWindows())
         .filter(Window::isDisplayable)
         .filter(this::isMatchingWindow)
-        .forEach(window -> findMatches(matcher, window, found));
+        .map(Component.class::cast)
+        .toList();
   }
 
   private boolean isMatchingWindow(Window window) {
@@ -71,28 +234,30 @@ public class SwingWidgetFinder implements IWidgetFinder {
       return true;
     }
 
+    // owned windows might be visible
     if (window.getOwnedWindows().length > 0) {
       return true;
     }
 
-    if (window.getClass().getName().equals("sun.awt.EmbeddedFrame")
-        || (window.getClass().getName().equals("sun.awt.windows.WEmbeddedFrame"))) {
-      // Embedded Frames are not accessible in Apple's Java5+
-      // 12/3/09 : added WEmbeddedFrame
-      return true;
-    }
-
-    // check to see whether (ALL) frame owns any windows
-    return Arrays.stream(window.getOwnedWindows())
-        .anyMatch(this::isMatchingWindow);
+    // Embedded Frames are not accessible in Apple's Java5+
+    // 12/3/09 : added WEmbeddedFrame
+    return window.getClass().getName().equals("sun.awt.EmbeddedFrame")
+        || window.getClass().getName().equals("sun.awt.windows.WEmbeddedFrame");
   }
 
-  private void findMatches(Matcher matcher, Component component, Set<Component> found) {
-    hierarchy.getComponents(component)
-        .forEach(comp -> findMatches(matcher, comp, found));
-
-    if (matcher.matches(component)) {
-      found.add(component);
-    }
+  /**
+   * Walk the trees below the given roots, visiting each component once.
+   *
+   * @return the number of components visited
+   */
+  private int findMatches(Matcher matcher, Collection<Component> roots, Set<Component> found) {
+    return HierarchyWalker.walk(
+        hierarchy,
+        roots,
+        component -> {
+          if (matcher.matches(component)) {
+            found.add(component);
+          }
+        });
   }
 }
@@ -0,0 +1,275 @@
+/*******************************************************************************
+ *  Copyright (c) 2012 Google, Inc.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  Contributors:
+ *  Google, Inc. - initial API and implementation
+ *******************************************************************************/
+package com.windowtester.internal.swing;
+
+import abbot.finder.AWTHierarchy;
+import abbot.finder.Hierarchy;
+import abbot.util.AWT;
+import abbot.util.WeakAWTEventListener;
+import com.windowtester.internal.finder.swing.HierarchyWalker;
+import com.windowtester.runtime.IUIContext;
+import com.windowtester.runtime.WidgetLocator;
+import com.windowtester.runtime.locator.IWidgetLocator;
+import com.windowtester.runtime.locator.WidgetReference;
+import com.windowtester.runtime.swing.SwingWidgetLocator;
+import java.awt.AWTEvent;
+import java.awt.Button;
+import java.awt.Checkbox;
+import java.awt.Component;
+import java.awt.Label;
+import java.awt.TextComponent;
+import java.awt.Window;
+import java.awt.event.AWTEventListener;
+import java.awt.event.ComponentEvent;
+import java.awt.event.WindowEvent;
+import java.beans.PropertyChangeListener;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Remembers the component a locator was last resolved to by {@link UIContextSwing#find}, so that
+ * conditions polling the same locator don't search the whole hierarchy every time.
+ * <p>
+ * A remembered component is only returned while it is still displayable, still in the (visible)
+ * window it was found in and still matched by the locator.  All entries are dropped whenever
+ * another component might start to match a locator: when a component is added to or removed from
+ * a container, shown or hidden, renamed or relabeled, or a window is opened or closed.  Name, text
+ * and title changes are observed through property listeners on the components of all windows;
+ * locators with a name or label are not cached while AWT components, whose text changes can't be
+ * observed, are around.
+ * <p>
+ * Only {@link SwingWidgetLocator}s which resolve through the default finder and carry neither an
+ * index nor a parent are cached, since indexed locators count their matches and have to see every
+ * candidate.  Entries are keyed by locator identity.
+ * <p>
+ * The cache may be disabled by setting the system property
+ * <code>windowtester.swing.resolved_widget_cache</code> to <code>false</code>.
+ */
+public class ResolvedWidgetCache {
+
+  private static final boolean ENABLED =
+      Boolean.parseBoolean(System.getProperty("windowtester.swing.resolved_widget_cache", "true"));
+
+  private static final int MAX_SIZE = 64;
+
+  /**
+   * Locator classes which resolve through the finder, i.e. which don't override
+   * {@link WidgetLocator#findAll(IUIContext)}.
+   */
+  private static final ClassValue<Boolean> FINDER_LOCATORS =
+      new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+          try {
+            return type.getMethod("findAll", IUIContext.class).getDeclaringClass()
+                == WidgetLocator.class;
+          } catch (NoSuchMethodException e) {
+            return false;
+          }
+        }
+      };
+
+  private record Entry(WidgetReference<?> reference, Component component, Window window) {}
+
+  private final Map<IWidgetLocator, Entry> entries = new IdentityHashMap<>();
+  private final AWTEventListener eventListener = this::eventDispatched;
+  private final PropertyChangeListener propertyListener = event -> invalidate();
+  private final Set<Component> tracked = Collections.newSetFromMap(new WeakHashMap<>());
+  private final Hierarchy hierarchy = new AWTHierarchy();
+  private final boolean enabled;
+
+  private long generation = 0;
+  private long hits = 0;
+  private long misses = 0;
+  private long invalidations = 0;
+
+  public ResolvedWidgetCache() {
+    this(ENABLED);
+  }
+
+  public ResolvedWidgetCache(boolean enabled) {
+    this.enabled = enabled;
+    if (enabled) {
+      new WeakAWTEventListener(
+          eventListener,
+          AWTEvent.CONTAINER_EVENT_MASK
+              | AWTEvent.WINDOW_EVENT_MASK
+              | AWTEvent.COMPONENT_EVENT_MASK);
+    }
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Returns the widget the given locator was last resolved to, if it is still valid.
+   *
+   * @return a reference to the widget, or <code>null</code> if it must be searched for
+   */
+  public IWidgetLocator lookup(IWidgetLocator locator) {
+    if (!isCacheable(locator)) {
+      return null;
+    }
+    Entry entry;
+    synchronized (this) {
+      entry = entries.get(locator);
+    }
+    if (entry != null && isValid(locator, entry)) {
+      synchronized (this) {
+        hits++;
+      }
+      return entry.reference();
+    }
+    synchronized (this) {
+      misses++;
+      if (entry != null && entries.remove(locator, entry)) {
+        invalidations++;
+      }
+    }
+    return null;
+  }
+
+  private static boolean isValid(IWidgetLocator locator, Entry entry) {
+    var component = entry.component();
+    var window = entry.window();
+    return component.isDisplayable()
+        && AWT.getWindow(component) == window
+        && (window == null || window.isVisible())
+        && locator.matches(component);
+  }
+
+  /**
+   * Returns the current generation, to be passed to {@link #put} once the search is done.
+   */
+  public synchronized long getGeneration() {
+    return generation;
+  }
+
+  /**
+   * Remember what the given locator resolved to, unless the hierarchy has changed since the
+   * search started.
+   *
+   * @param generation the generation when the search started
+   */
+  public void put(IWidgetLocator locator, IWidgetLocator found, long generation) {
+    if (!isCacheable(locator)
+        || !(found instanceof WidgetReference<?> reference)
+        || !(reference.getWidget() instanceof Component component)) {
+      return;
+    }
+    var labelled = ((WidgetLocator) locator).getNameOrLabel() != null;
+    if (!track() && labelled) {
+      return;
+    }
+    var entry = new Entry(reference, component, AWT.getWindow(component));
+    synchronized (this) {
+      if (generation != this.generation) {
+        return;
+      }
+      if (entries.size() >= MAX_SIZE && !entries.containsKey(locator)) {
+        entries.clear();
+      }
+      entries.put(locator, entry);
+    }
+  }
+
+  private boolean isCacheable(IWidgetLocator locator) {
+    return enabled
+        && locator instanceof SwingWidgetLocator swingLocator
+        && FINDER_LOCATORS.get(locator.getClass())
+        && swingLocator.getIndex() == WidgetLocator.UNASSIGNED
+        && swingLocator.getParentInfo() == null
+        && swingLocator.getAncestorInfo() == null;
+  }
+
+  /**
+   * Listen to name, text and title changes of all components not listened to yet.  Components
+   * added later are covered by the next call, since adding them invalidates the cache.
+   *
+   * @return <code>false</code> if there are components whose text changes can't be observed
+   */
+  private boolean track() {
+    var observable = new AtomicBoolean(true);
+    HierarchyWalker.walk(
+        hierarchy,
+        Arrays.asList(Window.getWindows()),
+        component -> {
+          boolean added;
+          synchronized (this) {
+            added = tracked.add(component);
+          }
+          if (added) {
+            component.addPropertyChangeListener("name", propertyListener);
+            component.addPropertyChangeListener("text", propertyListener);
+            component.addPropertyChangeListener("title", propertyListener);
+          }
+          if (component instanceof Button
+              || component instanceof Checkbox
+              || component instanceof Label
+              || component instanceof TextComponent) {
+            observable.set(false);
+          }
+        });
+    return observable.get();
+  }
+
+  /**
+   * Drop all entries.
+   */
+  public synchronized void invalidate() {
+    generation++;
+    invalidations += entries.size();
+    entries.clear();
+  }
+
+  private void eventDispatched(AWTEvent event) {
+    int id = event.getID();
+    if (event instanceof WindowEvent
+        && id != WindowEvent.WINDOW_OPENED
+        && id != WindowEvent.WINDOW_CLOSED) {
+      // activation and focus changes don't affect what a locator resolves to
+      return;
+    }
+    if (id == ComponentEvent.COMPONENT_MOVED || id == ComponentEvent.COMPONENT_RESIZED) {
+      // neither do moves and resizes
+      return;
+    }
+    invalidate();
+  }
+
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  public synchronized long getInvalidations() {
+    return invalidations;
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "ResolvedWidgetCache[size=" + entries.size() + " hits=" + hits + " misses=" + misses
+        + " invalidations=" + invalidations + "]";
+  }
+}
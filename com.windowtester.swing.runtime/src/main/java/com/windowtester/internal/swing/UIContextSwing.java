@@ -12,6 +12,7 @@ package com.windowtester.internal.swing;
 
 import abbot.WaitTimedOutError;
 import abbot.script.Condition;
+import abbot.tester.ConditionWaiter;
 import abbot.util.AWT;
 import com.windowtester.internal.debug.IRuntimePluginTraceOptions;
 import com.windowtester.internal.debug.TraceHandler;
@@ -53,6 +54,17 @@ public class UIContextSwing extends UIContextCommon {
 
   private UIDriverSwing driver;
   private IUIThreadMonitor threadMonitor;
+  private final ResolvedWidgetCache resolvedWidgets = new ResolvedWidgetCache();
+
+  /**
+   * Also records the screen before each action, if recent frames are kept (see
+   * {@link ScreenCapture#recordFrame()}).
+   */
+  @Override
+  public int handleConditions() {
+    ScreenCapture.recordFrame();
+    return super.handleConditions();
+  }
 
   @Override
   public IWidgetLocator click(
@@ -207,11 +219,12 @@ public class UIContextSwing extends UIContextCommon {
     }
     handleConditions();
 
-    abbot.script.Condition c = getAbbotCondition(condition);
-    try {
-      getDriver().wait(c, timeout, interval);
-    } catch (WaitTimedOutError e) {
-      throw new WaitTimedOutException("Timed out waiting for " + condition, e);
+    // re-evaluated on UI changes, see ConditionWaiter
+    Condition c = getAbbotCondition(condition);
+    var name = condition.getClass().getName();
+    if (!ConditionWaiter.getDefault().await(c, name, timeout, interval)) {
+      var msg = "Timed out waiting for " + condition;
+      throw new WaitTimedOutException(msg, new WaitTimedOutError(msg));
     }
   }
 
@@ -226,6 +239,11 @@ public class UIContextSwing extends UIContextCommon {
 
   @Override
   public IWidgetLocator find(IWidgetLocator locator) throws WidgetSearchException {
+    var cached = resolvedWidgets.lookup(locator);
+    if (cached != null) {
+      return cached;
+    }
+    var generation = resolvedWidgets.getGeneration();
     var locators = findAll(locator);
 
     if (locators.length == 0) {
@@ -233,6 +251,7 @@ public class UIContextSwing extends UIContextCommon {
     } else if (locators.length > 1) {
       handleMultipleWidgetsFound(locators);
     }
+    resolvedWidgets.put(locator, locators[0], generation);
     return locators[0];
   }
 
@@ -265,7 +284,8 @@ public class UIContextSwing extends UIContextCommon {
         IRuntimePluginTraceOptions.WIDGET_SELECTION,
         "Creating screenshot for testcase: " + testcaseID);
     // TODO: make this filename format user configurable
-    ScreenCapture.createScreenCapture(testcaseID);
+    ScreenCapture.createScreenCaptureAsync(testcaseID);
+    ScreenCapture.flushFrames(testcaseID);
   }
 
   /**
@@ -308,6 +328,14 @@ public class UIContextSwing extends UIContextCommon {
     if (adapter == IWidgetFinder.class) {
       return new SwingWidgetFinder();
     }
+
+    if (adapter == ConditionWaiter.class) {
+      return ConditionWaiter.getDefault();
+    }
+
+    if (adapter == ResolvedWidgetCache.class) {
+      return resolvedWidgets;
+    }
     return super.getAdapter(adapter);
   }
 
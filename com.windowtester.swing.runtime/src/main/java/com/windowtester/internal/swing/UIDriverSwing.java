@@ -375,6 +375,10 @@ public class UIDriverSwing {
     // get the component and the tester
     var tester = ComponentTester.getTester(Component.class);
     var widget = tester.findFocusOwner();
+    if (widget != null) {
+      // the widget's own tester, so that text components may take a quicker path
+      tester = ComponentTester.getTester(widget);
+    }
     tester.actionKeyString(widget, txt);
   }
 
@@ -11,15 +11,18 @@
 package com.windowtester.internal.swing.locator;
 
 import abbot.finder.AWTHierarchy;
-import abbot.finder.ComponentFinder;
 import abbot.finder.Hierarchy;
 import abbot.finder.Matcher;
+import com.windowtester.internal.finder.matchers.swing.HierarchyQuery;
 import com.windowtester.runtime.swing.SwingWidgetLocator;
 import java.awt.Component;
+import java.awt.Window;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import javax.swing.AbstractButton;
 import javax.swing.JButton;
 import javax.swing.JComboBox;
@@ -33,6 +36,7 @@ import javax.swing.JLabel;
  *  return null, to indicate failure.
  *
  *  Only the active window is considered when building the WidgetLocator.
+ *  It is walked once per call to identify, however many elaborations are needed.
  *
  *  based on com.windowtester.swt.locator.ScopedWidgetIdentifierBuilder
  *
@@ -40,11 +44,6 @@ import javax.swing.JLabel;
 
 public class ScopedComponentIdentifierBuilder implements IWidgetIdentifierStrategy {
 
-  /**
-   * For use in checking for unique matches
-   */
-  private final ComponentFinder _finder = BasicFinder2.getDefault();
-
   /**
    * For use in elaboration (created once per call it identify)
    */
@@ -54,31 +53,67 @@ public class ScopedComponentIdentifierBuilder implements IWidgetIdentifierStrate
    * Generates a <code>WidgetLocator</code> that uniquely identifies this widget relative to the current widget
    * hierarchy.  If no uniquely identifying locator is found
    * <code>null</code> is returned.
+   * <p>
+   * The active window is walked only once.  Since every elaboration only adds constraints to the
+   * locator, the elaborated matcher is applied to the matches of the previous one only.
    */
   public SwingWidgetLocator identify(Component component) {
 
     // get locator describing the target widget itself
     SwingWidgetLocator locator = getLocator(component);
-    // get the top level frame/dailog for the component
-    //		WidgetLocator scope = findTopLevelScope(w);
-    //		locator.setParentInfo(scope); //note: it can be null
+    if (locator == null) {
+      return null;
+    }
 
-    Matcher matcher = MatcherFactory.getMatcher(locator);
+    Collection<Component> matches =
+        findMatches(getActiveComponents(), MatcherFactory.getMatcher(locator));
 
     //	elaborate until done (notice: null locator indicates a failure)
-    // Note: not going to look only in active shell, since the find has not
-    // been implemented this way.
-    //	while(!isUniquelyIdentifying(matcher, _activeWindow) && locator != null) {
-    while (!isUniquelyIdentifying(matcher) && locator != null) {
+    while (!isUniquelyIdentifying(matches)) {
       locator = elaborate(locator, component);
-      if (locator != null) {
-        matcher = MatcherFactory.getMatcher(locator);
+      if (locator == null) {
+        return null;
       }
+      matches = findMatches(matches, MatcherFactory.getMatcher(locator));
     }
 
     return locator;
   }
 
+  /**
+   * Collect all components of the active window(s), in a single walk of the hierarchy.
+   */
+  private Collection<Component> getActiveComponents() {
+    Set<Component> components = new LinkedHashSet<>();
+    for (Component root : _hierarchy.getRoots()) {
+      // 2/22/07 : kp check for match only in active window
+      if (((Window) root).isActive()) {
+        collectComponents(root, components);
+      }
+    }
+    return components;
+  }
+
+  private void collectComponents(Component component, Set<Component> components) {
+    if (components.add(component)) {
+      for (Component child : _hierarchy.getComponents(component)) {
+        collectComponents(child, components);
+      }
+    }
+  }
+
+  private List<Component> findMatches(Collection<Component> candidates, Matcher matcher) {
+    // remember the parents matched along the way
+    matcher = HierarchyQuery.optimize(matcher);
+    List<Component> matches = new ArrayList<>();
+    for (Component candidate : candidates) {
+      if (matcher.matches(candidate)) {
+        matches.add(candidate);
+      }
+    }
+    return matches;
+  }
+
   /**
    * Create an (unelaborated) info object for this widget.
    *
@@ -135,25 +170,11 @@ public class ScopedComponentIdentifierBuilder implements IWidgetIdentifierStrate
   */
 
   /**
-   * Does this macther uniquely identify a widget in this Hierarchy
-   * TODO: limit search to active window
+   * Do these matches identify a widget uniquely (a locator that matches nothing is not ambiguous,
+   * either)
    */
-  //	private boolean isUniquelyIdentifying(Matcher matcher, Window window) {
-  private boolean isUniquelyIdentifying(Matcher matcher) {
-    /*	 try {
-    	_finder.find(matcher);
-    	return true;
-    } catch (ComponentNotFoundException e) {
-    	System.out.println("Component not found exception");
-    	e.printStackTrace();
-    	// do nothing, return false
-    } catch (MultipleComponentsFoundException e) {
-    	//	do nothing, return false
-    	System.out.println("multiple Components found exception");
-    	e.printStackTrace();
-    }*/
-    int result = ((BasicFinder2) _finder).findAll(matcher);
-    return result != -1;
+  private boolean isUniquelyIdentifying(Collection<Component> matches) {
+    return matches.size() <= 1;
   }
 
   /**
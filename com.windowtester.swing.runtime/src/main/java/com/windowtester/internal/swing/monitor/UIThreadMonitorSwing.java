@@ -13,15 +13,15 @@ package com.windowtester.internal.swing.monitor;
 import com.windowtester.internal.runtime.monitor.UIThreadMonitorCommon;
 import com.windowtester.runtime.IUIContext;
 import java.awt.AWTEvent;
+import java.awt.EventQueue;
 import java.awt.Toolkit;
 import java.awt.event.AWTEventListener;
-import javax.swing.SwingUtilities;
 
 /**
  * Monitors the UI Thread and notifies listeners if the UI thread is either hung or idle for an
- * extended period of time. This is accomplished by launching a background thread (minimum priority)
- * that checks to see if the UI is responsive and processing input. If the UI becomes unresponsive
- * or idle for a period longer than expected, then the associated
+ * extended period of time. This is accomplished by posting heartbeats to the event dispatch thread
+ * from a background thread (minimum priority) and listening for mouse and key events. If the UI
+ * becomes unresponsive or idle for a period longer than expected, then the associated
  * {@link com.windowtester.runtime.monitor.IUIThreadMonitorListener} (see
  * {@link #setListener(com.windowtester.runtime.monitor.IUIThreadMonitorListener)}) is notified.
  */
@@ -41,11 +41,6 @@ public class UIThreadMonitorSwing extends UIThreadMonitorCommon {
         trace("event processed", event.getID());
       };
 
-  /**
-   * A runnable to notice responsiveness of the UI thread.
-   */
-  private final Runnable threadResponsiveRunnable = this::markUIThreadResponsive;
-
   /**
    * Construct a new instance to monitor the health of the user interface thread.
    *
@@ -82,40 +77,10 @@ public class UIThreadMonitorSwing extends UIThreadMonitorCommon {
   }
 
   /**
-   * Wait for up to one second to determine if the user interface thread is responsive and
-   * processing new events.
-   *
-   * @return <code>true</code> if the user interface thread is responsive, or
-   * <code>false</code> if it has not processed any new events within the last
-   * one second
+   * Post the given heartbeat to the event dispatch thread.
    */
   @Override
-  protected boolean isUIThreadResponsive() {
-    synchronized (lock) {
-      uiThreadResponsive = false;
-    }
-    SwingUtilities.invokeLater(threadResponsiveRunnable);
-    for (int i = 0; i < 100; i++) {
-      var b = wasUIThreadResponsive();
-      if (b) {
-        break;
-      }
-      try {
-        Thread.sleep(10);
-      } catch (InterruptedException e) {
-        // ignored
-      }
-    }
-    synchronized (lock) {
-      return uiThreadResponsive;
-    }
-  }
-
-  protected boolean wasUIThreadResponsive() {
-    boolean b;
-    synchronized (lock) {
-      b = uiThreadResponsive;
-    }
-    return b;
+  protected void postHeartbeat(Runnable heartbeat) {
+    EventQueue.invokeLater(heartbeat);
   }
 }
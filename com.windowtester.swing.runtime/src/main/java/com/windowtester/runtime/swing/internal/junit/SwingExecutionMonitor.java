@@ -11,72 +11,180 @@
 package com.windowtester.runtime.swing.internal.junit;
 
 import abbot.finder.AWTHierarchy;
-import abbot.finder.Hierarchy;
+import abbot.tester.WindowTracker;
 import com.windowtester.internal.runtime.junit.core.AbstractExecutionMonitor;
 import com.windowtester.internal.runtime.junit.core.ITestIdentifier;
 import com.windowtester.internal.swing.UIContextSwingFactory;
 import com.windowtester.runtime.IUIContext;
 import com.windowtester.runtime.monitor.IUIThreadMonitor;
 import java.awt.Component;
+import java.awt.EventQueue;
 import java.awt.Window;
+import java.awt.event.WindowEvent;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Monitor for executing Swing tests.
+ * <p>
+ * Waiting threads are parked until the running state changes, an exception is caught or a window
+ * is opened, activated or closed, rather than polling the window hierarchy.
  */
 public class SwingExecutionMonitor extends AbstractExecutionMonitor {
 
+  /**
+   * Upper bound for a single wait, in case a change goes unnoticed (e.g. windows disappearing
+   * without events).
+   */
+  private static final long MAX_WAIT = 250;
+
+  /**
+   * How long to wait for a window which opened while a test was starting to become active.
+   */
+  private static final long NEW_WINDOW_TIMEOUT = 1000;
+
   private IUIContext uiContext;
 
+  private final Object lock = new Object();
+
+  /**
+   * Number of changes signalled so far; guarded by {@link #lock}.
+   */
+  private long changes = 0;
+
+  /**
+   * Value of {@link #changes} at the end of the last wait; guarded by {@link #lock}.
+   */
+  private long seen = 0;
+
+  /**
+   * Windows opened since the current test started which have not yet been activated or closed.
+   */
+  private final Set<Window> newWindows =
+      Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+
+  private final WindowTracker.Listener windowListener = this::windowEvent;
+
   public SwingExecutionMonitor() {
     // do nothing
   }
 
   @Override
   public void testStarting(ITestIdentifier identifier) {
-    // TODO [author=Dan] Race condition workaround... better solution needed...
-    // If a Swing test launches an application, but a Swing window is still
-    // open from a previous test, then the "notShowing" loop below
-    // will detect the window from the first application and exit immediately
-    // without waiting for the 2nd application to open its window.
-    // This hack sleeps for a moment, giving the Swing UI thread a chance
-    // to open the window. A better solution would be to get a message
-    // before the 2nd application is launched to cache the active window
-    // and wait until the active window has changed.
-    try {
-      Thread.sleep(100);
-    } catch (InterruptedException e) {
-      // ignore
-    }
+    // If a Swing test launches an application while a window from a previous test is still
+    // active, wait for the new application window rather than starting right away.  Flushing
+    // the event queue lets any pending window creation run; windows it opens are noted by the
+    // listener and waited for until they become active.
+    newWindows.clear();
+    // a test may start without the previous one having finished; register only once
+    WindowTracker.getTracker().removeListener(windowListener);
+    WindowTracker.getTracker().addListener(windowListener);
+    flushEventQueue();
 
     /*
      * wait for frame showing and active
      * before starting the test
      */
-    boolean notShowing = true;
-    while (notShowing) {
-      Hierarchy hierarchy = AWTHierarchy.getDefault();
-      if (hierarchy.getRoots().isEmpty()) {
-        notShowing = false;
-      } else {
-        for (Component c : hierarchy.getRoots()) {
-          if (((Window) c).isActive()) {
-            notShowing = false;
-            break;
-          }
-        }
-      }
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(NEW_WINDOW_TIMEOUT);
+    while (!isReadyToStart(System.nanoTime() < deadline)
+        && !Thread.currentThread().isInterrupted()) {
+      awaitChange();
     }
 
     // next inform listeners, etc.
     super.testStarting(identifier);
   }
 
+  private boolean isReadyToStart(boolean waitForNewWindows) {
+    var roots = AWTHierarchy.getDefault().getRoots();
+    if (roots.isEmpty()) {
+      return true;
+    }
+    if (waitForNewWindows && !newWindows.isEmpty()) {
+      return false;
+    }
+    for (Component c : roots) {
+      if (((Window) c).isActive()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static void flushEventQueue() {
+    if (EventQueue.isDispatchThread()) {
+      return;
+    }
+    try {
+      EventQueue.invokeAndWait(() -> {});
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (InvocationTargetException e) {
+      // nothing to run
+    }
+  }
+
+  private void windowEvent(Window window, int id) {
+    switch (id) {
+      case WindowEvent.WINDOW_OPENED -> newWindows.add(window);
+      case WindowEvent.WINDOW_ACTIVATED, WindowEvent.WINDOW_CLOSED -> newWindows.remove(window);
+      default -> {
+        // only the above affect the state we wait for
+      }
+    }
+    signal();
+  }
+
+  @Override
+  public void testFinished() {
+    WindowTracker.getTracker().removeListener(windowListener);
+    newWindows.clear();
+    super.testFinished();
+  }
+
+  @Override
+  protected void stateChanged() {
+    signal();
+  }
+
+  private void signal() {
+    synchronized (lock) {
+      changes++;
+      lock.notifyAll();
+    }
+  }
+
+  /**
+   * Wait until a change has been signalled since the last wait returned.  If interrupted, returns
+   * with the interrupt flag set, so that callers leave their wait loops.
+   */
+  private void awaitChange() {
+    synchronized (lock) {
+      try {
+        if (changes == seen) {
+          lock.wait(MAX_WAIT);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      seen = changes;
+    }
+  }
+
   @Override
   protected void doWaitForFinish() {
+    awaitChange();
   }
 
   @Override
   protected boolean terminateWaitForFinish() {
+    // an interrupted wait, e.g. by a test timeout, gives up
+    if (Thread.currentThread().isInterrupted()) {
+      return true;
+    }
     var hierarchy = AWTHierarchy.getDefault();
     return hierarchy.getRoots().isEmpty();
   }
@@ -0,0 +1,299 @@
+package com.windowtester.internal.finder.matchers.swing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import abbot.finder.AWTHierarchy;
+import abbot.finder.Hierarchy;
+import abbot.finder.Matcher;
+import abbot.finder.matchers.ClassMatcher;
+import com.windowtester.internal.runtime.matcher.AdapterFactory;
+import com.windowtester.runtime.swing.SwingWidgetLocator;
+import java.awt.Component;
+import java.awt.Window;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+import javax.swing.JButton;
+import javax.swing.JLabel;
+import javax.swing.JMenu;
+import javax.swing.JMenuBar;
+import javax.swing.JMenuItem;
+import javax.swing.JPanel;
+import org.junit.jupiter.api.Test;
+
+class HierarchyQueryTest {
+
+  private final JPanel root = panel("root");
+  private final JPanel firstForm = panel("form");
+  private final JPanel secondForm = panel("form");
+  private final JPanel nested = new JPanel();
+  private final JPanel dialog = panel("dialog");
+  private final JPanel dialogForm = panel("form");
+  private final JMenu menu = new JMenu("File");
+
+  /**
+   * The dialog stands in for an owned window: it has no parent, but is reachable both as a root
+   * and as a conceptual child of the root, as owned windows are.
+   */
+  private final Hierarchy hierarchy =
+      new AWTHierarchy() {
+        @Override
+        public Collection<Component> getComponents(Component component) {
+          var components = super.getComponents(component);
+          if (component == root) {
+            components.add(dialog);
+          }
+          return components;
+        }
+      };
+
+  HierarchyQueryTest() {
+    firstForm.add(new JButton("OK"));
+    firstForm.add(new JButton("OK"));
+    firstForm.add(new JButton("Cancel"));
+    firstForm.add(new JLabel("Name"));
+    firstForm.add(nested);
+    nested.add(new JButton("OK"));
+    nested.add(new JButton("OK"));
+    var only = new JPanel();
+    only.add(new JButton("OK"));
+    firstForm.add(only);
+    secondForm.add(new JButton("OK"));
+    menu.add(new JMenuItem("Open"));
+    menu.add(new JMenuItem("Open"));
+    menu.add(new JMenuItem("Exit"));
+    var menuBar = new JMenuBar();
+    menuBar.add(menu);
+    root.add(menuBar);
+    root.add(firstForm);
+    root.add(secondForm);
+    dialogForm.add(new JButton("OK"));
+    dialogForm.add(new JButton("OK"));
+    dialog.add(dialogForm);
+  }
+
+  private static JPanel panel(String name) {
+    var panel = new JPanel();
+    panel.setName(name);
+    return panel;
+  }
+
+  private static Matcher named(String name) {
+    return new NameOrLabelMatcher(name);
+  }
+
+  private static List<Matcher> chains() {
+    return List.of(
+        // index-qualified target under an index-qualified parent
+        new HierarchyMatcher(
+            JButton.class, "OK", 1, new HierarchyMatcher(JPanel.class, 0, named("root"))),
+        new HierarchyMatcher(
+            JButton.class, "OK", new HierarchyMatcher(JPanel.class, 1, named("root"))),
+        new HierarchyMatcher(JButton.class, "OK", 0, named("form")),
+        new HierarchyMatcher(JButton.class, "OK", named("form")),
+        new HierarchyMatcher(JButton.class, "Cancel", named("form")),
+        // three levels, parents matched by class only
+        new HierarchyMatcher(
+            JButton.class,
+            "OK",
+            1,
+            new HierarchyMatcher(JPanel.class, new HierarchyMatcher(JPanel.class, named("root")))),
+        new HierarchyMatcher(JButton.class, "OK", new ClassMatcher(JPanel.class)),
+        // menu items, whose parent is the popup menu's invoker
+        new HierarchyMatcher(
+            JMenuItem.class,
+            1,
+            new HierarchyMatcher(JMenu.class, new ClassMatcher(JMenuBar.class))),
+        new HierarchyMatcher(JMenuItem.class, new ClassMatcher(JMenu.class)),
+        // components of the twice reachable dialog
+        new HierarchyMatcher(JPanel.class, named("dialog")),
+        new HierarchyMatcher(
+            JButton.class, "OK", 1, new HierarchyMatcher(JPanel.class, named("dialog"))),
+        new HierarchyMatcher(JPanel.class, new ClassMatcher(JPanel.class)),
+        new HierarchyMatcher(JButton.class, "Missing", named("form")));
+  }
+
+  /**
+   * The search as done before queries: walk the hierarchy recursively, children first, and match
+   * every component bottom-up.
+   */
+  private List<Component> findBottomUp(Matcher matcher, Collection<? extends Component> roots) {
+    var found = new ArrayList<Component>();
+    Set<Component> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (Component root : roots) {
+      findBottomUp(matcher, root, visited, found);
+    }
+    return found;
+  }
+
+  private void findBottomUp(
+      Matcher matcher, Component component, Set<Component> visited, List<Component> found) {
+    if (!visited.add(component)) {
+      return;
+    }
+    for (Component child : hierarchy.getComponents(component)) {
+      findBottomUp(matcher, child, visited, found);
+    }
+    if (matcher.matches(component)) {
+      found.add(component);
+    }
+  }
+
+  private List<Component> findTopDown(Matcher matcher, Collection<? extends Component> roots) {
+    var found = new ArrayList<Component>();
+    HierarchyQuery.create(matcher).findAll(hierarchy, roots, found);
+    return found;
+  }
+
+  /**
+   * Locator chains, created anew for every search since indexed locators count their matches.
+   */
+  private static List<Supplier<SwingWidgetLocator>> locators() {
+    return List.of(
+        () -> new SwingWidgetLocator(JButton.class, "OK", 0, null),
+        () -> new SwingWidgetLocator(JButton.class, "OK", 2, null),
+        () -> new SwingWidgetLocator(JButton.class, "OK", 0, new SwingWidgetLocator(JPanel.class)),
+        () -> new SwingWidgetLocator(JButton.class, "OK", 1, new SwingWidgetLocator(JPanel.class)),
+        () ->
+            new SwingWidgetLocator(
+                JButton.class, "OK", 1, new SwingWidgetLocator(JPanel.class, "form")),
+        () ->
+            new SwingWidgetLocator(
+                JButton.class,
+                "OK",
+                new SwingWidgetLocator(JPanel.class, 0, new SwingWidgetLocator(JPanel.class))),
+        () -> new SwingWidgetLocator(JButton.class, "OK", new SwingWidgetLocator(JPanel.class)));
+  }
+
+  private static Matcher adapt(SwingWidgetLocator locator) {
+    return new AdapterFactory().adapt(locator);
+  }
+
+  private List<Component> everything() {
+    var all = new ArrayList<Component>();
+    var pending = new ArrayDeque<Component>(List.of(root));
+    while (!pending.isEmpty()) {
+      var component = pending.pop();
+      if (!all.contains(component)) {
+        all.add(component);
+        pending.addAll(hierarchy.getComponents(component));
+      }
+    }
+    return all;
+  }
+
+  @Test
+  void top_down_search_should_find_what_bottom_up_matching_finds_in_the_same_order() {
+    var rootSets =
+        List.of(
+            List.of(root, dialog),
+            List.of(dialog, root),
+            List.of(root),
+            List.of(dialog),
+            List.of(firstForm),
+            List.of(nested, firstForm));
+    for (Matcher chain : chains()) {
+      for (List<JPanel> roots : rootSets) {
+        assertEquals(
+            findBottomUp(chain, roots), findTopDown(chain, roots), chain + " from " + roots);
+      }
+    }
+  }
+
+  @Test
+  void top_down_search_should_find_what_bottom_up_matching_finds_for_locators() {
+    for (Supplier<SwingWidgetLocator> locator : locators()) {
+      for (List<JPanel> roots : List.of(List.of(root, dialog), List.of(firstForm))) {
+        var expected = findBottomUp(adapt(locator.get()), roots);
+        var query = HierarchyQuery.create(adapt(locator.get()));
+        var actual = new ArrayList<Component>();
+        if (query != null) {
+          query.findAll(hierarchy, roots, actual);
+        } else {
+          actual.addAll(findBottomUp(adapt(locator.get()), roots));
+        }
+        assertEquals(expected, actual, locator.get() + " from " + roots);
+      }
+    }
+  }
+
+  @Test
+  void indexed_locator_should_count_same_text_siblings_in_document_order() {
+    var panel = new JPanel();
+    var ok0 = new JButton("OK");
+    panel.add(ok0);
+    var ok1 = new JButton("OK");
+    panel.add(ok1);
+    panel.add(new JButton("OK"));
+    var parent = new SwingWidgetLocator(JPanel.class);
+
+    var first = new SwingWidgetLocator(JButton.class, "OK", 0, parent);
+    var second = new SwingWidgetLocator(JButton.class, "OK", 1, parent);
+
+    assertEquals(List.of(ok0), findTopDown(adapt(first), List.of(panel)));
+    assertEquals(List.of(ok1), findTopDown(adapt(second), List.of(panel)));
+  }
+
+  @Test
+  void query_should_match_the_same_components_as_its_matcher() {
+    var components = everything();
+    for (Matcher chain : chains()) {
+      var query = HierarchyQuery.create(chain);
+      for (Component component : components) {
+        assertEquals(
+            chain.matches(component), query.matches(component), chain + " on " + component);
+      }
+    }
+  }
+
+  @Test
+  void index_qualified_parent_should_select_among_equal_siblings() {
+    var chain =
+        new HierarchyMatcher(
+            JButton.class, "OK", 1, new HierarchyMatcher(JPanel.class, 0, named("root")));
+
+    assertEquals(List.of(firstForm.getComponent(1)), findTopDown(chain, List.of(root, dialog)));
+  }
+
+  @Test
+  void components_reachable_twice_should_be_found_once() {
+    var chain = new HierarchyMatcher(JButton.class, "OK", 1, named("form"));
+
+    var found = findTopDown(chain, List.of(root, dialog));
+
+    assertEquals(List.of(firstForm.getComponent(1), dialogForm.getComponent(1)), found);
+  }
+
+  @Test
+  void search_should_visit_every_component_once() {
+    var query = HierarchyQuery.create(new HierarchyMatcher(JButton.class, named("form")));
+
+    var visited = query.findAll(hierarchy, List.of(root, dialog, root), new ArrayList<>());
+
+    assertEquals(everything().size(), visited);
+  }
+
+  @Test
+  void query_should_only_be_created_for_chains_with_parents() {
+    assertNotNull(HierarchyQuery.create(new HierarchyMatcher(JButton.class, named("form"))));
+    assertNull(HierarchyQuery.create(new HierarchyMatcher(new ClassMatcher(JButton.class), null)));
+    assertNull(HierarchyQuery.create(new ClassMatcher(Window.class)));
+  }
+
+  @Test
+  void detached_subtree_should_be_matched_bottom_up() {
+    var form = panel("form");
+    var button = new JButton("OK");
+    form.add(button);
+    var chain = new HierarchyMatcher(JButton.class, "OK", named("form"));
+
+    assertEquals(List.of(button), findTopDown(chain, List.of(button)));
+  }
+}
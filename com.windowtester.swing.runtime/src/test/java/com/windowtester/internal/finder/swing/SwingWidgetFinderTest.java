@@ -0,0 +1,60 @@
+package com.windowtester.internal.finder.swing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import abbot.finder.AWTHierarchy;
+import com.windowtester.internal.runtime.matcher.AdapterFactory;
+import com.windowtester.runtime.swing.SwingWidgetLocator;
+import java.awt.Component;
+import java.util.ArrayList;
+import java.util.List;
+import javax.swing.JButton;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import org.junit.jupiter.api.Test;
+
+class SwingWidgetFinderTest {
+
+  private final SwingWidgetFinder finder = new SwingWidgetFinder(new AWTHierarchy());
+  private final JPanel panel = new JPanel();
+  private final JPanel nested = new JPanel();
+  private final JButton ok0 = new JButton("OK");
+  private final JButton ok1 = new JButton("OK");
+  private final JButton ok2 = new JButton("OK");
+
+  SwingWidgetFinderTest() {
+    panel.add(ok0);
+    panel.add(nested);
+    nested.add(ok1);
+    panel.add(new JLabel("OK"));
+    panel.add(ok2);
+  }
+
+  private List<Component> find(SwingWidgetLocator locator) {
+    return new ArrayList<>(finder.search(new AdapterFactory().adapt(locator), List.of(panel)));
+  }
+
+  @Test
+  void components_should_be_found_children_first_in_document_order() {
+    var found = find(new SwingWidgetLocator(JPanel.class));
+
+    assertEquals(List.of(nested, panel), found);
+    assertEquals(List.of(ok0, ok1, ok2), find(new SwingWidgetLocator(JButton.class, "OK")));
+  }
+
+  @Test
+  void indexed_locator_should_count_same_text_siblings_in_document_order() {
+    assertEquals(List.of(ok0), find(new SwingWidgetLocator(JButton.class, "OK", 0, null)));
+    assertEquals(List.of(ok1), find(new SwingWidgetLocator(JButton.class, "OK", 1, null)));
+    assertEquals(List.of(ok2), find(new SwingWidgetLocator(JButton.class, "OK", 2, null)));
+  }
+
+  @Test
+  void component_reachable_twice_should_be_visited_once() {
+    var matcher = new AdapterFactory().adapt(new SwingWidgetLocator(JButton.class));
+
+    finder.search(matcher, List.of(panel, nested, panel));
+
+    assertEquals(6, SwingWidgetFinder.getLastStatistics().visitedComponents());
+  }
+}
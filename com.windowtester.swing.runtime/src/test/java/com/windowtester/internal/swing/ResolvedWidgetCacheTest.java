@@ -0,0 +1,56 @@
+package com.windowtester.internal.swing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.windowtester.runtime.locator.WidgetReference;
+import com.windowtester.runtime.swing.SwingWidgetLocator;
+import javax.swing.JButton;
+import javax.swing.JPanel;
+import org.junit.jupiter.api.Test;
+
+class ResolvedWidgetCacheTest {
+
+  private final ResolvedWidgetCache cache = new ResolvedWidgetCache(true);
+  private final JButton button = new JButton("OK");
+
+  private int cachedSize(SwingWidgetLocator locator) {
+    cache.put(locator, new WidgetReference<>(button), cache.getGeneration());
+    return cache.size();
+  }
+
+  @Test
+  void plain_locator_should_be_cached() {
+    assertEquals(1, cachedSize(new SwingWidgetLocator(JButton.class, "OK")));
+  }
+
+  @Test
+  void indexed_locator_should_not_be_cached() {
+    assertEquals(0, cachedSize(new SwingWidgetLocator(JButton.class, "OK", 0)));
+  }
+
+  @Test
+  void locator_with_parent_should_not_be_cached() {
+    var parent = new SwingWidgetLocator(JPanel.class);
+
+    assertEquals(0, cachedSize(new SwingWidgetLocator(JButton.class, "OK", parent)));
+  }
+
+  @Test
+  void result_of_search_overlapping_a_change_should_not_be_cached() {
+    var generation = cache.getGeneration();
+    cache.invalidate();
+
+    cache.put(new SwingWidgetLocator(JButton.class), new WidgetReference<>(button), generation);
+
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  void disabled_cache_should_not_hold_entries() {
+    var disabled = new ResolvedWidgetCache(false);
+
+    disabled.put(new SwingWidgetLocator(JButton.class), new WidgetReference<>(button), 0);
+
+    assertEquals(0, disabled.size());
+  }
+}